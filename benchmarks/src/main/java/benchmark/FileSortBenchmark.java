@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tools.FileSorter7;
+
+/**
+ * FileSorter7.sortFile() on an unsorted rmap file (numerical sort by start position), time per line
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FileSortBenchmark {
+
+	private static final int LINES = 500000;
+
+	@Param({"42"})
+	public long seed;
+
+	private File tmpDir;
+	private File inputFile;
+	private File outputFile;
+	private File chunkDir;
+
+
+	@Setup
+	public void setUp() throws Exception {
+		this.tmpDir = SyntheticData.createTmpDir("sort");
+		this.inputFile = new File(this.tmpDir, "unsorted.rmap");
+		this.outputFile = new File(this.tmpDir, "sorted.rmap");
+		this.chunkDir = new File(this.tmpDir, "chunks");
+		SyntheticData.writeRmapFile(this.inputFile, new Random(this.seed), LINES, 50000000, 100);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SyntheticData.deleteRecursively(this.tmpDir);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public long sortFile() throws Exception {
+		this.chunkDir.mkdirs();
+		//same chunk size as used for small contexts
+		FileSorter7 fileSorter = new FileSorter7(this.inputFile.getAbsolutePath(), this.outputFile.getAbsolutePath(), this.chunkDir.getAbsolutePath(), new int[]{3}, 45, "\t", true);
+		fileSorter.sortFile(this.inputFile.getAbsolutePath(), this.outputFile.getAbsolutePath(), this.chunkDir.getAbsolutePath());
+		SyntheticData.deleteRecursively(this.chunkDir);
+		return this.outputFile.length();
+	}
+}
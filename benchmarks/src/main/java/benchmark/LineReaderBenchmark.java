@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tools.BufferedRandomAccessFile;
+import tools.MappedLineReader;
+
+/**
+ * sequential scan over an rmap file, time per line. BufferedRandomAccessFile and MappedLineReader create a String per line
+ * (getNextLine()), splitLine() parses the start and read length fields of a MappedLineReader line without creating Strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LineReaderBenchmark {
+
+	private static final int LINES = 1000000;
+
+	@Param({"42"})
+	public long seed;
+
+	private File tmpDir;
+	private File inputFile;
+
+
+	@Setup
+	public void setUp() throws Exception {
+		this.tmpDir = SyntheticData.createTmpDir("lines");
+		this.inputFile = new File(this.tmpDir, "reads.rmap");
+		SyntheticData.writeRmapFile(this.inputFile, new Random(this.seed), LINES, 50000000, 100);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SyntheticData.deleteRecursively(this.tmpDir);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void bufferedRandomAccessFileGetNextLine(Blackhole blackhole) throws Exception {
+		String currentLine;
+		BufferedRandomAccessFile br = new BufferedRandomAccessFile(this.inputFile, "r", 1024 * 1024);
+		while((currentLine = br.getNextLine()) != null)
+			blackhole.consume(currentLine);
+		br.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void mappedLineReaderGetNextLine(Blackhole blackhole) throws Exception {
+		String currentLine;
+		MappedLineReader reader = new MappedLineReader(this.inputFile);
+		while((currentLine = reader.getNextLine()) != null)
+			blackhole.consume(currentLine);
+		reader.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void mappedLineReaderSplitLine(Blackhole blackhole) throws Exception {
+		MappedLineReader reader = new MappedLineReader(this.inputFile);
+		while(reader.nextLine()) {
+			reader.splitLine('\t');
+			blackhole.consume(reader.parseIntField(3));
+			blackhole.consume(reader.parseIntField(7));
+		}
+		reader.close();
+	}
+}
@@ -0,0 +1,165 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import context.MappingProcessor;
+import main.ReadLocation;
+import tools.JunctionIndex;
+import tools.PackedReferenceSequence;
+
+/**
+ * local (clipping) alignments and split detection of the MappingProcessor on a synthetic reference, time per read.
+ * Both methods are private, they are called via reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MappingProcessorBenchmark {
+
+	private static final int REFERENCE_LENGTH = 2000000;
+	private static final int READS = 10000;
+	private static final int READ_LENGTH = 100;
+	private static final int JUNCTIONS = 5000;
+	private static final int MAX_MISMATCHES = 4;
+	private static final int SEED_LENGTH = 30;
+
+
+	/**
+	 * reference and mapping processor, shared by both benchmarks
+	 */
+	public static abstract class ReferenceState {
+
+		protected File tmpDir;
+		protected MappingProcessor mappingProcessor;
+		protected PackedReferenceSequence reference;
+		protected String referenceSequence;
+		protected String[] reads;
+		protected int[] readStarts;
+		protected Method method;
+
+		protected Random setUpReference(long seed) throws Exception {
+			Random random = new Random(seed);
+			this.tmpDir = SyntheticData.createTmpDir("mapper");
+			this.referenceSequence = SyntheticData.getRandomSequence(random, REFERENCE_LENGTH);
+			File genomeDir = new File(this.tmpDir, "genome");
+			File rmapDir = new File(this.tmpDir, "rmap");
+			genomeDir.mkdirs();
+			rmapDir.mkdirs();
+			File fastaFile = new File(genomeDir, "chr1.fa");
+			SyntheticData.writeFasta(fastaFile, "chr1", this.referenceSequence);
+			this.reference = new PackedReferenceSequence();
+			this.reference.load(fastaFile);
+
+			this.mappingProcessor = new MappingProcessor(rmapDir.getAbsolutePath(), genomeDir.getAbsolutePath(), null, null, null, null, "fasta", READ_LENGTH, MAX_MISMATCHES, 2, 50000, 10, SEED_LENGTH, 1, false, false, false, false, true, false, false, 10, 3, 0.9, 0.1, 10);
+			this.reads = new String[READS];
+			this.readStarts = new int[READS];
+			return random;
+		}
+
+		@TearDown
+		public void tearDown() {
+			SyntheticData.deleteRecursively(this.tmpDir);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class LocalAlignmentState extends ReferenceState {
+
+		@Param({"42"})
+		public long seed;
+
+		private StringBuilder readSequenceBuffer;
+
+		@Setup
+		public void setUp() throws Exception {
+			Random random = setUpReference(this.seed);
+			this.readSequenceBuffer = new StringBuilder();
+			this.method = MappingProcessor.class.getDeclaredMethod("getBestLocalAlignmentIndices", CharSequence.class, PackedReferenceSequence.class, int.class, StringBuilder.class, int.class, int.class, char.class, int.class, int.class, int.class, int.class, boolean.class, boolean.class);
+			this.method.setAccessible(true);
+			//reads with a few mismatches and a clipped end
+			for(int i = 0; i < READS; i++) {
+				this.readStarts[i] = random.nextInt(REFERENCE_LENGTH - READ_LENGTH);
+				this.reads[i] = SyntheticData.addNoisyEnd(random, SyntheticData.addMismatches(random, this.referenceSequence.substring(this.readStarts[i], this.readStarts[i] + READ_LENGTH), random.nextInt(3)), random.nextInt(40));
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SplitState extends ReferenceState {
+
+		@Param({"42"})
+		public long seed;
+
+		private JunctionIndex hashedSplits;
+		private JunctionIndex insertionKeys;
+		private ArrayList<ReadLocation> readLocationPool;
+		private ArrayList<int[]> mismatchArrayPool;
+
+		@Setup
+		public void setUp() throws Exception {
+			Random random = setUpReference(this.seed);
+			this.method = MappingProcessor.class.getDeclaredMethod("getSplitLocations", int.class, int.class, String.class, PackedReferenceSequence.class, int[].class, int[].class, int.class, String.class, char.class, JunctionIndex.class, JunctionIndex.class, HashMap.class, ArrayList.class, ArrayList.class, boolean.class, boolean.class, boolean.class);
+			this.method.setAccessible(true);
+			this.hashedSplits = new JunctionIndex();
+			this.insertionKeys = new JunctionIndex();
+			this.readLocationPool = new ArrayList<ReadLocation>();
+			this.mismatchArrayPool = new ArrayList<int[]>();
+
+			//junctions: last base of the upstream exon -> first base of the downstream exon
+			int[] donors = new int[JUNCTIONS];
+			int[] acceptors = new int[JUNCTIONS];
+			for(int i = 0; i < JUNCTIONS; i++) {
+				donors[i] = READ_LENGTH + random.nextInt(REFERENCE_LENGTH - 20000);
+				acceptors[i] = donors[i] + 100 + random.nextInt(10000);
+				this.hashedSplits.add(donors[i], acceptors[i]);
+			}
+
+			//full alignments of reads spanning a junction
+			int junction;
+			int upstreamLength;
+			for(int i = 0; i < READS; i++) {
+				junction = random.nextInt(JUNCTIONS);
+				upstreamLength = SEED_LENGTH + random.nextInt(READ_LENGTH - 2 * SEED_LENGTH);
+				this.readStarts[i] = donors[junction] - upstreamLength + 1;
+				this.reads[i] = SyntheticData.addMismatches(random, this.referenceSequence.substring(this.readStarts[i], donors[junction] + 1) + this.referenceSequence.substring(acceptors[junction], acceptors[junction] + READ_LENGTH - upstreamLength), random.nextInt(3));
+			}
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public void getBestLocalAlignmentIndices(LocalAlignmentState state, Blackhole blackhole) throws Exception {
+		for(int i = 0; i < READS; i++)
+			blackhole.consume(state.method.invoke(state.mappingProcessor, state.reads[i], state.reference, 0, state.readSequenceBuffer, state.readStarts[i], state.readStarts[i] + READ_LENGTH - 1, '0', 1, -4, MAX_MISMATCHES, SEED_LENGTH, false, false));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public void getSplitLocations(SplitState state, Blackhole blackhole) throws Exception {
+		for(int i = 0; i < READS; i++)
+			blackhole.consume(state.method.invoke(state.mappingProcessor, state.readStarts[i], state.readStarts[i] + READ_LENGTH - 1, state.reads[i], state.reference, new int[1], new int[1], 0, "chr1", '+', state.hashedSplits, state.insertionKeys, null, state.readLocationPool, state.mismatchArrayPool, false, false, false));
+	}
+}
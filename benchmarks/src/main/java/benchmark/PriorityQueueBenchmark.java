@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tools.MaxPriorityQueue;
+
+/**
+ * key updates (increaseKey/decreaseKey) and extractions of the MaxPriorityQueue, as done when read scores are updated during
+ * context resolution. Time per update or extraction, building the queue is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PriorityQueueBenchmark {
+
+	private static final int ELEMENTS = 100000;
+	private static final int UPDATES = 100000;
+	private static final int EXTRACTIONS = 10000;
+
+	@Param({"42"})
+	public long seed;
+
+	private double[] initialScores;
+	private int[] updateIndices;
+	private double[] updateScores;
+
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(this.seed);
+		this.initialScores = new double[ELEMENTS];
+		for(int i = 0; i < ELEMENTS; i++)
+			this.initialScores[i] = random.nextDouble() * 100;
+
+		this.updateIndices = new int[UPDATES];
+		this.updateScores = new double[UPDATES];
+		for(int i = 0; i < UPDATES; i++) {
+			this.updateIndices[i] = random.nextInt(ELEMENTS);
+			this.updateScores[i] = random.nextDouble() * 100;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UPDATES + EXTRACTIONS)
+	public void update(Blackhole blackhole) {
+		ArrayList<ScoredElement> elements = new ArrayList<ScoredElement>(ELEMENTS);
+		ScoredElement[] elementsByIndex = new ScoredElement[ELEMENTS];
+		for(int i = 0; i < ELEMENTS; i++) {
+			elementsByIndex[i] = new ScoredElement(this.initialScores[i]);
+			elements.add(elementsByIndex[i]);
+		}
+		MaxPriorityQueue<ScoredElement> queue = new MaxPriorityQueue<ScoredElement>(elements);
+
+		ScoredElement element;
+		for(int i = 0; i < UPDATES; i++) {
+			element = elementsByIndex[this.updateIndices[i]];
+			if(this.updateScores[i] > element.score) {
+				element.score = this.updateScores[i];
+				queue.increaseKey(element);
+			}
+			else {
+				element.score = this.updateScores[i];
+				queue.decreaseKey(element);
+			}
+		}
+
+		for(int i = 0; i < EXTRACTIONS; i++)
+			blackhole.consume(queue.extractMaximum());
+	}
+
+
+	private static class ScoredElement implements Comparable<ScoredElement> {
+		private double score;
+
+		public ScoredElement(double score) {
+			this.score = score;
+		}
+
+		public int compareTo(ScoredElement other) {
+			return Double.compare(this.score, other.score);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tools.ReadSequenceCodec;
+
+/**
+ * 2 bit packing of read sequences (ReadSequenceCodec, formerly String2Bitset), time per read
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReadCodecBenchmark {
+
+	private static final int READS = 10000;
+	private static final int READ_LENGTH = 100;
+
+	@Param({"42"})
+	public long seed;
+
+	private ReadSequenceCodec codec;
+	private String[] reads;
+	private long[][] packedReads;
+
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(this.seed);
+		this.codec = new ReadSequenceCodec();
+		this.reads = new String[READS];
+		this.packedReads = new long[READS][];
+		char[] read;
+		for(int i = 0; i < READS; i++) {
+			read = SyntheticData.getRandomSequence(random, READ_LENGTH).toCharArray();
+			//every 10th read contains N's
+			if(i % 10 == 0) {
+				for(int j = 0; j < 3; j++)
+					read[random.nextInt(READ_LENGTH)] = 'N';
+			}
+			this.reads[i] = new String(read);
+			this.packedReads[i] = this.codec.compress(this.reads[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public void compress(Blackhole blackhole) {
+		for(int i = 0; i < READS; i++)
+			blackhole.consume(this.codec.compress(this.reads[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public void decompress(Blackhole blackhole) {
+		for(int i = 0; i < READS; i++)
+			blackhole.consume(this.codec.decompress(this.packedReads[i]));
+	}
+}
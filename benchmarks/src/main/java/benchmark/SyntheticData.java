@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import main.UnsynchronizedBufferedWriter;
+
+/**
+ * generators for reproducible (seeded) benchmark input
+ */
+public class SyntheticData {
+
+	private static final char[] BASES = {'A','C','G','T'};
+
+	public static String getRandomSequence(Random random, int length) {
+		char[] sequence = new char[length];
+		for(int i = 0; i < length; i++)
+			sequence[i] = BASES[random.nextInt(4)];
+		return new String(sequence);
+	}
+
+
+	/**
+	 * replaces the bases at the given number of random positions by a different base
+	 */
+	public static String addMismatches(Random random, String sequence, int mismatches) {
+		char[] mutated = sequence.toCharArray();
+		int position;
+		for(int i = 0; i < mismatches; i++) {
+			position = random.nextInt(mutated.length);
+			mutated[position] = getOtherBase(random, mutated[position]);
+		}
+		return new String(mutated);
+	}
+
+	/**
+	 * replaces the last 'length' bases by a random sequence (e.g. adapter), every base differs from the original one
+	 */
+	public static String addNoisyEnd(Random random, String sequence, int length) {
+		char[] mutated = sequence.toCharArray();
+		for(int i = Math.max(0,mutated.length - length); i < mutated.length; i++)
+			mutated[i] = getOtherBase(random, mutated[i]);
+		return new String(mutated);
+	}
+
+	private static char getOtherBase(Random random, char base) {
+		char otherBase;
+		do {
+			otherBase = BASES[random.nextInt(4)];
+		} while(otherBase == base);
+		return otherBase;
+	}
+
+
+	public static void writeFasta(File fastaFile, String name, String sequence) throws Exception {
+		UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(fastaFile),1024 * 1024);
+		pw.write(">" + name);
+		pw.newLine();
+		for(int i = 0; i < sequence.length(); i += 60) {
+			pw.write(sequence.substring(i, Math.min(sequence.length(), i + 60)));
+			pw.newLine();
+		}
+		pw.close();
+	}
+
+
+	/**
+	 * writes unsorted rmap like lines: read_id	mapping_type	chr	start	end	strand	mismatches	read_length	overall_mapping_count
+	 */
+	public static void writeRmapFile(File rmapFile, Random random, int lines, int chrLength, int readLength) throws Exception {
+		UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(rmapFile),1024 * 1024);
+		StringBuilder lineBuilder = new StringBuilder();
+		int start;
+		for(int i = 0; i < lines; i++) {
+			start = 1 + random.nextInt(chrLength - readLength);
+			lineBuilder.setLength(0);
+			lineBuilder.append("read_").append(i).append("\tF\tchr1\t").append(start).append("\t").append(start + readLength - 1);
+			lineBuilder.append("\t").append(random.nextBoolean() ? '+' : '-').append("\t").append(random.nextInt(4)).append("\t").append(readLength).append("\t").append(1 + random.nextInt(3));
+			pw.write(lineBuilder.toString());
+			pw.newLine();
+		}
+		pw.close();
+	}
+
+
+	/**
+	 * new directory for the input and output files of a benchmark, delete it with deleteRecursively()
+	 */
+	public static File createTmpDir(String name) throws IOException {
+		return Files.createTempDirectory("contextmap_benchmark_" + name + "_").toFile();
+	}
+
+	public static void deleteRecursively(File file) {
+		File[] files = file.listFiles();
+		if(files != null) {
+			for(File child : files)
+				deleteRecursively(child);
+		}
+		file.delete();
+	}
+}
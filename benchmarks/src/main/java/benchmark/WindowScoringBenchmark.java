@@ -0,0 +1,103 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import context.LocalContextResolverSingleEnd;
+import main.CoverageTrack;
+import tools.AlignmentRecord;
+import tools.AlignmentRecordWriter;
+
+/**
+ * local resolution of a single end context (coverage calculation and window scoring of all read locations), time per read
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class WindowScoringBenchmark {
+
+	private static final int READS = 50000;
+	private static final int READ_LENGTH = 100;
+	private static final int CONTEXT_START = 1000000;
+	private static final int CONTEXT_LENGTH = 500000;
+
+	@Param({"42"})
+	public long seed;
+
+	private File tmpDir;
+	private File bestMatchesFile;
+	private File outputFile;
+	private ArrayList<Integer> windowSizes;
+
+
+	@Setup
+	public void setUp() throws Exception {
+		Random random = new Random(this.seed);
+		this.tmpDir = SyntheticData.createTmpDir("resolver");
+		this.bestMatchesFile = new File(this.tmpDir, "bestmatches.bin");
+		this.outputFile = new File(this.tmpDir, "resolved.txt");
+		this.windowSizes = new ArrayList<Integer>();
+		this.windowSizes.add(25);
+		this.windowSizes.add(75);
+
+		AlignmentRecordWriter writer = new AlignmentRecordWriter(this.bestMatchesFile.getAbsolutePath());
+		AlignmentRecord record = new AlignmentRecord();
+		String contextId = String.format("chr1_both_%s_%s", CONTEXT_START, CONTEXT_START + CONTEXT_LENGTH);
+		int[] coordinates = new int[4];
+		int locations;
+		int start;
+		for(int i = 0; i < READS; i++) {
+			//60% unique reads, the others map to up to 4 locations of the context
+			locations = (random.nextInt(10) < 6) ? 1 : 2 + random.nextInt(3);
+			for(int j = 0; j < locations; j++) {
+				start = CONTEXT_START + random.nextInt(CONTEXT_LENGTH - 3000);
+				coordinates[0] = start;
+				//every 10th location is a split alignment
+				if(random.nextInt(10) == 0) {
+					coordinates[1] = start + (READ_LENGTH / 2) - 1;
+					coordinates[2] = start + 1000 + random.nextInt(1000);
+					coordinates[3] = coordinates[2] + (READ_LENGTH / 2) - 1;
+					record.set(contextId, "read_" + i, "chr1", '+', coordinates, 4, random.nextInt(3), '+', false, locations, 0, '0');
+				}
+				else {
+					coordinates[1] = start + READ_LENGTH - 1;
+					record.set(contextId, "read_" + i, "chr1", '+', coordinates, 2, random.nextInt(3), '0', false, locations, 0, '0');
+				}
+				writer.write(record);
+			}
+		}
+		writer.close();
+	}
+
+	@TearDown
+	public void tearDown() {
+		SyntheticData.deleteRecursively(this.tmpDir);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public long resolve() throws Exception {
+		LocalContextResolverSingleEnd resolver = new LocalContextResolverSingleEnd(this.bestMatchesFile.getAbsolutePath(), this.outputFile.getAbsolutePath(), new CoverageTrack(CONTEXT_START, CONTEXT_START - 1), new CoverageTrack(CONTEXT_START + CONTEXT_LENGTH, CONTEXT_START + CONTEXT_LENGTH - 1), null, this.windowSizes, READ_LENGTH, CONTEXT_LENGTH, false, 100000, false, false, false);
+		resolver.resolve();
+		return this.outputFile.length();
+	}
+}
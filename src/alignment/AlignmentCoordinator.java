@@ -10,9 +10,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 
+import tools.ExternalMergeSort;
 import tools.RmapProcessor;
 import tools.SequenceConverter;
-import tools.UnixSort;
 import main.Pair;
 
 public class AlignmentCoordinator {
@@ -393,7 +393,7 @@ public class AlignmentCoordinator {
 			
 			
 			if(!skipSplitDetection) {
-				UnixSort unixSorter;
+				ExternalMergeSort unixSorter;
 				String sortedSplitCandidatesOutputDir;
 				ExecutorService sortExecutor = Executors.newFixedThreadPool(this.threads);
 				ArrayList<Future> futures = new ArrayList<Future>();
@@ -423,7 +423,7 @@ public class AlignmentCoordinator {
 					String[] orderingOptions = {"","n"};
 					for(File rmapFile : candidateFiles) {
 						
-						futures.add(sortExecutor.submit(new UnixSort(rmapFile.getAbsolutePath(),sortedSplitCandidatesOutputDir + "/" + rmapFile.getName(),multiSplitCandidatesOutputDir + "/tmp/" + threadIndex,"\t",columns,orderingOptions,500,true,true)));
+						futures.add(sortExecutor.submit(new ExternalMergeSort(rmapFile.getAbsolutePath(),sortedSplitCandidatesOutputDir + "/" + rmapFile.getName(),multiSplitCandidatesOutputDir + "/tmp/" + threadIndex,"\t",columns,orderingOptions,500,true,true)));
 						threadIndex++;
 					}
 					sortExecutor.shutdown();
@@ -470,7 +470,7 @@ public class AlignmentCoordinator {
 				candidateFiles = new File(splitCandidatesOutputDir).listFiles();
 				for(File rmapFile : candidateFiles) {
 					
-					futures.add(sortExecutor.submit(new UnixSort(rmapFile.getAbsolutePath(),sortedSplitCandidatesOutputDir + "/" + rmapFile.getName(),splitCandidatesOutputDir + "/tmp/" + threadIndex,"\t",3,500,true,true,true)));
+					futures.add(sortExecutor.submit(new ExternalMergeSort(rmapFile.getAbsolutePath(),sortedSplitCandidatesOutputDir + "/" + rmapFile.getName(),splitCandidatesOutputDir + "/tmp/" + threadIndex,"\t",3,500,true,true,true)));
 					threadIndex++;
 				}
 				sortExecutor.shutdown();
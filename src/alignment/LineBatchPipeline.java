@@ -0,0 +1,206 @@
+package alignment;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * processes the lines of an aligner stream in batches. The reading thread fills batches (getLines(), submit()) which are
+ * queued for a fixed set of parser threads, the output of a batch is written to the given writer in submission order
+ * (ordered) or as soon as the batch is processed.
+ *
+ * Batches are reused, there are at most queuedBatches + parsers + 1 batches. The reading thread only waits when all of
+ * them are in use, i.e. the memory is bounded and there is no barrier over all submitted batches.
+ *
+ * The first exception of a parser (or of the writer) stops the pipeline and terminates the remaining parsers, it is
+ * rethrown by the next call of getLines(), submit() or close().
+ */
+public class LineBatchPipeline {
+
+	private BatchProcessor processor;
+	private Writer writer;
+	private boolean ordered;
+
+	private ArrayBlockingQueue<Batch> freeBatches;
+	private ArrayBlockingQueue<Batch> queuedBatches;
+	private ArrayList<Parser> parsers;
+	private Batch currentBatch;
+	private long submittedBatches;
+
+	//processed batches waiting for their predecessors (ordered output only)
+	private HashMap<Long,Batch> processedBatches;
+	private long nextBatchToWrite;
+
+	//first exception of a parser thread
+	private volatile Throwable failure;
+
+	/**
+	 * processes a batch of lines, the output is appended to the given StringBuilder
+	 */
+	public interface BatchProcessor {
+		public void processLines(ArrayList<String> lines, StringBuilder output) throws Exception;
+	}
+
+
+	public LineBatchPipeline(BatchProcessor processor, int parsers, int queuedBatches, Writer writer, boolean ordered) {
+		this.processor = processor;
+		this.writer = writer;
+		this.ordered = ordered;
+		parsers = Math.max(1, parsers);
+		queuedBatches = Math.max(1, queuedBatches);
+
+		this.freeBatches = new ArrayBlockingQueue<Batch>(queuedBatches + parsers + 1);
+		for(int i = 0; i < queuedBatches + parsers + 1; i++)
+			this.freeBatches.add(new Batch());
+		//one additional slot per parser for the end marker
+		this.queuedBatches = new ArrayBlockingQueue<Batch>(queuedBatches + parsers);
+		this.processedBatches = new HashMap<Long,Batch>();
+		this.nextBatchToWrite = 0;
+		this.submittedBatches = 0;
+
+		this.parsers = new ArrayList<Parser>();
+		for(int i = 0; i < parsers; i++) {
+			Parser parser = new Parser();
+			parser.setDaemon(true);
+			this.parsers.add(parser);
+			parser.start();
+		}
+		this.currentBatch = null;
+		this.failure = null;
+	}
+
+	/**
+	 * returns the lines of the current batch, waits for a free batch if necessary
+	 */
+	public ArrayList<String> getLines() throws Exception {
+		checkFailure();
+		while(this.currentBatch == null) {
+			this.currentBatch = this.freeBatches.poll(100, TimeUnit.MILLISECONDS);
+			checkFailure();
+		}
+		return this.currentBatch.lines;
+	}
+
+	/**
+	 * queues the current batch for processing, the next call of getLines() returns a new batch
+	 */
+	public void submit() throws Exception {
+		checkFailure();
+		if(this.currentBatch == null || this.currentBatch.lines.isEmpty())
+			return;
+		this.currentBatch.index = this.submittedBatches++;
+		enqueue(this.currentBatch);
+		this.currentBatch = null;
+	}
+
+	/**
+	 * submits the current batch and waits until all batches are processed and written
+	 */
+	public void close() throws Exception {
+		submit();
+		for(int i = 0; i < this.parsers.size(); i++)
+			enqueue(new Batch());
+		for(Parser parser : this.parsers)
+			parser.join();
+		checkFailure();
+		if(this.currentBatch != null) {
+			this.currentBatch.clear();
+			this.freeBatches.put(this.currentBatch);
+			this.currentBatch = null;
+		}
+	}
+
+
+	/**
+	 * waits for a free slot in the queue, gives up as soon as a parser failed (the remaining parsers may never take it)
+	 */
+	private void enqueue(Batch batch) throws Exception {
+		while(!this.queuedBatches.offer(batch, 100, TimeUnit.MILLISECONDS))
+			checkFailure();
+	}
+
+	private void checkFailure() throws Exception {
+		if(this.failure != null)
+			throw new Exception("processing of a line batch failed", this.failure);
+	}
+
+	/**
+	 * records the first failure and interrupts the parsers, so that those waiting for a batch terminate as well
+	 */
+	private synchronized void fail(Throwable t) {
+		if(this.failure != null)
+			return;
+		this.failure = t;
+		for(Parser parser : this.parsers) {
+			if(parser != Thread.currentThread())
+				parser.interrupt();
+		}
+	}
+
+
+	private void write(Batch batch) throws Exception {
+		if(!this.ordered) {
+			writeOutput(batch);
+			return;
+		}
+
+		synchronized(this.processedBatches) {
+			this.processedBatches.put(batch.index, batch);
+			while(this.processedBatches.containsKey(this.nextBatchToWrite)) {
+				batch = this.processedBatches.remove(this.nextBatchToWrite);
+				this.nextBatchToWrite++;
+				writeOutput(batch);
+			}
+		}
+	}
+
+	private void writeOutput(Batch batch) throws Exception {
+		if(this.writer != null && batch.output.length() > 0) {
+			synchronized(this.writer) {
+				this.writer.append(batch.output);
+			}
+		}
+		batch.clear();
+		this.freeBatches.put(batch);
+	}
+
+
+	private class Batch {
+
+		private ArrayList<String> lines;
+		private StringBuilder output;
+		//submission index, -1 for the end marker of a parser
+		private long index;
+
+		public Batch() {
+			this.lines = new ArrayList<String>();
+			this.output = new StringBuilder();
+			this.index = -1;
+		}
+
+		public void clear() {
+			this.lines.clear();
+			this.output.setLength(0);
+			this.index = -1;
+		}
+	}
+
+
+	private class Parser extends Thread {
+
+		public void run() {
+			Batch batch;
+			try {
+				while(failure == null && (batch = queuedBatches.take()).index != -1) {
+					processor.processLines(batch.lines, batch.output);
+					write(batch);
+				}
+			}
+			catch(Throwable t) {
+				fail(t);
+			}
+		}
+	}
+}
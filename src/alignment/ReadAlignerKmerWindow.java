@@ -0,0 +1,247 @@
+package alignment;
+
+import java.util.Arrays;
+import java.util.List;
+
+import main.Pair;
+
+/**
+ * built-in aligner for the split seeds of the sliding windows. The window (contig) is indexed by a k-mer hash table in memory,
+ * so there is no index build and no process launch per window.
+ *
+ * The alignments follow the bowtie1 settings used for the sliding windows (-n <seed mismatches> -l <seed length> -a -m <max hits>
+ * -e 10000): a read is aligned end to end, the first seed length bases of the read may contain at most seed mismatches mismatches,
+ * the whole read at most 10000/40 mismatches. Reads with more than max hits alignments are not reported, alignments overlapping an N
+ * of the contig are skipped. Candidate positions are found with the pigeonhole principle: the seed is split into (seed mismatches + 1)
+ * parts, at least one of them matches exactly.
+ *
+ * Alignments are reported as lines of the sliding window format (read id, strand, 1-based start in the contig, MD field, -1).
+ */
+public class ReadAlignerKmerWindow implements SplitSeedAligner {
+
+	//quality sum limit of the sliding window alignments (bowtie -e), every base of a fasta read has quality 40
+	private static final int MAX_QUALITY_SUM = 10000;
+	private static final int BASE_QUALITY = 40;
+	private static final int MAX_KMER_LENGTH = 12;
+
+	private static final byte N = 4;
+	private static final byte[] BASE2CODE = new byte[256];
+	private static final char[] CODE2BASE = {'A','C','G','T','N'};
+	static {
+		Arrays.fill(BASE2CODE, N);
+		BASE2CODE['A'] = 0; BASE2CODE['a'] = 0;
+		BASE2CODE['C'] = 1; BASE2CODE['c'] = 1;
+		BASE2CODE['G'] = 2; BASE2CODE['g'] = 2;
+		BASE2CODE['T'] = 3; BASE2CODE['t'] = 3;
+	}
+
+	private Window window;
+
+	public ReadAlignerKmerWindow(CharSequence contig) {
+		this.window = new Window(contig);
+	}
+
+
+	public void alignReads(List<Pair<String,String>> reads, int seedLength, int seedMismatches, int maxHits, boolean alignToFwdStrand, boolean alignToRevStrand, List<String> alignments) {
+		byte[] read = new byte[256];
+		byte[] reverseComplement = new byte[256];
+		int readLength;
+		int[] fwdHits = new int[16];
+		int[] revHits = new int[16];
+		int fwdHitCount;
+		int revHitCount;
+		StringBuilder line = new StringBuilder();
+		for(Pair<String,String> currentRead : reads) {
+			readLength = currentRead.getSecond().length();
+			if(readLength == 0)
+				continue;
+			if(readLength > read.length) {
+				read = new byte[2 * readLength];
+				reverseComplement = new byte[2 * readLength];
+			}
+			for(int i = 0; i < readLength; i++) {
+				read[i] = BASE2CODE[currentRead.getSecond().charAt(i) & 0xff];
+				reverseComplement[readLength - i - 1] = (read[i] == N) ? N : (byte)(3 - read[i]);
+			}
+
+			//the seed is the 5' end of the read, for reverse complemented alignments the end of the aligned sequence
+			fwdHitCount = 0;
+			revHitCount = 0;
+			if(alignToFwdStrand) {
+				fwdHits = this.window.findAlignments(read, readLength, 0, seedLength, seedMismatches, fwdHits);
+				fwdHitCount = fwdHits[0];
+			}
+			if(alignToRevStrand) {
+				revHits = this.window.findAlignments(reverseComplement, readLength, Math.max(0, readLength - seedLength), seedLength, seedMismatches, revHits);
+				revHitCount = revHits[0];
+			}
+			if(fwdHitCount + revHitCount == 0 || fwdHitCount + revHitCount > maxHits)
+				continue;
+
+			for(int i = 1; i <= fwdHitCount; i++)
+				alignments.add(getAlignmentLine(line, currentRead.getFirst(), '+', read, readLength, fwdHits[i]));
+			for(int i = 1; i <= revHitCount; i++)
+				alignments.add(getAlignmentLine(line, currentRead.getFirst(), '-', reverseComplement, readLength, revHits[i]));
+		}
+	}
+
+	private String getAlignmentLine(StringBuilder line, String readId, char strand, byte[] alignedSequence, int readLength, int start) {
+		line.setLength(0);
+		line.append(readId).append('\t').append(strand).append('\t').append(start + 1).append('\t').append("MD:Z:");
+		int matches = 0;
+		byte referenceBase;
+		for(int i = 0; i < readLength; i++) {
+			referenceBase = this.window.contig[start + i];
+			if(alignedSequence[i] == referenceBase) {
+				matches++;
+				continue;
+			}
+			line.append(matches).append(CODE2BASE[referenceBase]);
+			matches = 0;
+		}
+		line.append(matches).append('\t').append(-1);
+		return line.toString();
+	}
+
+
+	/**
+	 * 2 bit coded window with k-mer tables (one per k-mer length, built on first use). A window must not be shared by several threads.
+	 */
+	private static class Window {
+
+		private byte[] contig;
+		//k-mer -> start positions (bucketStarts[kmer] to bucketStarts[kmer + 1] in positions)
+		private int[][] bucketStarts;
+		private int[][] positions;
+
+		public Window(CharSequence contig) {
+			this.contig = new byte[contig.length()];
+			for(int i = 0; i < this.contig.length; i++)
+				this.contig[i] = BASE2CODE[contig.charAt(i) & 0xff];
+			this.bucketStarts = new int[MAX_KMER_LENGTH + 1][];
+			this.positions = new int[MAX_KMER_LENGTH + 1][];
+		}
+
+		public int length() {
+			return this.contig.length;
+		}
+
+		private void buildTable(int k) {
+			int[] counts = new int[(1 << (2 * k)) + 1];
+			int mask = (1 << (2 * k)) - 1;
+			int kmer = 0;
+			int validBases = 0;
+			for(int i = 0; i < this.contig.length; i++) {
+				if(this.contig[i] == N) {
+					validBases = 0;
+					continue;
+				}
+				kmer = ((kmer << 2) | this.contig[i]) & mask;
+				if(++validBases >= k)
+					counts[kmer + 1]++;
+			}
+			for(int i = 1; i < counts.length; i++)
+				counts[i] += counts[i - 1];
+
+			int[] kmerPositions = new int[counts[counts.length - 1]];
+			int[] nextPosition = Arrays.copyOf(counts, counts.length - 1);
+			validBases = 0;
+			for(int i = 0; i < this.contig.length; i++) {
+				if(this.contig[i] == N) {
+					validBases = 0;
+					continue;
+				}
+				kmer = ((kmer << 2) | this.contig[i]) & mask;
+				if(++validBases >= k)
+					kmerPositions[nextPosition[kmer]++] = i - k + 1;
+			}
+			this.bucketStarts[k] = counts;
+			this.positions[k] = kmerPositions;
+		}
+
+		/**
+		 * returns the start positions (0-based) of all alignments of the given sequence. The seed starts at seedStart, the first
+		 * element of the returned array is the number of positions.
+		 */
+		private int[] findAlignments(byte[] sequence, int length, int seedStart, int seedLength, int seedMismatches, int[] hits) {
+			int seedEnd = Math.min(length, seedStart + seedLength);
+			int partLength = (seedEnd - seedStart) / (seedMismatches + 1);
+			int k = Math.min(partLength, MAX_KMER_LENGTH);
+			int candidateCount = 0;
+			int[] candidates = hits;
+
+			//seed too short for an exact part, every position is a candidate
+			if(k == 0) {
+				for(int position = 0; position + length <= this.contig.length; position++) {
+					if(++candidateCount >= candidates.length)
+						candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+					candidates[candidateCount] = position;
+				}
+			}
+
+			else {
+				if(this.positions[k] == null)
+					buildTable(k);
+				int[] kmerStarts = this.bucketStarts[k];
+				int[] kmerPositions = this.positions[k];
+				int partStart;
+				int kmer;
+				int position;
+				boolean validKmer;
+				for(int part = 0; part <= seedMismatches; part++) {
+					partStart = seedStart + part * partLength;
+					kmer = 0;
+					validKmer = true;
+					for(int i = partStart; i < partStart + k && validKmer; i++) {
+						validKmer = sequence[i] != N;
+						kmer = (kmer << 2) | sequence[i];
+					}
+					//a part containing an N has at least one mismatch
+					if(!validKmer)
+						continue;
+
+					for(int i = kmerStarts[kmer]; i < kmerStarts[kmer + 1]; i++) {
+						position = kmerPositions[i] - partStart;
+						if(position < 0 || position + length > this.contig.length)
+							continue;
+						if(++candidateCount >= candidates.length)
+							candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+						candidates[candidateCount] = position;
+					}
+				}
+				Arrays.sort(candidates, 1, candidateCount + 1);
+			}
+
+			//verify the candidates (sorted, duplicates are skipped)
+			int hitCount = 0;
+			int prevPosition = -1;
+			for(int i = 1; i <= candidateCount; i++) {
+				if(candidates[i] == prevPosition)
+					continue;
+				prevPosition = candidates[i];
+				if(isValidAlignment(sequence, length, seedStart, seedEnd, seedMismatches, candidates[i]))
+					candidates[++hitCount] = candidates[i];
+			}
+			candidates[0] = hitCount;
+			return candidates;
+		}
+
+		private boolean isValidAlignment(byte[] sequence, int length, int seedStart, int seedEnd, int seedMismatches, int position) {
+			int mismatches = 0;
+			int currentSeedMismatches = 0;
+			byte referenceBase;
+			for(int i = 0; i < length; i++) {
+				referenceBase = this.contig[position + i];
+				if(referenceBase == N)
+					return false;
+				if(sequence[i] != referenceBase) {
+					if(i >= seedStart && i < seedEnd && ++currentSeedMismatches > seedMismatches)
+						return false;
+					if(++mismatches * BASE_QUALITY > MAX_QUALITY_SUM)
+						return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -31,7 +31,8 @@ import main.Pair;
 import main.ReadLocation;
 
 import tools.BufferedRandomAccessFile;
-import tools.UnixSort;
+import tools.ExternalMergeSort;
+import tools.PackedReferenceSequence;
 
 public class SplitCandidateExtractor implements ActionListener {
 
@@ -58,6 +59,8 @@ public class SplitCandidateExtractor implements ActionListener {
 	private int threads;
 	
 	private AtomicInteger windowsNeedingBufferedReference;
+	//split seeds are aligned to the windows with the aligner of the initial alignment unless the built-in k-mer aligner is requested
+	private static boolean useBuiltInWindowAligner = false;
 	private static final double splitCandidateWindowSizeRate = 0.1;
 	private static final double splitCandidateMismatchRate = 0.5; 
 	
@@ -85,6 +88,13 @@ public class SplitCandidateExtractor implements ActionListener {
 		this.windowsNeedingBufferedReference = new AtomicInteger(0);
 	}
 	
+	/**
+	 * aligns the split seeds of the sliding windows in memory with the built-in k-mer aligner (ReadAlignerKmerWindow)
+	 */
+	public static void setUseBuiltInWindowAligner(boolean useBuiltInWindowAligner) {
+		SplitCandidateExtractor.useBuiltInWindowAligner = useBuiltInWindowAligner;
+	}
+	
 	
 	public static void processMultiSplitCandidates(String multiSplitCandidatesDir, int minExonLength, int splitSeedSize, int maxMismatches, int maxHits, String outputDir, String partialOutputFilePath, String sequenceWriterPath, boolean pairedEnd, boolean spaceInHeaderRenamed, boolean hasRenamedPairedEndHeader) {
 		try {
@@ -639,16 +649,8 @@ public class SplitCandidateExtractor implements ActionListener {
 	}
 	
 	
-	private void bufferNextReferenceSequence(String referenceSequencePath, StringBuilder reference) throws Exception {
-		BufferedReader br = new BufferedReader(new FileReader(new File(referenceSequencePath)));
-		String currentLine;
-		//skip the header
-		br.readLine();
-		reference.setLength(0);
-		while((currentLine = br.readLine()) != null) {
-			reference.append(currentLine);
-		}
-		br.close();
+	private void bufferNextReferenceSequence(String referenceSequencePath, PackedReferenceSequence reference) throws Exception {
+		reference.load(new File(referenceSequencePath));
 	}
 	
 	public void processAlignments(String inputFolderPath, String outFilePath, boolean verbose) {
@@ -671,7 +673,7 @@ public class SplitCandidateExtractor implements ActionListener {
 			int currentEnd;
 			long prevFilePointer;
 			long currentFilePointer;
-			StringBuilder referenceSequence = new StringBuilder();
+			PackedReferenceSequence referenceSequence = new PackedReferenceSequence();
 			HashMap<String,String> refName2Path = mapReferenceName2Path(this.referenceSequencesDir);
 			boolean readReverseComplemented;
 			ExecutorService windowProcessingExecutor = Executors.newFixedThreadPool(this.threads);
@@ -794,7 +796,7 @@ public class SplitCandidateExtractor implements ActionListener {
 		private int minGapSize;
 		private int maxDelSize;
 		
-		private StringBuilder referenceSequence;
+		private PackedReferenceSequence referenceSequence;
 		private String alignerBinPath;
 		private String alignerIndexerPath;
 		private String outputDir;
@@ -811,7 +813,7 @@ public class SplitCandidateExtractor implements ActionListener {
 		
 		private boolean verbose;
 		
-		public SlidingContextProcessor(ReadAligner readAligner, File alignmentFile, LineWriter splitCandidateWriter, long windowStartPointer, long windowEndPointer, int windowStart, int windowEnd, StringBuilder referenceSequence, String alignerBinPath, String alignerIndexerPath, String outputDir, int maxMismatches, int[] splitSeedSizes, int maxHits, int maxReadLength, int minReadLength, int maxGapSize,int minGapSize, int maxDelSize, int threads, boolean verbose) {
+		public SlidingContextProcessor(ReadAligner readAligner, File alignmentFile, LineWriter splitCandidateWriter, long windowStartPointer, long windowEndPointer, int windowStart, int windowEnd, PackedReferenceSequence referenceSequence, String alignerBinPath, String alignerIndexerPath, String outputDir, int maxMismatches, int[] splitSeedSizes, int maxHits, int maxReadLength, int minReadLength, int maxGapSize,int minGapSize, int maxDelSize, int threads, boolean verbose) {
 			this.readAligner = readAligner;
 			this.alignmentFile = alignmentFile;
 			this.splitCandidateWriter = splitCandidateWriter;
@@ -847,9 +849,6 @@ public class SplitCandidateExtractor implements ActionListener {
 		public void run() {
 			try {
 				
-				if(!new File(this.outputDir).exists())
-					new File(this.outputDir).mkdirs();
-				
 				// build fasta sequence of current contig
 				Date date = new Date();
 				long prevTimePoint = System.currentTimeMillis();
@@ -858,8 +857,8 @@ public class SplitCandidateExtractor implements ActionListener {
 				double overallUsedTime = 0.0;
 				String chrName = this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.'));
 				
-				String contigFilePath = String.format("%s/%s_%s.fa",this.outputDir,this.windowStart - 1,this.windowEnd - 1);
-				createContigSequence(contigFilePath,this.referenceSequence,this.windowStart - 1,this.windowEnd - 1);
+				//the reference sequence is reused for the next chromosome, the window is copied before unlocking it
+				String contig = this.referenceSequence.substring(this.windowStart - 1,this.windowEnd - 1,true);
 				fireAction(new ActionEvent(this,0,"unlocked"));
 				currentTimePoint = System.currentTimeMillis();
 				usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
@@ -870,13 +869,13 @@ public class SplitCandidateExtractor implements ActionListener {
 				
 				//generate read sequences and parse the candidate split alignments
 				prevTimePoint = System.currentTimeMillis();
-				String[] readSequencesFwdFilePaths = new String[splitSeedSizes.length];
-				String[] readSequencesRevFilePaths = new String[splitSeedSizes.length];
+				ArrayList<ArrayList<Pair<String,String>>> readSequencesFwd = new ArrayList<ArrayList<Pair<String,String>>>();
+				ArrayList<ArrayList<Pair<String,String>>> readSequencesRev = new ArrayList<ArrayList<Pair<String,String>>>();
 				for(int i = 0; i < splitSeedSizes.length; i++) {
-					readSequencesFwdFilePaths[i] = String.format("%s/fwd_reads_%s_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1,i);
-					readSequencesRevFilePaths[i] = String.format("%s/rev_reads_%s_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1,i);
+					readSequencesFwd.add(new ArrayList<Pair<String,String>>());
+					readSequencesRev.add(new ArrayList<Pair<String,String>>());
 				}
-				createReadSequencesAndParseCandidates(readSequencesFwdFilePaths,readSequencesRevFilePaths, this.alignmentFile, this.windowStartPointer, this.windowEndPointer);
+				createReadSequencesAndParseCandidates(readSequencesFwd,readSequencesRev, this.alignmentFile, this.windowStartPointer, this.windowEndPointer);
 				Collections.sort(this.candidates, new SplitCandidateReadIdComparator());
 				currentTimePoint = System.currentTimeMillis();
 				usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
@@ -885,59 +884,25 @@ public class SplitCandidateExtractor implements ActionListener {
 					System.out.println(String.format("%s\t Generated read sequences and parsed %s candidates (took me: %s s)",this.toString(), candidates.size(), usedTime));
 				
 				
-				// build index for current contig and align reads
-				prevTimePoint = System.currentTimeMillis();
-				String bowtieBasePath = String.format("%s/%s_%s",this.outputDir,this.windowStart - 1,this.windowEnd - 1);
-				this.readAligner.buildIndex(this.alignerIndexerPath, contigFilePath, bowtieBasePath);
-				currentTimePoint = System.currentTimeMillis();
-				usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-				overallUsedTime += usedTime;
-				if(this.verbose)
-					System.out.println(String.format("%s\t Builded index of current contig (took me %s s)",this.toString(),usedTime));
-				
-				
-				prevTimePoint = System.currentTimeMillis();
-				String tmpAlignmentFilePath;
-				String alignmentFilePath = String.format("%s/all_alignments_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1);
-				for(int i = 0; i < this.splitSeedSizes.length; i++) {
-					if(new File(readSequencesFwdFilePaths[i]).length() > 0)
-						this.readAligner.alignReadsSlidingWindow(this.alignerBinPath, readSequencesFwdFilePaths[i], bowtieBasePath, alignmentFilePath, splitSeedSizes[i], splitSeedMismatches[i], this.maxMismatches, this.maxHits,this.maxReadLength,this.minReadLength,1, false, true, false, false, false);
-					if(new File(readSequencesRevFilePaths[i]).length() > 0)
-						this.readAligner.alignReadsSlidingWindow(this.alignerBinPath, readSequencesRevFilePaths[i], bowtieBasePath, alignmentFilePath, splitSeedSizes[i], splitSeedMismatches[i], this.maxMismatches, this.maxHits,this.maxReadLength,this.minReadLength,1, false, false, true, false, false);
-					
-				}
-				currentTimePoint = System.currentTimeMillis();
-				usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-				overallUsedTime += usedTime;
-				if(this.verbose)
-					System.out.println(String.format("%s\t Aligned read sequences (took me: %s s)",this.toString(), usedTime));
-				
+				SortedAlignments sortedAlignments;
+				if(useBuiltInWindowAligner)
+					sortedAlignments = alignReadsInMemory(contig, readSequencesFwd, readSequencesRev);
+				else
+					sortedAlignments = alignReadsWithExternalAligner(contig, readSequencesFwd, readSequencesRev, chrName);
+				contig = null;
+				readSequencesFwd.clear();
+				readSequencesRev.clear();
 				
-				//sort alignments by read id
-				String sortedAlignmentFilePath = alignmentFilePath + ".sorted";
-				if(!new File(alignmentFilePath).exists()) {
+				if(sortedAlignments == null) {
 					date = new Date();
 					if(this.verbose)
 						System.out.println(String.format("%s\t Did not find any candidate alignments.",this.toString()));
 				}
 				
 				else {
-					prevTimePoint = System.currentTimeMillis();
-					UnixSort unixSorter = new UnixSort(alignmentFilePath,sortedAlignmentFilePath,outputDir + String.format("/tmp_%s_%s_%s",chrName,windowStart,windowEnd),"\t",1,100,false,false,false);
-					unixSorter.start();
-					synchronized(unixSorter) {
-						unixSorter.wait();
-					}
-					currentTimePoint = System.currentTimeMillis();
-					usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-					overallUsedTime += usedTime;
-					if(this.verbose)
-						System.out.println(String.format("%s\t Sorted alignments by read id (took me: %s s)",this.toString(),usedTime));
-					
-					
 					//combine alignments to obtain split candidates
 					prevTimePoint = System.currentTimeMillis();
-					combineSplitCandidateAlignments(candidates,sortedAlignmentFilePath, splitCandidateWriter, this.windowStart - 1, chrName);
+					combineSplitCandidateAlignments(candidates,sortedAlignments, splitCandidateWriter, this.windowStart - 1, chrName);
 					currentTimePoint = System.currentTimeMillis();
 					usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
 					overallUsedTime += usedTime;
@@ -950,9 +915,11 @@ public class SplitCandidateExtractor implements ActionListener {
 				this.candidates.clear();
 				prevTimePoint = System.currentTimeMillis();
 				File[] tmpFiles = new File(this.outputDir).listFiles();
-				for(File f : tmpFiles)
-					f.delete();
-				new File(this.outputDir).delete();
+				if(tmpFiles != null) {
+					for(File f : tmpFiles)
+						f.delete();
+					new File(this.outputDir).delete();
+				}
 				currentTimePoint = System.currentTimeMillis();
 				usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
 				overallUsedTime += usedTime;
@@ -965,6 +932,113 @@ public class SplitCandidateExtractor implements ActionListener {
 			}
 		}
 		
+		/**
+		 * aligns the read sequences with the built-in aligner and returns the alignments sorted by read id (null if there are none)
+		 */
+		private SortedAlignments alignReadsInMemory(String contig, ArrayList<ArrayList<Pair<String,String>>> readSequencesFwd, ArrayList<ArrayList<Pair<String,String>>> readSequencesRev) throws Exception {
+			long prevTimePoint = System.currentTimeMillis();
+			SplitSeedAligner windowAligner = new ReadAlignerKmerWindow(contig);
+			ArrayList<String> alignments = new ArrayList<String>();
+			for(int i = 0; i < this.splitSeedSizes.length; i++) {
+				windowAligner.alignReads(readSequencesFwd.get(i), this.splitSeedSizes[i], splitSeedMismatches[i], this.maxHits, true, false, alignments);
+				windowAligner.alignReads(readSequencesRev.get(i), this.splitSeedSizes[i], splitSeedMismatches[i], this.maxHits, false, true, alignments);
+			}
+			if(this.verbose)
+				System.out.println(String.format("%s\t Aligned read sequences (took me: %s s)",this.toString(), (double)(System.currentTimeMillis() - prevTimePoint)/1000.0));
+			
+			if(alignments.isEmpty())
+				return null;
+			
+			//same order as the external sort: read id first, whole line for equal ids
+			Collections.sort(alignments, new Comparator<String>() {
+				@Override
+				public int compare(String a, String b) {
+					int aEnd = a.indexOf('\t');
+					int bEnd = b.indexOf('\t');
+					int result = compareChars(a, (aEnd == -1) ? a.length() : aEnd, b, (bEnd == -1) ? b.length() : bEnd);
+					if(result != 0)
+						return result;
+					return compareChars(a, a.length(), b, b.length());
+				}
+			});
+			return new SortedAlignments(alignments);
+		}
+		
+		private int compareChars(String a, int aLength, String b, int bLength) {
+			int length = Math.min(aLength, bLength);
+			for(int i = 0; i < length; i++) {
+				if(a.charAt(i) != b.charAt(i))
+					return a.charAt(i) - b.charAt(i);
+			}
+			return aLength - bLength;
+		}
+		
+		/**
+		 * writes the contig and read sequences to the output dir, aligns them with the aligner of the initial alignment and
+		 * sorts the alignments by read id (null if there are none)
+		 */
+		private SortedAlignments alignReadsWithExternalAligner(String contig, ArrayList<ArrayList<Pair<String,String>>> readSequencesFwd, ArrayList<ArrayList<Pair<String,String>>> readSequencesRev, String chrName) throws Exception {
+			if(!new File(this.outputDir).exists())
+				new File(this.outputDir).mkdirs();
+			
+			long prevTimePoint = System.currentTimeMillis();
+			long currentTimePoint;
+			double usedTime;
+			String contigFilePath = String.format("%s/%s_%s.fa",this.outputDir,this.windowStart - 1,this.windowEnd - 1);
+			createContigSequence(contigFilePath,contig,this.windowStart - 1,this.windowEnd - 1);
+			String[] readSequencesFwdFilePaths = new String[splitSeedSizes.length];
+			String[] readSequencesRevFilePaths = new String[splitSeedSizes.length];
+			for(int i = 0; i < splitSeedSizes.length; i++) {
+				readSequencesFwdFilePaths[i] = String.format("%s/fwd_reads_%s_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1,i);
+				readSequencesRevFilePaths[i] = String.format("%s/rev_reads_%s_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1,i);
+				createReadSequences(readSequencesFwdFilePaths[i], readSequencesFwd.get(i));
+				createReadSequences(readSequencesRevFilePaths[i], readSequencesRev.get(i));
+			}
+			
+			
+			// build index for current contig and align reads
+			String bowtieBasePath = String.format("%s/%s_%s",this.outputDir,this.windowStart - 1,this.windowEnd - 1);
+			this.readAligner.buildIndex(this.alignerIndexerPath, contigFilePath, bowtieBasePath);
+			currentTimePoint = System.currentTimeMillis();
+			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+			if(this.verbose)
+				System.out.println(String.format("%s\t Builded index of current contig (took me %s s)",this.toString(),usedTime));
+			
+			
+			prevTimePoint = System.currentTimeMillis();
+			String alignmentFilePath = String.format("%s/all_alignments_%s_%s_%s.fa",this.outputDir,this.alignmentFile.getName().substring(0,alignmentFile.getName().lastIndexOf('.')),this.windowStart - 1,this.windowEnd - 1);
+			for(int i = 0; i < this.splitSeedSizes.length; i++) {
+				if(new File(readSequencesFwdFilePaths[i]).length() > 0)
+					this.readAligner.alignReadsSlidingWindow(this.alignerBinPath, readSequencesFwdFilePaths[i], bowtieBasePath, alignmentFilePath, splitSeedSizes[i], splitSeedMismatches[i], this.maxMismatches, this.maxHits,this.maxReadLength,this.minReadLength,1, false, true, false, false, false);
+				if(new File(readSequencesRevFilePaths[i]).length() > 0)
+					this.readAligner.alignReadsSlidingWindow(this.alignerBinPath, readSequencesRevFilePaths[i], bowtieBasePath, alignmentFilePath, splitSeedSizes[i], splitSeedMismatches[i], this.maxMismatches, this.maxHits,this.maxReadLength,this.minReadLength,1, false, false, true, false, false);
+				
+			}
+			currentTimePoint = System.currentTimeMillis();
+			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+			if(this.verbose)
+				System.out.println(String.format("%s\t Aligned read sequences (took me: %s s)",this.toString(), usedTime));
+			
+			
+			//sort alignments by read id
+			String sortedAlignmentFilePath = alignmentFilePath + ".sorted";
+			if(!new File(alignmentFilePath).exists())
+				return null;
+			
+			prevTimePoint = System.currentTimeMillis();
+			ExternalMergeSort unixSorter = new ExternalMergeSort(alignmentFilePath,sortedAlignmentFilePath,outputDir + String.format("/tmp_%s_%s_%s",chrName,windowStart,windowEnd),"\t",1,100,false,false,false);
+			unixSorter.start();
+			synchronized(unixSorter) {
+				unixSorter.wait();
+			}
+			currentTimePoint = System.currentTimeMillis();
+			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+			if(this.verbose)
+				System.out.println(String.format("%s\t Sorted alignments by read id (took me: %s s)",this.toString(),usedTime));
+			
+			return new SortedAlignments(new BufferedRandomAccessFile(new File(sortedAlignmentFilePath),"r",1024 * 10));
+		}
+		
 		public void addListener(ActionListener listener) {
 			this.listeners.add(listener);
 		}
@@ -1181,10 +1255,9 @@ public class SplitCandidateExtractor implements ActionListener {
 		}
 		
 		
-		private void combineSplitCandidateAlignments(ArrayList<SplitCandidate> candidates, String sortedAlignmentFilePath, LineWriter splitCandidateWriter, int contigStart, String chrName) {
+		private void combineSplitCandidateAlignments(ArrayList<SplitCandidate> candidates, SortedAlignments candidateReader, LineWriter splitCandidateWriter, int contigStart, String chrName) {
 			String currentLine = null;
 			try {
-				BufferedRandomAccessFile candidateReader = new BufferedRandomAccessFile(new File(sortedAlignmentFilePath),"r",1024 * 10);
 				ArrayList<SplitCandidate> fwdCandidatesFwdStrand = new ArrayList<SplitCandidate>();
 				ArrayList<SplitCandidate> fwdCandidatesRevStrand = new ArrayList<SplitCandidate>();
 				ArrayList<SplitCandidate> bwdCandidatesFwdStrand = new ArrayList<SplitCandidate>();
@@ -1747,22 +1820,27 @@ public class SplitCandidateExtractor implements ActionListener {
 		}
 		
 		
-		private void createContigSequence(String outputFilePath, StringBuilder referenceSequence, int windowStart, int windowEnd) throws Exception {
+		private void createContigSequence(String outputFilePath, String contig, int windowStart, int windowEnd) throws Exception {
 			PrintWriter pw = new PrintWriter(new FileWriter(new File(outputFilePath)));
 			pw.println(String.format(">%s_%s", windowStart,windowEnd));
-			pw.println(referenceSequence.substring(windowStart, windowEnd));
+			pw.println(contig);
 			pw.close();
 		}
 		
-		
-		private void createReadSequencesAndParseCandidates(String[] outputFilePathsFwdStrand, String[] outputFilePathsRevStrand, File alignmentFile, long windowStartPointer, long windowEndPointer) throws Exception {
-			PrintWriter[] fwdPws = new PrintWriter[outputFilePathsFwdStrand.length];
-			PrintWriter[] revPws = new PrintWriter[outputFilePathsFwdStrand.length];
-			for(int i = 0; i < fwdPws.length; i++) {
-				fwdPws[i] = new PrintWriter(new FileWriter(new File(outputFilePathsFwdStrand[i])));
-				revPws[i] = new PrintWriter(new FileWriter(new File(outputFilePathsRevStrand[i])));
+		private void createReadSequences(String outputFilePath, ArrayList<Pair<String,String>> readSequences) throws Exception {
+			PrintWriter pw = new PrintWriter(new FileWriter(new File(outputFilePath)));
+			for(Pair<String,String> readSequence : readSequences) {
+				pw.println(">" + readSequence.getFirst());
+				pw.println(readSequence.getSecond());
 			}
-			
+			pw.close();
+		}
+		
+		
+		/**
+		 * collects the read sequences (id and sequence) to align per split seed index and strand
+		 */
+		private void createReadSequencesAndParseCandidates(ArrayList<ArrayList<Pair<String,String>>> readSequencesFwd, ArrayList<ArrayList<Pair<String,String>>> readSequencesRev, File alignmentFile, long windowStartPointer, long windowEndPointer) throws Exception {
 			BufferedRandomAccessFile br = new BufferedRandomAccessFile(alignmentFile,"r",1024 * 1024);
 			br.seek(windowStartPointer);
 			String currentLine;
@@ -1808,11 +1886,10 @@ public class SplitCandidateExtractor implements ActionListener {
 								sequence.setCharAt(i, substitute(sequence.charAt(i)));
 							}
 							
-							revPws[splitSizeIndex].println(">" + readId);
 							if(halfReadMapping)
-								revPws[splitSizeIndex].println(sequence.toString().substring(0,sequence.length()/2));
+								readSequencesRev.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.substring(0,sequence.length()/2)));
 							else
-								revPws[splitSizeIndex].println(sequence.toString());
+								readSequencesRev.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.toString()));
 						}
 						
 					}
@@ -1822,11 +1899,10 @@ public class SplitCandidateExtractor implements ActionListener {
 							//sequence field: original read
 							//search for: upstream hit of original read on + strand
 							alreadyAddedReads.add(readId + "+");
-							fwdPws[splitSizeIndex].println(">" + readId);
 							if(halfReadMapping)
-								fwdPws[splitSizeIndex].println(sequence.toString().substring(0,sequence.length()/2));
+								readSequencesFwd.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.substring(0,sequence.length()/2)));
 							else
-								fwdPws[splitSizeIndex].println(sequence.toString());
+								readSequencesFwd.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.toString()));
 						}
 						
 					}
@@ -1845,11 +1921,10 @@ public class SplitCandidateExtractor implements ActionListener {
 								sequence.setCharAt(i, substitute(sequence.charAt(i)));
 							}
 							
-							revPws[splitSizeIndex].println(">" + readId);
 							if(halfReadMapping)
-								revPws[splitSizeIndex].println(sequence.toString().substring(0,sequence.length()/2));
+								readSequencesRev.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.substring(0,sequence.length()/2)));
 							else
-								revPws[splitSizeIndex].println(sequence.toString());
+								readSequencesRev.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.toString()));
 						}
 					}
 					
@@ -1859,11 +1934,10 @@ public class SplitCandidateExtractor implements ActionListener {
 							alreadyAddedReads.add(readId + "+");
 							// sequence field: reverse complement of original read
 							// search for: upstream hit of reverse complemented read on + strand
-							fwdPws[splitSizeIndex].println(">" + readId);
 							if(halfReadMapping)
-								fwdPws[splitSizeIndex].println(sequence.toString().substring(0,sequence.length()/2));
+								readSequencesFwd.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.substring(0,sequence.length()/2)));
 							else
-								fwdPws[splitSizeIndex].println(sequence.toString());
+								readSequencesFwd.get(splitSizeIndex).add(new Pair<String,String>(readId,sequence.toString()));
 						}
 						
 					}
@@ -1874,11 +1948,6 @@ public class SplitCandidateExtractor implements ActionListener {
 					break;
 			}
 			br.close();
-			for(int i = 0; i < fwdPws.length; i++) {
-				fwdPws[i].close();
-				revPws[i].close();
-			}
-			
 		}
 		
 		
@@ -2003,6 +2072,54 @@ public class SplitCandidateExtractor implements ActionListener {
 	}
 	
 	
+	/**
+	 * alignments of a window sorted by read id, either a sorted alignment file or the in-memory alignments of the built-in aligner.
+	 * For in-memory alignments the file pointer is the index of the next line.
+	 */
+	private class SortedAlignments {
+
+		private BufferedRandomAccessFile alignmentReader;
+		private ArrayList<String> alignments;
+		private int nextAlignment;
+
+		public SortedAlignments(BufferedRandomAccessFile alignmentReader) {
+			this.alignmentReader = alignmentReader;
+		}
+
+		public SortedAlignments(ArrayList<String> alignments) {
+			this.alignments = alignments;
+			this.nextAlignment = 0;
+		}
+
+		public String getNextLine() throws Exception {
+			if(this.alignmentReader != null)
+				return this.alignmentReader.getNextLine();
+			if(this.nextAlignment >= this.alignments.size())
+				return null;
+			return this.alignments.get(this.nextAlignment++);
+		}
+
+		public long getFilePointer() throws Exception {
+			if(this.alignmentReader != null)
+				return this.alignmentReader.getFilePointer();
+			return this.nextAlignment;
+		}
+
+		public void seek(long pos) throws Exception {
+			if(this.alignmentReader != null)
+				this.alignmentReader.seek(pos);
+			else
+				this.nextAlignment = (int)pos;
+		}
+
+		public void close() throws Exception {
+			if(this.alignmentReader != null)
+				this.alignmentReader.close();
+			else
+				this.alignments = new ArrayList<String>();
+		}
+	}
+
 	private class LineWriter {
 		
 		private BufferedWriter bw;
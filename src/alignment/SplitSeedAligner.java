@@ -0,0 +1,18 @@
+package alignment;
+
+import java.util.List;
+
+import main.Pair;
+
+/**
+ * aligns the split seeds of a sliding window in memory. An instance aligns to the window (contig) it was created for.
+ */
+interface SplitSeedAligner {
+
+	/**
+	 * aligns the given reads (id, sequence), the alignments are added to the given list as lines of the sliding window format
+	 * (read id, strand, 1-based start in the window, MD field, -1)
+	 */
+	public void alignReads(List<Pair<String,String>> reads, int seedLength, int seedMismatches, int maxHits, boolean alignToFwdStrand, boolean alignToRevStrand, List<String> alignments);
+
+}
@@ -13,18 +13,15 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.StringTokenizer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import main.Pair;
 import main.Triplet;
+import tools.KeyedFileWriter;
 
 public class StreamConsumerInitialPhase extends SamStreamConsumer {
 	
@@ -79,12 +76,12 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 			}
 			
 			//in case the stream is ready, we output its content now
-			LineWriter lineWriter = null;
+			KeyedFileWriter splitWriter = null;
+			KeyedFileWriter multiSplitWriter = null;
 			BufferedWriter bw = null;
 			BufferedWriter unalignedBw = null;
-			ExecutorService lineProcessingExecutor = Executors.newFixedThreadPool(this.threads);
-			ArrayList<Future> futures = new ArrayList<Future>();
-			ArrayList<String> lines = new ArrayList<String>();
+			LineBatchPipeline pipeline = null;
+			ArrayList<String> lines = null;
 			String[] splittedLine;
 			Pattern tabPattern = Pattern.compile("\t");
 			String readId;
@@ -98,10 +95,16 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 					unalignedBw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.unalignedReadsOutputFilePath),true)),1024 * 1024 * 10);
 				
 				String line = null;
-				lineWriter = new LineWriter(splitCandidatesOutputDir,multiSplitCandidatesOutputDir, bw,unalignedBw);
+				//at most 500 open files per writer, the least recently used files are closed first
+				splitWriter = new KeyedFileWriter(splitCandidatesOutputDir, ".rmap", 500);
+				multiSplitWriter = new KeyedFileWriter(multiSplitCandidatesOutputDir, ".sam", 500);
+				if(bw != null) {
+					//full alignments are the output of the batches, their order does not matter
+					pipeline = new LineBatchPipeline(new SamLineBatchProcessor(splitWriter, multiSplitWriter, unalignedBw), this.threads, 2 * this.threads, bw, false);
+					lines = pipeline.getLines();
+				}
 				
 				int processedLines = 0;
-				Date date;
 				while ((line = br.readLine()) != null) {
 					if(this.streamType.equals(StreamType.ERROR)) {
 						System.err.println(line);
@@ -124,18 +127,10 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 								break;
 							}
 							
-							futures.add(lineProcessingExecutor.submit(new LineProcessor(lines, lineWriter, maxMismatches,seedLength,seedMismatches, splitSeedSizes,filterAlignments,mdFlagPreprocessed,skipSplitDetection,skipMultiSplitDetection)));
-							lines = new ArrayList<String>();
+							pipeline.submit();
+							lines = pipeline.getLines();
 							lines.add(line);
 							processedLines = 1;
-							
-							if(futures.size() >= 8 * this.threads) {
-								for(Future future : futures)
-									future.get();
-								futures.clear();
-								date = new Date();
-								
-							}
 						}
 						
 					}
@@ -143,14 +138,10 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 			}
 			br.close();
 			if(bw != null) {
-				futures.add(lineProcessingExecutor.submit(new LineProcessor(lines, lineWriter, maxMismatches,seedLength, seedMismatches, splitSeedSizes,filterAlignments,mdFlagPreprocessed,skipSplitDetection,skipMultiSplitDetection)));
-				for(Future future : futures)
-					future.get();
-				futures.clear();
-				lineProcessingExecutor.shutdown();
+				pipeline.close();
 				bw.close();
-				lineWriter.closeSplitWriters();
-				lineWriter.closeMultiSplitWriters();
+				splitWriter.close();
+				multiSplitWriter.close();
 			}
 			
 			if(unalignedBw != null)
@@ -172,13 +163,36 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 	
 
 	
+	/**
+	 * processes a batch of the pipeline, split candidates are written per chromosome and full alignments to the batch output
+	 */
+	private class SamLineBatchProcessor implements LineBatchPipeline.BatchProcessor {
+		
+		private KeyedFileWriter splitWriter;
+		private KeyedFileWriter multiSplitWriter;
+		private BufferedWriter unalignedBw;
+		
+		public SamLineBatchProcessor(KeyedFileWriter splitWriter, KeyedFileWriter multiSplitWriter, BufferedWriter unalignedBw) {
+			this.splitWriter = splitWriter;
+			this.multiSplitWriter = multiSplitWriter;
+			this.unalignedBw = unalignedBw;
+		}
+		
+		@Override
+		public void processLines(ArrayList<String> lines, StringBuilder output) throws Exception {
+			LineWriter lineWriter = new LineWriter(this.splitWriter, this.multiSplitWriter, output, this.unalignedBw);
+			new LineProcessor(lines, lineWriter, maxMismatches,seedLength,seedMismatches, splitSeedSizes,filterAlignments,mdFlagPreprocessed,skipSplitDetection,skipMultiSplitDetection).process();
+		}
+	}
+	
+	
 	/**
 	 * already adds full AND partial alignments to the all_reads.rmap file
 	 * @author bonfert
 	 *
 	 */
 	
-	private class LineProcessor extends Thread {
+	private class LineProcessor {
 		
 		private ArrayList<String> lines;
 		private int maxMismatches;
@@ -207,222 +221,217 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 			this.skipMultiSplitDetection = skipMultiSplitDetection;
 		}
 		
-		public void run() {
-			try {
-				StringTokenizer st;
-				StringBuilder matches = new StringBuilder();
-				Pair<String,ArrayList<Integer>> alignmentTypeAndMismatchCounts = new Pair<String,ArrayList<Integer>>();
-				Triplet<String,String,Integer> mismatchInfoReadIdStart = new Triplet<String,String,Integer>();
-				ArrayList<Integer> mismatchCounts = new ArrayList<Integer>();
-				String alignmentType = "";
-				int mismatchCount = -1;
-				String chr;
-				int start;
-				String cigar;
-				String sequence;
-				char strand;
-				int readLength;
-				boolean isReverseComplement;
-				boolean softClipped;
-				boolean softClippedAtTheStart;
-				String mdField = null;
-				String mismatchInfo;
-				int mdFieldPosition = -1;
-				String readId;
-				String tmpReadId;
-				String flag;
-				String mappingQuality;
-				String mateRefName;
-				String mateStart;
-				String fragmentLength;
-				StringBuilder lineToWrite = new StringBuilder();
-				int tmpMismatchCount;
-				int fwdSeedMismatches;
-				String[] splittedSamLine;
-				Pattern tabPattern = Pattern.compile("\t");
+		public void process() throws Exception {
+			StringTokenizer st;
+			StringBuilder matches = new StringBuilder();
+			Pair<String,ArrayList<Integer>> alignmentTypeAndMismatchCounts = new Pair<String,ArrayList<Integer>>();
+			Triplet<String,String,Integer> mismatchInfoReadIdStart = new Triplet<String,String,Integer>();
+			ArrayList<Integer> mismatchCounts = new ArrayList<Integer>();
+			String alignmentType = "";
+			int mismatchCount = -1;
+			String chr;
+			int start;
+			String cigar;
+			String sequence;
+			char strand;
+			int readLength;
+			boolean isReverseComplement;
+			boolean softClipped;
+			boolean softClippedAtTheStart;
+			String mdField = null;
+			String mismatchInfo;
+			int mdFieldPosition = -1;
+			String readId;
+			String tmpReadId;
+			String flag;
+			String mappingQuality;
+			String mateRefName;
+			String mateStart;
+			String fragmentLength;
+			StringBuilder lineToWrite = new StringBuilder();
+			int tmpMismatchCount;
+			int fwdSeedMismatches;
+			String[] splittedSamLine;
+			Pattern tabPattern = Pattern.compile("\t");
+			
+			String prevSequence = null;
+			char prevStrand = '+';
+			StringBuilder sb  = new StringBuilder();
+			
+			for(String line : this.lines) {
 				
-				String prevSequence = null;
-				char prevStrand = '+';
-				StringBuilder sb  = new StringBuilder();
+				if(line.charAt(0) == '@')
+					continue;
 				
-				for(String line : this.lines) {
-					
-					if(line.charAt(0) == '@')
-						continue;
-					
-					st = new StringTokenizer(line,"\t");
-					readId = st.nextToken();
-					isReverseComplement = false;
-					if(readId.length() >= 3 && readId.substring(readId.length() - 3).equals("/rc"))
-						isReverseComplement = true;
-					flag = st.nextToken();
-					strand = getStrandFromSamFlag(Integer.valueOf(flag));
-					chr = st.nextToken();
-					
-					start = Integer.valueOf(st.nextToken());
-					mappingQuality = st.nextToken();
-					cigar = st.nextToken();
-					readLength = getReadLength(cigar);
-					mateRefName = st.nextToken();
-					mateStart = st.nextToken();
-					fragmentLength = st.nextToken();
-					sequence = st.nextToken();
-					
-					if(chr.equals("*")) {
-						this.lineWriter.writeUnalignedRead(readId, sequence);
-						continue;
-					}
-					
-					if(sequence.equals("*") || cigar.contains("H")) {
-						sb.setLength(0);
-						sb.append(prevSequence);
-						if(prevStrand != strand) {
-							sb.reverse();
-							for(int i = 0; i < sb.length(); i++) {
-								sb.setCharAt(i, substitute(sb.charAt(i)));
-							}
+				st = new StringTokenizer(line,"\t");
+				readId = st.nextToken();
+				isReverseComplement = false;
+				if(readId.length() >= 3 && readId.substring(readId.length() - 3).equals("/rc"))
+					isReverseComplement = true;
+				flag = st.nextToken();
+				strand = getStrandFromSamFlag(Integer.valueOf(flag));
+				chr = st.nextToken();
+				
+				start = Integer.valueOf(st.nextToken());
+				mappingQuality = st.nextToken();
+				cigar = st.nextToken();
+				readLength = getReadLength(cigar);
+				mateRefName = st.nextToken();
+				mateStart = st.nextToken();
+				fragmentLength = st.nextToken();
+				sequence = st.nextToken();
+				
+				if(chr.equals("*")) {
+					this.lineWriter.writeUnalignedRead(readId, sequence);
+					continue;
+				}
+				
+				if(sequence.equals("*") || cigar.contains("H")) {
+					sb.setLength(0);
+					sb.append(prevSequence);
+					if(prevStrand != strand) {
+						sb.reverse();
+						for(int i = 0; i < sb.length(); i++) {
+							sb.setCharAt(i, substitute(sb.charAt(i)));
 						}
-						
-						sequence = sb.toString();
-					}
-					
-					else {
-						prevSequence = sequence;
-						prevStrand = strand;
 					}
 					
+					sequence = sb.toString();
+				}
+				
+				else {
+					prevSequence = sequence;
+					prevStrand = strand;
+				}
+				
+				
+				st.nextToken();
+				
+				mdFieldPosition = 11;
+				while(st.hasMoreTokens()) {
+					mdField = st.nextToken();
+					if(mdField.length() > 1 && mdField.substring(0,2).equals("MD"))
+						break;
+					mdFieldPosition++;
+				}
+				
+				st = new StringTokenizer(mdField, ":");
+				st.nextToken();
+				st.nextToken();
+				mismatchInfo = st.nextToken();
+				
+				/**
+				 * clipped read
+				 */
+				softClipped = false;
+				softClippedAtTheStart = false;
+				if(cigar.contains("S") || cigar.contains("H")) {
+					softClipped = true;
+					softClippedAtTheStart = modifyMDFlagReadIdStart(mismatchInfo,readId,start, cigar,mismatchInfoReadIdStart,strand,this.mdFlagPreprocessed);
+					mismatchInfo = mismatchInfoReadIdStart.getFirst();
+					tmpReadId = mismatchInfoReadIdStart.getSecond();
+					start = mismatchInfoReadIdStart.getThird();
 					
-					st.nextToken();
-					
-					mdFieldPosition = 11;
-					while(st.hasMoreTokens()) {
-						mdField = st.nextToken();
-						if(mdField.length() > 1 && mdField.substring(0,2).equals("MD"))
-							break;
-						mdFieldPosition++;
-					}
-					
-					st = new StringTokenizer(mdField, ":");
-					st.nextToken();
-					st.nextToken();
-					mismatchInfo = st.nextToken();
 					
-					/**
-					 * clipped read
-					 */
-					softClipped = false;
-					softClippedAtTheStart = false;
-					if(cigar.contains("S") || cigar.contains("H")) {
-						softClipped = true;
-						softClippedAtTheStart = modifyMDFlagReadIdStart(mismatchInfo,readId,start, cigar,mismatchInfoReadIdStart,strand,this.mdFlagPreprocessed);
-						mismatchInfo = mismatchInfoReadIdStart.getFirst();
-						tmpReadId = mismatchInfoReadIdStart.getSecond();
-						start = mismatchInfoReadIdStart.getThird();
+					//in case a read is clipped at the beginning as well as at the end with more than minAnchorSize bps (set to 10 per default) 
+					//we will consider this read as a multi intron spanning read
+					if(tmpReadId == null) {
 						
+						if(this.skipMultiSplitDetection)
+							continue;
 						
-						//in case a read is clipped at the beginning as well as at the end with more than minAnchorSize bps (set to 10 per default) 
-						//we will consider this read as a multi intron spanning read
-						if(tmpReadId == null) {
-							
-							if(this.skipMultiSplitDetection)
-								continue;
+						lineToWrite.setLength(0);
+						if(this.mdFlagPreprocessed)
+							lineToWrite.append(line);
+						else {
 							
-							lineToWrite.setLength(0);
-							if(this.mdFlagPreprocessed)
-								lineToWrite.append(line);
-							else {
-								
-								splittedSamLine = tabPattern.split(line);
-								splittedSamLine[mdFieldPosition] = "MD:Z:" + mismatchInfo;
-								splittedSamLine[9] = sequence;
-								lineToWrite.append(splittedSamLine[0]);
-								for(int i = 1; i < splittedSamLine.length; i++) {
-									lineToWrite.append("\t").append(splittedSamLine[i]);
-								}
+							splittedSamLine = tabPattern.split(line);
+							splittedSamLine[mdFieldPosition] = "MD:Z:" + mismatchInfo;
+							splittedSamLine[9] = sequence;
+							lineToWrite.append(splittedSamLine[0]);
+							for(int i = 1; i < splittedSamLine.length; i++) {
+								lineToWrite.append("\t").append(splittedSamLine[i]);
 							}
-							this.lineWriter.writeMultiSplitAlignmentLine(chr,lineToWrite.toString());
-							continue;
 						}
+						this.lineWriter.writeMultiSplitAlignmentLine(chr,lineToWrite.toString());
+						continue;
 					}
+				}
+				
+				
+				setAlignmentTypeAndMismatchCounts(mismatchInfo,cigar,alignmentTypeAndMismatchCounts, mismatchCounts,this.maxMismatches,this.seedLength,this.splitSeedSizes,strand,softClipped,softClippedAtTheStart);
+				alignmentType = alignmentTypeAndMismatchCounts.getFirst();
+				mismatchCounts = alignmentTypeAndMismatchCounts.getSecond();
+				
+				if(alignmentType.equals("F") || alignmentType.equals("P")) {
 					
-					
-					setAlignmentTypeAndMismatchCounts(mismatchInfo,cigar,alignmentTypeAndMismatchCounts, mismatchCounts,this.maxMismatches,this.seedLength,this.splitSeedSizes,strand,softClipped,softClippedAtTheStart);
-					alignmentType = alignmentTypeAndMismatchCounts.getFirst();
-					mismatchCounts = alignmentTypeAndMismatchCounts.getSecond();
-					
-					if(alignmentType.equals("F") || alignmentType.equals("P")) {
+					/*
+					 * in case we filter the alignments (only for the backward alignment step), we discard full
+					 * read alignments with <= # seed mismatches in the whole read or in the fwd seed region (such alignments were already
+					 * found in the forward alignment step
+					 */
+					mismatchCount = mismatchCounts.get(mismatchCounts.size() - 1);
+					if(this.filterAlignments && alignmentType.equals("F")) {
+						if(mismatchCount <= this.seedMismatches)
+							continue;
 						
-						/*
-						 * in case we filter the alignments (only for the backward alignment step), we discard full
-						 * read alignments with <= # seed mismatches in the whole read or in the fwd seed region (such alignments were already
-						 * found in the forward alignment step
-						 */
-						mismatchCount = mismatchCounts.get(mismatchCounts.size() - 1);
-						if(this.filterAlignments && alignmentType.equals("F")) {
-							if(mismatchCount <= this.seedMismatches)
-								continue;
-							
-							fwdSeedMismatches = 0;
-							tmpMismatchCount = mismatchCounts.get(mismatchCounts.size() - 1);
-							for(int i = mismatchCounts.size() - 1; i >= mismatchCounts.size() - this.seedLength; i--) {
-								if(mismatchCounts.get(i) < tmpMismatchCount) {
-									fwdSeedMismatches++;
-									tmpMismatchCount--;
-								}
+						fwdSeedMismatches = 0;
+						tmpMismatchCount = mismatchCounts.get(mismatchCounts.size() - 1);
+						for(int i = mismatchCounts.size() - 1; i >= mismatchCounts.size() - this.seedLength; i--) {
+							if(mismatchCounts.get(i) < tmpMismatchCount) {
+								fwdSeedMismatches++;
+								tmpMismatchCount--;
 							}
-							
-							if(fwdSeedMismatches <= this.seedMismatches)
-								continue;
-							
-						}
-						
-						else if(alignmentType.equals("P")) {
-							
-							if(this.skipSplitDetection)
-								continue;
-							
-							mismatchCount = this.maxMismatches + 1;
 						}
 						
+						if(fwdSeedMismatches <= this.seedMismatches)
+							continue;
 						
+					}
+					
+					else if(alignmentType.equals("P")) {
 						
+						if(this.skipSplitDetection)
+							continue;
 						
-						if(isReverseComplement) {
-							readId = readId.substring(0, readId.length() - 3);
+						mismatchCount = this.maxMismatches + 1;
+					}
+					
+					
+					
+					
+					if(isReverseComplement) {
+						readId = readId.substring(0, readId.length() - 3);
+						if(strand == '+')
+							strand = '-';
+						else
+							strand = '+';
+					}
+					
+					lineToWrite.setLength(0);
+					lineToWrite.append(readId).append("\t").append(alignmentType).append("\t").append(chr).append("\t").append(start).append("\t.\t").append(strand).append("\t").append(mismatchCount).append("\t").append(readLength);
+					this.lineWriter.writeFullAlignmentLine(lineToWrite.toString());
+				}
+				
+				else {
+					if(softClipped) {
+						readId = mismatchInfoReadIdStart.getSecond();
+						if(readId.length() >= 3 && readId.substring(readId.length() - 3).equals("/rc")) {
 							if(strand == '+')
 								strand = '-';
 							else
 								strand = '+';
 						}
-						
-						lineToWrite.setLength(0);
-						lineToWrite.append(readId).append("\t").append(alignmentType).append("\t").append(chr).append("\t").append(start).append("\t.\t").append(strand).append("\t").append(mismatchCount).append("\t").append(readLength);
-						this.lineWriter.writeFullAlignmentLine(lineToWrite.toString());
+							
 					}
 					
-					else {
-						if(softClipped) {
-							readId = mismatchInfoReadIdStart.getSecond();
-							if(readId.length() >= 3 && readId.substring(readId.length() - 3).equals("/rc")) {
-								if(strand == '+')
-									strand = '-';
-								else
-									strand = '+';
-							}
-								
-						}
-						
-						lineToWrite.setLength(0);
-						lineToWrite.append(readId).append("\t").append(strand).append("\t").append(start).append("\t").append(sequence).append("\t").append("MD:Z:").append(mismatchInfo).append("\t").append(readLength).append("\t").append(alignmentType.split("_")[1]).append("\t").append(cigar);
-						this.lineWriter.writeSplitAlignmentLine(chr,lineToWrite.toString());
-					}
+					lineToWrite.setLength(0);
+					lineToWrite.append(readId).append("\t").append(strand).append("\t").append(start).append("\t").append(sequence).append("\t").append("MD:Z:").append(mismatchInfo).append("\t").append(readLength).append("\t").append(alignmentType.split("_")[1]).append("\t").append(cigar);
+					this.lineWriter.writeSplitAlignmentLine(chr,lineToWrite.toString());
 				}
-				this.lines.clear();
-		
-			}
-			catch(Exception e) {
-				e.printStackTrace();
 			}
+			this.lines.clear();
+			this.lineWriter.flush();
 		}
 		
 		private char substitute(char n) {
@@ -435,123 +444,66 @@ public class StreamConsumerInitialPhase extends SamStreamConsumer {
 	}
 
 	
+	/**
+	 * collects the output of one line processor. Split and multi split candidates are written in blocks to the per chromosome
+	 * files of the shared KeyedFileWriters, full alignments are added to the output of the batch.
+	 */
 	private class LineWriter {
 		
-		private HashMap<String, BufferedWriter> chr2splitWriter;
-		private HashMap<String, BufferedWriter> chr2multiSplitWriter;
-		private BufferedWriter bw;
+		private KeyedFileWriter.Buffer splitBuffer;
+		private KeyedFileWriter.Buffer multiSplitBuffer;
 		private BufferedWriter unalignedBw;
-		private String splitCandidatesOutputDir;
-		private String multiSplitCandidatesOutputDir;
-		
-		public LineWriter(String splitCandidatesOutputDir, String multiSplitCandidatesOutputDir, BufferedWriter bw, BufferedWriter unalignedBw) {
-			this.splitCandidatesOutputDir = splitCandidatesOutputDir;
-			this.multiSplitCandidatesOutputDir = multiSplitCandidatesOutputDir;
-			this.chr2splitWriter = new HashMap<String,BufferedWriter>();
-			this.chr2multiSplitWriter = new HashMap<String,BufferedWriter>();
-			this.bw = bw;
+		private StringBuilder fullAlignmentLines;
+		private StringBuilder unalignedReads;
+		private final int maxBufferSize = 1024 * 1024;
+		
+		public LineWriter(KeyedFileWriter splitWriter, KeyedFileWriter multiSplitWriter, StringBuilder fullAlignmentLines, BufferedWriter unalignedBw) {
+			this.splitBuffer = splitWriter.newBuffer();
+			this.multiSplitBuffer = multiSplitWriter.newBuffer();
 			this.unalignedBw = unalignedBw;
+			this.fullAlignmentLines = fullAlignmentLines;
+			this.unalignedReads = new StringBuilder();
 		}
 		
 		
 		
-		public synchronized void writeSplitAlignmentLine(String key, String line) {
-			try {
-				if(!this.chr2splitWriter.containsKey(key))
-					chr2splitWriter.put(key, new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.splitCandidatesOutputDir + "/" + key + ".rmap"),true)), 1024 * 512));
-				
-				this.chr2splitWriter.get(key).write(line);
-				this.chr2splitWriter.get(key).newLine();
-				
-				//if more than 500 filehandles are opened, we will close all writers
-				checkWriterCount(this.chr2splitWriter,500);
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-				System.err.println(line);
-			}
-		}
-		
-		
-		public synchronized void writeMultiSplitAlignmentLine(String key, String line) {
-			try {
-				if(!this.chr2multiSplitWriter.containsKey(key))
-					chr2multiSplitWriter.put(key, new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.multiSplitCandidatesOutputDir + "/" + key + ".sam"),true)), 1024 * 512));
-				
-				this.chr2multiSplitWriter.get(key).write(line);
-				this.chr2multiSplitWriter.get(key).newLine();
-				
-				checkWriterCount(this.chr2multiSplitWriter,500);
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-				System.err.println(line);
-			}
+		public void writeSplitAlignmentLine(String key, String line) throws Exception {
+			this.splitBuffer.write(key, line);
 		}
 		
-		private void checkWriterCount(HashMap<String,BufferedWriter> chr2writer, int maxFileHandles) throws Exception {
-			if(chr2writer.keySet().size() > maxFileHandles) {
-				for(BufferedWriter bw : chr2writer.values()) {
-					bw.close();
-				}
-				chr2writer.clear();
-			}
-		}
 		
-		public synchronized void writeFullAlignmentLine(String line) {
-			try {
-				this.bw.write(line);
-				this.bw.newLine();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-				System.err.println(line);
-			}
+		public void writeMultiSplitAlignmentLine(String key, String line) throws Exception {
+			this.multiSplitBuffer.write(key, line);
 		}
 		
-		public synchronized void writeUnalignedRead(String readId, String sequence) {
-			try {
-				if(this.unalignedBw != null) {
-					this.unalignedBw.write(">" + readId);
-					this.unalignedBw.newLine();
-					this.unalignedBw.write(sequence);
-					this.unalignedBw.newLine();
-				}
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-			}
+		public void writeFullAlignmentLine(String line) {
+			this.fullAlignmentLines.append(line).append('\n');
 		}
 		
-		private char substitute(char n) {
-			if(n == 'A' || n == 'a') return 'T';
-			if(n == 'T' || n == 't') return 'A';
-			if(n == 'C' || n == 'c') return 'G';
-			if(n == 'G' || n == 'g') return 'C';
-			else return 'N';
+		public void writeUnalignedRead(String readId, String sequence) throws Exception {
+			if(this.unalignedBw == null)
+				return;
+			this.unalignedReads.append('>').append(readId).append('\n').append(sequence).append('\n');
+			if(this.unalignedReads.length() >= this.maxBufferSize)
+				write(this.unalignedBw, this.unalignedReads);
 		}
 		
-		public void closeSplitWriters() {
-			try {
-				for(BufferedWriter bw : this.chr2splitWriter.values())
-					bw.close();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
+		private void write(BufferedWriter writer, StringBuilder lines) throws Exception {
+			synchronized(writer) {
+				writer.append(lines);
 			}
+			lines.setLength(0);
 		}
 		
-		public void closeMultiSplitWriters() {
-			try {
-				for(BufferedWriter bw : this.chr2multiSplitWriter.values())
-					bw.close();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-			}
+		/**
+		 * writes all collected lines
+		 */
+		public void flush() throws Exception {
+			this.splitBuffer.flush();
+			this.multiSplitBuffer.flush();
+			if(this.unalignedReads.length() > 0)
+				write(this.unalignedBw, this.unalignedReads);
 		}
-		
-		
 	}
 	
 	
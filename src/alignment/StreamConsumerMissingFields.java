@@ -13,18 +13,15 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.StringTokenizer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import main.Pair;
 import main.Triplet;
+import tools.KeyedFileWriter;
 
 public class StreamConsumerMissingFields extends SamStreamConsumer {
 	
@@ -60,11 +57,11 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 			}
 			
 			//in case the stream is ready, we output its content now
-			LineWriter lineWriter = null;
+			//at most 500 open files, the least recently used files are closed first
+			KeyedFileWriter alignmentWriter = new KeyedFileWriter(this.outputDirPath, ".sam", 500);
 			BufferedWriter unalignedBw = null;
-			ExecutorService lineProcessingExecutor = Executors.newFixedThreadPool(this.threads);
-			ArrayList<Future> futures = new ArrayList<Future>();
-			ArrayList<String> lines = new ArrayList<String>();
+			LineBatchPipeline pipeline = null;
+			ArrayList<String> lines = null;
 			String[] splittedLine;
 			Pattern tabPattern = Pattern.compile("\t");
 			String readId;
@@ -73,11 +70,12 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 				if(this.unalignedReadsOutputFilePath != null)
 					unalignedBw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.unalignedReadsOutputFilePath),true)),1024 * 1024 * 10);
 				
-				lineWriter = new LineWriter(this.outputDirPath, unalignedBw);
+				//alignments are written per chromosome, the batches have no output
+				pipeline = new LineBatchPipeline(new SamLineBatchProcessor(alignmentWriter, unalignedBw), this.threads, 2 * this.threads, null, false);
+				lines = pipeline.getLines();
 				String line = null;
 				
 				int processedLines = 0;
-				Date date;
 				while ((line = br.readLine()) != null) {
 					if(this.streamType.equals(StreamType.ERROR)) {
 						System.err.println(line);
@@ -99,31 +97,19 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 								break;
 							}
 							
-							futures.add(lineProcessingExecutor.submit(new LineProcessor(lines, lineWriter,this.skipMultiSplitDetection)));
-							lines = new ArrayList<String>();
+							pipeline.submit();
+							lines = pipeline.getLines();
 							lines.add(line);
 							processedLines = 1;
-							
-							if(futures.size() >= 8 * this.threads) {
-								for(Future future : futures)
-									future.get();
-								futures.clear();
-								date = new Date();
-								
-							}
 						}
 						
 					}
 				}
 			}
 			br.close();
-			futures.add(lineProcessingExecutor.submit(new LineProcessor(lines, lineWriter,this.skipMultiSplitDetection)));
-			for(Future future : futures)
-				future.get();
-			futures.clear();
-			lineProcessingExecutor.shutdown();
-			if(lineWriter != null)
-				lineWriter.closeAlignmentWriters();
+			if(pipeline != null)
+				pipeline.close();
+			alignmentWriter.close();
 			if(unalignedBw != null)
 				unalignedBw.close();
 			
@@ -141,7 +127,26 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 	}
 	
 	
-	private class LineProcessor extends Thread {
+	/**
+	 * processes a batch of the pipeline, the alignments are written per chromosome
+	 */
+	private class SamLineBatchProcessor implements LineBatchPipeline.BatchProcessor {
+		
+		private KeyedFileWriter alignmentWriter;
+		private BufferedWriter unalignedBw;
+		
+		public SamLineBatchProcessor(KeyedFileWriter alignmentWriter, BufferedWriter unalignedBw) {
+			this.alignmentWriter = alignmentWriter;
+			this.unalignedBw = unalignedBw;
+		}
+		
+		@Override
+		public void processLines(ArrayList<String> lines, StringBuilder output) throws Exception {
+			new LineProcessor(lines, new LineWriter(this.alignmentWriter, this.unalignedBw),skipMultiSplitDetection).process();
+		}
+	}
+	
+	private class LineProcessor {
 		private ArrayList<String> lines;
 		private LineWriter lineWriter;
 		private boolean skipMultiSplitDetection;
@@ -152,93 +157,89 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 			this.skipMultiSplitDetection = skipMultiSplitDetection;
 		}
 		
-		public void run() {
-			try {
-				String[] splittedLine;
-				Pattern tabPattern = Pattern.compile("\t");
-				String readId;
-				int flag;
-				String chr;
-				String cigar;
-				String sequence;
-				String prevSequence = null;
-				char currentStrand;
-				char prevStrand = '+';
-				boolean secondaryAlignment = false;
-				StringBuilder sb  = new StringBuilder();
-				for(String line : this.lines) {
-					if(line.charAt(0) == '@')
-						continue;
-					
-					splittedLine = tabPattern.split(line);
-					readId = splittedLine[0];
-					currentStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
-					flag = Integer.valueOf(splittedLine[1]);
-					
-					if((flag & (1L << 6)) != 0) {
-						readId += "/1";
-					}
-					else if((flag & (1L << 7)) != 0) {
-						readId += "/2";
-					}
-					splittedLine[0] = readId;
-					
-					chr = splittedLine[2];
-					cigar = splittedLine[5];
-					sequence = splittedLine[9];
-					
-					if(chr.equals("*")) {
-						this.lineWriter.writeUnalignedRead(readId, sequence);
-						continue;
+		public void process() throws Exception {
+			String[] splittedLine;
+			Pattern tabPattern = Pattern.compile("\t");
+			String readId;
+			int flag;
+			String chr;
+			String cigar;
+			String sequence;
+			String prevSequence = null;
+			char currentStrand;
+			char prevStrand = '+';
+			boolean secondaryAlignment = false;
+			StringBuilder sb  = new StringBuilder();
+			for(String line : this.lines) {
+				if(line.charAt(0) == '@')
+					continue;
+				
+				splittedLine = tabPattern.split(line);
+				readId = splittedLine[0];
+				currentStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
+				flag = Integer.valueOf(splittedLine[1]);
+				
+				if((flag & (1L << 6)) != 0) {
+					readId += "/1";
+				}
+				else if((flag & (1L << 7)) != 0) {
+					readId += "/2";
+				}
+				splittedLine[0] = readId;
+				
+				chr = splittedLine[2];
+				cigar = splittedLine[5];
+				sequence = splittedLine[9];
+				
+				if(chr.equals("*")) {
+					this.lineWriter.writeUnalignedRead(readId, sequence);
+					continue;
+				}
+				
+				if(this.skipMultiSplitDetection && isMultiSplitCandidate(cigar)) {
+					if(!sequence.equals("*") && !cigar.contains("H")) {
+						prevSequence = sequence;
+						prevStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
 					}
-					
-					if(this.skipMultiSplitDetection && isMultiSplitCandidate(cigar)) {
-						if(!sequence.equals("*") && !cigar.contains("H")) {
-							prevSequence = sequence;
-							prevStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
+					continue;
+				}
+				
+				if(sequence.equals("*") || cigar.contains("H")) {
+					sb.setLength(0);
+					sb.append(prevSequence);
+					if(prevStrand != currentStrand) {
+						sb.reverse();
+						for(int i = 0; i < sb.length(); i++) {
+							sb.setCharAt(i, substitute(sb.charAt(i)));
 						}
-						continue;
 					}
 					
-					if(sequence.equals("*") || cigar.contains("H")) {
-						sb.setLength(0);
-						sb.append(prevSequence);
-						if(prevStrand != currentStrand) {
-							sb.reverse();
-							for(int i = 0; i < sb.length(); i++) {
-								sb.setCharAt(i, substitute(sb.charAt(i)));
-							}
-						}
-						
-						splittedLine[9] = sb.toString();
-						sb.setLength(0);
-						sb.append(splittedLine[0]);
-						for(int i = 1; i < splittedLine.length; i++) {
-							sb.append("\t").append(splittedLine[i]);
-						}
-						line = sb.toString();
+					splittedLine[9] = sb.toString();
+					sb.setLength(0);
+					sb.append(splittedLine[0]);
+					for(int i = 1; i < splittedLine.length; i++) {
+						sb.append("\t").append(splittedLine[i]);
 					}
+					line = sb.toString();
+				}
+				
+				else {
 					
-					else {
-						
-						if(cigar.contains("H")) {
-							if(!isSecondaryAlignment(flag)) {
-								sequence = modifyReadSequence(sequence,cigar);
-							}
+					if(cigar.contains("H")) {
+						if(!isSecondaryAlignment(flag)) {
+							sequence = modifyReadSequence(sequence,cigar);
 						}
-						
-						prevSequence = sequence;
-						prevStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
 					}
 					
-					this.lineWriter.writeAlignment(chr,line);
-					
+					prevSequence = sequence;
+					prevStrand = getStrandFromSamFlag(Integer.valueOf(splittedLine[1]));
 				}
-				this.lines.clear();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
+				
+				this.lineWriter.writeAlignment(chr,line);
+				
 			}
+			this.lines.clear();
+			this.lineWriter.flush();
 		}
 		
 	}
@@ -319,58 +320,52 @@ public class StreamConsumerMissingFields extends SamStreamConsumer {
 	
 	
 
+	/**
+	 * collects the output of one line processor and writes it in blocks, alignments are written to the per chromosome
+	 * files of the shared KeyedFileWriter
+	 */
 	private class LineWriter {
 		
-		private HashMap<String, BufferedWriter> chr2alignmentWriter;
+		private KeyedFileWriter.Buffer alignmentBuffer;
 		private BufferedWriter unalignedBw;
-		private String alignmentOutputDir;
+		private StringBuilder unalignedReads;
+		private final int maxBufferSize = 1024 * 1024;
 		
 		
-		public LineWriter(String alignmentOutputDir, BufferedWriter unalignedBw) {
-			this.alignmentOutputDir = alignmentOutputDir;
-			this.chr2alignmentWriter = new HashMap<String,BufferedWriter>();
+		public LineWriter(KeyedFileWriter alignmentWriter, BufferedWriter unalignedBw) {
+			this.alignmentBuffer = alignmentWriter.newBuffer();
 			this.unalignedBw = unalignedBw;
+			this.unalignedReads = new StringBuilder();
 		}
 		
 		
-		public synchronized void writeAlignment(String chr, String line) {
-			try {
-				if(!this.chr2alignmentWriter.containsKey(chr))
-					this.chr2alignmentWriter.put(chr, new BufferedWriter(new FileWriter(new File(this.alignmentOutputDir + "/" + chr + ".sam"),true)));
-				
-				this.chr2alignmentWriter.get(chr).write(line);
-				this.chr2alignmentWriter.get(chr).newLine();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-			}
+		public void writeAlignment(String chr, String line) throws Exception {
+			this.alignmentBuffer.write(chr, line);
 		}
 		
-		public synchronized void writeUnalignedRead(String readId, String sequence) {
-			try {
-				if(this.unalignedBw != null) {
-					this.unalignedBw.write(">" + readId);
-					this.unalignedBw.newLine();
-					this.unalignedBw.write(sequence);
-					this.unalignedBw.newLine();
-				}
-			}
-			catch(Exception e) {
-				e.printStackTrace();
-			}
+		public void writeUnalignedRead(String readId, String sequence) throws Exception {
+			if(this.unalignedBw == null)
+				return;
+			this.unalignedReads.append('>').append(readId).append('\n').append(sequence).append('\n');
+			if(this.unalignedReads.length() >= this.maxBufferSize)
+				writeUnalignedReads();
 		}
 		
-		public void closeAlignmentWriters() {
-			try {
-				for(BufferedWriter bw : this.chr2alignmentWriter.values())
-					bw.close();
-			}
-			catch(Exception e) {
-				e.printStackTrace();
+		private void writeUnalignedReads() throws Exception {
+			synchronized(this.unalignedBw) {
+				this.unalignedBw.append(this.unalignedReads);
 			}
+			this.unalignedReads.setLength(0);
 		}
 		
-		
+		/**
+		 * writes all collected lines
+		 */
+		public void flush() throws Exception {
+			this.alignmentBuffer.flush();
+			if(this.unalignedReads.length() > 0)
+				writeUnalignedReads();
+		}
 	}
 	
 	
@@ -60,11 +60,20 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 			
 			//in case the stream is ready, we output its content now
 			BufferedWriter bw = null;
+			LineBatchPipeline pipeline = null;
 			
-			ArrayList<String> lines = new ArrayList<String>();
+			ArrayList<String> lines = null;
 			if(br.ready()) {
 				if(this.streamType.equals(StreamType.STDOUT)) {
 					bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.outputFilePath),true)),1024 * 1024 * 10);
+					//the alignments are written in the order of the aligner output
+					pipeline = new LineBatchPipeline(new LineBatchPipeline.BatchProcessor() {
+						@Override
+						public void processLines(ArrayList<String> lines, StringBuilder output) throws Exception {
+							writeLines(lines, output);
+						}
+					}, this.threads, 2 * this.threads, bw, true);
+					lines = pipeline.getLines();
 				}
 				
 				String tmpLine = null;
@@ -76,8 +85,8 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 					else {
 						lines.add(tmpLine);
 						if(++processedLines >= this.linesPerThread) {
-							writeLines(lines,bw);
-							lines.clear();
+							pipeline.submit();
+							lines = pipeline.getLines();
 							processedLines = 0;
 						}
 						
@@ -87,8 +96,7 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 			br.close();
 			if(bw != null) {
 				// write last lines here
-				writeLines(lines,bw);
-				lines.clear();
+				pipeline.close();
 				bw.flush();
 				bw.close();
 			}
@@ -107,7 +115,7 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 	
 	
 	
-	private void writeLines(ArrayList<String> lines, BufferedWriter bw) throws Exception {
+	private void writeLines(ArrayList<String> lines, StringBuilder output) throws Exception {
 		StringTokenizer st;
 		Pair<ArrayList<Integer>,Integer> mismatchPositionsAndReadLength = new Pair<ArrayList<Integer>,Integer>();
 		ArrayList<Integer> mismatchPositions = new ArrayList<Integer>();
@@ -122,7 +130,6 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 		String mismatchInfo = null;
 		int mdFieldPosition = -1;
 		String readId;
-		StringBuilder lineToWrite = new StringBuilder();
 		boolean writeLine = true;
 		int currentMismatchCount;
 		int currentMismatchPosition;
@@ -172,10 +179,7 @@ public class StreamConsumerSlidingWindow extends SamStreamConsumer {
 			}
 			
 			if(writeLine) {
-				lineToWrite.setLength(0);
-				lineToWrite.append(readId).append("\t").append(strand).append("\t").append(start).append("\t").append("MD:Z:").append(mismatchInfo).append("\t").append(readLength);
-				bw.write(lineToWrite.toString());
-				bw.newLine();
+				output.append(readId).append("\t").append(strand).append("\t").append(start).append("\t").append("MD:Z:").append(mismatchInfo).append("\t").append(readLength).append('\n');
 			}
 		
 		}
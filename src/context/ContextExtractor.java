@@ -7,18 +7,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.SortedMap;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import augmentedTree.Interval;
-import augmentedTree.IntervalTree;
 
 import main.Context;
-import main.MutableDouble;
-import tools.BufferedRandomAccessFile;
+import tools.MappedLineReader;
+import tools.SpeciesLocator;
 
 /**
  * reads from sorted rmap files (sorted by start positions) and defines for every chromosome the
@@ -42,7 +40,7 @@ public class ContextExtractor extends Thread {
 	
 	private File chrFile;
 	private HashMap<String,ArrayList<Context>> contexts;
-	private IntervalTree<Microbe> genomeTree;
+	private SpeciesLocator<Microbe> genomeLocator;
 	
 	private boolean strandSpecific;
 	
@@ -63,8 +61,8 @@ public class ContextExtractor extends Thread {
 		this.chrFile = f;
 	}
 		
-	public void setGenomeTree(IntervalTree<Microbe> genomeTree) {
-		this.genomeTree = genomeTree;
+	public void setGenomeLocator(SpeciesLocator<Microbe> genomeLocator) {
+		this.genomeLocator = genomeLocator;
 	}
 	
 	public void setContexts(HashMap<String,ArrayList<Context>> contexts) {
@@ -91,10 +89,10 @@ public class ContextExtractor extends Thread {
 			 * further it is important that the chromosome names in the bowtie indices are equivalent.
 			 * 
 		    */
-			HashMap<String,IntervalTree<Microbe>> chr2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
+			HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator = new HashMap<String,SpeciesLocator<Microbe>>();
 			String chr;
 			if(this.indexDirPath != null) {
-				chr2genomeTree = buildIntervalTrees(indexDirPath);
+				chr2genomeLocator = buildSpeciesLocators(indexDirPath);
 			}
 			
 			HashMap<String,ArrayList<Context>> contexts = new HashMap<String,ArrayList<Context>>();
@@ -108,14 +106,14 @@ public class ContextExtractor extends Thread {
 				
 				/*
 				 * for the default contextmap runs we don't have an index dir from the input and
-				 * therefore we always set the index file to null here (chr2genomeTree is empty per default).
+				 * therefore we always set the index file to null here (chr2genomeLocator is empty per default).
 				 */
-				if(chr2genomeTree.containsKey(chr)) {
-					tmpExtractor.setGenomeTree(chr2genomeTree.get(chr));
+				if(chr2genomeLocator.containsKey(chr)) {
+					tmpExtractor.setGenomeLocator(chr2genomeLocator.get(chr));
 				}
 				
 				else {
-					tmpExtractor.setGenomeTree(null);
+					tmpExtractor.setGenomeLocator(null);
 				}
 				
 				
@@ -137,7 +135,7 @@ public class ContextExtractor extends Thread {
 	
 	private void getLocalContextForStrandUnspecificReads(HashMap<String,ArrayList<Context>> contexts, File rmapFile) {
 		try {
-			BufferedRandomAccessFile rmapReader;
+			MappedLineReader rmapReader;
 			String fileName;
 			String chr;
 			int containedReads;
@@ -159,14 +157,15 @@ public class ContextExtractor extends Thread {
 			
 			String currentSpecies = null;
 			String prevSpecies = null;
-			ArrayList<Microbe> microbes;
-			TreeMap<Integer,MutableDouble> currentCoverage = new TreeMap<Integer,MutableDouble>();
-			TreeMap<Integer,MutableDouble> prevCoverage = new TreeMap<Integer,MutableDouble>();
+			Microbe microbe;
+			CoverageSegments currentCoverage = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments prevCoverage = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments tmpCoverage;
 			boolean checkDownstreamCoverage;
 			
 			fileName = rmapFile.getName();
 			chr = fileName.substring(0,fileName.lastIndexOf("."));
-			rmapReader = new BufferedRandomAccessFile(rmapFile, "r",1024 * 1024);
+			rmapReader = new MappedLineReader(rmapFile);
 			//set the inital context coordinate
 			pointerToLineOfFirstRead = rmapReader.getFilePointer();
 			currentLine = rmapReader.getNextLine();
@@ -188,110 +187,60 @@ public class ContextExtractor extends Thread {
 			
 			if(mappingType.equals("F") || mappingType.equals("P")) {
 				readEnd = readStart + readLength - 1;
-				
-				//coverage updates only for full and split reads (partial reads are probably discarded later)
-				if(mappingType.equals("F")) {
+				if(mappingType.equals("F"))
 					foundFullRead = true;
-					
-					for(int i = readStart; i <= readEnd; i++) {
-						if(currentCoverage.containsKey(i))
-							currentCoverage.get(i).add(coverageWeight);
-						else
-							currentCoverage.put(i, new MutableDouble(coverageWeight));
-					}
-				}
 			}
-			else {
+			else
 				readEnd = Integer.valueOf(readEndAsString);
-				
-				//here we have a split. since we don't know the exact split position we approximate the coverage here
-				for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-					if(currentCoverage.containsKey(i))
-						currentCoverage.get(i).add(coverageWeight);
-					else
-						currentCoverage.put(i, new MutableDouble(coverageWeight));
-				}
-				for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-					if(currentCoverage.containsKey(i))
-						currentCoverage.get(i).add(coverageWeight);
-					else
-						currentCoverage.put(i, new MutableDouble(coverageWeight));
-				}
-			}
+			
+			currentCoverage.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 			
 			currentContextStart = readStart;
 			currentContextEnd = readEnd;
 			containedReads = 1;
 			
 			//genome tree is null if we either haven't an index dir in the input or an index file for the actual chr. 
-			if(this.genomeTree != null) {
-				microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-				if(!microbes.isEmpty())
-					currentSpecies = microbes.get(0).getId();
+			if(this.genomeLocator != null) {
+				microbe = this.genomeLocator.getGenome(readEnd);
+				if(microbe != null)
+					currentSpecies = microbe.getId();
 				prevSpecies = currentSpecies;
 			}
 			
 			//now go through the whole file and define the contexts
-			while((currentLine = rmapReader.getNextLine()) != null) {
-				st = new StringTokenizer(currentLine,"\t");
-				//read_id	mapping_type	chr	start	end
-				st.nextToken();
-				mappingType = st.nextToken();
-				st.nextToken();
-				readStart = Integer.valueOf(st.nextToken());
-				readEndAsString = st.nextToken();
-				//skip strand and mismatch count
-				st.nextToken();
-				st.nextToken();
-				readLength = Integer.valueOf(st.nextToken());
-				overallMappingCount = Integer.valueOf(st.nextToken());
+			while(rmapReader.nextLine()) {
+				//read_id	mapping_type	chr	start	end	strand	mismatches	read_length	mapping_count
+				rmapReader.splitLine('\t');
+				mappingType = getMappingType(rmapReader);
+				readStart = rmapReader.parseIntField(3);
+				readLength = rmapReader.parseIntField(7);
+				overallMappingCount = rmapReader.parseIntField(8);
 				coverageWeight = 1.0/(double)overallMappingCount;
 				
 				
 				if(mappingType.equals("F") || mappingType.equals("P"))
 					readEnd = readStart + readLength - 1;
 				else
-					readEnd = Integer.valueOf(readEndAsString);
+					readEnd = rmapReader.parseIntField(4);
 				
-				if(this.genomeTree != null) {
-					microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-					if(!microbes.isEmpty()) {
-						currentSpecies = microbes.get(0).getId();
+				if(this.genomeLocator != null) {
+					microbe = this.genomeLocator.getGenome(readEnd);
+					if(microbe != null) {
+						currentSpecies = microbe.getId();
 					}
 				}
 				
 				//current read extends the actual context
 				if(readStart - currentContextEnd <= this.minDistanceBetweenContexts &&
 				(readEnd - currentContextStart + 1) <= this.maxContextSize && 
-				(this.genomeTree == null || currentSpecies.equals(prevSpecies))) {
+				(this.genomeLocator == null || currentSpecies.equals(prevSpecies))) {
 					if(readEnd > currentContextEnd)
 						currentContextEnd = readEnd;
 					containedReads++;
-					if(mappingType.equals("F")) {
+					if(mappingType.equals("F"))
 						foundFullRead = true;
-						
-						//update coverage
-						for(int i = readStart; i <= readEnd; i++) {
-							if(currentCoverage.containsKey(i))
-								currentCoverage.get(i).add(coverageWeight);
-							else
-								currentCoverage.put(i, new MutableDouble(coverageWeight));
-						}
-					}
-					else if(!mappingType.equals("P")) {
-						for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-							if(currentCoverage.containsKey(i))
-								currentCoverage.get(i).add(coverageWeight);
-							else
-								currentCoverage.put(i, new MutableDouble(coverageWeight));
-						}
-						for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-							if(currentCoverage.containsKey(i))
-								currentCoverage.get(i).add(coverageWeight);
-							else
-								currentCoverage.put(i, new MutableDouble(coverageWeight));
-						}
-					}
+					
+					currentCoverage.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 				}
 					
 				//read is too far away from actual context end or the context would get too long, spawn a new context
@@ -305,10 +254,10 @@ public class ContextExtractor extends Thread {
 						context.setPointerToLastRead(pointerToLineOfLastRead);
 						
 						checkDownstreamCoverage = true;
-						if(this.genomeTree != null && !currentSpecies.equals(prevSpecies))
+						if(this.genomeLocator != null && !currentSpecies.equals(prevSpecies))
 							checkDownstreamCoverage = false;
 						
-						setUpAndDownstreamCoverages(context,rmapReader,prevCoverage,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeTree,"both");
+						setUpAndDownstreamCoverages(context,rmapReader,prevCoverage,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeLocator,"both");
 						
 						if(contexts.containsKey(chr))
 							contexts.get(chr).add(context);
@@ -323,41 +272,18 @@ public class ContextExtractor extends Thread {
 					currentContextStart = readStart;
 					currentContextEnd = readEnd;
 					containedReads = 1;
-					prevCoverage.clear();
-					prevCoverage.putAll(currentCoverage);
+					tmpCoverage = prevCoverage;
+					prevCoverage = currentCoverage;
+					currentCoverage = tmpCoverage;
 					currentCoverage.clear();
 					
-					if(mappingType.equals("F")) {
-						foundFullRead = true;
-						for(int i = readStart; i <= readEnd; i++) {
-							if(currentCoverage.containsKey(i))
-								currentCoverage.get(i).add(coverageWeight);
-							else
-								currentCoverage.put(i, new MutableDouble(coverageWeight));
-						}
-					}
-					else {
-						foundFullRead = false;
-						if(!mappingType.equals("P")) {
-							for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-								if(currentCoverage.containsKey(i))
-									currentCoverage.get(i).add(coverageWeight);
-								else
-									currentCoverage.put(i, new MutableDouble(coverageWeight));
-							}
-							for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-								if(currentCoverage.containsKey(i))
-									currentCoverage.get(i).add(coverageWeight);
-								else
-									currentCoverage.put(i, new MutableDouble(coverageWeight));
-							}
-						}
-					}
+					foundFullRead = mappingType.equals("F");
+					currentCoverage.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 					
-					if(this.genomeTree != null) {
-						//microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-						//if(!microbes.isEmpty())
-							//currentSpecies = microbes.get(0).getId();
+					if(this.genomeLocator != null) {
+						//microbe = this.genomeLocator.getGenome(readEnd);
+						//if(microbe != null)
+							//currentSpecies = microbe.getId();
 						
 						if(!currentSpecies.equals(prevSpecies))
 							prevCoverage.clear();
@@ -394,10 +320,10 @@ public class ContextExtractor extends Thread {
 	}
 	
 	
-	private void setUpAndDownstreamCoverages(Context context, BufferedRandomAccessFile br, TreeMap<Integer,MutableDouble> prevCoverage,int completeWindowSize,boolean checkDownstreamCoverage,String prevSpecies, IntervalTree<Microbe> genomeTree, String strand) {
+	private void setUpAndDownstreamCoverages(Context context, MappedLineReader br, CoverageSegments prevCoverage,int completeWindowSize,boolean checkDownstreamCoverage,String prevSpecies, SpeciesLocator<Microbe> genomeLocator, String strand) {
 		try {
 			//setting upstream coverages
-			context.setUpstreamCoverage(prevCoverage.subMap(context.getStart() - completeWindowSize,context.getStart()));
+			context.setUpstreamCoverage(prevCoverage.getTrack(context.getStart() - completeWindowSize,context.getStart() - 1));
 			
 			//setting downstream coverage
 			if(checkDownstreamCoverage) {
@@ -413,8 +339,8 @@ public class ContextExtractor extends Thread {
 				double coverageWeight;
 				String currentStrand;
 				br.seek(context.getPointerToLastRead());
-				TreeMap<Integer,MutableDouble> downstreamCoverage = new TreeMap<Integer,MutableDouble>();
-				ArrayList<Microbe> microbes;
+				CoverageSegments downstreamCoverage = new CoverageSegments(completeWindowSize);
+				Microbe microbe;
 				String currentSpecies;
 				while((currentLine = br.getNextLine()) != null) {
 					st = new StringTokenizer(currentLine,"\t");
@@ -438,54 +364,25 @@ public class ContextExtractor extends Thread {
 						break;
 					}
 					
-					if(this.genomeTree != null) {
-						microbes = this.genomeTree.getIntervalsSpanning(readStart, new ArrayList<Microbe>());
-						if(!microbes.isEmpty()) {
-							if(!microbes.get(0).getId().equals(prevSpecies))
+					if(this.genomeLocator != null) {
+						microbe = this.genomeLocator.getGenome(readStart);
+						if(microbe != null) {
+							if(!microbe.getId().equals(prevSpecies))
 								break;
 						}
 					}
 					
 					
-					if(mappingType.equals("F")) {
+					if(mappingType.equals("F") || mappingType.equals("P"))
 						readEnd = readStart + readLength - 1;
-						
-
-						if(strand.equals("both") || currentStrand.equals(strand)) {
-							for(int i = readStart; i <= readEnd; i++) {
-								if(downstreamCoverage.containsKey(i))
-									downstreamCoverage.get(i).add(coverageWeight);
-								else
-									downstreamCoverage.put(i, new MutableDouble(coverageWeight));
-							}
-						}
-					}
-					else if(!mappingType.equals("P")) {
+					else
 						readEnd = Integer.valueOf(readEndAsString);
-						//here we have a split. since we don't know the exact split position we approximate the coverage here
-						if(strand.equals("both") || currentStrand.equals(strand)) {
-							for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-								if(downstreamCoverage.containsKey(i))
-									downstreamCoverage.get(i).add(coverageWeight);
-								else
-									downstreamCoverage.put(i, new MutableDouble(coverageWeight));
-							}
-							
-							
-							for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-								if(i > (context.getEnd() + completeWindowSize)) {
-									break;
-								}
-								if(downstreamCoverage.containsKey(i))
-									downstreamCoverage.get(i).add(coverageWeight);
-								else
-									downstreamCoverage.put(i, new MutableDouble(coverageWeight));
-							}
-						}
-					}
+					
+					if(strand.equals("both") || currentStrand.equals(strand))
+						downstreamCoverage.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 				}
 				br.seek(initialPointer);
-				context.setDownstreamCoverage(downstreamCoverage.subMap(context.getEnd() + 1, context.getEnd() + completeWindowSize));
+				context.setDownstreamCoverage(downstreamCoverage.getTrack(context.getEnd() + 1, context.getEnd() + completeWindowSize - 1));
 			}
 		}
 		catch(Exception e) {
@@ -501,7 +398,7 @@ public class ContextExtractor extends Thread {
 	//TODO set up and downstream coverages -> DONE. CHECK THIS!
 	public void getLocalContextForStrandSpecificReads(HashMap<String,ArrayList<Context>> contexts, File rmapFile) {
 		try {
-			BufferedRandomAccessFile br;
+			MappedLineReader br;
 			String fileName;
 			String chr;
 			String strand;
@@ -513,10 +410,11 @@ public class ContextExtractor extends Thread {
 			long pointerToLineOfFirstReverseRead = Long.MIN_VALUE;
 			long pointerToLineOfLastReverseRead = Long.MIN_VALUE;
 			
-			TreeMap<Integer,MutableDouble> currentCoverageForwardStrand = new TreeMap<Integer,MutableDouble>();
-			TreeMap<Integer,MutableDouble> currentCoverageReverseStrand = new TreeMap<Integer,MutableDouble>();
-			TreeMap<Integer,MutableDouble> prevCoverageForwardStrand = new TreeMap<Integer,MutableDouble>();
-			TreeMap<Integer,MutableDouble> prevCoverageReverseStrand = new TreeMap<Integer,MutableDouble>();
+			CoverageSegments currentCoverageForwardStrand = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments currentCoverageReverseStrand = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments prevCoverageForwardStrand = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments prevCoverageReverseStrand = new CoverageSegments(this.completeWindowSize);
+			CoverageSegments tmpCoverage;
 			
 			int readStart;
 			int readEnd;
@@ -545,13 +443,13 @@ public class ContextExtractor extends Thread {
 			String prevSpecies = null;
 			String prevSpeciesForwardStrand = null;
 			String prevSpeciesReverseStrand = null;
-			ArrayList<Microbe> microbes;
+			Microbe microbe;
 
 			fileName = rmapFile.getName();
 			chr = fileName.substring(0,fileName.lastIndexOf("."));
 			
 			//set the inital context coordinates
-			br = new BufferedRandomAccessFile(rmapFile, "r",1024 * 1024);
+			br = new MappedLineReader(rmapFile);
 			while(pointerToLineOfFirstForwardRead == Long.MIN_VALUE || pointerToLineOfFirstReverseRead == Long.MIN_VALUE) {
 				currentPointer = br.getFilePointer();
 				currentLine = br.getNextLine();
@@ -585,10 +483,10 @@ public class ContextExtractor extends Thread {
 					currentForwardContextEnd = readEnd;
 					
 					//genome tree is null if we either haven't an index dir in the input or an index file for the actual chr. 
-					if(this.genomeTree != null) {
-						microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-						if(!microbes.isEmpty())
-							prevSpeciesForwardStrand = microbes.get(0).getId();
+					if(this.genomeLocator != null) {
+						microbe = this.genomeLocator.getGenome(readEnd);
+						if(microbe != null)
+							prevSpeciesForwardStrand = microbe.getId();
 					}
 				}
 				else {
@@ -598,29 +496,25 @@ public class ContextExtractor extends Thread {
 					currentReverseContextEnd = readEnd;
 					
 					//genome tree is null if we either haven't an index dir in the input or an index file for the actual chr. 
-					if(this.genomeTree != null) {
-						microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-						if(!microbes.isEmpty())
-							prevSpeciesReverseStrand = microbes.get(0).getId();
+					if(this.genomeLocator != null) {
+						microbe = this.genomeLocator.getGenome(readEnd);
+						if(microbe != null)
+							prevSpeciesReverseStrand = microbe.getId();
 					}
 				}
 			}
 			br.close();
 			
-			br = new BufferedRandomAccessFile(rmapFile, "r",1024 * 1024);
+			br = new MappedLineReader(rmapFile);
 			//now go through the whole file and define the contexts
-			while((currentLine = br.getNextLine()) != null) {
-				st = new StringTokenizer(currentLine,"\t");
-				//read_id	mapping_type	chr	start	end
-				st.nextToken();
-				mappingType = st.nextToken();
-				st.nextToken();
-				readStart = Integer.valueOf(st.nextToken());
-				readEndAsString = st.nextToken();
-				strand = st.nextToken();
-				st.nextToken();
-				readLength = Integer.valueOf(st.nextToken());
-				overallMappingCount = Integer.valueOf(st.nextToken());
+			while(br.nextLine()) {
+				//read_id	mapping_type	chr	start	end	strand	mismatches	read_length	mapping_count
+				br.splitLine('\t');
+				mappingType = getMappingType(br);
+				readStart = br.parseIntField(3);
+				strand = br.fieldEquals(5,"+") ? "+" : (br.fieldEquals(5,"-") ? "-" : br.getField(5));
+				readLength = br.parseIntField(7);
+				overallMappingCount = br.parseIntField(8);
 				coverageWeight = 1.0/(double)overallMappingCount;
 				
 				
@@ -629,16 +523,16 @@ public class ContextExtractor extends Thread {
 				}
 			
 				else
-					readEnd = Integer.valueOf(readEndAsString);
+					readEnd = br.parseIntField(4);
 				
 				if(strand.equals("+")) {
 					currentContextStart = currentForwardContextStart;
 					currentContextEnd = currentForwardContextEnd;
 					
-					if(this.genomeTree != null) {
-						microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-						if(!microbes.isEmpty()) {
-							currentSpecies = microbes.get(0).getId();
+					if(this.genomeLocator != null) {
+						microbe = this.genomeLocator.getGenome(readEnd);
+						if(microbe != null) {
+							currentSpecies = microbe.getId();
 						}
 						prevSpecies = prevSpeciesForwardStrand;
 					}
@@ -647,10 +541,10 @@ public class ContextExtractor extends Thread {
 					currentContextStart = currentReverseContextStart;
 					currentContextEnd = currentReverseContextEnd;
 					
-					if(this.genomeTree != null) {
-						microbes = this.genomeTree.getIntervalsSpanning(readEnd, new ArrayList<Microbe>());
-						if(!microbes.isEmpty()) {
-							currentSpecies = microbes.get(0).getId();
+					if(this.genomeLocator != null) {
+						microbe = this.genomeLocator.getGenome(readEnd);
+						if(microbe != null) {
+							currentSpecies = microbe.getId();
 						}
 						prevSpecies = prevSpeciesReverseStrand;
 					}
@@ -659,37 +553,15 @@ public class ContextExtractor extends Thread {
 				//current read extends the actual context
 				if(readStart - currentContextEnd <= this.minDistanceBetweenContexts &&
 				(readEnd - currentContextStart + 1) <= this.maxContextSize && 
-				(this.genomeTree == null || currentSpecies.equals(prevSpecies))) {
+				(this.genomeLocator == null || currentSpecies.equals(prevSpecies))) {
 					if(strand.equals("+")) {
 						if(readEnd > currentContextEnd)
 							currentForwardContextEnd = readEnd;
 						forwardContainedReads++;
-						if(mappingType.equals("F")) {
+						if(mappingType.equals("F"))
 							foundForwardFullRead = true;
-							
-							//coverage updates only for full and split reads (partial reads are probably discarded later)
-							for(int i = readStart; i <= readEnd; i++) {
-								if(currentCoverageForwardStrand.containsKey(i))
-									currentCoverageForwardStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
 						
-						else if(!mappingType.equals("P")) {
-							for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-								if(currentCoverageForwardStrand.containsKey(i))
-									currentCoverageForwardStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-							}
-							for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-								if(currentCoverageForwardStrand.containsKey(i))
-									currentCoverageForwardStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
+						currentCoverageForwardStrand.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 						
 						pointerToLineOfLastForwardRead = br.getFilePointer();
 					}
@@ -697,32 +569,10 @@ public class ContextExtractor extends Thread {
 						if(readEnd > currentContextEnd)
 							currentReverseContextEnd = readEnd;
 						reverseContainedReads++;
-						if(mappingType.equals("F")) {
+						if(mappingType.equals("F"))
 							foundReverseFullRead = true;
-							
-							//coverage updates only for full and split reads (partial reads are probably discarded later)
-							for(int i = readStart; i <= readEnd; i++) {
-								if(currentCoverageReverseStrand.containsKey(i))
-									currentCoverageReverseStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
 						
-						else if(!mappingType.equals("P")) {
-							for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-								if(currentCoverageReverseStrand.containsKey(i))
-									currentCoverageReverseStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-							}
-							for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-								if(currentCoverageReverseStrand.containsKey(i))
-									currentCoverageReverseStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
+						currentCoverageReverseStrand.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
 						
 						pointerToLineOfLastReverseRead = br.getFilePointer();
 					}
@@ -740,10 +590,10 @@ public class ContextExtractor extends Thread {
 							context.setPointerToLastRead(pointerToLineOfLastForwardRead);
 							
 							checkDownstreamCoverage = true;
-							if(this.genomeTree != null && !currentSpecies.equals(prevSpecies))
+							if(this.genomeLocator != null && !currentSpecies.equals(prevSpecies))
 								checkDownstreamCoverage = false;
 							
-							setUpAndDownstreamCoverages(context,br,prevCoverageForwardStrand,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeTree,"+");
+							setUpAndDownstreamCoverages(context,br,prevCoverageForwardStrand,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeLocator,"+");
 							
 							
 							if(contexts.containsKey(chr))
@@ -760,36 +610,13 @@ public class ContextExtractor extends Thread {
 						currentForwardContextStart = readStart;
 						currentForwardContextEnd = readEnd;
 						forwardContainedReads = 1;
-						prevCoverageForwardStrand.clear();
-						prevCoverageForwardStrand.putAll(currentCoverageForwardStrand);
+						tmpCoverage = prevCoverageForwardStrand;
+						prevCoverageForwardStrand = currentCoverageForwardStrand;
+						currentCoverageForwardStrand = tmpCoverage;
 						currentCoverageForwardStrand.clear();
-						if(mappingType.equals("F")) {
-							foundForwardFullRead = true;
-							for(int i = readStart; i <= readEnd; i++) {
-								if(currentCoverageForwardStrand.containsKey(i))
-									currentCoverageForwardStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
-						else {
-							foundForwardFullRead = false;
-							if(!mappingType.equals("P")) {
-								for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-									if(currentCoverageForwardStrand.containsKey(i))
-										currentCoverageForwardStrand.get(i).add(coverageWeight);
-									else
-										currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-								}
-								for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-									if(currentCoverageForwardStrand.containsKey(i))
-										currentCoverageForwardStrand.get(i).add(coverageWeight);
-									else
-										currentCoverageForwardStrand.put(i, new MutableDouble(coverageWeight));
-								}
-							}
-						}
-						if(this.genomeTree != null) {							
+						foundForwardFullRead = mappingType.equals("F");
+						currentCoverageForwardStrand.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
+						if(this.genomeLocator != null) {							
 							if(!currentSpecies.equals(prevSpecies))
 								prevCoverageForwardStrand.clear();
 							
@@ -805,10 +632,10 @@ public class ContextExtractor extends Thread {
 							context.setPointerToFirstRead(pointerToLineOfFirstReverseRead);
 							context.setPointerToLastRead(pointerToLineOfLastReverseRead);
 							checkDownstreamCoverage = true;
-							if(this.genomeTree != null && !currentSpecies.equals(prevSpecies))
+							if(this.genomeLocator != null && !currentSpecies.equals(prevSpecies))
 								checkDownstreamCoverage = false;
 							
-							setUpAndDownstreamCoverages(context,br,prevCoverageReverseStrand,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeTree,"-");
+							setUpAndDownstreamCoverages(context,br,prevCoverageReverseStrand,this.completeWindowSize,checkDownstreamCoverage,prevSpecies,this.genomeLocator,"-");
 							
 							if(contexts.containsKey(chr))
 								contexts.get(chr).add(context);
@@ -824,38 +651,13 @@ public class ContextExtractor extends Thread {
 						currentReverseContextStart = readStart;
 						currentReverseContextEnd = readEnd;
 						reverseContainedReads = 1;
-						prevCoverageReverseStrand.clear();
-						prevCoverageReverseStrand.putAll(currentCoverageForwardStrand);
+						tmpCoverage = prevCoverageReverseStrand;
+						prevCoverageReverseStrand = currentCoverageReverseStrand;
+						currentCoverageReverseStrand = tmpCoverage;
 						currentCoverageReverseStrand.clear();
-						if(mappingType.equals("F")) {
-							foundReverseFullRead = true;
-							
-							for(int i = readStart; i <= readEnd; i++) {
-								if(currentCoverageReverseStrand.containsKey(i))
-									currentCoverageReverseStrand.get(i).add(coverageWeight);
-								else
-									currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-							}
-						}
-						else {
-							foundReverseFullRead = false;
-							
-							if(!mappingType.equals("P")) {
-								for(int i = readStart; i <= (readStart + (readLength/2) - 1);i++) {
-									if(currentCoverageReverseStrand.containsKey(i))
-										currentCoverageReverseStrand.get(i).add(coverageWeight);
-									else
-										currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-								}
-								for(int i = (readEnd - (readLength/2) + 1); i <= readEnd;i++) {
-									if(currentCoverageReverseStrand.containsKey(i))
-										currentCoverageReverseStrand.get(i).add(coverageWeight);
-									else
-										currentCoverageReverseStrand.put(i, new MutableDouble(coverageWeight));
-								}
-							}
-						}
-						if(this.genomeTree != null) {							
+						foundReverseFullRead = mappingType.equals("F");
+						currentCoverageReverseStrand.addRead(mappingType, readStart, readEnd, readLength, coverageWeight);
+						if(this.genomeLocator != null) {							
 							if(!currentSpecies.equals(prevSpecies))
 								prevCoverageReverseStrand.clear();
 							
@@ -907,8 +709,8 @@ public class ContextExtractor extends Thread {
 		}
 	}
 	
-	private HashMap<String,IntervalTree<Microbe>> buildIntervalTrees(String indexDirPath) throws Exception {
-		HashMap<String,IntervalTree<Microbe>> index2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
+	private HashMap<String,SpeciesLocator<Microbe>> buildSpeciesLocators(String indexDirPath) throws Exception {
+		HashMap<String,SpeciesLocator<Microbe>> index2genomeLocator = new HashMap<String,SpeciesLocator<Microbe>>();
 		File[] indexFiles = new File(indexDirPath).listFiles();
 		
 		BufferedReader br;
@@ -918,18 +720,29 @@ public class ContextExtractor extends Thread {
 		for(File indexFile : indexFiles) {
 			if(indexFile.getName().contains(".idx")) {
 				br = new BufferedReader(new FileReader(indexFile));
-				IntervalTree<Microbe> genomeTree = new IntervalTree<Microbe>();
+				ArrayList<Microbe> genomes = new ArrayList<Microbe>();
 				while(br.ready()) {
 					currentLine = br.readLine();
 					splittedLine = tabPattern.split(currentLine);
 					Microbe tmpMicrobe = new Microbe(splittedLine[0],Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]));
-					genomeTree.add(tmpMicrobe);
+					genomes.add(tmpMicrobe);
 				}
 				br.close();
-				index2genomeTree.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), genomeTree);
+				index2genomeLocator.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), new SpeciesLocator<Microbe>(genomes));
 			}
 		}
-		return index2genomeTree;
+		return index2genomeLocator;
+	}
+	
+	/**
+	 * returns the mapping type (second field) of the current rmap line, full and partial reads without creating a String
+	 */
+	private String getMappingType(MappedLineReader reader) {
+		if(reader.fieldEquals(1,"F"))
+			return "F";
+		if(reader.fieldEquals(1,"P"))
+			return "P";
+		return reader.getField(1);
 	}
 	
 	public void printContexts(HashMap<String,ArrayList<Context>> contexts) {
@@ -942,22 +755,13 @@ public class ContextExtractor extends Thread {
 	
 	
 	private void printContextInformation(Context context, String currentSpecies, String prevSpecies) {
-		int upstreamCovStart = -1;
-		int upstreamCovEnd = -1;
-		if(!context.getUpstreamCoverage().isEmpty()) {
-			upstreamCovStart = context.getUpstreamCoverage().firstKey();
-			upstreamCovEnd = context.getUpstreamCoverage().lastKey();
-		}
-		
-		int downstreamCovStart = -1;
-		int downstreamCovEnd = -1;
-		if(!context.getDownstreamCoverage().isEmpty()) {
-			downstreamCovStart = context.getDownstreamCoverage().firstKey();
-			downstreamCovEnd = context.getDownstreamCoverage().lastKey();
-		}
+		int upstreamCovStart = context.getUpstreamCoverage().getFirstCoveredPosition();
+		int upstreamCovEnd = context.getUpstreamCoverage().getLastCoveredPosition();
+		int downstreamCovStart = context.getDownstreamCoverage().getFirstCoveredPosition();
+		int downstreamCovEnd = context.getDownstreamCoverage().getLastCoveredPosition();
 		
 		System.out.println("##---------------------------------------------------------------------##");
-		System.out.println(String.format("context: %s\tstart: %s\tend: %s\tchr: %s\tcontext_species: %s\tnext_species: %s\tupstream_cov_start: %s\tupstream_cov_end: %s\tupstream_positions: %s\tdownstream_cov_start: %s\tdownstream_cov_end: %s\tdownstream_positions: %s",context.getId(),context.getStart(),context.getEnd(),context.getChr(),prevSpecies,currentSpecies,upstreamCovStart,upstreamCovEnd,context.getUpstreamCoverage().size(),downstreamCovStart,downstreamCovEnd,context.getDownstreamCoverage().size()));
+		System.out.println(String.format("context: %s\tstart: %s\tend: %s\tchr: %s\tcontext_species: %s\tnext_species: %s\tupstream_cov_start: %s\tupstream_cov_end: %s\tupstream_positions: %s\tdownstream_cov_start: %s\tdownstream_cov_end: %s\tdownstream_positions: %s",context.getId(),context.getStart(),context.getEnd(),context.getChr(),prevSpecies,currentSpecies,upstreamCovStart,upstreamCovEnd,context.getUpstreamCoverage().getCoveredPositions(),downstreamCovStart,downstreamCovEnd,context.getDownstreamCoverage().getCoveredPositions()));
 		System.out.println();
 		System.out.println("##---------------------------------------------------------------------##");
 		System.out.println();
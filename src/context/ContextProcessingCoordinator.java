@@ -8,13 +8,19 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.StringTokenizer;
 import java.util.regex.Pattern;
 
-import augmentedTree.IntervalTree;
-import tools.BufferedRandomAccessFile;
+import tools.AlignmentRecordReader;
+import tools.ExternalMergeSort;
 import tools.FileSorter7;
-import tools.UnixSort;
+import tools.MappedLineReader;
+import tools.PackedReferenceSequence;
+import tools.SpeciesLocator;
+import main.ChromosomePrefetcher;
 import main.Context;
 import main.IOCoordinator;
 import main.InitialRead;
@@ -28,7 +34,9 @@ public class ContextProcessingCoordinator extends Thread {
 	
 	private MappingProcessor mappingProcessor;
 	private IOCoordinator ioCoordinator;
-	//private BufferedRandomAccessFile rmapReader;
+	private ChromosomePrefetcher chromosomePrefetcher;
+	private String chrName;
+	//private MappedLineReader rmapReader;
 	private File chrFile;
 	private Context context;
 	private String outputDirPath;
@@ -44,26 +52,38 @@ public class ContextProcessingCoordinator extends Thread {
 	private boolean skipNonCanonicalJunctions;
 	
 	private ArrayList<Integer> windowSizes = new ArrayList<Integer>();
-	private IntervalTree<Microbe> intervalTree;
+	private SpeciesLocator<Microbe> genomeLocator;
 	private boolean updateQueue;
 	private boolean pairedEnd;
 	private int updateInterval;
 	private boolean verbose;
 	private boolean developer;
 	private boolean isLargeContext;
+	private boolean keepTmp;
 	
+	//state passed between the stages (parse, extend, resolve)
+	private PackedReferenceSequence localReference;
+	private int localStart;
+	private MappedLineReader rmapReader;
+	private String alignmentsFilePath;
+	private double overallUsedTime;
+	
+	//intermediate files up to this size (in bytes) are sorted in memory
+	private static final long IN_MEMORY_SORT_LIMIT = 16 * 1024 * 1024;
 	
 	
 	
 	private ArrayList<ActionListener> listeners;
 	
-	public ContextProcessingCoordinator(MappingProcessor mappingProcessor,IOCoordinator sortCoordinator,Context context,File chrFile, String outputDirPath,IntervalTree<Microbe> intervalTree, ArrayList<Integer> windowSizes,int maxMissmatchDifference,int maxMissmatches, int minStartPositionOverlaps, int readLength,int maxContextSize, int maxGapSize, boolean preferExtensionsWithKnownSpliceSignal, boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean updateQueue, boolean pairedEnd, int updateInterval, boolean verbose,boolean developer, boolean isLargeContext) {
+	public ContextProcessingCoordinator(MappingProcessor mappingProcessor,IOCoordinator sortCoordinator,ChromosomePrefetcher chromosomePrefetcher,String chrName,Context context,File chrFile, String outputDirPath,SpeciesLocator<Microbe> genomeLocator, ArrayList<Integer> windowSizes,int maxMissmatchDifference,int maxMissmatches, int minStartPositionOverlaps, int readLength,int maxContextSize, int maxGapSize, boolean preferExtensionsWithKnownSpliceSignal, boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean updateQueue, boolean pairedEnd, int updateInterval, boolean verbose,boolean developer, boolean isLargeContext) {
 		super();
 		try {
 			
 			this.listeners = new ArrayList<ActionListener>();
 			this.mappingProcessor = mappingProcessor;
 			this.ioCoordinator = sortCoordinator;
+			this.chromosomePrefetcher = chromosomePrefetcher;
+			this.chrName = chrName;
 			this.chrFile = chrFile;
 			this.context = context;
 			this.outputDirPath = outputDirPath;
@@ -83,7 +103,8 @@ public class ContextProcessingCoordinator extends Thread {
 			this.verbose = verbose;
 			this.developer = developer;
 			this.isLargeContext = isLargeContext;
-			this.intervalTree = intervalTree;
+			this.genomeLocator = genomeLocator;
+			this.overallUsedTime = 0.0;
 			
 		}
 		catch(Exception e) {
@@ -94,229 +115,341 @@ public class ContextProcessingCoordinator extends Thread {
 	
 	public void run() {
 		try {
-			
-			File outputDir = new File(this.outputDirPath);
-			if(!outputDir.isDirectory())
-				outputDir.mkdirs();
-			
-			//build local reference
-			StringBuilder localReference = new StringBuilder();
-			int localStart = Math.max(1,this.context.getStart() - this.maxGapSize);
-			int localEnd = Math.min(this.mappingProcessor.getCurrentChromosome().length(), this.context.getEnd() + this.maxGapSize);
-			localReference.append(this.mappingProcessor.getCurrentChromosome().substring(localStart - 1,localEnd).toUpperCase());
-			fireAction(new ActionEvent(this,0,"chromosome_unlocked"));
-			
-			
-			
-			BufferedRandomAccessFile rmapReader = new BufferedRandomAccessFile(this.chrFile, "r",10240);
-			
-			if(this.verbose) System.out.println(String.format("%s\tprocessing context:\t%s (containing %s candidates)", this.toString(),this.context.getId(),this.context.getContainedReads()));
-			long prevTimePoint = System.currentTimeMillis();
-			long currentTimePoint;
-			double usedTime;
-			double overallUsedTime = 0.0;
-			FileSorter7 fileSorter;
-			String alignmentsFilePath = null;
+			parse();
+			extend();
+			resolve();
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+			System.err.println("Error occured in context: " + this.context.getId());
+			fireAction(new ActionEvent(this,0,"unlocked"));
+		}
+		finally {
+			this.chromosomePrefetcher.release(this.chrName);
+		}
+	}
+	
+	
+	/**
+	 * builds the local reference and parses the alignments of the context
+	 */
+	private void parse() throws Exception {
+		File outputDir = new File(this.outputDirPath);
+		if(!outputDir.isDirectory())
+			outputDir.mkdirs();
+		
+		//build local reference (view on the packed chromosome sequence, no copy)
+		this.localStart = Math.max(1,this.context.getStart() - this.maxGapSize);
+		PackedReferenceSequence chrSequence = this.chromosomePrefetcher.getSequence(this.chrName);
+		int localEnd = Math.min(chrSequence.length(), this.context.getEnd() + this.maxGapSize);
+		this.localReference = chrSequence.subSequence(this.localStart - 1,localEnd);
+		chrSequence = null;
+		
+		
+		
+		//only the alignments of the context are mapped
+		this.rmapReader = new MappedLineReader(this.chrFile,this.context.getPointerToFirstRead(),this.context.getPointerToLastRead());
+		
+		if(this.verbose) System.out.println(String.format("%s\tprocessing context:\t%s (containing %s candidates)", this.toString(),this.context.getId(),this.context.getContainedReads()));
+		long prevTimePoint = System.currentTimeMillis();
+		long currentTimePoint;
+		double usedTime;
+		FileSorter7 fileSorter;
+		this.alignmentsFilePath = null;
 
-			
-			//if context is too large, we sort the alignments of the current context by read id and process the reads in seperate blocks
-			if(this.isLargeContext) {
-				writeAlignments(rmapReader,this.outputDirPath + "/alignments.rmap");
-				fileSorter = new FileSorter7(this.outputDirPath + "/alignments.rmap", this.outputDirPath + "/alignments.rmap.sorted",null,new int[]{0},250, "\t",false);
-				fileSorter.sortFile(this.outputDirPath + "/alignments.rmap", this.outputDirPath + "/alignments.rmap.sorted",null);
-				fileSorter = null;
-				alignmentsFilePath = this.outputDirPath + "/alignments.rmap.sorted";
-			}
-			
-			//get mapping
-			if(this.verbose) System.out.print(this.toString() + "\tparsing mapping...");
-			this.mappingProcessor.parseMapping(this.context,rmapReader, this.pairedEnd,localReference, localStart,alignmentsFilePath);
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			//extend mapping
-			String multiMappingOutputPath = this.outputDirPath + "/multi_mapping.txt";
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tdetermining split alignments...");
-			this.mappingProcessor.extendMapping(this.context,localReference,localStart,multiMappingOutputPath,this.outputDirPath + "/multi_mapping_with_multi_splits.txt",this.minStartPositionOverlaps, alignmentsFilePath);
-			this.context.resetReads();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			//extracting best matching mappings
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\textracting best matching mappings...");
-			new MappingProcessor(multiMappingOutputPath, outputDirPath + "/multi_mapping.best.matchings.txt", maxMissmatchDifference,preferExtensionsWithKnownSpliceSignal,skipDenovoJunctions,skipNonCanonicalJunctions).extractBestMatchingAlignmentsInLocalResolution(context,true);
-			context.clearPartialAndFullReads2filePointer();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			//sorting best matching mappings by start positions
-			if(this.verbose) System.out.print(this.toString() + "\tsorting best mappings by start positions...");
-			prevTimePoint = System.currentTimeMillis();
-			
+		
+		//if context is too large, we sort the alignments of the current context by read id and process the reads in seperate blocks
+		if(this.isLargeContext) {
+			writeAlignments(this.rmapReader,this.outputDirPath + "/alignments.rmap");
+			fileSorter = new FileSorter7(this.outputDirPath + "/alignments.rmap", this.outputDirPath + "/alignments.rmap.sorted",null,new int[]{0},250, "\t",false);
+			fileSorter.sortFile(this.outputDirPath + "/alignments.rmap", this.outputDirPath + "/alignments.rmap.sorted",null);
+			fileSorter = null;
+			this.alignmentsFilePath = this.outputDirPath + "/alignments.rmap.sorted";
+		}
+		
+		//get mapping
+		if(this.verbose) System.out.print(this.toString() + "\tparsing mapping...");
+		this.mappingProcessor.parseMapping(this.context,this.rmapReader, this.pairedEnd,this.localReference, this.localStart,this.alignmentsFilePath);
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+	}
+	
+	/**
+	 * determines the split and multi split candidates and the best matching alignments, unlocks the read sequences
+	 */
+	private void extend() throws Exception {
+		long prevTimePoint;
+		long currentTimePoint;
+		double usedTime;
+		
+		//extend mapping
+		String multiMappingOutputPath = this.outputDirPath + "/multi_mapping.txt";
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tdetermining split alignments...");
+		this.mappingProcessor.extendMapping(this.context,this.localReference,this.localStart,multiMappingOutputPath,this.outputDirPath + "/multi_mapping_with_multi_splits.txt",this.minStartPositionOverlaps, this.alignmentsFilePath);
+		this.context.resetReads();
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		//extracting best matching mappings
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\textracting best matching mappings...");
+		new MappingProcessor(multiMappingOutputPath, outputDirPath + "/multi_mapping.best.matchings.txt", maxMissmatchDifference,preferExtensionsWithKnownSpliceSignal,skipDenovoJunctions,skipNonCanonicalJunctions).extractBestMatchingAlignmentsInLocalResolution(context,true);
+		context.clearPartialAndFullReads2filePointer();
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		//sorting best matching mappings by start positions
+		if(this.verbose) System.out.print(this.toString() + "\tsorting best mappings by start positions...");
+		prevTimePoint = System.currentTimeMillis();
+		
 
-			while(!this.ioCoordinator.hasFreeSlot()) {
-				Thread.sleep(500);
+		sortByColumn(this.outputDirPath + "/multi_mapping.best.matchings.txt", this.outputDirPath + "/multi_mapping.best.matchings.txt.startposition.sorted",4,true);
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		//resolving pairwise overlapping splice sites
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tresolving overlapping splice sites...");
+		this.mappingProcessor.resolveOverlappingSpliceSites(this.outputDirPath + "/multi_mapping.best.matchings.txt.startposition.sorted",this.readLength, this.maxMissmatches,this.localReference,this.localStart, this.outputDirPath + "/multi_mapping.resolved.splicesites.txt");
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (currentTimePoint - prevTimePoint)/1000;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		
+		/**
+		 * NEW: Multi-Split Detection Block
+		 */
+		
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\textending full and split candidates...");
+		this.mappingProcessor.extendSplitAndFullAlignments(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt", this.context,this.localReference,this.localStart, this.outputDirPath + "/multi_mapping_with_multi_splits.txt", this.minStartPositionOverlaps);
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tsorting candidates by read id...");
+		sortByColumn(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt", this.outputDirPath + "/multi_mapping.resolved.splicesites.txt.sorted",1,false);
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tdetermining multi split candidates...");
+		this.mappingProcessor.buildAllMultiSplitCombinations(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt.sorted", this.outputDirPath + "/multi_mapping_with_multi_splits.txt", pairedEnd,this.localReference,this.localStart);
+		//unlock read sequences
+		fireAction(new ActionEvent(this,0,"reads_unlocked"));
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tsorting candidates by read id...");
+		sortByColumn(this.outputDirPath + "/multi_mapping_with_multi_splits.txt", this.outputDirPath + "/multi_mapping_with_multi_splits.txt.sorted",1,false);
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\textracting best matching alignments...");
+		new MappingProcessor(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.sorted",this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches",this.maxMissmatchDifference,this.preferExtensionsWithKnownSpliceSignal,this.skipDenovoJunctions,this.skipNonCanonicalJunctions).extractBestMatchingAlignments(false,true);
+		if(this.keepTmp)
+			dumpBestMatches();
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+	}
+	
+	/**
+	 * resolves the context and moves the result to the resolved_local_contexts folder
+	 */
+	private void resolve() throws Exception {
+		long prevTimePoint;
+		long currentTimePoint;
+		double usedTime;
+		
+		//resolving context
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tresolving context...");
+		ContextResolver contextResolver;
+		if(!this.pairedEnd)
+			contextResolver = new LocalContextResolverSingleEnd(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches", String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),this.context.getUpstreamCoverage(),this.context.getDownstreamCoverage(),this.genomeLocator, windowSizes,readLength,this.maxContextSize,updateQueue,updateInterval,verbose,developer,isLargeContext);
+		else
+			contextResolver = new LocalContextResolverPairedEnd(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches", String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),this.context.getUpstreamCoverage(),this.context.getDownstreamCoverage(),this.genomeLocator, windowSizes,readLength,this.maxContextSize,updateQueue,updateInterval,verbose,developer,isLargeContext);
+		
+		contextResolver.resolve();
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		
+		//sorting result
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tsorting resolved context...");
+		new ExternalMergeSort().sort(String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),String.format("%s/resolved_%s.txt.sorted",this.outputDirPath,context.getId()),this.outputDirPath + "/tmp","\t",2,100,false,false,this.verbose);
+		new File(String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId())).delete();
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		
+		
+		//move result to tmp folder
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tmoving result to output folder...");
+		File fileToMove = new File(String.format("%s/resolved_%s.txt.sorted",this.outputDirPath,context.getId()));
+		String newPath = this.outputDirPath.substring(0,this.outputDirPath.lastIndexOf(System.getProperty("file.separator")) + 1) + "resolved_local_contexts/" + fileToMove.getName();
+		fileToMove.renameTo(new File(newPath));
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));			
+		
+		//now clear the content of the current outputDir
+		prevTimePoint = System.currentTimeMillis();
+		if(this.verbose) System.out.print(this.toString() + "\tdeleting temporary files...");
+		File[] fileContent = new File(this.outputDirPath).listFiles();
+		for(File f : fileContent) {
+			f.delete();
+		}
+		new File(this.outputDirPath).delete();
+		
+		
+		this.rmapReader.close();
+		this.localReference = null;
+		this.listeners.clear();
+		this.context.clearUpAndDownstreamCoverages();
+		
+		currentTimePoint = System.currentTimeMillis();
+		usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
+		overallUsedTime += usedTime;
+		if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
+		if(this.verbose) System.out.println(String.format(this.toString() + "\tfinished. took %s seconds.",overallUsedTime));
+		if(this.verbose) System.out.println();
+	}
+	
+	
+	public void setKeepTmp(boolean keepTmp) {
+		this.keepTmp = keepTmp;
+	}
+	
+	
+	/**
+	 * the best matches of a context are stored as binary alignment records. For debugging purposes (--keeptmp) we write
+	 * a text version to the tmp folder (the context folder itself is deleted after processing).
+	 */
+	private void dumpBestMatches() {
+		String dumpDirPath = this.outputDirPath.substring(0,this.outputDirPath.lastIndexOf(System.getProperty("file.separator")) + 1) + "local_context_bestmatches";
+		new File(dumpDirPath).mkdirs();
+		AlignmentRecordReader.dump(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches", String.format("%s/bestmatches_%s.txt",dumpDirPath,this.context.getId()));
+	}
+	
+	
+	/**
+	 * sorts an intermediate file of the current context by the given column (0-based, same order as FileSorter7).
+	 * Small files are sorted in memory, large contexts and files exceeding IN_MEMORY_SORT_LIMIT are sorted with FileSorter7 (chunk files on disk).
+	 */
+	private void sortByColumn(String inputPath, String outputPath, int column, boolean numericalSort) throws Exception {
+		File inputFile = new File(inputPath);
+		if(!this.isLargeContext && inputFile.isFile() && inputFile.length() <= IN_MEMORY_SORT_LIMIT) {
+			try {
+				sortInMemory(inputPath, outputPath, column, numericalSort);
+				return;
 			}
-			this.ioCoordinator.inputOutputOperationStarted();
-			fileSorter = new FileSorter7(this.outputDirPath + "/multi_mapping.best.matchings.txt", this.outputDirPath + "/multi_mapping.best.matchings.txt.startposition.sorted",null,new int[]{4},(!this.isLargeContext)?45:250, "\t",true);
-			fileSorter.sortFile(this.outputDirPath + "/multi_mapping.best.matchings.txt", this.outputDirPath + "/multi_mapping.best.matchings.txt.startposition.sorted",null);
-			fileSorter = null;
-			this.ioCoordinator.inputOutputOperationEnded();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			//resolving pairwise overlapping splice sites
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tresolving overlapping splice sites...");
-			this.mappingProcessor.resolveOverlappingSpliceSites(this.outputDirPath + "/multi_mapping.best.matchings.txt.startposition.sorted",this.readLength, this.maxMissmatches,localReference,localStart, this.outputDirPath + "/multi_mapping.resolved.splicesites.txt");
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (currentTimePoint - prevTimePoint)/1000;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			
-			/**
-			 * NEW: Multi-Split Detection Block
-			 */
-			
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\textending full and split candidates...");
-			this.mappingProcessor.extendSplitAndFullAlignments(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt", this.context,localReference,localStart, this.outputDirPath + "/multi_mapping_with_multi_splits.txt", this.minStartPositionOverlaps);
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			while(!this.ioCoordinator.hasFreeSlot()) {
-				Thread.sleep(500);
+			catch(NumberFormatException e) {
+				//let FileSorter7 handle (and report) invalid keys
 			}
-			
-			this.ioCoordinator.inputOutputOperationStarted();
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tsorting candidates by read id...");
-			fileSorter = new FileSorter7(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt", this.outputDirPath + "/multi_mapping.resolved.splicesites.txt.sorted",null,new int[]{1},(!this.isLargeContext)?45:250, "\t",false);
-			fileSorter.sortFile(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt", this.outputDirPath + "/multi_mapping.resolved.splicesites.txt.sorted",null);
-			fileSorter = null;
-			this.ioCoordinator.inputOutputOperationEnded();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tdetermining multi split candidates...");
-			this.mappingProcessor.buildAllMultiSplitCombinations(this.outputDirPath + "/multi_mapping.resolved.splicesites.txt.sorted", this.outputDirPath + "/multi_mapping_with_multi_splits.txt", pairedEnd,localReference,localStart);
-			//unlock read sequences
-			fireAction(new ActionEvent(this,0,"reads_unlocked"));
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tsorting candidates by read id...");
-			fileSorter = new FileSorter7(this.outputDirPath + "/multi_mapping_with_multi_splits.txt", this.outputDirPath + "/multi_mapping_with_multi_splits.txt.sorted",null,new int[]{1},(!this.isLargeContext)?45:250, "\t",false);
-			fileSorter.sortFile(this.outputDirPath + "/multi_mapping_with_multi_splits.txt", this.outputDirPath + "/multi_mapping_with_multi_splits.txt.sorted",null);
-			fileSorter = null;
-			this.ioCoordinator.inputOutputOperationEnded();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\textracting best matching alignments...");
-			new MappingProcessor(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.sorted",this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches",this.maxMissmatchDifference,this.preferExtensionsWithKnownSpliceSignal,this.skipDenovoJunctions,this.skipNonCanonicalJunctions).extractBestMatchingAlignments(false);
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			//resolving context
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tresolving context...");
-			ContextResolver contextResolver;
-			if(!this.pairedEnd)
-				contextResolver = new LocalContextResolverSingleEnd(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches", String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),this.context.getUpstreamCoverage(),this.context.getDownstreamCoverage(),this.intervalTree, windowSizes,readLength,this.maxContextSize,updateQueue,updateInterval,verbose,developer,isLargeContext);
-			else
-				contextResolver = new LocalContextResolverPairedEnd(this.outputDirPath + "/multi_mapping_with_multi_splits.txt.bestmatches", String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),this.context.getUpstreamCoverage(),this.context.getDownstreamCoverage(),this.intervalTree, windowSizes,readLength,this.maxContextSize,updateQueue,updateInterval,verbose,developer,isLargeContext);
-			
-			contextResolver.resolve();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			
-			//sorting result
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tsorting resolved context...");
-			new UnixSort().sort(String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId()),String.format("%s/resolved_%s.txt.sorted",this.outputDirPath,context.getId()),this.outputDirPath + "/tmp","\t",2,100,false,false,this.verbose);
-			new File(String.format("%s/resolved_%s.txt",this.outputDirPath,context.getId())).delete();
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			
-			
-			//move result to tmp folder
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tmoving result to output folder...");
-			File fileToMove = new File(String.format("%s/resolved_%s.txt.sorted",this.outputDirPath,context.getId()));
-			String newPath = this.outputDirPath.substring(0,this.outputDirPath.lastIndexOf(System.getProperty("file.separator")) + 1) + "resolved_local_contexts/" + fileToMove.getName();
-			fileToMove.renameTo(new File(newPath));
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));			
-			
-			//now clear the content of the current outputDir
-			prevTimePoint = System.currentTimeMillis();
-			if(this.verbose) System.out.print(this.toString() + "\tdeleting temporary files...");
-			File[] fileContent = new File(this.outputDirPath).listFiles();
-			for(File f : fileContent) {
-				f.delete();
+		}
+		
+		while(!this.ioCoordinator.hasFreeSlot()) {
+			Thread.sleep(500);
+		}
+		this.ioCoordinator.inputOutputOperationStarted();
+		FileSorter7 fileSorter = new FileSorter7(inputPath, outputPath,null,new int[]{column},(!this.isLargeContext)?45:250, "\t",numericalSort);
+		fileSorter.sortFile(inputPath, outputPath,null);
+		this.ioCoordinator.inputOutputOperationEnded();
+	}
+	
+	
+	private void sortInMemory(String inputPath, String outputPath, int column, boolean numericalSort) throws Exception {
+		ArrayList<SortableLine> lines = new ArrayList<SortableLine>();
+		BufferedReader br = new BufferedReader(new FileReader(new File(inputPath)));
+		String currentLine;
+		StringTokenizer tokenizer;
+		String sortKey;
+		int columnCounter;
+		while((currentLine = br.readLine()) != null) {
+			tokenizer = new StringTokenizer(currentLine, "\t");
+			columnCounter = 0;
+			sortKey = "";
+			while(tokenizer.hasMoreTokens()) {
+				sortKey = tokenizer.nextToken();
+				if(columnCounter++ == column)
+					break;
+				sortKey = "";
 			}
-			new File(this.outputDirPath).delete();
+			lines.add(new SortableLine(currentLine, sortKey, (numericalSort) ? Double.parseDouble(sortKey) : 0));
+		}
+		br.close();
 		
+		//stable sort, same order as FileSorter7
+		Collections.sort(lines, (numericalSort) ? new NumericalKeyComparator() : new KeyComparator());
+		UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(outputPath)),1024 * 1024);
+		for(SortableLine line : lines) {
+			pw.write(line.line);
+			pw.newLine();
+		}
+		pw.close();
+	}
+	
+	
+	private class SortableLine {
+		private String line;
+		private String sortKey;
+		private double numericalSortKey;
 		
-			rmapReader.close();
-			this.listeners.clear();
-			this.context.clearUpAndDownstreamCoverages();
-			
-			currentTimePoint = System.currentTimeMillis();
-			usedTime = (double)(currentTimePoint - prevTimePoint)/1000.0;
-			overallUsedTime += usedTime;
-			if(this.verbose) System.out.println(String.format("done (%s sec).",usedTime));
-			if(this.verbose) System.out.println(String.format(this.toString() + "\tfinished. took %s seconds.",overallUsedTime));
-			if(this.verbose) System.out.println();
-			
+		public SortableLine(String line, String sortKey, double numericalSortKey) {
+			this.line = line;
+			this.sortKey = sortKey;
+			this.numericalSortKey = numericalSortKey;
 		}
-		catch(Exception e) {
-			e.printStackTrace();
-			System.err.println("Error occured in context: " + this.context.getId());
-			fireAction(new ActionEvent(this,0,"unlocked"));
+	}
+	
+	private class KeyComparator implements Comparator<SortableLine> {
+		public int compare(SortableLine l1, SortableLine l2) {
+			return l1.sortKey.compareTo(l2.sortKey);
+		}
+	}
+	
+	private class NumericalKeyComparator implements Comparator<SortableLine> {
+		public int compare(SortableLine l1, SortableLine l2) {
+			return Double.compare(l1.numericalSortKey, l2.numericalSortKey);
 		}
 	}
 	
 	
-	private void writeAlignments(BufferedRandomAccessFile rmapReader, String outputFilePath) throws Exception {
+	private void writeAlignments(MappedLineReader rmapReader, String outputFilePath) throws Exception {
 		PrintWriter pw = new PrintWriter(new FileWriter(new File(outputFilePath)));
 		String currentLine;
 		rmapReader.seek(this.context.getPointerToFirstRead());
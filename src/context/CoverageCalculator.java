@@ -18,6 +18,7 @@ import main.MutableDouble;
 import main.MultiSparseReadLocation;
 import main.Pair;
 import main.SparseReadLocation;
+import tools.SpeciesLocator;
 
 public class CoverageCalculator extends Thread {
 	
@@ -28,20 +29,20 @@ public class CoverageCalculator extends Thread {
 	
 	private ArrayList<SparseReadLocation> startSortedLocations;
 	private ArrayList<SparseReadLocation> endSortedLocations;
-	private IntervalTree<Microbe> intervalTree;
+	private SpeciesLocator<Microbe> genomeLocator;
 	
 	
 	public CoverageCalculator(ArrayList<Integer> windowSizes) {
 		this.windowSizes = windowSizes;
 	}
 	
-	public CoverageCalculator(ArrayList<Integer> windowSizes, int completeWindowIntervall, int maxContextSize, ArrayList<SparseReadLocation> startSortedLocations, ArrayList<SparseReadLocation> endSortedLocations,IntervalTree<Microbe> intervalTree) {
+	public CoverageCalculator(ArrayList<Integer> windowSizes, int completeWindowIntervall, int maxContextSize, ArrayList<SparseReadLocation> startSortedLocations, ArrayList<SparseReadLocation> endSortedLocations,SpeciesLocator<Microbe> genomeLocator) {
 		this.windowSizes = windowSizes;
 		this.completeWindowIntervall = completeWindowIntervall;
 		this.maxContextSize = maxContextSize;
 		this.startSortedLocations = startSortedLocations;
 		this.endSortedLocations = endSortedLocations;
-		this.intervalTree = intervalTree;
+		this.genomeLocator = genomeLocator;
 	}
 	
 	public void run() {
@@ -76,11 +77,9 @@ public class CoverageCalculator extends Thread {
 				continue;
 			
 			
-			if(this.intervalTree != null && tmpSparseLocation.getCoordinates().get(0).getFirst() > microbeGenomeEnd) {
-				if(!this.intervalTree.getIntervalsSpanning(tmpSparseLocation.getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).isEmpty())
-					currentMicrobe = this.intervalTree.getIntervalsSpanning(tmpSparseLocation.getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).get(0);
-				else
-					currentMicrobe = this.intervalTree.getIntervalsSpanning(tmpSparseLocation.getCoordinates().get(0).getSecond(),new ArrayList<Microbe>()).get(0);
+			if(this.genomeLocator != null && tmpSparseLocation.getCoordinates().get(0).getFirst() > microbeGenomeEnd) {
+				if((currentMicrobe = this.genomeLocator.getGenome(tmpSparseLocation.getCoordinates().get(0).getFirst())) == null)
+					currentMicrobe = this.genomeLocator.getGenome(tmpSparseLocation.getCoordinates().get(0).getSecond());
 				
 				microbeGenomeStart = currentMicrobe.getStart();
 				microbeGenomeEnd = currentMicrobe.getStop();
@@ -144,7 +143,7 @@ public class CoverageCalculator extends Thread {
 				 currentWindowEnd = tmpSparseLocation.getCoordinates().get(0).getFirst() - 1 - processedWindowSizes;
 				 
 				 outOfGenome = false;
-				 if(this.intervalTree != null) {
+				 if(this.genomeLocator != null) {
 					 
 					 //check upstream genome start
 					 //in case the current window is out of the genome, we try to use the mirrored window from the downstream part of the read
@@ -206,7 +205,7 @@ public class CoverageCalculator extends Thread {
 				}
 				
 				outOfGenome = false;
-				if(this.intervalTree != null) {
+				if(this.genomeLocator != null) {
 					//check downstream genome end
 					if(currentWindowEnd > microbeGenomeEnd && currentWindowStart >= microbeGenomeEnd) {
 						//set the window positions to the mirrored version of the current window
@@ -0,0 +1,103 @@
+package context;
+
+import main.CoverageTrack;
+
+/**
+ * collects the coverage of the reads of a context as weighted segments (start,end,weight) instead of per base values.
+ * Reads have to be added sorted by their start positions. Segments ending more than windowSize positions
+ * upstream of the last added read are never requested again and get discarded when the arrays are full.
+ */
+class CoverageSegments {
+
+	private final int windowSize;
+	private int[] starts;
+	private int[] ends;
+	private double[] weights;
+	private int size;
+	private int lastReadStart;
+
+	public CoverageSegments(int windowSize) {
+		this.windowSize = windowSize;
+		this.starts = new int[1024];
+		this.ends = new int[1024];
+		this.weights = new double[1024];
+		this.size = 0;
+		this.lastReadStart = Integer.MIN_VALUE;
+	}
+
+
+	/**
+	 * coverage updates only for full and split reads (partial reads are probably discarded later).
+	 * since we don't know the exact split position of split reads we approximate their coverage
+	 * by the first and last readLength/2 positions.
+	 */
+	public void addRead(String mappingType, int readStart, int readEnd, int readLength, double weight) {
+		this.lastReadStart = readStart;
+		if(mappingType.equals("F"))
+			add(readStart,readEnd,weight);
+
+		else if(!mappingType.equals("P")) {
+			add(readStart,readStart + (readLength/2) - 1,weight);
+			add(readEnd - (readLength/2) + 1,readEnd,weight);
+		}
+	}
+
+	private void add(int from, int to, double weight) {
+		if(to < from)
+			return;
+
+		if(this.size == this.starts.length) {
+			discardSegmentsEndingBefore(this.lastReadStart - this.windowSize);
+			if(this.size > (this.starts.length >>> 1)) {
+				int[] tmpStarts = new int[this.starts.length * 2];
+				int[] tmpEnds = new int[this.starts.length * 2];
+				double[] tmpWeights = new double[this.starts.length * 2];
+				System.arraycopy(this.starts, 0, tmpStarts, 0, this.size);
+				System.arraycopy(this.ends, 0, tmpEnds, 0, this.size);
+				System.arraycopy(this.weights, 0, tmpWeights, 0, this.size);
+				this.starts = tmpStarts;
+				this.ends = tmpEnds;
+				this.weights = tmpWeights;
+			}
+		}
+		this.starts[this.size] = from;
+		this.ends[this.size] = to;
+		this.weights[this.size] = weight;
+		this.size++;
+	}
+
+	//keeps the order of the remaining segments, so the per base sums are the same as without discarding
+	private void discardSegmentsEndingBefore(int position) {
+		int newSize = 0;
+		for(int i = 0; i < this.size; i++) {
+			if(this.ends[i] >= position) {
+				this.starts[newSize] = this.starts[i];
+				this.ends[newSize] = this.ends[i];
+				this.weights[newSize] = this.weights[i];
+				newSize++;
+			}
+		}
+		this.size = newSize;
+	}
+
+
+	/**
+	 * returns the per base coverage of [from,to]
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public CoverageTrack getTrack(int from, int to) {
+		CoverageTrack track = new CoverageTrack(from,to);
+		for(int i = 0; i < this.size; i++) {
+			if(this.ends[i] >= from && this.starts[i] <= to)
+				track.add(this.starts[i], this.ends[i], this.weights[i]);
+		}
+		return track;
+	}
+
+	public void clear() {
+		this.size = 0;
+		this.lastReadStart = Integer.MIN_VALUE;
+	}
+}
@@ -22,6 +22,7 @@ import java.util.Locale;
 import java.util.NavigableMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -29,7 +30,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import augmentedTree.Interval;
-import augmentedTree.IntervalTree;
 import main.Context;
 import main.Microbe;
 import main.MutableDouble;
@@ -40,11 +40,18 @@ import main.SparseRead;
 import main.MultiSparseReadLocation;
 import main.Pair;
 import main.SparseReadLocation;
-import tools.BufferedRandomAccessFile;
+import tools.MappedLineReader;
 import tools.MaxPriorityQueue;
+import tools.SpeciesLocator;
 
 public class GlobalContextResolverPairedEnd implements ContextResolver {
 	
+	//multi mappings are buffered and written in batches of this size
+	private static final int MULTI_MAPPING_BATCH_SIZE = 2000000;
+	//part types of a shard
+	private static final char PART = 'P';
+	private static final char LOCATION_BATCH = 'L';
+	
 	private String multiMappingFilePath;
 	private String outputPath;
 	private ArrayList<Integer> windowSizes;
@@ -52,7 +59,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	private int maxContextSize;
 	private int maxDelSize;
 	private int numberOfThreads;
-	private int printedReads;
+	private long printedReads;
 	private int overallProcessedReads;
 	private PairScoreComparator pairScoreComparator;
 	private SparseLocationScoreComparator sparseReadLocationComparator;
@@ -68,7 +75,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	private MaxPriorityQueue queue;
 	
 	private HashMap<String,Integer> chr2length;
-	private HashMap<String,IntervalTree<Microbe>> chr2intervalTree;
+	private HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator;
 		
 	private LocationContainerComparator locationContainerComparator;
 	
@@ -77,7 +84,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	private DecimalFormat twoDec;
 	
 
-	public GlobalContextResolverPairedEnd(String multiMappingFilePath, String outputPath,HashMap<String,Integer> chr2length, HashMap<String,IntervalTree<Microbe>> chr2intervalTree, ArrayList<Integer> windowSizes, int readLength, int maxContextSize, int maxDelSize, boolean localContexts,boolean updateQueue, int updateInterval, int numberOfThreads, boolean printMultiMappings, boolean printSecondBestChr, boolean verbose, boolean strandSpecific) {
+	public GlobalContextResolverPairedEnd(String multiMappingFilePath, String outputPath,HashMap<String,Integer> chr2length, HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator, ArrayList<Integer> windowSizes, int readLength, int maxContextSize, int maxDelSize, boolean localContexts,boolean updateQueue, int updateInterval, int numberOfThreads, boolean printMultiMappings, boolean printSecondBestChr, boolean verbose, boolean strandSpecific) {
 		this.multiMappingFilePath = multiMappingFilePath;
 		this.windowSizes = windowSizes;
 		this.completeWindowIntervall = 0;
@@ -86,7 +93,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		}
 		
 		this.chr2length = chr2length;
-		this.chr2intervalTree = chr2intervalTree;
+		this.chr2genomeLocator = chr2genomeLocator;
 		
 		this.outputPath = outputPath;
 		this.maxContextSize = maxContextSize;
@@ -118,34 +125,75 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	
 	public void resolve() {
 		try {
+			//the read id sorted input is split into shards on read boundaries, every shard is resolved independently
+			ArrayList<Long> shardBoundaries = getShardBoundaries(this.numberOfThreads);
+			ArrayList<GlobalContextShard> shards = new ArrayList<GlobalContextShard>();
+			for(int i = 0; i < shardBoundaries.size() - 1; i++) {
+				shards.add(new GlobalContextShard(shardBoundaries.get(i),shardBoundaries.get(i+1),String.format("%s.shard_%s",this.outputPath,i)));
+			}
 			
-			HashMap<String,BufferedWriter> chr2writer = new HashMap<String,BufferedWriter>();
-			processGlobalContext(chr2writer);
-
-			for(BufferedWriter bw : chr2writer.values()) {
-				bw.close();
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,Math.min(this.numberOfThreads,shards.size())));
+			try {
+				//multi mappings are written in batches which may span several shards. the multi mappings of every shard are
+				//counted first, this gives the batch state at the start of every shard (i.e. the batches of a single pass).
+				if(shards.size() > 1) {
+					runShards(shards,executor);
+					setBatchStates(shards);
+				}
+				for(GlobalContextShard shard : shards)
+					shard.setCountOnly(false);
+				runShards(shards,executor);
+			}
+			finally {
+				executor.shutdownNow();
 			}
 			
-			//finally write the header and concatenate the written files
+			
+			//the part files in the order of a single pass. a flushed batch starts with the batch parts of preceding shards,
+			//the last batch is written at the end.
+			ArrayList<String> partPrefixes = new ArrayList<String>();
+			ArrayList<String> pendingLocationParts = new ArrayList<String>();
+			for(GlobalContextShard shard : shards) {
+				for(Pair<Character,String> part : shard.getParts()) {
+					if(part.getFirst() == LOCATION_BATCH) {
+						partPrefixes.addAll(pendingLocationParts);
+						pendingLocationParts.clear();
+					}
+					else
+						partPrefixes.add(part.getSecond());
+				}
+				if(shard.getRemainingLocationsPrefix() != null)
+					pendingLocationParts.add(shard.getRemainingLocationsPrefix());
+				this.printedReads += shard.getPrintedReads();
+			}
+			partPrefixes.addAll(pendingLocationParts);
+			
+			
+			//finally write the header and concatenate the written files.
 			ArrayList<String> chrNames = new ArrayList<String>();
 			File tmpFile;
-			
+			boolean foundAlignments;
 			for(String chrName : this.chr2length.keySet()) {
-				tmpFile = new File(this.outputPath + "." + chrName);
-				if(tmpFile.exists()) {
-					if(tmpFile.length() > 0) {
-						chrNames.add(chrName);
+				foundAlignments = false;
+				for(String prefix : partPrefixes) {
+					tmpFile = new File(prefix + "." + chrName);
+					if(tmpFile.exists()) {
+						if(tmpFile.length() > 0)
+							foundAlignments = true;
+						else
+							tmpFile.delete();
 					}
-					else
-						tmpFile.delete();
 				}
+				if(foundAlignments)
+					chrNames.add(chrName);
 			}
 		
 			
 			Collections.sort(chrNames);
 			ArrayList<String> tmpFilePaths = new ArrayList<String>();
 			for(String chrName : chrNames) {
-				tmpFilePaths.add(this.outputPath + "." + chrName);
+				for(String prefix : partPrefixes)
+					tmpFilePaths.add(prefix + "." + chrName);
 			}
 			
 
@@ -155,14 +203,223 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 			for(String tmpPath : tmpFilePaths) {
 				new File(tmpPath).delete();
 			}
-			
+
 		}
 		catch(Exception e) {
 			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
+	
+	private void runShards(ArrayList<GlobalContextShard> shards, ExecutorService executor) throws Exception {
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(GlobalContextShard shard : shards)
+			futures.add(executor.submit(shard));
+		for(Future<Void> future : futures)
+			future.get();
+	}
+	
+	
+	/**
+	 * sets the number of multi mappings buffered by the preceding shards at the start of every shard and whether the batch
+	 * left at the end of a shard is the last one of the run.
+	 */
+	private void setBatchStates(ArrayList<GlobalContextShard> shards) {
+		long multiMappedReads = 0;
+		for(GlobalContextShard shard : shards)
+			multiMappedReads += shard.getMultiMappedReads();
+		
+		long precedingReads = 0;
+		for(GlobalContextShard shard : shards) {
+			shard.setBufferedLocations((int)(precedingReads % MULTI_MAPPING_BATCH_SIZE));
+			precedingReads += shard.getMultiMappedReads();
+			shard.setLastBatch(precedingReads / MULTI_MAPPING_BATCH_SIZE == multiMappedReads / MULTI_MAPPING_BATCH_SIZE);
 		}
 	}
+
+
+	/**
+	 * returns shard start pointers (plus the file size as last element). Every boundary points to the first line of a fragment (both mates).
+	 */
+	private ArrayList<Long> getShardBoundaries(int shards) throws Exception {
+		ArrayList<Long> boundaries = new ArrayList<Long>();
+		MappedLineReader braf = new MappedLineReader(new File(this.multiMappingFilePath));
+		long fileSize = braf.length();
+		boundaries.add(0L);
+		long boundary;
+		long lineStart;
+		String currentLine;
+		String prevReadId;
+		for(int i = 1; i < shards; i++) {
+			boundary = (fileSize / shards) * i;
+			if(boundary <= boundaries.get(boundaries.size() - 1))
+				continue;
+			
+			//move to the next complete line
+			braf.seek(boundary - 1);
+			if(braf.read() != '\n')
+				braf.getNextLine();
+			
+			//move to the first line of the next read
+			prevReadId = null;
+			lineStart = braf.getFilePointer();
+			while((currentLine = braf.getNextLine()) != null) {
+				String readId = currentLine.substring(currentLine.indexOf('\t') + 1, currentLine.indexOf('\t', currentLine.indexOf('\t') + 1));
+				readId = readId.substring(0,readId.lastIndexOf("/"));
+				if(prevReadId != null && !readId.equals(prevReadId))
+					break;
+				prevReadId = readId;
+				lineStart = braf.getFilePointer();
+			}
+			if(currentLine == null)
+				break;
+			
+			if(lineStart > boundaries.get(boundaries.size() - 1))
+				boundaries.add(lineStart);
+		}
+		braf.close();
+		boundaries.add(fileSize);
+		return boundaries;
+	}
 	
 	
+	/**
+	 * resolves the fragments of a file range. The output is written to part files (<prefix>.part_<i>.<chr>), a flushed batch
+	 * of multi mappings starts a new part. The batch left at the end of the shard goes to a separate file.
+	 */
+	private class GlobalContextShard implements Callable<Void> {
+		
+		private long startPointer;
+		private long stopPointer;
+		private String outputPrefix;
+		private boolean countOnly;
+		
+		//multi mappings buffered by preceding shards
+		private int bufferedLocations;
+		private boolean lastBatch;
+		
+		private long multiMappedReads;
+		private long printedReads;
+		
+		private ArrayList<LocationContainer> locations2write;
+		private ArrayList<Pair<Character,String>> parts;
+		private String partPrefix;
+		private HashMap<String,BufferedWriter> chr2writer;
+		private String remainingLocationsPrefix;
+		
+		public GlobalContextShard(long startPointer, long stopPointer, String outputPrefix) {
+			this.startPointer = startPointer;
+			this.stopPointer = stopPointer;
+			this.outputPrefix = outputPrefix;
+			this.countOnly = true;
+			this.bufferedLocations = 0;
+			this.lastBatch = true;
+			this.multiMappedReads = 0;
+			this.printedReads = 0;
+			this.locations2write = new ArrayList<LocationContainer>();
+			this.parts = new ArrayList<Pair<Character,String>>();
+		}
+		
+		public Void call() throws Exception {
+			this.chr2writer = new HashMap<String,BufferedWriter>();
+			this.partPrefix = this.outputPrefix + ".part_0";
+			processGlobalContext(this.startPointer,this.stopPointer,this);
+			return null;
+		}
+		
+		public void setCountOnly(boolean countOnly) {
+			this.countOnly = countOnly;
+		}
+		
+		public void setBufferedLocations(int bufferedLocations) {
+			this.bufferedLocations = bufferedLocations;
+		}
+		
+		public void setLastBatch(boolean lastBatch) {
+			this.lastBatch = lastBatch;
+		}
+		
+		public long getMultiMappedReads() {
+			return this.multiMappedReads;
+		}
+		
+		public long getPrintedReads() {
+			return this.printedReads;
+		}
+		
+		public ArrayList<Pair<Character,String>> getParts() {
+			return this.parts;
+		}
+		
+		public String getRemainingLocationsPrefix() {
+			return this.remainingLocationsPrefix;
+		}
+		
+		public void writeUniqueLocations(long filePointerToBestLocationFirstMate, long filePointerToBestLocationSecondMate, MappedLineReader br, boolean nextSegmentUnmapped) throws Exception {
+			if(!this.countOnly)
+				printLocationToSamFormatFromBufferedReader(filePointerToBestLocationFirstMate,-1,filePointerToBestLocationSecondMate,-1,-1,-1,-1,-1,br,false,this.chr2writer,this.partPrefix,nextSegmentUnmapped);
+		}
+		
+		public void addLocation(LocationContainer location, MappedLineReader bufferedReader) throws Exception {
+			if(this.countOnly) {
+				this.multiMappedReads++;
+				return;
+			}
+			
+			this.locations2write.add(location);
+			this.printedReads++;
+			if(this.bufferedLocations + this.locations2write.size() >= MULTI_MAPPING_BATCH_SIZE) {
+				//the batch parts of preceding shards are inserted in front of the batch
+				closePart();
+				this.parts.add(new Pair<Character,String>(LOCATION_BATCH,null));
+				this.partPrefix = String.format("%s.part_%s",this.outputPrefix,this.parts.size());
+				writeLocations(false,bufferedReader,this.chr2writer,this.partPrefix);
+				this.bufferedLocations = 0;
+			}
+		}
+		
+		/**
+		 * writes the buffered locations sorted by file pointer, this way we can use the buffer for seek operations.
+		 * Flushed batches keep the multi mapping flag of pairs without a second best location unset.
+		 */
+		private void writeLocations(boolean isLastBatch, MappedLineReader bufferedReader, HashMap<String,BufferedWriter> chr2writer, String prefix) throws Exception {
+			Collections.sort(this.locations2write, locationContainerComparator);
+			for(LocationContainer container : this.locations2write) {
+				printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocationFirstMate(),container.getPointerToSecondBestLocationFirstMate(),container.getPointerToBestLocationSecondMate(),container.getPointerToSecondBestLocationSecondMate(), 
+						   container.getScoreOfBestLocationFirstMate(),container.getScoreOfSecondBestLocationFirstMate(),container.getScoreOfBestLocationSecondMate(),container.getScoreOfSecondBestLocationSecondMate(),
+						   bufferedReader,isLastBatch || container.getPointerToSecondBestLocationFirstMate() != -1,chr2writer,prefix,container.isNextSegmentUnmapped());
+			}
+			this.locations2write.clear();
+		}
+		
+		private void closePart() throws Exception {
+			for(BufferedWriter bw : this.chr2writer.values())
+				bw.close();
+			this.chr2writer.clear();
+			this.parts.add(new Pair<Character,String>(PART,this.partPrefix));
+		}
+		
+		/**
+		 * closes the current part and writes the batch left at the end of the shard. It is either completed by a later shard
+		 * or it is the last batch of the run.
+		 */
+		public void finish(MappedLineReader bufferedReader) throws Exception {
+			if(this.countOnly)
+				return;
+			closePart();
+			
+			if(!this.locations2write.isEmpty()) {
+				this.remainingLocationsPrefix = this.outputPrefix + ".remaining_locations";
+				HashMap<String,BufferedWriter> chr2remainingWriter = new HashMap<String,BufferedWriter>();
+				writeLocations(this.lastBatch,bufferedReader,chr2remainingWriter,this.remainingLocationsPrefix);
+				for(BufferedWriter bw : chr2remainingWriter.values())
+					bw.close();
+			}
+		}
+	}
+
+
 	private void writeSamHeader(ArrayList<String> chrNames, HashMap<String,Integer> chr2length, String outputPath) throws Exception {
 		PrintWriter pw = new PrintWriter(new FileWriter(new File(outputPath)));
 		for(String chrName : chrNames) {
@@ -202,9 +459,8 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	
 	
 	private void processReadPair(SparseRead firstMate, SparseRead secondMate, ArrayList<Pair<Integer,Integer>> validPairs, MultiSparseReadLocation topLocationFirstMate, MultiSparseReadLocation secondBestLocationFirstMate, 
-			MultiSparseReadLocation topLocationSecondMate, MultiSparseReadLocation secondBestLocationSecondMate, BufferedRandomAccessFile bufferedReader,ArrayList<LocationContainer> locations2write,
-									  ArrayList<LocationContainer> multiLocations2write,
-									  HashMap<String,BufferedWriter> chr2writer, boolean nextSegmentUnmapped) throws Exception {
+			MultiSparseReadLocation topLocationSecondMate, MultiSparseReadLocation secondBestLocationSecondMate, MappedLineReader bufferedReader,
+									  GlobalContextShard shard, boolean nextSegmentUnmapped) throws Exception {
 		
 		LocationContainer tmpContainer = null;
 		
@@ -247,32 +503,15 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		
 		
 		tmpContainer = new LocationContainer(bestLocationFirstMateFilePointer,secondBestLocationFirstMateFilePointer,bestLocationSecondMateFilePointer,secondBestLocationSecondMateFilePointer,scoreBestLocationFirstMate,scoreSecondBestLocationFirstMate,scoreBestLocationSecondMate,scoreSecondBestLocationSecondMate,nextSegmentUnmapped);		
-		locations2write.add(tmpContainer);
-		this.printedReads++;
-		
-		if(locations2write.size() >= 2000000) {
-			//sort by file pointer, this way we can use the buffer for seek operations
-			Collections.sort(locations2write, this.locationContainerComparator);
-			for(LocationContainer container : locations2write) {
-				if(container.getPointerToSecondBestLocationFirstMate() != -1)
-					printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocationFirstMate(),container.getPointerToSecondBestLocationFirstMate(),container.getPointerToBestLocationSecondMate(),container.getPointerToSecondBestLocationSecondMate(), 
-															   container.getScoreOfBestLocationFirstMate(),container.getScoreOfSecondBestLocationFirstMate(),container.getScoreOfBestLocationSecondMate(),container.getScoreOfSecondBestLocationSecondMate(),
-															   bufferedReader,true,chr2writer,container.isNextSegmentUnmapped());
-				else
-					printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocationFirstMate(),container.getPointerToSecondBestLocationFirstMate(),container.getPointerToBestLocationSecondMate(),container.getPointerToSecondBestLocationSecondMate(), 
-							   container.getScoreOfBestLocationFirstMate(),container.getScoreOfSecondBestLocationFirstMate(),container.getScoreOfBestLocationSecondMate(),container.getScoreOfSecondBestLocationSecondMate(),
-							   bufferedReader,false,chr2writer,container.isNextSegmentUnmapped());
-			}
-			locations2write.clear();
-		}
+		shard.addLocation(tmpContainer,bufferedReader);
 	}
 	
 
 	
 	
 	private void printLocationToSamFormatFromBufferedReader(long filePointerToBestLocationFirstMate,long filePointerToSecondBestLocationFirstMate, long filePointerToBestLocationSecondMate,long filePointerToSecondBestLocationSecondMate, double scoreOfBestLocationFirstMate, double scoreOfSecondBestLocationFirstMate,
-			                                                  double scoreOfBestLocationSecondMate, double scoreOfSecondBestLocationSecondMate, BufferedRandomAccessFile br, 
-			                                                  boolean isMultiMapping, HashMap<String,BufferedWriter> chr2writer, boolean nextSegmentUnmapped) throws Exception {
+			                                                  double scoreOfBestLocationSecondMate, double scoreOfSecondBestLocationSecondMate, MappedLineReader br, 
+			                                                  boolean isMultiMapping, HashMap<String,BufferedWriter> chr2writer, String outputPrefix, boolean nextSegmentUnmapped) throws Exception {
 		
 		if(filePointerToSecondBestLocationFirstMate != -1 && !this.printSecondBestChr && (scoreOfBestLocationFirstMate - scoreOfSecondBestLocationFirstMate) <= this.scoreDiffCutoff) {
 			return;
@@ -351,7 +590,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		//write the first mate
 		
 		if(!chr2writer.containsKey(samRecordBestHitFirstMate.getReferenceName())) {
-			chr2writer.put(samRecordBestHitFirstMate.getReferenceName(), new BufferedWriter(new FileWriter(new File(this.outputPath + "." + samRecordBestHitFirstMate.getReferenceName())),10240));
+			chr2writer.put(samRecordBestHitFirstMate.getReferenceName(), new BufferedWriter(new FileWriter(new File(outputPrefix + "." + samRecordBestHitFirstMate.getReferenceName())),10240));
 		}
 		BufferedWriter pw = chr2writer.get(samRecordBestHitFirstMate.getReferenceName());
 		
@@ -382,7 +621,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 			//the current definition of a valid read pair does not allow this scenario... but we never know....
 			if(!samRecordBestHitFirstMate.getReferenceName().equals(samRecordBestHitSecondMate)) {
 				if(!chr2writer.containsKey(samRecordBestHitSecondMate.getReferenceName())) {
-					chr2writer.put(samRecordBestHitSecondMate.getReferenceName(), new BufferedWriter(new FileWriter(new File(this.outputPath + "." + samRecordBestHitSecondMate.getReferenceName())),10240));
+					chr2writer.put(samRecordBestHitSecondMate.getReferenceName(), new BufferedWriter(new FileWriter(new File(outputPrefix + "." + samRecordBestHitSecondMate.getReferenceName())),10240));
 				}
 				pw = chr2writer.get(samRecordBestHitSecondMate.getReferenceName());
 			}
@@ -820,9 +1059,11 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	}
 	
 	private String trimDouble(double inValue){
-		
-		twoDec.setGroupingUsed(false);
-		return twoDec.format(inValue);
+		//shared by all shards
+		synchronized(this.twoDec) {
+			twoDec.setGroupingUsed(false);
+			return twoDec.format(inValue);
+		}
 		}
 	
 	
@@ -962,27 +1203,27 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 			int maxThreads = this.numberOfThreads;
 			//if(maxThreads > 3) maxThreads = 3;
 			ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
-			ArrayList<Future> futures = new ArrayList<Future>();
-			IntervalTree intervalTree;
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			SpeciesLocator<Microbe> genomeLocator;
 			//process forward strand
 			for(String chr : chr2locationsStartSorted.keySet()) {
-				intervalTree = null;
-				if(this.chr2intervalTree != null && this.chr2intervalTree.containsKey(chr))
-					intervalTree = this.chr2intervalTree.get(chr);
-				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2locationsStartSorted.get(chr), chr2locationsEndSorted.get(chr),intervalTree)));
+				genomeLocator = null;
+				if(this.chr2genomeLocator != null && this.chr2genomeLocator.containsKey(chr))
+					genomeLocator = this.chr2genomeLocator.get(chr);
+				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2locationsStartSorted.get(chr), chr2locationsEndSorted.get(chr),genomeLocator)));
 				
 			}
 			
 			//process reverse complemented strand (in case we don't have strand specific reads, we have an empty hashmap here).
 			for(String chr : chr2ReverselocationsStartSorted.keySet()) {
-				intervalTree = null;
-				if(this.chr2intervalTree != null && this.chr2intervalTree.containsKey(chr))
-					intervalTree = this.chr2intervalTree.get(chr);
-				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2ReverselocationsStartSorted.get(chr), chr2ReverselocationsEndSorted.get(chr),intervalTree)));
+				genomeLocator = null;
+				if(this.chr2genomeLocator != null && this.chr2genomeLocator.containsKey(chr))
+					genomeLocator = this.chr2genomeLocator.get(chr);
+				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2ReverselocationsStartSorted.get(chr), chr2ReverselocationsEndSorted.get(chr),genomeLocator)));
 			}
 			
 			executor.shutdown();
-			for(Future future : futures)
+			for(Future<?> future : futures)
 				future.get();
 			
 			futures.clear();
@@ -1036,17 +1277,18 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 	}
 	
 	
-	private void processGlobalContext(HashMap<String,BufferedWriter> chr2writer) throws Exception {
+	private void processGlobalContext(long startPointer, long stopPointer, GlobalContextShard shard) throws Exception {
 		
-		BufferedRandomAccessFile br = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
-		BufferedRandomAccessFile brForMultiMappings = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
-		
-		ArrayList<LocationContainer> locations2write = new ArrayList<LocationContainer>();
-		ArrayList<LocationContainer> multiLocations2write = new ArrayList<LocationContainer>();
+		MappedLineReader br = new MappedLineReader(new File(this.multiMappingFilePath));
+		MappedLineReader brForMultiMappings = new MappedLineReader(new File(this.multiMappingFilePath));
+		br.seek(startPointer);
 		
 		long prevFilePointer = br.getFilePointer();
-		String currentLine = br.getNextLine();
+		String currentLine = null;
+		if(prevFilePointer < stopPointer)
+			currentLine = br.getNextLine();
 		if(currentLine == null) {
+			shard.finish(brForMultiMappings);
 			br.close();
 			brForMultiMappings.close();
 			return;
@@ -1107,7 +1349,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		ArrayList<String> currentChrList = chrA;
 		currentChrList.add(chr);
 		
-		while((currentLine = br.getNextLine()) != null) {
+		while(filePointer < stopPointer && (currentLine = br.getNextLine()) != null) {
 			st = new StringTokenizer(currentLine,"\t");
 			currentContextId = st.nextToken();
 			
@@ -1191,14 +1433,14 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 					
 					//only found one valid pair. no need for further calculations, print mates.
 					if(currentPair.getValidPairs().size() == 1) {
-						printLocationToSamFormatFromBufferedReader(currentPair.getFirst().getLocations().get(currentPair.getValidPairs().get(0).getFirst()).getFilePointer(),-1,currentPair.getSecond().getLocations().get(currentPair.getValidPairs().get(0).getSecond()).getFilePointer(),-1,-1,-1,-1,-1,br,false,chr2writer,false);
+						shard.writeUniqueLocations(currentPair.getFirst().getLocations().get(currentPair.getValidPairs().get(0).getFirst()).getFilePointer(),currentPair.getSecond().getLocations().get(currentPair.getValidPairs().get(0).getSecond()).getFilePointer(),br,false);
 					}
 					
 					//at least two valid pairs found. add mates to the multi mapping fraction 
 					else if(currentPair.getValidPairs().size() > 1) {
 						//this.reads.add(currentPair);
 						setReadScore(currentPair);
-						processMultiMappedReads(currentPair,locations2write,multiLocations2write,brForMultiMappings,chr2writer);
+						processMultiMappedReads(currentPair,brForMultiMappings,shard);
 						
 					}
 				}
@@ -1207,11 +1449,11 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 				else if(currentPair.getFirst().getLocations().size() > 1) {
 					//reads.add(currentPair);
 					setReadScore(currentPair);
-					processMultiMappedReads(currentPair,locations2write,multiLocations2write,brForMultiMappings,chr2writer);
+					processMultiMappedReads(currentPair,brForMultiMappings,shard);
 				}
 				
 				else {
-					printLocationToSamFormatFromBufferedReader(currentPair.getFirst().getLocations().get(0).getFilePointer(),-1,-1,-1,-1,-1,-1,-1,br,false,chr2writer,true);
+					shard.writeUniqueLocations(currentPair.getFirst().getLocations().get(0).getFilePointer(),-1,br,true);
 				}
 				
 				overallParsedReads++;
@@ -1256,14 +1498,14 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 
 			//only found one valid pair. no need for further calculations, print mates.
 			if(currentPair.getValidPairs().size() == 1) {
-				printLocationToSamFormatFromBufferedReader(currentPair.getFirst().getLocations().get(currentPair.getValidPairs().get(0).getFirst()).getFilePointer(),-1,currentPair.getSecond().getLocations().get(currentPair.getValidPairs().get(0).getSecond()).getFilePointer(),-1,-1,-1,-1,-1,br,false,chr2writer,false);
+				shard.writeUniqueLocations(currentPair.getFirst().getLocations().get(currentPair.getValidPairs().get(0).getFirst()).getFilePointer(),currentPair.getSecond().getLocations().get(currentPair.getValidPairs().get(0).getSecond()).getFilePointer(),br,false);
 			}
 			
 			//at least two valid pairs found. add mates to the multi mapping fraction 
 			else if(currentPair.getValidPairs().size() > 1) {
 				//this.reads.add(currentPair);
 				setReadScore(currentPair);
-				processMultiMappedReads(currentPair,locations2write,multiLocations2write,brForMultiMappings,chr2writer);
+				processMultiMappedReads(currentPair,brForMultiMappings,shard);
 			}
 			
 		}
@@ -1272,29 +1514,23 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		else if(currentPair.getFirst().getLocations().size() > 1) {
 			//reads.add(currentPair);
 			setReadScore(currentPair);
-			processMultiMappedReads(currentPair,locations2write,multiLocations2write,brForMultiMappings,chr2writer);
+			processMultiMappedReads(currentPair,brForMultiMappings,shard);
 		}
 		
 		else {
-			printLocationToSamFormatFromBufferedReader(currentPair.getFirst().getLocations().get(0).getFilePointer(),-1,-1,-1,-1,-1,-1,-1,br,false,chr2writer,true);
+			shard.writeUniqueLocations(currentPair.getFirst().getLocations().get(0).getFilePointer(),-1,br,true);
 		}
 		
 		
 		//write last bunch of reads
-		Collections.sort(locations2write, this.locationContainerComparator);
-		for(LocationContainer container : locations2write) {
-			printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocationFirstMate(),container.getPointerToSecondBestLocationFirstMate(),container.getPointerToBestLocationSecondMate(),container.getPointerToSecondBestLocationSecondMate(), 
-					   container.getScoreOfBestLocationFirstMate(),container.getScoreOfSecondBestLocationFirstMate(),container.getScoreOfBestLocationSecondMate(),container.getScoreOfSecondBestLocationSecondMate(),
-					   brForMultiMappings,true,chr2writer,container.isNextSegmentUnmapped());
-		}
+		shard.finish(brForMultiMappings);
 		
-		locations2write.clear();
 		br.close();
 		brForMultiMappings.close();
 		
 	}
 	
-	private void processMultiMappedReads(ReadPair<SparseRead,SparseRead> highScoringReadPair,ArrayList<LocationContainer> locations2write,ArrayList<LocationContainer> multiLocations2write,BufferedRandomAccessFile bufferedReader,HashMap<String,BufferedWriter> chr2writer) throws Exception {
+	private void processMultiMappedReads(ReadPair<SparseRead,SparseRead> highScoringReadPair,MappedLineReader bufferedReader,GlobalContextShard shard) throws Exception {
 		boolean nextSegmentUnmapped;
 		MultiSparseReadLocation topLocationFirstMate;
 		MultiSparseReadLocation topLocationSecondMate;
@@ -1347,7 +1583,7 @@ public class GlobalContextResolverPairedEnd implements ContextResolver {
 		}
 		
 		
-		processReadPair(highScoringReadPair.getFirst(),highScoringReadPair.getSecond(),highScoringReadPair.getValidPairs(),topLocationFirstMate,secondBestLocationFirstMate,topLocationSecondMate,secondBestLocationSecondMate,bufferedReader,locations2write,multiLocations2write,chr2writer,nextSegmentUnmapped);
+		processReadPair(highScoringReadPair.getFirst(),highScoringReadPair.getSecond(),highScoringReadPair.getValidPairs(),topLocationFirstMate,secondBestLocationFirstMate,topLocationSecondMate,secondBestLocationSecondMate,bufferedReader,shard,nextSegmentUnmapped);
 	
 	}
 	
@@ -22,6 +22,7 @@ import java.util.Locale;
 import java.util.NavigableMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -29,7 +30,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import augmentedTree.Interval;
-import augmentedTree.IntervalTree;
 import main.Context;
 import main.Microbe;
 import main.MutableDouble;
@@ -39,11 +39,19 @@ import main.ReadLocation;
 import main.SparseRead;
 import main.MultiSparseReadLocation;
 import main.SparseReadLocation;
-import tools.BufferedRandomAccessFile;
+import tools.MappedLineReader;
 import tools.MaxPriorityQueue;
+import tools.SpeciesLocator;
 
 public class GlobalContextResolverSingleEnd implements ContextResolver {
 	
+	//multi mappings are buffered and written in batches of this size
+	private static final int MULTI_MAPPING_BATCH_SIZE = 2000000;
+	//part types of a shard
+	private static final char PART = 'P';
+	private static final char LOCATION_BATCH = 'L';
+	private static final char MULTI_LOCATION_BATCH = 'M';
+	
 	private String multiMappingFilePath;
 	private String outputPath;
 	private ArrayList<Integer> windowSizes;
@@ -61,12 +69,12 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 	private boolean strandSpecific;
 	
 	HashMap<String,Integer> chr2length;
-	HashMap<String,IntervalTree<Microbe>> chr2intervalTree;
+	HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator;
 	
 	private double scoreDiffCutoff;
 	
 
-	public GlobalContextResolverSingleEnd(String multiMappingFilePath, String outputPath,HashMap<String,Integer> chr2length, HashMap<String,IntervalTree<Microbe>> chr2intervalTree, ArrayList<Integer> windowSizes, int readLength, int maxContextSize, int maxDelSize, boolean localContexts,boolean updateQueue, int updateInterval, int numberOfThreads, boolean printMultiMappings, boolean printSecondBestChr, boolean verbose, boolean strandSpecific) {
+	public GlobalContextResolverSingleEnd(String multiMappingFilePath, String outputPath,HashMap<String,Integer> chr2length, HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator, ArrayList<Integer> windowSizes, int readLength, int maxContextSize, int maxDelSize, boolean localContexts,boolean updateQueue, int updateInterval, int numberOfThreads, boolean printMultiMappings, boolean printSecondBestChr, boolean verbose, boolean strandSpecific) {
 		this.multiMappingFilePath = multiMappingFilePath;
 		this.windowSizes = windowSizes;
 		this.completeWindowIntervall = 0;
@@ -75,7 +83,7 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		}
 		
 		this.chr2length = chr2length;
-		this.chr2intervalTree = chr2intervalTree;
+		this.chr2genomeLocator = chr2genomeLocator;
 		
 		this.outputPath = outputPath;
 		this.maxContextSize = maxContextSize;
@@ -95,35 +103,82 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 	}
 	
 	public void resolve() {
-		try {			
-			HashMap<String,BufferedWriter> chr2writer = new HashMap<String,BufferedWriter>();
-			processGlobalContext(chr2writer);
+		try {
+			//the read id sorted input is split into shards on read boundaries, every shard is resolved independently
+			ArrayList<Long> shardBoundaries = getShardBoundaries(this.numberOfThreads);
+			ArrayList<GlobalContextShard> shards = new ArrayList<GlobalContextShard>();
+			for(int i = 0; i < shardBoundaries.size() - 1; i++) {
+				shards.add(new GlobalContextShard(shardBoundaries.get(i),shardBoundaries.get(i+1),String.format("%s.shard_%s",this.outputPath,i)));
+			}
 			
-			for(BufferedWriter bw : chr2writer.values()) {
-				bw.close();
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,Math.min(this.numberOfThreads,shards.size())));
+			try {
+				//multi mappings are written in batches which may span several shards. the multi mappings of every shard are
+				//counted first, this gives the batch state at the start of every shard (i.e. the batches of a single pass).
+				if(shards.size() > 1) {
+					runShards(shards,executor);
+					setBatchStates(shards);
+				}
+				for(GlobalContextShard shard : shards)
+					shard.setCountOnly(false);
+				runShards(shards,executor);
+			}
+			finally {
+				executor.shutdownNow();
 			}
 			
 			
-			//finally write the header and concatenate the written files
+			//the part files in the order of a single pass. a flushed batch starts with the batch parts of preceding shards,
+			//the last batch is written at the end.
+			ArrayList<String> partPrefixes = new ArrayList<String>();
+			ArrayList<String> pendingLocationParts = new ArrayList<String>();
+			ArrayList<String> pendingMultiLocationParts = new ArrayList<String>();
+			for(GlobalContextShard shard : shards) {
+				for(Pair<Character,String> part : shard.getParts()) {
+					if(part.getFirst() == LOCATION_BATCH) {
+						partPrefixes.addAll(pendingLocationParts);
+						pendingLocationParts.clear();
+					}
+					else if(part.getFirst() == MULTI_LOCATION_BATCH) {
+						partPrefixes.addAll(pendingMultiLocationParts);
+						pendingMultiLocationParts.clear();
+					}
+					else
+						partPrefixes.add(part.getSecond());
+				}
+				if(shard.getRemainingLocationsPrefix() != null)
+					pendingLocationParts.add(shard.getRemainingLocationsPrefix());
+				if(shard.getRemainingMultiLocationsPrefix() != null)
+					pendingMultiLocationParts.add(shard.getRemainingMultiLocationsPrefix());
+			}
+			partPrefixes.addAll(pendingLocationParts);
+			
+			
+			//finally write the header and concatenate the written files.
 			ArrayList<String> chrNames = new ArrayList<String>();
 			File tmpFile;
-			
+			boolean foundAlignments;
 			for(String chrName : this.chr2length.keySet()) {
-				tmpFile = new File(this.outputPath + "." + chrName);
-				if(tmpFile.exists()) {
-					if(tmpFile.length() > 0) {
-						chrNames.add(chrName);
+				foundAlignments = false;
+				for(String prefix : partPrefixes) {
+					tmpFile = new File(prefix + "." + chrName);
+					if(tmpFile.exists()) {
+						if(tmpFile.length() > 0)
+							foundAlignments = true;
+						else
+							tmpFile.delete();
 					}
-					else
-						tmpFile.delete();
 				}
+				if(foundAlignments)
+					chrNames.add(chrName);
 			}
 		
 			
 			Collections.sort(chrNames);
 			ArrayList<String> tmpFilePaths = new ArrayList<String>();
 			for(String chrName : chrNames) {
-				tmpFilePaths.add(this.outputPath + "." + chrName);
+				for(String prefix : partPrefixes)
+					tmpFilePaths.add(prefix + "." + chrName);
 			}
 			
 
@@ -137,9 +192,271 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		}
 		catch(Exception e) {
 			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	
+	
+	private void runShards(ArrayList<GlobalContextShard> shards, ExecutorService executor) throws Exception {
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(GlobalContextShard shard : shards)
+			futures.add(executor.submit(shard));
+		for(Future<Void> future : futures)
+			future.get();
+	}
+	
+	
+	/**
+	 * sets the number of multi mappings buffered by the preceding shards at the start of every shard. The batch of
+	 * multi mapping locations left at the end of a shard is only written if it is completed by a later shard.
+	 */
+	private void setBatchStates(ArrayList<GlobalContextShard> shards) {
+		long precedingReads = 0;
+		int bufferedMultiLocations = 0;
+		boolean ownMultiLocations;
+		ArrayList<GlobalContextShard> pendingShards = new ArrayList<GlobalContextShard>();
+		for(GlobalContextShard shard : shards) {
+			shard.setBufferedLocations((int)(precedingReads % MULTI_MAPPING_BATCH_SIZE));
+			shard.setBufferedMultiLocations(bufferedMultiLocations);
+			precedingReads += shard.getMultiMappedReads();
+			
+			ownMultiLocations = false;
+			for(int locations : shard.getMultiLocationCounts()) {
+				if(locations == 0)
+					continue;
+				bufferedMultiLocations += locations;
+				ownMultiLocations = true;
+				if(bufferedMultiLocations >= MULTI_MAPPING_BATCH_SIZE) {
+					for(GlobalContextShard pendingShard : pendingShards)
+						pendingShard.setWriteRemainingMultiLocations(true);
+					pendingShards.clear();
+					bufferedMultiLocations = 0;
+					ownMultiLocations = false;
+				}
+			}
+			if(ownMultiLocations)
+				pendingShards.add(shard);
+		}
+	}
+
+
+	/**
+	 * returns shard start pointers (plus the file size as last element). Every boundary points to the first line of a read.
+	 */
+	private ArrayList<Long> getShardBoundaries(int shards) throws Exception {
+		ArrayList<Long> boundaries = new ArrayList<Long>();
+		MappedLineReader braf = new MappedLineReader(new File(this.multiMappingFilePath));
+		long fileSize = braf.length();
+		boundaries.add(0L);
+		long boundary;
+		long lineStart;
+		String currentLine;
+		String prevReadId;
+		for(int i = 1; i < shards; i++) {
+			boundary = (fileSize / shards) * i;
+			if(boundary <= boundaries.get(boundaries.size() - 1))
+				continue;
+			
+			//move to the next complete line
+			braf.seek(boundary - 1);
+			if(braf.read() != '\n')
+				braf.getNextLine();
+			
+			//move to the first line of the next read
+			prevReadId = null;
+			lineStart = braf.getFilePointer();
+			while((currentLine = braf.getNextLine()) != null) {
+				String readId = currentLine.substring(currentLine.indexOf('\t') + 1, currentLine.indexOf('\t', currentLine.indexOf('\t') + 1));
+				if(prevReadId != null && !readId.equals(prevReadId))
+					break;
+				prevReadId = readId;
+				lineStart = braf.getFilePointer();
+			}
+			if(currentLine == null)
+				break;
+			
+			if(lineStart > boundaries.get(boundaries.size() - 1))
+				boundaries.add(lineStart);
 		}
+		braf.close();
+		boundaries.add(fileSize);
+		return boundaries;
 	}
 	
+	
+	/**
+	 * resolves the reads of a file range. The output is written to part files (<prefix>.part_<i>.<chr>), a flushed batch
+	 * of multi mappings starts a new part. The batches left at the end of the shard go to separate files.
+	 */
+	private class GlobalContextShard implements Callable<Void> {
+		
+		private long startPointer;
+		private long stopPointer;
+		private String outputPrefix;
+		private boolean countOnly;
+		
+		//multi mappings buffered by preceding shards
+		private int bufferedLocations;
+		private int bufferedMultiLocations;
+		private boolean writeRemainingMultiLocations;
+		
+		//counting pass
+		private long multiMappedReads;
+		private ArrayList<Integer> multiLocationCounts;
+		
+		private ArrayList<LocationContainer> locations2write;
+		private ArrayList<LocationContainer> multiLocations2write;
+		private LocationContainerComparator locationContainerComparator;
+		private ArrayList<Pair<Character,String>> parts;
+		private String partPrefix;
+		private HashMap<String,BufferedWriter> chr2writer;
+		private String remainingLocationsPrefix;
+		private String remainingMultiLocationsPrefix;
+		
+		public GlobalContextShard(long startPointer, long stopPointer, String outputPrefix) {
+			this.startPointer = startPointer;
+			this.stopPointer = stopPointer;
+			this.outputPrefix = outputPrefix;
+			this.countOnly = true;
+			this.bufferedLocations = 0;
+			this.bufferedMultiLocations = 0;
+			this.writeRemainingMultiLocations = false;
+			this.multiMappedReads = 0;
+			this.multiLocationCounts = new ArrayList<Integer>();
+			this.locations2write = new ArrayList<LocationContainer>();
+			this.multiLocations2write = new ArrayList<LocationContainer>();
+			this.locationContainerComparator = new LocationContainerComparator();
+			this.parts = new ArrayList<Pair<Character,String>>();
+		}
+		
+		public Void call() throws Exception {
+			this.chr2writer = new HashMap<String,BufferedWriter>();
+			this.partPrefix = this.outputPrefix + ".part_0";
+			processGlobalContext(this.startPointer,this.stopPointer,this);
+			return null;
+		}
+		
+		public void setCountOnly(boolean countOnly) {
+			this.countOnly = countOnly;
+		}
+		
+		public boolean isCountOnly() {
+			return this.countOnly;
+		}
+		
+		public void setBufferedLocations(int bufferedLocations) {
+			this.bufferedLocations = bufferedLocations;
+		}
+		
+		public void setBufferedMultiLocations(int bufferedMultiLocations) {
+			this.bufferedMultiLocations = bufferedMultiLocations;
+		}
+		
+		public void setWriteRemainingMultiLocations(boolean writeRemainingMultiLocations) {
+			this.writeRemainingMultiLocations = writeRemainingMultiLocations;
+		}
+		
+		public long getMultiMappedReads() {
+			return this.multiMappedReads;
+		}
+		
+		public ArrayList<Integer> getMultiLocationCounts() {
+			return this.multiLocationCounts;
+		}
+		
+		public ArrayList<Pair<Character,String>> getParts() {
+			return this.parts;
+		}
+		
+		public String getRemainingLocationsPrefix() {
+			return this.remainingLocationsPrefix;
+		}
+		
+		public String getRemainingMultiLocationsPrefix() {
+			return this.remainingMultiLocationsPrefix;
+		}
+		
+		public void writeUniqueLocation(long filePointer, MappedLineReader br) throws Exception {
+			if(!this.countOnly)
+				printLocationToSamFormatFromBufferedReader(filePointer,-1,-1,-1,br,false,this.chr2writer,this.partPrefix);
+		}
+		
+		public void addMultiMappedRead(LocationContainer location, ArrayList<LocationContainer> multiLocations, MappedLineReader bufferedReader) throws Exception {
+			if(this.countOnly) {
+				this.multiMappedReads++;
+				if(printMultiMappings)
+					this.multiLocationCounts.add(multiLocations.size());
+				return;
+			}
+			
+			this.locations2write.add(location);
+			if(this.bufferedLocations + this.locations2write.size() >= MULTI_MAPPING_BATCH_SIZE) {
+				writeBatch(this.locations2write,LOCATION_BATCH,bufferedReader);
+				this.bufferedLocations = 0;
+			}
+			
+			if(printMultiMappings) {
+				this.multiLocations2write.addAll(multiLocations);
+				if(this.bufferedMultiLocations + this.multiLocations2write.size() >= MULTI_MAPPING_BATCH_SIZE) {
+					writeBatch(this.multiLocations2write,MULTI_LOCATION_BATCH,bufferedReader);
+					this.bufferedMultiLocations = 0;
+				}
+			}
+		}
+		
+		/**
+		 * closes the current part and writes the given batch (sorted by file pointer, this way we can use the buffer for seek operations)
+		 * to the next part. The batch parts of preceding shards are inserted in front of it.
+		 */
+		private void writeBatch(ArrayList<LocationContainer> batch, char batchType, MappedLineReader bufferedReader) throws Exception {
+			closePart();
+			this.parts.add(new Pair<Character,String>(batchType,null));
+			this.partPrefix = String.format("%s.part_%s",this.outputPrefix,this.parts.size());
+			writeLocations(batch,bufferedReader,this.chr2writer,this.partPrefix);
+		}
+		
+		private void writeLocations(ArrayList<LocationContainer> batch, MappedLineReader bufferedReader, HashMap<String,BufferedWriter> chr2writer, String prefix) throws Exception {
+			Collections.sort(batch, this.locationContainerComparator);
+			for(LocationContainer container : batch) {
+				printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocation(),container.getPointerToSecondBestLocation(),container.getScoreOfBestLocation(),container.getScoreOfSecondBestLocation(),bufferedReader,true,chr2writer,prefix);
+			}
+			batch.clear();
+		}
+		
+		private void closePart() throws Exception {
+			for(BufferedWriter bw : this.chr2writer.values())
+				bw.close();
+			this.chr2writer.clear();
+			this.parts.add(new Pair<Character,String>(PART,this.partPrefix));
+		}
+		
+		/**
+		 * closes the current part and writes the batches left at the end of the shard
+		 */
+		public void finish(MappedLineReader bufferedReader) throws Exception {
+			if(this.countOnly)
+				return;
+			closePart();
+			
+			if(!this.locations2write.isEmpty()) {
+				this.remainingLocationsPrefix = this.outputPrefix + ".remaining_locations";
+				writeRemainingLocations(this.locations2write,bufferedReader,this.remainingLocationsPrefix);
+			}
+			if(!this.multiLocations2write.isEmpty() && this.writeRemainingMultiLocations) {
+				this.remainingMultiLocationsPrefix = this.outputPrefix + ".remaining_multi_locations";
+				writeRemainingLocations(this.multiLocations2write,bufferedReader,this.remainingMultiLocationsPrefix);
+			}
+			this.multiLocations2write.clear();
+		}
+		
+		private void writeRemainingLocations(ArrayList<LocationContainer> batch, MappedLineReader bufferedReader, String prefix) throws Exception {
+			HashMap<String,BufferedWriter> chr2remainingWriter = new HashMap<String,BufferedWriter>();
+			writeLocations(batch,bufferedReader,chr2remainingWriter,prefix);
+			for(BufferedWriter bw : chr2remainingWriter.values())
+				bw.close();
+		}
+	}
+
 	private void writeSamHeader(ArrayList<String> chrNames, HashMap<String,Integer> chr2length, String outputPath) throws Exception {
 		PrintWriter pw = new PrintWriter(new FileWriter(new File(outputPath)));
 		for(String chrName : chrNames) {
@@ -178,7 +495,7 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 	}
 	
 	
-	private void printLocationToSamFormatFromBufferedReader(long filePointerToBestLocation,long filePointerToSecondBestLocation,double scoreOfBestLocation, double scoreOfSecondBestLocation, BufferedRandomAccessFile br, boolean isMultiMapping, HashMap<String,BufferedWriter> chr2writer) throws Exception {
+	private void printLocationToSamFormatFromBufferedReader(long filePointerToBestLocation,long filePointerToSecondBestLocation,double scoreOfBestLocation, double scoreOfSecondBestLocation, MappedLineReader br, boolean isMultiMapping, HashMap<String,BufferedWriter> chr2writer, String outputPrefix) throws Exception {
 		
 		if(filePointerToSecondBestLocation != -1 && !this.printSecondBestChr && (scoreOfBestLocation - scoreOfSecondBestLocation) <= this.scoreDiffCutoff) {
 			return;
@@ -321,7 +638,7 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		
 
 		if(!chr2writer.containsKey(chr)) {
-			chr2writer.put(chr, new BufferedWriter(new FileWriter(new File(this.outputPath + "." + chr))));
+			chr2writer.put(chr, new BufferedWriter(new FileWriter(new File(outputPrefix + "." + chr))));
 		}
 		BufferedWriter pw = chr2writer.get(chr);
 		
@@ -460,27 +777,27 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 			int maxThreads = this.numberOfThreads;
 			//if(maxThreads > 3) maxThreads = 3;
 			ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
-			ArrayList<Future> futures = new ArrayList<Future>();
-			IntervalTree intervalTree;
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			SpeciesLocator<Microbe> genomeLocator;
 			//process forward strand
 			for(String chr : chr2locationsStartSorted.keySet()) {
-				intervalTree = null;
-				if(this.chr2intervalTree != null && this.chr2intervalTree.containsKey(chr))
-					intervalTree = this.chr2intervalTree.get(chr);
+				genomeLocator = null;
+				if(this.chr2genomeLocator != null && this.chr2genomeLocator.containsKey(chr))
+					genomeLocator = this.chr2genomeLocator.get(chr);
 				
-				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2locationsStartSorted.get(chr), chr2locationsEndSorted.get(chr),intervalTree)));
+				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2locationsStartSorted.get(chr), chr2locationsEndSorted.get(chr),genomeLocator)));
 			}
 			
 			//process reverse complemented strand (in case we don't have strand specific reads, we have an empty hashmap here).
 			for(String chr : chr2ReverselocationsStartSorted.keySet()) {
-				intervalTree = null;
-				if(this.chr2intervalTree != null && this.chr2intervalTree.containsKey(chr))
-					intervalTree = this.chr2intervalTree.get(chr);
-				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2ReverselocationsStartSorted.get(chr), chr2ReverselocationsEndSorted.get(chr),intervalTree)));
+				genomeLocator = null;
+				if(this.chr2genomeLocator != null && this.chr2genomeLocator.containsKey(chr))
+					genomeLocator = this.chr2genomeLocator.get(chr);
+				futures.add(executor.submit(new CoverageCalculator(this.windowSizes, this.completeWindowIntervall, this.maxContextSize, chr2ReverselocationsStartSorted.get(chr), chr2ReverselocationsEndSorted.get(chr),genomeLocator)));
 			}
 			
 			executor.shutdown();
-			for(Future future : futures)
+			for(Future<?> future : futures)
 				future.get();
 			
 			futures.clear();
@@ -525,13 +842,17 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 	}
 	
 	
-	private void processGlobalContext(HashMap<String,BufferedWriter> chr2writer) throws Exception {
-		BufferedRandomAccessFile br = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
-		BufferedRandomAccessFile bufferedReaderForMultiMappings = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
+	private void processGlobalContext(long startPointer, long stopPointer, GlobalContextShard shard) throws Exception {
+		MappedLineReader br = new MappedLineReader(new File(this.multiMappingFilePath));
+		MappedLineReader bufferedReaderForMultiMappings = new MappedLineReader(new File(this.multiMappingFilePath));
+		br.seek(startPointer);
 		
 		long prevFilePointer = br.getFilePointer();
-		String currentLine = br.getNextLine();
+		String currentLine = null;
+		if(prevFilePointer < stopPointer)
+			currentLine = br.getNextLine();
 		if(currentLine == null) {
+			shard.finish(br);
 			br.close();
 			bufferedReaderForMultiMappings.close();
 			return;
@@ -581,11 +902,8 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		currentSparseReadLocations.add(currentSparseLocation);
 		currentChromosomes.add(chr);
 		
-		ArrayList<LocationContainer> locations2write = new ArrayList<LocationContainer>();
-		ArrayList<LocationContainer> multiLocations2write = new ArrayList<LocationContainer>();
-		LocationContainerComparator locationContainerComparator = new LocationContainerComparator();
 		
-		while((currentLine = br.getNextLine()) != null) {
+		while(filePointer < stopPointer && (currentLine = br.getNextLine()) != null) {
 			st = new StringTokenizer(currentLine,"\t");
 			currentContextId = st.nextToken();
 			readId = st.nextToken();
@@ -635,12 +953,12 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 					//reads.add(currentRead);
 					
 					setReadScore(currentRead);
-					processMultiMappedRead(currentRead, bufferedReaderForMultiMappings,locations2write, multiLocations2write, chr2writer,locationContainerComparator);
+					processMultiMappedRead(currentRead, bufferedReaderForMultiMappings,shard);
 					
 				}
 				
 				else {
-					printLocationToSamFormatFromBufferedReader(currentSparseReadLocations.get(0).getFilePointer(),-1,-1,-1,br,false,chr2writer);
+					shard.writeUniqueLocation(currentSparseReadLocations.get(0).getFilePointer(),br);
 				}
 				
 				prevReadId = readId;
@@ -659,7 +977,7 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		
 		//process last bunch...
 		if(currentSparseReadLocations.size() == 1) {
-			printLocationToSamFormatFromBufferedReader(currentSparseReadLocations.get(0).getFilePointer(),-1,-1,-1,br,false,chr2writer);
+			shard.writeUniqueLocation(currentSparseReadLocations.get(0).getFilePointer(),br);
 		}
 		
 		else {
@@ -674,55 +992,65 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 			//reads.add(currentRead);
 			
 			setReadScore(currentRead);
-			processMultiMappedRead(currentRead, bufferedReaderForMultiMappings,locations2write, multiLocations2write, chr2writer,locationContainerComparator);
+			processMultiMappedRead(currentRead, bufferedReaderForMultiMappings,shard);
 		}
 		
 		//write last bunch of reads
-		Collections.sort(locations2write, locationContainerComparator);
-		for(LocationContainer container : locations2write) {
-			printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocation(),container.getPointerToSecondBestLocation(),container.getScoreOfBestLocation(),container.getScoreOfSecondBestLocation(),br,true,chr2writer);
-		}
-		locations2write.clear();
+		shard.finish(br);
 		br.close();
 		bufferedReaderForMultiMappings.close();
 		
 	}
 	
 	
-	private void processMultiMappedRead(SparseRead read, BufferedRandomAccessFile bufferedReader,ArrayList<LocationContainer> locations2write, ArrayList<LocationContainer> multiLocations2write, HashMap<String,BufferedWriter> chr2writer,LocationContainerComparator locationContainerComparator) throws Exception {
+	private void processMultiMappedRead(SparseRead read, MappedLineReader bufferedReader, GlobalContextShard shard) throws Exception {
 				
-		IntervalTree<Microbe> genomeTree;
+		SpeciesLocator<Microbe> genomeLocator;
+		Microbe microbe;
 		String chr;
 		String nextHitChr;
 		String bestHitMicrobeId;
 		String nextHitMicrobeId;
 		MultiSparseReadLocation nextHitMicrobe;
 		ArrayList<MultiSparseReadLocation> locations;
+		
+		//output multi mapping here
+		ArrayList<LocationContainer> multiLocations = new ArrayList<LocationContainer>();
+		if(this.printMultiMappings) {
+			for(MultiSparseReadLocation tmpLocation : read.getLocations()) {
+				if(!tmpLocation.equals(read.getTopScoringLocation())) {
+					multiLocations.add(new LocationContainer(tmpLocation.getFilePointer(),-1,tmpLocation.getScore(),Double.MIN_VALUE));
+				}
+			}
+		}
+		if(shard.isCountOnly()) {
+			shard.addMultiMappedRead(null,multiLocations,bufferedReader);
+			return;
+		}
+		
 		LocationContainer tmpContainer = new LocationContainer(read.getTopScoringLocation().getFilePointer(),read.getLocations().get(read.getLocations().size()-2).getFilePointer(),read.getTopScoringLocation().getScore(),read.getLocations().get(read.getLocations().size()-2).getScore());
 		
 		
-		if(this.printSecondBestChr && this.chr2intervalTree != null) {
+		if(this.printSecondBestChr && this.chr2genomeLocator != null) {
 			//check if there is a hit outside the current chr (species)
 			//currentFilePointer = bufferedReader.getFilePointer();
 			bufferedReader.seek(read.getTopScoringLocation().getFilePointer());
 			chr = bufferedReader.getNextLine().split("\t")[2];
-			if(this.chr2intervalTree.containsKey(chr)) {
-				genomeTree = this.chr2intervalTree.get(chr);
+			if(this.chr2genomeLocator.containsKey(chr)) {
+				genomeLocator = this.chr2genomeLocator.get(chr);
 				locations = read.getLocations();
-				if(!genomeTree.getIntervalsSpanning(read.getTopScoringLocation().getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).isEmpty())
-					bestHitMicrobeId = genomeTree.getIntervalsSpanning(read.getTopScoringLocation().getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).get(0).getId();
-				else
-					bestHitMicrobeId = genomeTree.getIntervalsSpanning(read.getTopScoringLocation().getCoordinates().get(0).getSecond(),new ArrayList<Microbe>()).get(0).getId();
+				if((microbe = genomeLocator.getGenome(read.getTopScoringLocation().getCoordinates().get(0).getFirst())) == null)
+					microbe = genomeLocator.getGenome(read.getTopScoringLocation().getCoordinates().get(0).getSecond());
+				bestHitMicrobeId = microbe.getId();
 				
 				for(int i = locations.size() - 2; i >= 0; i--) {
 					nextHitMicrobe = locations.get(i);
 					bufferedReader.seek(nextHitMicrobe.getFilePointer());
 					nextHitChr = bufferedReader.getNextLine().split("\t")[2];
 					if(nextHitChr.equals(chr)) {
-						if(!genomeTree.getIntervalsSpanning(nextHitMicrobe.getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).isEmpty())
-							nextHitMicrobeId = genomeTree.getIntervalsSpanning(nextHitMicrobe.getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).get(0).getId();
-						else
-							nextHitMicrobeId = genomeTree.getIntervalsSpanning(nextHitMicrobe.getCoordinates().get(0).getSecond(),new ArrayList<Microbe>()).get(0).getId();
+						if((microbe = genomeLocator.getGenome(nextHitMicrobe.getCoordinates().get(0).getFirst())) == null)
+							microbe = genomeLocator.getGenome(nextHitMicrobe.getCoordinates().get(0).getSecond());
+						nextHitMicrobeId = microbe.getId();
 							
 						if(!nextHitMicrobeId.equals(bestHitMicrobeId)) {
 							tmpContainer = new LocationContainer(read.getTopScoringLocation().getFilePointer(),nextHitMicrobe.getFilePointer(),read.getTopScoringLocation().getScore(),nextHitMicrobe.getScore());
@@ -757,34 +1085,7 @@ public class GlobalContextResolverSingleEnd implements ContextResolver {
 		
 		
 		
-		locations2write.add(tmpContainer);
-		
-		if(locations2write.size() >= 2000000) {
-			//sort by file pointer, this way we can use the buffer for seek operations
-			Collections.sort(locations2write, locationContainerComparator);
-			for(LocationContainer container : locations2write) {
-				printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocation(),container.getPointerToSecondBestLocation(),container.getScoreOfBestLocation(),container.getScoreOfSecondBestLocation(),bufferedReader,true,chr2writer);
-			}
-			locations2write.clear();
-		}
-		
-		//output multi mapping here
-		if(this.printMultiMappings) {
-			for(MultiSparseReadLocation tmpLocation : read.getLocations()) {
-				if(!tmpLocation.equals(read.getTopScoringLocation())) {
-					tmpContainer = new LocationContainer(tmpLocation.getFilePointer(),-1,tmpLocation.getScore(),Double.MIN_VALUE);
-					multiLocations2write.add(tmpContainer);
-				}
-			}
-			if(multiLocations2write.size() >= 2000000) {
-				//sort by file pointer, this way we can use the buffer for seek operations
-				Collections.sort(multiLocations2write, locationContainerComparator);
-				for(LocationContainer container : multiLocations2write) {
-					printLocationToSamFormatFromBufferedReader(container.getPointerToBestLocation(),container.getPointerToSecondBestLocation(),container.getScoreOfBestLocation(),container.getScoreOfSecondBestLocation(),bufferedReader,true,chr2writer);
-				}
-				multiLocations2write.clear();
-			}
-		}
+		shard.addMultiMappedRead(tmpContainer,multiLocations,bufferedReader);
 	}
 		
 	
@@ -1,9 +1,7 @@
 package context;
 
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -11,16 +9,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.NavigableMap;
-import java.util.SortedMap;
-import java.util.StringTokenizer;
 import java.util.TreeMap;
-import java.util.regex.Pattern;
 
-import augmentedTree.IntervalTree;
+import main.CoverageTrack;
 import main.Microbe;
 import main.MutableDouble;
 import main.Pair;
@@ -29,17 +23,20 @@ import main.ReadPair;
 import main.SparseRead;
 import main.MultiSparseReadLocation;
 import main.UnsynchronizedBufferedWriter;
-import tools.BufferedRandomAccessFile;
+import tools.AlignmentRecord;
+import tools.AlignmentRecordReader;
 import tools.MaxPriorityQueue;
+import tools.RangeMaxCoverage;
+import tools.SpeciesLocator;
 
 public class LocalContextResolverPairedEnd implements ContextResolver {
 	
 	private String multiMappingFilePath;
 	private String outputPath;
 	
-	private SortedMap<Integer,MutableDouble> upstreamCoverage;
-	private SortedMap<Integer,MutableDouble> downstreamCoverage;
-	private IntervalTree<Microbe> intervalTree;
+	private CoverageTrack upstreamCoverage;
+	private CoverageTrack downstreamCoverage;
+	private SpeciesLocator<Microbe> genomeLocator;
 	private ArrayList<Integer> windowSizes;
 	private int completeWindowIntervall;
 	private int maxContextSize;
@@ -56,8 +53,11 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	private ArrayList<ReadPair<SparseRead,SparseRead>> uniquelyMappingReads;
 	private ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReadsUpdateNeeded;
 	private ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReads;
+	
+	//used for random access to single alignment records
+	private AlignmentRecord tmpRecord;
 
-	public LocalContextResolverPairedEnd(String multiMappingFilePath, String outputPath,TreeMap<Integer,MutableDouble> upstreamCoverage, TreeMap<Integer,MutableDouble> downstreamCoverage, IntervalTree<Microbe> intervalTree, ArrayList<Integer> windowSizes, int readLength, int maxContextSize,boolean updateQueue, int updateInterval, boolean verbose, boolean developer, boolean isLargeContext) {
+	public LocalContextResolverPairedEnd(String multiMappingFilePath, String outputPath,CoverageTrack upstreamCoverage, CoverageTrack downstreamCoverage, SpeciesLocator<Microbe> genomeLocator, ArrayList<Integer> windowSizes, int readLength, int maxContextSize,boolean updateQueue, int updateInterval, boolean verbose, boolean developer, boolean isLargeContext) {
 		this.multiMappingFilePath = multiMappingFilePath;
 		this.windowSizes = windowSizes;
 		this.completeWindowIntervall = 0;
@@ -71,6 +71,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 		this.uniquelyMappingReads = new ArrayList<ReadPair<SparseRead,SparseRead>>();
 		this.multiMappingReads = new ArrayList<ReadPair<SparseRead,SparseRead>>();
 		this.multiMappingReadsUpdateNeeded = new ArrayList<ReadPair<SparseRead,SparseRead>>();
+		this.tmpRecord = new AlignmentRecord();
 		this.pairScoreComparator = new PairScoreComparator();
 		this.sparseReadLocationComparator = new SparseLocationScoreComparator();
 		
@@ -85,33 +86,25 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 		
 		this.upstreamCoverage = upstreamCoverage;
 		this.downstreamCoverage = downstreamCoverage;
-		this.intervalTree = intervalTree;
+		this.genomeLocator = genomeLocator;
 	}
 	
 	public void resolve() {
 		try {
 			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(this.outputPath)),102400);
-			BufferedRandomAccessFile bufferedReader = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
+			AlignmentRecordReader bufferedReader = new AlignmentRecordReader(this.multiMappingFilePath);
 			Pair<Integer,Integer> contextRange = getContextRange(this.multiMappingFilePath);
 			int coverageOffsetIndex = contextRange.getFirst() - this.completeWindowIntervall;
-			this.upstreamCoverage = this.upstreamCoverage.subMap(contextRange.getFirst() - this.completeWindowIntervall, contextRange.getFirst());
-			this.downstreamCoverage = this.downstreamCoverage.subMap(contextRange.getSecond() + 1, contextRange.getSecond() + 1 +  this.completeWindowIntervall);
 			
 			//init the coverage array
-			MutableDouble[] coverage = new MutableDouble[(contextRange.getSecond() - contextRange.getFirst() + 1) + (2* this.completeWindowIntervall)];
-			for(int i = 0; i < coverage.length; i++) {
-				coverage[i] = new MutableDouble();
-			}
+			RangeMaxCoverage coverage = new RangeMaxCoverage((contextRange.getSecond() - contextRange.getFirst() + 1) + (2* this.completeWindowIntervall));
 			
 			//getting the coverage
 			getCoverage(coverage,coverageOffsetIndex,this.uniquelyMappingReads,this.multiMappingReads,this.multiMappingReadsUpdateNeeded,bufferedReader,pw);
 
 			
 			//we determine for every read the best location (in terms of support score) and update the coverage values by discarding all other alignments of that read
-			MutableDouble[] coverageUpdated = new MutableDouble[coverage.length];
-			for(int i = 0; i < coverage.length; i++) {
-				coverageUpdated[i] = new MutableDouble(coverage[i].doubleValue());
-			}
+			RangeMaxCoverage coverageUpdated = new RangeMaxCoverage(coverage);
 			//determines a score for every location, a score for the read and updates the coverage values
 			determineBestMapping(coverage,coverageUpdated,coverageOffsetIndex,this.multiMappingReads,bufferedReader,pw,false,false);
 			
@@ -131,7 +124,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 		}
 	}
 	
-	private void processReadPairItem(SparseRead read, MultiSparseReadLocation topLocation, MultiSparseReadLocation secondBestLocation, MutableDouble[] coverage,int coverageOffsetIndex) {
+	private void processReadPairItem(SparseRead read, MultiSparseReadLocation topLocation, MultiSparseReadLocation secondBestLocation, RangeMaxCoverage coverage,int coverageOffsetIndex) {
 		double coverageWeight;
 		for(MultiSparseReadLocation tmpLocation : read.getLocations()) {
 			coverageWeight = 1.0/(double)tmpLocation.getAmbiguityFactor();
@@ -144,12 +137,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 				if(coordinate.getFirst() <= 0)
 					break;
 				
-				for(int i = coordinate.getFirst(); i <= coordinate.getSecond(); i++) {
-					coverage[i - coverageOffsetIndex].subtract(coverageWeight);
-					
-					if(coverage[i - coverageOffsetIndex].toDouble() < 0)
-						coverage[i - coverageOffsetIndex].setValue(0.0);
-				}
+				coverage.subtract(coordinate.getFirst() - coverageOffsetIndex, coordinate.getSecond() - coverageOffsetIndex, coverageWeight);
 			}
 			
 		}
@@ -163,40 +151,29 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 			if(coordinate.getFirst() <= 0)
 				break;
 			
-			for(int i = coordinate.getFirst(); i <= coordinate.getSecond(); i++) {
-				coverage[i - coverageOffsetIndex].add(coverageWeight);
-			}
+			coverage.add(coordinate.getFirst() - coverageOffsetIndex, coordinate.getSecond() - coverageOffsetIndex, coverageWeight);
 		}
 	}
 	
-	private void printLocationToInternalFormat(long filePointer, double readScore,double locationScore, BufferedRandomAccessFile br, StringBuilder tmpLineBuilder,UnsynchronizedBufferedWriter pw) {
+	private void printLocationToInternalFormat(long filePointer, double readScore,double locationScore, AlignmentRecordReader br, StringBuilder tmpLineBuilder,UnsynchronizedBufferedWriter pw) {
 		try {
 			//print the best hit
-			br.seek(filePointer);
-			String locationInfo = br.getNextLine();
-			StringTokenizer st = new StringTokenizer(locationInfo,"\t");
-			//context id
-			st.nextToken();
-			//read id
-			String readId = st.nextToken();
-			String chr = st.nextToken();
-			String strand = st.nextToken();
+			AlignmentRecord record = this.tmpRecord;
+			br.read(filePointer,record);
+			String readId = record.getReadId();
+			String chr = record.getChr();
+			char strand = record.getStrand();
 		
-			ArrayList<Pair<Integer,Integer>> coordinates = new ArrayList<Pair<Integer,Integer>>();
-			Pattern commaPattern = Pattern.compile(",");
-			String[] splittedCoordinates = commaPattern.split(st.nextToken());
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-			}
+			ArrayList<Pair<Integer,Integer>> coordinates = record.getCoordinatePairs();
 			
-			String mismatches = st.nextToken();
-			String hasSpliceSignal = st.nextToken();
-			String overlapsKnownJunction = st.nextToken();
+			int mismatches = record.getMismatches();
+			char hasSpliceSignal = record.getStrandOfSpliceSignal();
+			boolean overlapsKnownJunction = record.overlapsKnownJunction();
 			
 			
-			int overallMappingCount = Integer.valueOf(st.nextToken());
-			int overallValidPairsCount = Integer.valueOf(st.nextToken());
-			char overlapsPolyA = st.nextToken().charAt(0);
+			int overallMappingCount = record.getOverallMappingCount();
+			int overallValidPairsCount = record.getOverallValidPairsCount();
+			char overlapsPolyA = record.getOverlapsPolyA();
 			
 			
 			tmpLineBuilder.setLength(0);
@@ -312,7 +289,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	}
 	
 	
-	private void updateCoverage(MutableDouble[] coverage, ReadPair<SparseRead,SparseRead> readPair, int coverageOffsetIndex) {
+	private void updateCoverage(RangeMaxCoverage coverage, ReadPair<SparseRead,SparseRead> readPair, int coverageOffsetIndex) {
 		MultiSparseReadLocation topLocation;
 		MultiSparseReadLocation secondBestLocation;
 		
@@ -364,7 +341,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 		}
 	}
 
-	private void determineBestMapping(MutableDouble[] coverage,MutableDouble[] coverageUpdated, int coverageOffsetIndex, ArrayList<ReadPair<SparseRead,SparseRead>> reads, BufferedRandomAccessFile bufferedReader,UnsynchronizedBufferedWriter pw, boolean isUniquelyMapped, boolean printReads) throws Exception {
+	private void determineBestMapping(RangeMaxCoverage coverage,RangeMaxCoverage coverageUpdated, int coverageOffsetIndex, ArrayList<ReadPair<SparseRead,SparseRead>> reads, AlignmentRecordReader bufferedReader,UnsynchronizedBufferedWriter pw, boolean isUniquelyMapped, boolean printReads) throws Exception {
 	
 		int currentWindowStart;
 		int currentWindowEnd;
@@ -383,9 +360,6 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 		
 		ArrayList<Double> windowCoverages = new ArrayList<Double>();
 		ArrayList<SparseRead> currentReads = new ArrayList<SparseRead>();
-		HashMap<String,Double> window2coverage = new HashMap<String,Double>();
-		String windowKey;
-		StringBuilder keyBuilder = new StringBuilder();
 		StringBuilder tmpLineBuilder = new StringBuilder();
 		
 		for(ReadPair<SparseRead,SparseRead> readPair : reads) {
@@ -404,11 +378,9 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 				}
 				
 				
-				if(this.intervalTree != null) {
-					if(!this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).isEmpty())
-						currentMicrobe = this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).get(0);
-					else
-						currentMicrobe = this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getSecond(),new ArrayList<Microbe>()).get(0);
+				if(this.genomeLocator != null) {
+					if((currentMicrobe = this.genomeLocator.getGenome(read.getLocations().get(0).getCoordinates().get(0).getFirst())) == null)
+						currentMicrobe = this.genomeLocator.getGenome(read.getLocations().get(0).getCoordinates().get(0).getSecond());
 						
 					microbeGenomeStart = currentMicrobe.getStart();
 					microbeGenomeEnd = currentMicrobe.getStop();
@@ -418,11 +390,6 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 					if(location.getAmbiguityFactor() == 0)
 						continue;
 					
-					if(window2coverage.size() > 2000000) {
-						window2coverage.clear();
-						
-					}
-					
 					windowCoverages.clear();
 					currentMaxCover = Double.MIN_VALUE;
 					coordinatesIndexBeforeClipping = location.getCoordinates().size() - 1;
@@ -434,15 +401,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 							break;
 						}
 						
-						keyBuilder.setLength(0);
-						windowKey = keyBuilder.append(segment.getFirst()).append("_").append(segment.getSecond()).toString();
-						if(window2coverage.containsKey(windowKey)) {
-							tmpCoverage = window2coverage.get(windowKey);
-						}
-						else {
-							tmpCoverage = getMaximumReadCoverage(coverage,coverageOffsetIndex,segment.getFirst(),segment.getSecond());
-							window2coverage.put(windowKey, tmpCoverage);
-						}
+						tmpCoverage = getMaximumReadCoverage(coverage,coverageOffsetIndex,segment.getFirst(),segment.getSecond());
 						
 						if(tmpCoverage > currentMaxCover) {
 							currentMaxCover = tmpCoverage;
@@ -459,7 +418,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 						 
 						 
 						 outOfGenome = false;
-						 if(this.intervalTree != null) {
+						 if(this.genomeLocator != null) {
 							 
 							 //check upstream genome start
 							 //in case the current window is out of the genome, we try to use the mirrored window from the downstream part of the read
@@ -492,16 +451,8 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 						 }
 						 
 						 if(!outOfGenome) {
-							 keyBuilder.setLength(0);
-							 windowKey = keyBuilder.append(currentWindowStart).append("_").append(currentWindowEnd).toString();
-							 if(window2coverage.containsKey(windowKey)) {
-								 currentMaxCoverA = window2coverage.get(windowKey);
-							 }
-							 else {
-								 currentMaxCoverA = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
-								 //currentMaxCoverA = getMeanReadCoverage(coverage,currentWindowStart,currentWindowEnd);
-								 window2coverage.put(windowKey, currentMaxCoverA);
-							 }
+							 currentMaxCoverA = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
+							 //currentMaxCoverA = getMeanReadCoverage(coverage,currentWindowStart,currentWindowEnd);
 						 }
 						
 						//check downstream coverage
@@ -509,7 +460,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 						currentWindowEnd = location.getCoordinates().get(coordinatesIndexBeforeClipping).getSecond() + processedWindowSizes + windowSizes.get(j);
 						
 						outOfGenome = false;
-						if(this.intervalTree != null) {
+						if(this.genomeLocator != null) {
 							//check downstream genome end
 							if(currentWindowEnd > microbeGenomeEnd && currentWindowStart >= microbeGenomeEnd) {
 								//set the window positions to the mirrored version of the current window
@@ -530,16 +481,8 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 						 }
 						
 						if(!outOfGenome) {
-							keyBuilder.setLength(0);
-							windowKey = keyBuilder.append(currentWindowStart).append("_").append(currentWindowEnd).toString();
-							if(window2coverage.containsKey(windowKey)) {
-								currentMaxCoverB = window2coverage.get(windowKey);
-							}
-							else {
-								currentMaxCoverB = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
-								//currentMaxCoverB = getMeanReadCoverage(coverage,currentWindowStart,currentWindowEnd);
-								window2coverage.put(windowKey, currentMaxCoverB);
-							}
+							currentMaxCoverB = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
+							//currentMaxCoverB = getMeanReadCoverage(coverage,currentWindowStart,currentWindowEnd);
 						}
 						
 						currentMaxCover = Math.max(currentMaxCoverA, currentMaxCoverB);
@@ -622,35 +565,20 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	}
 	
 	
-	private void parseReadLocations(SparseRead read, BufferedRandomAccessFile braf) throws Exception {
-		String currentLine;
-		StringBuilder tmpLineBuilder = new StringBuilder();
-		StringTokenizer st;
+	private void parseReadLocations(SparseRead read, AlignmentRecordReader braf) throws Exception {
+		AlignmentRecord record = this.tmpRecord;
 		char strand;
 		char mappingType;
-		Pattern commaPattern = Pattern.compile(",");
-		String[] splittedCoordinates;
 		ArrayList<Pair<Integer,Integer>> coordinates;
 		String currentSplitKey;
 		HashSet<String> currentSplitKeys = new HashSet<String>();
 		MultiSparseReadLocation currentSparseLocation;
 		ArrayList<MultiSparseReadLocation> locations = new ArrayList<MultiSparseReadLocation>();
 		for(long pointer : read.getLocationPointers()) {
-			braf.seek(pointer);
-			currentLine = braf.getNextLine();
-			st = new StringTokenizer(currentLine,"\t");
-			//contextId	readId chr
-			st.nextToken();
-			st.nextToken();
-			st.nextToken();
-			strand = st.nextToken().toCharArray()[0];
-			splittedCoordinates = commaPattern.split(st.nextToken());
-			coordinates = new ArrayList<Pair<Integer,Integer>>(2);
-			currentSplitKey = "";
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-				currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-			}
+			braf.read(pointer,record);
+			strand = record.getStrand();
+			coordinates = record.getCoordinatePairs();
+			currentSplitKey = record.getSplitKey();
 			
 			if(coordinates.size() == 1 || coordinates.get(1).getFirst() <= 0)
 				mappingType = 'F';
@@ -658,10 +586,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 				mappingType = 'S';
 			
 			
-			st.nextToken();
-			st.nextToken();
-			st.nextToken();
-			int overallMappingCount = Integer.valueOf(st.nextToken());
+			int overallMappingCount = record.getOverallMappingCount();
 			
 			if(mappingType != 'S' || !currentSplitKeys.contains(currentSplitKey)) {
 				currentSparseLocation = new MultiSparseReadLocation(coordinates,strand);
@@ -712,14 +637,8 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 */
 	
 
-	private double getMaximumReadCoverage(MutableDouble[] coverages, int coverageIndexOffset, int windowStart, int windowEnd) {
-		double maxCover = 0.0;
-		for(int i = windowStart - coverageIndexOffset; i <= windowEnd - coverageIndexOffset; i++) {
-			if(coverages[i].doubleValue() > maxCover)
-				maxCover = coverages[i].doubleValue();
-		}
-		return maxCover;
-		
+	private double getMaximumReadCoverage(RangeMaxCoverage coverage, int coverageIndexOffset, int windowStart, int windowEnd) {
+		return coverage.getMaximum(windowStart - coverageIndexOffset, windowEnd - coverageIndexOffset);
 	}
 	
 	
@@ -744,26 +663,19 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	
 	private Pair<Integer,Integer> getContextRange(String mappingFilePath) {
 		try {
-			BufferedReader br = new BufferedReader(new FileReader(new File(mappingFilePath)));
-			String currentLine;
-			String[] splittedLine;
-			String[] splittedCoordinates;
-			Pattern tabPattern = Pattern.compile("\t");
-			Pattern commaPattern = Pattern.compile(",");
+			AlignmentRecordReader br = new AlignmentRecordReader(mappingFilePath);
+			AlignmentRecord record = new AlignmentRecord();
 			int start;
 			int end;
 			int tmpEnd;
 			
 			int minStart = Integer.MAX_VALUE;
 			int maxEnd = Integer.MIN_VALUE; 
-			while((currentLine = br.readLine()) != null) {
-				splittedLine = tabPattern.split(currentLine);
-				splittedCoordinates = commaPattern.split(splittedLine[4]);
-				
-				start = Integer.valueOf(splittedCoordinates[0]);
-				end = Integer.valueOf(splittedCoordinates[1]);
-				for(int i = 3; i < splittedCoordinates.length; i+=2) {
-					tmpEnd = Integer.valueOf(splittedCoordinates[i]);
+			while(br.next(record)) {
+				start = record.getCoordinate(0);
+				end = record.getCoordinate(1);
+				for(int i = 3; i < record.getCoordinateCount(); i+=2) {
+					tmpEnd = record.getCoordinate(i);
 					if(tmpEnd > 0) {
 						end = tmpEnd;
 					}
@@ -792,42 +704,50 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	
 	
 	
-	private void getCoverage(MutableDouble[] coverage,int coverageIndexOffset,ArrayList<ReadPair<SparseRead,SparseRead>> uniquelyMappingReads,ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReads, ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReadsUpdateNeeded, BufferedRandomAccessFile braf, UnsynchronizedBufferedWriter pw) {
+	/**
+	 * sets the coverage of all covered positions of the given track within [from,to]
+	 */
+	private void setCoverage(RangeMaxCoverage coverage, int coverageOffsetIndex, CoverageTrack coverageTrack, int from, int to) {
+		double value;
+		for(int i = Math.max(from,coverageTrack.getStart()); i <= Math.min(to,coverageTrack.getEnd()); i++) {
+			value = coverageTrack.get(i);
+			if(value > 0)
+				coverage.set(i - coverageOffsetIndex, value);
+		}
+	}
+	
+	
+	private void getCoverage(RangeMaxCoverage coverage,int coverageIndexOffset,ArrayList<ReadPair<SparseRead,SparseRead>> uniquelyMappingReads,ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReads, ArrayList<ReadPair<SparseRead,SparseRead>> multiMappingReadsUpdateNeeded, AlignmentRecordReader braf, UnsynchronizedBufferedWriter pw) {
 		try {
 			multiMappingReads.clear();
-			BufferedReader br = new BufferedReader(new FileReader(new File(this.multiMappingFilePath)));
+			//separate reader, braf is used for printing alignments while parsing
+			AlignmentRecordReader br = new AlignmentRecordReader(this.multiMappingFilePath);
+			AlignmentRecord record = new AlignmentRecord();
 			
-			long filePointer = 0;
+			long firstFilePointer = br.getFilePointer();
 			long tmpPointer;
 			
-			String currentLine = br.readLine();
-			if(currentLine == null)
+			if(!br.next(record)) {
+				br.close();
 				return;
+			}
 				
-			filePointer += currentLine.length() + 1;
+			long filePointer = br.getFilePointer();
 			
 			int directlyPrintedReads = 0;
 			
 			
-			StringTokenizer st = new StringTokenizer(currentLine,"\t");
-			Pattern commaPattern = Pattern.compile(",");
-			String[] splittedCoordinates;
-			String currentContextId = st.nextToken();
+			String currentContextId = record.getContextId();
 			String prevContextId = currentContextId;
-			String readId = st.nextToken();
+			String readId = record.getReadId();
 			String readIdPrefix = readId.substring(0,readId.lastIndexOf("/"));
 			String prevReadId = readId;
 			String prevReadIdPrefix = readIdPrefix;
-			String chr = st.nextToken();
-			char strand = st.nextToken().toCharArray()[0];
-			splittedCoordinates = commaPattern.split(st.nextToken());
-			ArrayList<Pair<Integer,Integer>> coordinates = new ArrayList<Pair<Integer,Integer>>(2);
+			String chr = record.getChr();
+			char strand = record.getStrand();
+			ArrayList<Pair<Integer,Integer>> coordinates = record.getCoordinatePairs();
 			HashSet<String> currentSplitKeys = new HashSet<String>();
-			String currentSplitKey = "";
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-				currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-			}
+			String currentSplitKey = record.getSplitKey();
 			
 			char mappingType;
 			if(coordinates.size() == 1 ||coordinates.get(1).getFirst() <= 0)
@@ -837,18 +757,18 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 				currentSplitKeys.add(currentSplitKey);
 			}
 			
-			int mismatches = Integer.valueOf(st.nextToken());
-			char strandOfSpliceSignal = st.nextToken().charAt(0);
-			boolean overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-			int overallMappingCount = Integer.valueOf(st.nextToken());
+			int mismatches = record.getMismatches();
+			char strandOfSpliceSignal = record.getStrandOfSpliceSignal();
+			boolean overlapsKnownJunction = record.overlapsKnownJunction();
+			int overallMappingCount = record.getOverallMappingCount();
 			int overallMappingCountA = overallMappingCount;
 			int overallMappingCountB = Integer.MIN_VALUE;
 			
-			int overallValidPairsCount = Integer.valueOf(st.nextToken());
+			int overallValidPairsCount = record.getOverallValidPairsCount();
 			int prevOverallValidPairCounts = overallValidPairsCount;
 			
 			
-			char overlapsPolyA = st.nextToken().charAt(0);
+			char overlapsPolyA = record.getOverlapsPolyA();
 			char overlapsPolyAFirstMate = overlapsPolyA;
 			char overlapsPolyASecondMate = '0';
 			
@@ -857,7 +777,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 			ArrayList<ReadLocation> uniquePair = new ArrayList<ReadLocation>();
 			MultiSparseReadLocation tmpSparseLocation;
 			MultiSparseReadLocation currentSparseLocation = new MultiSparseReadLocation(coordinates,strand);
-			currentSparseLocation.setFilePointer(0);
+			currentSparseLocation.setFilePointer(firstFilePointer);
 			
 			
 			currentSparseReadLocations.add(currentSparseLocation);
@@ -881,37 +801,28 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 			currentPair.setFirst(sparseRead);
 			
 			StringBuilder tmpLineBuilder = new StringBuilder();
-			while((currentLine = br.readLine()) != null) {
+			while(br.next(record)) {
 				
-				st = new StringTokenizer(currentLine,"\t");
-				currentContextId = st.nextToken();
-				readId = st.nextToken();
+				currentContextId = record.getContextId();
+				readId = record.getReadId();
 				readIdPrefix = readId.substring(0,readId.lastIndexOf("/"));
 				
-				chr = st.nextToken();
-				strand = st.nextToken().toCharArray()[0];
-				splittedCoordinates = commaPattern.split(st.nextToken());
-				coordinates = new ArrayList<Pair<Integer,Integer>>(2);
-				currentSplitKey = "";
-				for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-					coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-					currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-				}
+				chr = record.getChr();
+				strand = record.getStrand();
+				coordinates = record.getCoordinatePairs();
+				currentSplitKey = record.getSplitKey();
 				
 				if(coordinates.size() == 1 || coordinates.get(1).getFirst() <= 0)
 					mappingType = 'F';
 				else
 					mappingType = 'S';
 				
-				//mismatches
-				mismatches = Integer.valueOf(st.nextToken());
-				//known splice signal
-				strandOfSpliceSignal = st.nextToken().charAt(0);
-				//overlaps known junction
-				overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-				overallMappingCount = Integer.valueOf(st.nextToken());
-				overallValidPairsCount = Integer.valueOf(st.nextToken());
-				overlapsPolyA = st.nextToken().charAt(0);
+				mismatches = record.getMismatches();
+				strandOfSpliceSignal = record.getStrandOfSpliceSignal();
+				overlapsKnownJunction = record.overlapsKnownJunction();
+				overallMappingCount = record.getOverallMappingCount();
+				overallValidPairsCount = record.getOverallValidPairsCount();
+				overlapsPolyA = record.getOverlapsPolyA();
 
 				if(readId.equals(prevReadId)) {
 					if(mappingType != 'S' || !currentSplitKeys.contains(currentSplitKey)) {
@@ -1143,9 +1054,10 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 						currentSplitKeys.add(currentSplitKey);
 					
 				}
-				filePointer += currentLine.length() + 1;
+				filePointer = br.getFilePointer();
 				
 			}
+			br.close();
 			
 			
 			
@@ -1290,12 +1202,8 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 			
 			
 			//finally add coverages up and downstream of the context start and end, respectively.
-			for(int i : this.upstreamCoverage.keySet()) {
-				coverage[i - coverageIndexOffset].setValue(this.upstreamCoverage.get(i));
-			}
-			for(int i : this.downstreamCoverage.keySet()) {
-				coverage[i - coverageIndexOffset].setValue(this.downstreamCoverage.get(i));
-			}
+			setCoverage(coverage,coverageIndexOffset,this.upstreamCoverage,coverageIndexOffset,coverageIndexOffset + this.completeWindowIntervall - 1);
+			setCoverage(coverage,coverageIndexOffset,this.downstreamCoverage,coverageIndexOffset + coverage.size() - this.completeWindowIntervall,coverageIndexOffset + coverage.size() - 1);
 			
 		}
 		catch(Exception e) {
@@ -1449,7 +1357,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 	
 	
 	
-	private void updateCoverages(MutableDouble[] coverage,int coverageIndexOffset,ArrayList<MultiSparseReadLocation> currentSparseReadLocations) {
+	private void updateCoverages(RangeMaxCoverage coverage,int coverageIndexOffset,ArrayList<MultiSparseReadLocation> currentSparseReadLocations) {
 		double coverageWeight = 1.0/(double)currentSparseReadLocations.get(0).getAmbiguityFactor();
 		
 		for(MultiSparseReadLocation location : currentSparseReadLocations) {
@@ -1457,9 +1365,7 @@ public class LocalContextResolverPairedEnd implements ContextResolver {
 				if(segment.getFirst() <= 0)
 					break;
 				
-				for(int i = segment.getFirst(); i <= segment.getSecond(); i++) {
-					coverage[i - coverageIndexOffset].add(coverageWeight);
-				}
+				coverage.add(segment.getFirst() - coverageIndexOffset, segment.getSecond() - coverageIndexOffset, coverageWeight);
 			}
 		}
 	}
@@ -1,9 +1,7 @@
 package context;
 
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -11,35 +9,32 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.NavigableMap;
-import java.util.SortedMap;
-import java.util.StringTokenizer;
-import java.util.TreeMap;
-import java.util.regex.Pattern;
 
-import augmentedTree.IntervalTree;
+import main.CoverageTrack;
 import main.Microbe;
-import main.MutableDouble;
 import main.Pair;
 import main.ReadLocation;
 import main.ReadPair;
 import main.SparseRead;
 import main.MultiSparseReadLocation;
 import main.UnsynchronizedBufferedWriter;
-import tools.BufferedRandomAccessFile;
+import tools.AlignmentRecord;
+import tools.AlignmentRecordReader;
 import tools.MaxPriorityQueue;
+import tools.RangeMaxCoverage;
+import tools.SpeciesLocator;
 
 public class LocalContextResolverSingleEnd implements ContextResolver {
 	
 	private String multiMappingFilePath;
 	private String outputPath;
 	
-	private SortedMap<Integer,MutableDouble> upstreamCoverage;
-	private SortedMap<Integer,MutableDouble> downstreamCoverage;
-	private IntervalTree<Microbe> intervalTree;
+	private CoverageTrack upstreamCoverage;
+	private CoverageTrack downstreamCoverage;
+	private SpeciesLocator<Microbe> genomeLocator;
 	private ArrayList<Integer> windowSizes;
 	private int completeWindowIntervall;
 	private int maxContextSize;
@@ -52,7 +47,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 
 	private boolean isLargeContext;
 	
-	public LocalContextResolverSingleEnd(String multiMappingFilePath, String outputPath,TreeMap<Integer,MutableDouble> upstreamCoverage, TreeMap<Integer,MutableDouble> downstreamCoverage, IntervalTree<Microbe> intervalTree, ArrayList<Integer> windowSizes, int readLength, int maxContextSize,boolean updateQueue, int updateInterval, boolean verbose, boolean developer, boolean isLargeContext) {
+	public LocalContextResolverSingleEnd(String multiMappingFilePath, String outputPath,CoverageTrack upstreamCoverage, CoverageTrack downstreamCoverage, SpeciesLocator<Microbe> genomeLocator, ArrayList<Integer> windowSizes, int readLength, int maxContextSize,boolean updateQueue, int updateInterval, boolean verbose, boolean developer, boolean isLargeContext) {
 		this.multiMappingFilePath = multiMappingFilePath;
 		this.windowSizes = windowSizes;
 		this.completeWindowIntervall = 0;
@@ -74,13 +69,13 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		
 		this.upstreamCoverage = upstreamCoverage;
 		this.downstreamCoverage = downstreamCoverage;
-		this.intervalTree = intervalTree;
+		this.genomeLocator = genomeLocator;
 	}
 	
 	public void resolve() {
 		try {
 			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(this.outputPath)),102400);
-			BufferedRandomAccessFile bufferedReader = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
+			AlignmentRecordReader bufferedReader = new AlignmentRecordReader(this.multiMappingFilePath);
 			
 			
 			ArrayList<SparseRead> uniquelyMappingReads = new ArrayList<SparseRead>();
@@ -90,21 +85,13 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 			
 			Pair<Integer,Integer> contextRange = getContextRange(this.multiMappingFilePath);
 			int coverageOffsetIndex = contextRange.getFirst() - this.completeWindowIntervall;
-			this.upstreamCoverage = this.upstreamCoverage.subMap(contextRange.getFirst() - this.completeWindowIntervall, contextRange.getFirst());
-			this.downstreamCoverage = this.downstreamCoverage.subMap(contextRange.getSecond() + 1, contextRange.getSecond() + 1 +  this.completeWindowIntervall);
 			
-			MutableDouble[] coverage = new MutableDouble[(contextRange.getSecond() - contextRange.getFirst() + 1) + (2* this.completeWindowIntervall)];
-			for(int i = 0; i < coverage.length; i++) {
-				coverage[i] = new MutableDouble();
-			}
+			RangeMaxCoverage coverage = new RangeMaxCoverage((contextRange.getSecond() - contextRange.getFirst() + 1) + (2* this.completeWindowIntervall));
 			getCoverage(coverage,coverageOffsetIndex,uniquelyMappingReads,multiMappingReads,multiMappingReadsUpdateNeeded,bufferedReader,pw);
 
 			
 			//we determine for every read the best location (in terms of support score) and update the coverage values by discarding all other alignments of that read
-			MutableDouble[] coverageUpdated = new MutableDouble[coverage.length];
-			for(int i = 0; i < coverage.length; i++) {
-				coverageUpdated[i] = new MutableDouble(coverage[i].doubleValue());
-			}
+			RangeMaxCoverage coverageUpdated = new RangeMaxCoverage(coverage);
 			getLocationScores(coverage,coverageUpdated,coverageOffsetIndex,multiMappingReads,bufferedReader,pw,false,false);
 			getLocationScores(coverage,null,coverageOffsetIndex,uniquelyMappingReads,bufferedReader,pw,true,true);
 			getLocationScores(coverage,null,coverageOffsetIndex,multiMappingReads,bufferedReader,pw,false,true);
@@ -121,27 +108,20 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 	
 	private Pair<Integer,Integer> getContextRange(String mappingFilePath) {
 		try {
-			BufferedReader br = new BufferedReader(new FileReader(new File(mappingFilePath)));
-			String currentLine;
-			String[] splittedLine;
-			String[] splittedCoordinates;
-			Pattern tabPattern = Pattern.compile("\t");
-			Pattern commaPattern = Pattern.compile(",");
+			AlignmentRecordReader br = new AlignmentRecordReader(mappingFilePath);
+			AlignmentRecord record = new AlignmentRecord();
 			int start;
 			int end;
 			int tmpEnd;
 			
 			int minStart = Integer.MAX_VALUE;
 			int maxEnd = Integer.MIN_VALUE; 
-			while((currentLine = br.readLine()) != null) {
-				splittedLine = tabPattern.split(currentLine);
-				splittedCoordinates = commaPattern.split(splittedLine[4]);
+			while(br.next(record)) {
+				start = record.getCoordinate(0);
+				end = record.getCoordinate(1);
 				
-				start = Integer.valueOf(splittedCoordinates[0]);
-				end = Integer.valueOf(splittedCoordinates[1]);
-				
-				for(int i = 3; i < splittedCoordinates.length; i+=2) {
-					tmpEnd = Integer.valueOf(splittedCoordinates[i]);
+				for(int i = 3; i < record.getCoordinateCount(); i+=2) {
+					tmpEnd = record.getCoordinate(i);
 					if(tmpEnd > 0) {
 						end = tmpEnd;
 					}
@@ -168,33 +148,23 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		
 	}
 	
-	private void printLocationToInternalFormat(long filePointer, double readScore,double locationScore, BufferedRandomAccessFile br, StringBuilder tmpLineBuilder,UnsynchronizedBufferedWriter pw) {
+	private void printLocationToInternalFormat(long filePointer, double readScore,double locationScore, AlignmentRecordReader br, AlignmentRecord record, StringBuilder tmpLineBuilder,UnsynchronizedBufferedWriter pw) {
 		try {
 			//print the best hit
-			br.seek(filePointer);
-			String locationInfo = br.getNextLine();
-			StringTokenizer st = new StringTokenizer(locationInfo,"\t");
-			//context id
-			st.nextToken();
-			//read id
-			String readId = st.nextToken();
-			String chr = st.nextToken();
-			String strand = st.nextToken();
-			
-			ArrayList<Pair<Integer,Integer>> coordinates = new ArrayList<Pair<Integer,Integer>>();
-			Pattern commaPattern = Pattern.compile(",");
-			String[] splittedCoordinates = commaPattern.split(st.nextToken());
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-			}
+			br.read(filePointer,record);
+			String readId = record.getReadId();
+			String chr = record.getChr();
+			char strand = record.getStrand();
 			
-			String mismatches = st.nextToken();
-			String hasSpliceSignal = st.nextToken();
-			String overlapsKnownJunction = st.nextToken();
+			ArrayList<Pair<Integer,Integer>> coordinates = record.getCoordinatePairs();
 			
-			int overallMappingCount = Integer.valueOf(st.nextToken());
-			int overallValidPairsCount = Integer.valueOf(st.nextToken());
-			char overlapsPolyA = st.nextToken().charAt(0);
+			int mismatches = record.getMismatches();
+			char hasSpliceSignal = record.getStrandOfSpliceSignal();
+			boolean overlapsKnownJunction = record.overlapsKnownJunction();
+			
+			int overallMappingCount = record.getOverallMappingCount();
+			int overallValidPairsCount = record.getOverallValidPairsCount();
+			char overlapsPolyA = record.getOverlapsPolyA();
 			
 			tmpLineBuilder.setLength(0);
 			tmpLineBuilder.append("global\t").append(readId).append("\t").append(chr).append("\t").append(strand);
@@ -276,7 +246,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		
 	}
 	
-	private void getLocationScores(MutableDouble[] coverage,MutableDouble[] coverageUpdated, int coverageOffsetIndex, ArrayList<SparseRead> reads, BufferedRandomAccessFile bufferedReader,UnsynchronizedBufferedWriter pw, boolean isUniquelyMapped, boolean printReads) throws Exception {
+	private void getLocationScores(RangeMaxCoverage coverage,RangeMaxCoverage coverageUpdated, int coverageOffsetIndex, ArrayList<SparseRead> reads, AlignmentRecordReader bufferedReader,UnsynchronizedBufferedWriter pw, boolean isUniquelyMapped, boolean printReads) throws Exception {
 		
 		int currentWindowStart;
 		int currentWindowEnd;
@@ -294,10 +264,8 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		boolean outOfGenome;
 		
 		ArrayList<Double> windowCoverages = new ArrayList<Double>();
-		HashMap<String,Double> window2coverage = new HashMap<String,Double>();
-		String windowKey;
-		StringBuilder keyBuilder = new StringBuilder();
 		StringBuilder tmpLineBuilder = new StringBuilder();
+		AlignmentRecord record = new AlignmentRecord();
 		for(SparseRead read : reads) {
 			if(read == null)
 				continue;
@@ -307,11 +275,9 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 			}
 			
 			
-			if(this.intervalTree != null) {
-				if(!this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).isEmpty())
-					currentMicrobe = this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getFirst(),new ArrayList<Microbe>()).get(0);
-				else
-					currentMicrobe = this.intervalTree.getIntervalsSpanning(read.getLocations().get(0).getCoordinates().get(0).getSecond(),new ArrayList<Microbe>()).get(0);
+			if(this.genomeLocator != null) {
+				if((currentMicrobe = this.genomeLocator.getGenome(read.getLocations().get(0).getCoordinates().get(0).getFirst())) == null)
+					currentMicrobe = this.genomeLocator.getGenome(read.getLocations().get(0).getCoordinates().get(0).getSecond());
 				
 				microbeGenomeStart = currentMicrobe.getStart();
 				microbeGenomeEnd = currentMicrobe.getStop();
@@ -323,9 +289,6 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 				if(location.getAmbiguityFactor() == 0)
 					continue;
 				
-				if(window2coverage.size() > 1000000)
-					window2coverage.clear();
-				
 				windowCoverages.clear();
 				currentMaxCover = Double.MIN_VALUE;			
 				coordinatesIndexBeforeClipping = location.getCoordinates().size() - 1;
@@ -338,15 +301,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 						break;
 					}
 					
-					keyBuilder.setLength(0);
-					windowKey = keyBuilder.append(segment.getFirst()).append("_").append(segment.getSecond()).toString();
-					if(window2coverage.containsKey(windowKey)) {
-						tmpCoverage = window2coverage.get(windowKey);
-					}
-					else {
-						tmpCoverage = getMaximumReadCoverage(coverage,coverageOffsetIndex,segment.getFirst(),segment.getSecond());
-						window2coverage.put(windowKey, tmpCoverage);
-					}
+					tmpCoverage = getMaximumReadCoverage(coverage,coverageOffsetIndex,segment.getFirst(),segment.getSecond());
 					
 					if(tmpCoverage > currentMaxCover) {
 						currentMaxCover = tmpCoverage;
@@ -363,7 +318,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 					 
 					 
 					 outOfGenome = false;
-					 if(this.intervalTree != null) {
+					 if(this.genomeLocator != null) {
 						 
 						 //check upstream genome start
 						 //in case the current window is out of the genome, we try to use the mirrored window from the downstream part of the read
@@ -395,15 +350,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 					 }
 					 
 					 if(!outOfGenome) {
-						 keyBuilder.setLength(0);
-						 windowKey = keyBuilder.append(currentWindowStart).append("_").append(currentWindowEnd).toString();
-						 if(window2coverage.containsKey(windowKey)) {
-							 currentMaxCoverA = window2coverage.get(windowKey);
-						 }
-						 else {
-							 currentMaxCoverA = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
-							 window2coverage.put(windowKey, currentMaxCoverA);
-						 }
+						 currentMaxCoverA = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
 					 }
 					
 					//check downstream coverage
@@ -414,7 +361,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 					
 					
 					outOfGenome = false;
-					if(this.intervalTree != null) {
+					if(this.genomeLocator != null) {
 						//check downstream genome end
 						if(currentWindowEnd > microbeGenomeEnd && currentWindowStart >= microbeGenomeEnd) {
 							//set the window positions to the mirrored version of the current window
@@ -435,15 +382,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 					 }
 					
 					if(!outOfGenome) {
-						keyBuilder.setLength(0);
-						windowKey = keyBuilder.append(currentWindowStart).append("_").append(currentWindowEnd).toString();
-						if(window2coverage.containsKey(windowKey)) {
-							currentMaxCoverB = window2coverage.get(windowKey);
-						}
-						else {
-							currentMaxCoverB = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
-							window2coverage.put(windowKey, currentMaxCoverB);
-						}
+						currentMaxCoverB = getMaximumReadCoverage(coverage,coverageOffsetIndex,currentWindowStart,currentWindowEnd);
 					}
 					
 					currentMaxCover = Math.max(currentMaxCoverA, currentMaxCoverB);
@@ -468,7 +407,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 				else {
 					tmpLocation = read.getTopScoringLocation();
 				}
-				printLocationToInternalFormat(tmpLocation.getFilePointer(),0.0,tmpLocation.getScore(),bufferedReader,tmpLineBuilder,pw);
+				printLocationToInternalFormat(tmpLocation.getFilePointer(),0.0,tmpLocation.getScore(),bufferedReader,record,tmpLineBuilder,pw);
 			}
 			
 			if(this.isLargeContext) {
@@ -479,7 +418,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 	}
 	
 	
-	private void updateCoverage(MutableDouble[] coverage, SparseRead highScoringRead, int coverageOffsetIndex) {
+	private void updateCoverage(RangeMaxCoverage coverage, SparseRead highScoringRead, int coverageOffsetIndex) {
 		double coverageWeight;
 		for(MultiSparseReadLocation tmpLocation : highScoringRead.getLocations()) {
 			coverageWeight = 1.0/(double)tmpLocation.getAmbiguityFactor();
@@ -491,12 +430,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 				if(coordinate.getFirst() <= 0)
 					break;
 				
-				for(int i = coordinate.getFirst(); i <= coordinate.getSecond(); i++) {
-					coverage[i - coverageOffsetIndex].subtract(coverageWeight);
-					
-					if(coverage[i - coverageOffsetIndex].toDouble() < 0)
-						coverage[i - coverageOffsetIndex].setValue(0.0);
-				}
+				coverage.subtract(coordinate.getFirst() - coverageOffsetIndex, coordinate.getSecond() - coverageOffsetIndex, coverageWeight);
 			}
 		
 	}
@@ -507,41 +441,24 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 			if(coordinate.getFirst() <= 0)
 				break;
 			
-			for(int i = coordinate.getFirst(); i <= coordinate.getSecond(); i++) {
-				coverage[i - coverageOffsetIndex].add(coverageWeight);
-			}
+			coverage.add(coordinate.getFirst() - coverageOffsetIndex, coordinate.getSecond() - coverageOffsetIndex, coverageWeight);
 		}
 	}
 	
-	private void parseReadLocations(SparseRead read, BufferedRandomAccessFile braf) throws Exception {
-		String currentLine;
-		StringBuilder tmpLineBuilder = new StringBuilder();
-		StringTokenizer st;
+	private void parseReadLocations(SparseRead read, AlignmentRecordReader braf) throws Exception {
+		AlignmentRecord record = new AlignmentRecord();
 		char strand;
 		char mappingType;
-		Pattern commaPattern = Pattern.compile(",");
-		String[] splittedCoordinates;
 		ArrayList<Pair<Integer,Integer>> coordinates;
 		String currentSplitKey;
 		HashSet<String> currentSplitKeys = new HashSet<String>();
 		MultiSparseReadLocation currentSparseLocation;
 		ArrayList<MultiSparseReadLocation> locations = new ArrayList<MultiSparseReadLocation>();
 		for(long pointer : read.getLocationPointers()) {
-			braf.seek(pointer);
-			currentLine = braf.getNextLine();
-			st = new StringTokenizer(currentLine,"\t");
-			//contextId	readId chr
-			st.nextToken();
-			st.nextToken();
-			st.nextToken();
-			strand = st.nextToken().toCharArray()[0];
-			splittedCoordinates = commaPattern.split(st.nextToken());
-			coordinates = new ArrayList<Pair<Integer,Integer>>(2);
-			currentSplitKey = "";
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-				currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-			}
+			braf.read(pointer,record);
+			strand = record.getStrand();
+			coordinates = record.getCoordinatePairs();
+			currentSplitKey = record.getSplitKey();
 			
 			if(coordinates.size() == 1 || coordinates.get(1).getFirst() <= 0)
 				mappingType = 'F';
@@ -598,14 +515,8 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 	}
 */	
 	
-	private double getMaximumReadCoverage(MutableDouble[] coverages, int coverageIndexOffset, int windowStart, int windowEnd) {
-		double maxCover = 0.0;
-		for(int i = windowStart - coverageIndexOffset; i <= windowEnd - coverageIndexOffset; i++) {
-			if(coverages[i].doubleValue() > maxCover)
-				maxCover = coverages[i].doubleValue();
-		}
-		return maxCover;
-		
+	private double getMaximumReadCoverage(RangeMaxCoverage coverage, int coverageIndexOffset, int windowStart, int windowEnd) {
+		return coverage.getMaximum(windowStart - coverageIndexOffset, windowEnd - coverageIndexOffset);
 	}
 
 
@@ -621,33 +532,39 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 	}
 	
 	
-	private void getCoverage(MutableDouble[] coverage,int coverageOffsetIndex,ArrayList<SparseRead> uniquelyMappingReads, ArrayList<SparseRead> multiMappingReads,ArrayList<SparseRead> multiMappingReadsUpdateNeeded, BufferedRandomAccessFile br, UnsynchronizedBufferedWriter pw) throws Exception {
+	/**
+	 * sets the coverage of all covered positions of the given track within [from,to]
+	 */
+	private void setCoverage(RangeMaxCoverage coverage, int coverageOffsetIndex, CoverageTrack coverageTrack, int from, int to) {
+		double value;
+		for(int i = Math.max(from,coverageTrack.getStart()); i <= Math.min(to,coverageTrack.getEnd()); i++) {
+			value = coverageTrack.get(i);
+			if(value > 0)
+				coverage.set(i - coverageOffsetIndex, value);
+		}
+	}
+	
+	
+	private void getCoverage(RangeMaxCoverage coverage,int coverageOffsetIndex,ArrayList<SparseRead> uniquelyMappingReads, ArrayList<SparseRead> multiMappingReads,ArrayList<SparseRead> multiMappingReadsUpdateNeeded, AlignmentRecordReader br, UnsynchronizedBufferedWriter pw) throws Exception {
 		multiMappingReads.clear();
 		
 		
 		long prevFilePointer = br.getFilePointer();
-		String currentLine = br.getNextLine();
-		if(currentLine == null)
+		AlignmentRecord record = new AlignmentRecord();
+		if(!br.next(record))
 			return;
 			
 		double coverageWeight;
 		long filePointer = br.getFilePointer();
-		StringTokenizer st = new StringTokenizer(currentLine,"\t");
-		String currentContextId = st.nextToken();
+		String currentContextId = record.getContextId();
 		String prevContextId = currentContextId;
-		String readId = st.nextToken();
+		String readId = record.getReadId();
 		String prevReadId = readId;
-		String chr = st.nextToken();
-		char strand = st.nextToken().toCharArray()[0];
-		Pattern commaPattern = Pattern.compile(",");
-		String[] splittedCoordinates = commaPattern.split(st.nextToken());
-		ArrayList<Pair<Integer,Integer>> coordinates = new ArrayList<Pair<Integer,Integer>>(2);
+		String chr = record.getChr();
+		char strand = record.getStrand();
+		ArrayList<Pair<Integer,Integer>> coordinates = record.getCoordinatePairs();
 		HashSet<String> currentSplitKeys = new HashSet<String>();
-		String currentSplitKey = "";
-		for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-			coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-			currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-		}
+		String currentSplitKey = record.getSplitKey();
 		
 		char mappingType;
 		if(coordinates.size() == 1 ||coordinates.get(1).getFirst() <= 0)
@@ -657,14 +574,12 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 			currentSplitKeys.add(currentSplitKey);
 		}
 		
-		int mismatches = Integer.valueOf(st.nextToken());
-		char strandOfSpliceSignal = st.nextToken().charAt(0);
-		boolean overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-		int overallMappingCount = Integer.valueOf(st.nextToken());
+		int mismatches = record.getMismatches();
+		char strandOfSpliceSignal = record.getStrandOfSpliceSignal();
+		boolean overlapsKnownJunction = record.overlapsKnownJunction();
+		int overallMappingCount = record.getOverallMappingCount();
 		int prevOverallMappingCount = overallMappingCount;
-		//skip overall valid pair count
-		st.nextToken();
-		char overlapsPolyA = st.nextToken().charAt(0);
+		char overlapsPolyA = record.getOverlapsPolyA();
 		char prevOverlapsPolyA = overlapsPolyA;
 		
 		
@@ -679,44 +594,32 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		readLocation.setOverlapsKnownJunction(overlapsKnownJunction);
 		
 		StringBuilder tmpLineBuilder = new StringBuilder();
-		while((currentLine = br.getNextLine()) != null) {
+		while(br.next(record)) {
 			
 			
-			String[] splittedLine = currentLine.split("\t");
-			if(splittedLine.length < 11) {
+			if(record.getFieldCount() < AlignmentRecord.FIELD_COUNT) {
 				System.err.println("Missing field(s) in line: ");
-				System.err.println(currentLine);
+				System.err.println(record.toLine());
 				System.exit(1);
 			}
 			
 			
-			st = new StringTokenizer(currentLine,"\t");
-			currentContextId = st.nextToken();
-			readId = st.nextToken();
-			chr = st.nextToken();
-			strand = st.nextToken().toCharArray()[0];
-			splittedCoordinates = commaPattern.split(st.nextToken());
-			coordinates = new ArrayList<Pair<Integer,Integer>>(2);
-			currentSplitKey = "";
-			for(int i = 0; i < splittedCoordinates.length - 1; i+=2) {
-				coordinates.add(new Pair<Integer,Integer>(Integer.valueOf(splittedCoordinates[i]),Integer.valueOf(splittedCoordinates[i+1])));
-				currentSplitKey += String.format("%s_%s_",splittedCoordinates[i],splittedCoordinates[i+1]);
-			}
+			currentContextId = record.getContextId();
+			readId = record.getReadId();
+			chr = record.getChr();
+			strand = record.getStrand();
+			coordinates = record.getCoordinatePairs();
+			currentSplitKey = record.getSplitKey();
 			
 			if(coordinates.size() == 1 || coordinates.get(1).getFirst() <= 0)
 				mappingType = 'F';
 			else
 				mappingType = 'S';
-			//mismatches
-			mismatches = Integer.valueOf(st.nextToken());
-			//known splice signal
-			strandOfSpliceSignal = st.nextToken().charAt(0);
-			//overlaps known junction
-			overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-			overallMappingCount = Integer.valueOf(st.nextToken());
-			//skip overall valid pair count
-			st.nextToken();
-			overlapsPolyA = st.nextToken().charAt(0);
+			mismatches = record.getMismatches();
+			strandOfSpliceSignal = record.getStrandOfSpliceSignal();
+			overlapsKnownJunction = record.overlapsKnownJunction();
+			overallMappingCount = record.getOverallMappingCount();
+			overlapsPolyA = record.getOverlapsPolyA();
 			
 			if(readId.equals(prevReadId)) {
 				if(mappingType != 'S' || !currentSplitKeys.contains(currentSplitKey)) {
@@ -738,9 +641,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 						if(segment.getFirst() <= 0)
 							break;
 						
-						for(int i = segment.getFirst(); i <= segment.getSecond(); i++) {
-							coverage[i - coverageOffsetIndex].add(coverageWeight);
-						}
+						coverage.add(segment.getFirst() - coverageOffsetIndex, segment.getSecond() - coverageOffsetIndex, coverageWeight);
 					}
 				}
 				
@@ -821,9 +722,7 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 				if(segment.getFirst() <= 0)
 					break;
 				
-				for(int i = segment.getFirst(); i <= segment.getSecond(); i++) {
-					coverage[i - coverageOffsetIndex].add(coverageWeight);
-				}
+				coverage.add(segment.getFirst() - coverageOffsetIndex, segment.getSecond() - coverageOffsetIndex, coverageWeight);
 			}
 			
 		}
@@ -876,12 +775,8 @@ public class LocalContextResolverSingleEnd implements ContextResolver {
 		
 		
 		//finally add coverages up and downstream of the context start and end, respectively.
-		for(int i : this.upstreamCoverage.keySet()) {
-			coverage[i - coverageOffsetIndex].setValue(this.upstreamCoverage.get(i));
-		}
-		for(int i : this.downstreamCoverage.keySet()) {
-			coverage[i - coverageOffsetIndex].setValue(this.downstreamCoverage.get(i));
-		}
+		setCoverage(coverage,coverageOffsetIndex,this.upstreamCoverage,coverageOffsetIndex,coverageOffsetIndex + this.completeWindowIntervall - 1);
+		setCoverage(coverage,coverageOffsetIndex,this.downstreamCoverage,coverageOffsetIndex + coverage.size() - this.completeWindowIntervall,coverageOffsetIndex + coverage.size() - 1);
 		
 		
 	}
@@ -20,9 +20,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.NavigableMap;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
@@ -36,8 +34,13 @@ import org.mapdb.HTreeMap;
 import org.mapdb.Serializer;
 
 import augmentedTree.IntervalTree;
-import tools.BufferedRandomAccessFile;
-import tools.String2Bitset;
+import tools.AlignmentRecord;
+import tools.AlignmentRecordWriter;
+import tools.JunctionIndex;
+import tools.JunctionIndexFile;
+import tools.MappedLineReader;
+import tools.PackedReferenceSequence;
+import tools.ReadSequenceCodec;
 import main.Context;
 import main.InitialRead;
 import main.InitialReadLocation;
@@ -58,13 +61,13 @@ public class MappingProcessor {
 	//private HashMap<String,File> chr2file;
 	private HashMap<String,File> chr2rmap;
 	private ConcurrentMap<String,long[]> read2sequence;
-	private String2Bitset string2bitset;
+	private ReadSequenceCodec readSequenceCodec;
 	private HashSet<String> spliceSites;
-	private HashMap<String,TreeMap<Integer,HashSet<Integer>>> chr2annotatedSpliceSites;
+	private HashMap<String,JunctionIndex> chr2annotatedSpliceSites;
 	//in case we have given strand specific reads, chr2annotatedSpliceSites will be empty. instead
 	//we split annotated splice sites by strand information
-	private HashMap<String,TreeMap<Integer,HashSet<Integer>>> chr2annotatedForwardSpliceSites;
-	private HashMap<String,TreeMap<Integer,HashSet<Integer>>> chr2annotatedReverseSpliceSites;
+	private HashMap<String,JunctionIndex> chr2annotatedForwardSpliceSites;
+	private HashMap<String,JunctionIndex> chr2annotatedReverseSpliceSites;
 	
 	private String readsPath;
 	private String readFormat;
@@ -82,9 +85,6 @@ public class MappingProcessor {
 	private double lowerCutoff;
 	
 	
-	private StringBuilder currentChrSequence;
-	
-	
 	private String multiMappingFilePath;
 	private String outputPath;
 	
@@ -98,7 +98,7 @@ public class MappingProcessor {
 	
 	
 	public MappingProcessor() {
-		this.string2bitset = new String2Bitset();
+		this.readSequenceCodec = new ReadSequenceCodec();
 	}
 	
 	
@@ -109,13 +109,13 @@ public class MappingProcessor {
 		this.preferExtensionsWithKnownSpliceSignal = preferExtensionsWithKnownSpliceSignal;
 		this.skipDenovoJunctions = skipDenovoJunctions;
 		this.skipNonCanonicalJunctions = skipNonCanonicalJunctions;
-		this.string2bitset = new String2Bitset();
+		this.readSequenceCodec = new ReadSequenceCodec();
 		
 	}
 	
 
 	
-	public MappingProcessor(String rmapFilesDir, String genomeDir, String annotationFilePath, String gtfFilePath, String readsPath, String readFormat, int readLength, int maxMissmatches, int maxMissmatchDifference, int maxIntronLength, int maxDelSize, int seedLength,int seedMissmatches, boolean preferExtensionsWithKnownSpliceSignal,boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean strandSpecific, boolean clipping, boolean polyA, boolean strandedPolyA, int minPolyALength, int minPolyAReadCount, double upperCutoff, double lowerCutoff, int maxConsideredClippingLength) {
+	public MappingProcessor(String rmapFilesDir, String genomeDir, String annotationFilePath, String gtfFilePath, String junctionIndexFilePath, String readsPath, String readFormat, int readLength, int maxMissmatches, int maxMissmatchDifference, int maxIntronLength, int maxDelSize, int seedLength,int seedMissmatches, boolean preferExtensionsWithKnownSpliceSignal,boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean strandSpecific, boolean clipping, boolean polyA, boolean strandedPolyA, int minPolyALength, int minPolyAReadCount, double upperCutoff, double lowerCutoff, int maxConsideredClippingLength) {
 		this.readsPath = readsPath;
 		this.readLength = readLength;
 		this.maxMissmatches = maxMissmatches;
@@ -135,7 +135,7 @@ public class MappingProcessor {
 		this.upperCutoff = upperCutoff;
 		this.lowerCutoff = lowerCutoff;
 		this.maxConsideredClippingLength = maxConsideredClippingLength;
-		this.string2bitset = new String2Bitset();
+		this.readSequenceCodec = new ReadSequenceCodec();
 		if(readFormat == null)
 			readFormat = "fasta";
 				
@@ -162,9 +162,13 @@ public class MappingProcessor {
 				this.spliceSites.add(spliceSite);
 			}
 			
-			//in case we have given an annotation we hash known splice sites here
-			if(annotationFilePath != null) {
-				ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> annotatedSpliceSites = parseAnnotatedSplitPositions(annotationFilePath,strandSpecific); 
+			//in case we have given an annotation we hash known splice sites here (or map a prebuilt junction index)
+			if(annotationFilePath != null || junctionIndexFilePath != null) {
+				ArrayList<HashMap<String,JunctionIndex>> annotatedSpliceSites;
+				if(junctionIndexFilePath != null)
+					annotatedSpliceSites = JunctionIndexFile.load(junctionIndexFilePath);
+				else
+					annotatedSpliceSites = parseAnnotatedSplitPositions(annotationFilePath,strandSpecific); 
 				if(!strandSpecific)
 					this.chr2annotatedSpliceSites = annotatedSpliceSites.get(0);
 				else {
@@ -180,7 +184,7 @@ public class MappingProcessor {
 			
 
 			if(gtfFilePath != null) {
-				ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> annotatedSpliceSites = parseAnnotatedSplitPositionsFromGtf(gtfFilePath, strandSpecific);
+				ArrayList<HashMap<String,JunctionIndex>> annotatedSpliceSites = parseAnnotatedSplitPositionsFromGtf(gtfFilePath, this.chr2rmap.keySet().iterator().next(), strandSpecific);
 				if(!strandSpecific)
 					this.chr2annotatedSpliceSites = annotatedSpliceSites.get(0);
 				else {
@@ -189,7 +193,6 @@ public class MappingProcessor {
 				}
 			}
 			
-			this.currentChrSequence = new StringBuilder();
 			DB db = DBMaker.newMemoryDB().transactionDisable().make();
 			this.read2sequence = db.getHashMap("read2sequence");
 			//this.read2sequence = new ConcurrentHashMap<String,String>();
@@ -200,14 +203,6 @@ public class MappingProcessor {
 	}
 	
 	
-	public void setCurrentChromosome(StringBuilder sb) {
-		this.currentChrSequence = sb;
-	}
-	
-	public StringBuilder getCurrentChromosome() {
-		return this.currentChrSequence;
-	}
-	
 	public void setCurrentReadSequences(ConcurrentMap<String,long[]> read2sequence) {
 		this.read2sequence = read2sequence;
 	}
@@ -221,15 +216,11 @@ public class MappingProcessor {
 		this.read2sequence.clear();
 	}
 	
-	public void emptyChrSequence() {
-		this.currentChrSequence.setLength(0);
-	}
-	
-	public void parseMapping(Context context,BufferedRandomAccessFile rmapReader, boolean pairedEnd,StringBuilder localReference, int contextOffset, String alignmentsFilePath) {
+	public void parseMapping(Context context,MappedLineReader rmapReader, boolean pairedEnd,PackedReferenceSequence localReference, int contextOffset, String alignmentsFilePath) {
 		try {
 			
 			//first check if the actual chromosome sequence is set/available
-			if(this.currentChrSequence.length() == 0) {
+			if(localReference.length() == 0) {
 				System.err.println("Warning: Could not find sequence for chr:\t" + context.getChr());
 				return;
 			}
@@ -246,10 +237,10 @@ public class MappingProcessor {
 	}
 	
 	
-	public void extendMapping(Context context, StringBuilder localReference, int contextOffset, String multiMappingOutputPath, String mscsOutputFilePath, int minStartPositionOverlaps, String alignmentsFilePath) {
+	public void extendMapping(Context context, PackedReferenceSequence localReference, int contextOffset, String multiMappingOutputPath, String mscsOutputFilePath, int minStartPositionOverlaps, String alignmentsFilePath) {
 		try {
 			//first check if the actual chromosome sequence is set/available
-			if(this.currentChrSequence.length() == 0) {
+			if(localReference.length() == 0) {
 				System.err.println("Warning: Could not find sequence for chr:\t" + context.getChr());
 				return;
 			}
@@ -261,9 +252,9 @@ public class MappingProcessor {
 			//extend the split positions
 			UnsynchronizedBufferedWriter contextWriter = new UnsynchronizedBufferedWriter(new FileWriter(new File(multiMappingOutputPath)),1024 * 1024);
 			ArrayList<Object> hashedSplitsAndFilePointer = determineSplitPositionsAndPrintFullReads(context,localReference,contextOffset,this.readsPath, this.readFormat,this.maxMissmatches,minStartPositionOverlaps,readLocationPool,contextWriter, alignmentsFilePath);
-			TreeMap<Integer,HashSet<Integer>> hashedSplits = (TreeMap<Integer,HashSet<Integer>>)hashedSplitsAndFilePointer.get(0);
+			JunctionIndex hashedSplits = (JunctionIndex)hashedSplitsAndFilePointer.get(0);
 			long filePointer = (Long)hashedSplitsAndFilePointer.get(1);
-			HashSet<String> insertionKeys = (HashSet<String>)hashedSplitsAndFilePointer.get(2);
+			JunctionIndex insertionKeys = (JunctionIndex)hashedSplitsAndFilePointer.get(2);
 			addAnnotatedSpliceSitesToHash(context,hashedSplits);
 			
 			
@@ -300,11 +291,11 @@ public class MappingProcessor {
 		}
 	}
 
-	private void parseReadsOfContext(Context context,StringBuilder localReference, int contextOffset, BufferedRandomAccessFile rmapReader, boolean pairedEnd) {
+	private void parseReadsOfContext(Context context,PackedReferenceSequence localReference, int contextOffset, MappedLineReader rmapReader, boolean pairedEnd) {
 		try {
-			BufferedRandomAccessFile br;
+			MappedLineReader br;
 			if(rmapReader == null) 
-				br = new BufferedRandomAccessFile(this.chr2rmap.get(context.getChr()), "r",100000);
+				br = new MappedLineReader(this.chr2rmap.get(context.getChr()),context.getPointerToFirstRead(),context.getPointerToLastRead());
 			else
 				br = rmapReader;
 				
@@ -331,7 +322,7 @@ public class MappingProcessor {
 			int missmatches;
 			boolean isMsc;
 			
-			String2Bitset s2b = new String2Bitset();
+			ReadSequenceCodec readSequenceCodec = new ReadSequenceCodec();
 			
 			DB db = DBMaker.newMemoryDB().transactionDisable().make();
 			HTreeMap<String,Integer> read2index = db.createHashMap("read2index").keySerializer(Serializer.STRING).valueSerializer(Serializer.INTEGER).makeOrGet();
@@ -371,7 +362,7 @@ public class MappingProcessor {
 				mscIndex = readId.indexOf("::MSC");
 				readSequence = null;
 				if(!read2index.containsKey(readId) || mscIndex != -1) {
-					readSequence = s2b.decompress(this.read2sequence.get(readId));
+					readSequence = readSequenceCodec.decompress(this.read2sequence.get(readId));
 				}
 				
 				
@@ -384,7 +375,7 @@ public class MappingProcessor {
 						mateId = readId.substring(0,readId.lastIndexOf('/')) + "/1";
 					
 					if(!isMsc && this.read2sequence.containsKey(mateId)) {
-						mateSequence = s2b.decompress(this.read2sequence.get(mateId));
+						mateSequence = readSequenceCodec.decompress(this.read2sequence.get(mateId));
 					}
 					
 				}
@@ -429,7 +420,7 @@ public class MappingProcessor {
 					}
 					
 					//msc, not pairedend or no valid pair found
-					else if((!pairedEnd || validPairsCount == 0) && isMsc && mscSeq2readIndex.containsKey(readSequence) && s2b.decompress(this.read2sequence.get(parentReadId)).equals(s2b.decompress(this.read2sequence.get(duplicatedRead.getId().substring(0,duplicatedRead.getId().indexOf("::MSC")))))) {
+					else if((!pairedEnd || validPairsCount == 0) && isMsc && mscSeq2readIndex.containsKey(readSequence) && Arrays.equals(this.read2sequence.get(parentReadId),this.read2sequence.get(duplicatedRead.getId().substring(0,duplicatedRead.getId().indexOf("::MSC"))))) {
 						duplicatedRead.addDuplicate(readId);
 						
 					}
@@ -481,9 +472,9 @@ public class MappingProcessor {
 	
 	
 	
-	private void parseReadsOfLargeContext(Context context,StringBuilder localReference, int contextOffset, String alignmentsFilePath) {
+	private void parseReadsOfLargeContext(Context context,PackedReferenceSequence localReference, int contextOffset, String alignmentsFilePath) {
 		try {
-			BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(alignmentsFilePath), "r",10240);
+			MappedLineReader braf = new MappedLineReader(new File(alignmentsFilePath));
 				
 			String currentLine;
 			StringTokenizer st;
@@ -552,7 +543,7 @@ public class MappingProcessor {
 		}
 	}
 	
-	private void parseReadLocations(Context context,InitialRead read, int contextOffset, int localReferenceLength, BufferedRandomAccessFile braf) throws Exception {
+	private void parseReadLocations(Context context,InitialRead read, int contextOffset, int localReferenceLength, MappedLineReader braf) throws Exception {
 		String currentLine;
 		String readId;
 		char mappingType;
@@ -606,13 +597,13 @@ public class MappingProcessor {
 		read.setLocations(locations);
 	}
 	
-	private ArrayList<Object> determineSplitPositionsAndPrintFullReads(Context context,StringBuilder localReference,int contextOffset, String readsPath, String readFormat, int maxMissmatches,int minStartPositionOverlaps, ArrayList<ReadLocation> readLocationPool, UnsynchronizedBufferedWriter pw, String alignmentsFilePath) throws Exception {
+	private ArrayList<Object> determineSplitPositionsAndPrintFullReads(Context context,PackedReferenceSequence localReference,int contextOffset, String readsPath, String readFormat, int maxMissmatches,int minStartPositionOverlaps, ArrayList<ReadLocation> readLocationPool, UnsynchronizedBufferedWriter pw, String alignmentsFilePath) throws Exception {
 		ArrayList<Object> returnValues = new ArrayList<Object>();
 		HashMap<String,Split> key2split = new HashMap<String,Split>();
 		String splitKey;
-		TreeMap<Integer,HashSet<Integer>> hashedSplits = new TreeMap<Integer,HashSet<Integer>>();
-		HashSet<String> insertionKeys = new HashSet<String>();
-		HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentAnnotatedSpliceSiteMap = null;
+		JunctionIndex hashedSplits = new JunctionIndex();
+		JunctionIndex insertionKeys = new JunctionIndex();
+		HashMap<String,JunctionIndex> currentAnnotatedSpliceSiteMap = null;
 		if(!context.isStrandSpecific())
 			currentAnnotatedSpliceSiteMap = this.chr2annotatedSpliceSites;
 		if(context.isStrandSpecific() && context.getStrand().equals("+"))
@@ -640,6 +631,8 @@ public class MappingProcessor {
 		ArrayList<ReadLocation> locationsToAdd = new ArrayList<ReadLocation>();
 		HashSet<ReadLocation> locationsToRemove = new HashSet<ReadLocation>();
 		String readSequence;
+		//reverse complement, read from the packed sequence
+		CharSequence readSequenceRevComp;
 		String prevReadSequence = " ";
 		StringBuilder readSequenceBuffer = new StringBuilder();
 		StringBuilder donorSite = new StringBuilder();
@@ -653,13 +646,14 @@ public class MappingProcessor {
 		int splitSize;
 		
 		//here we know that the context is not in memory yet. we just parse the alignments of the current read.
-		BufferedRandomAccessFile braf = null;
+		MappedLineReader braf = null;
 		if(alignmentsFilePath != null) {
-			braf = new BufferedRandomAccessFile(new File(alignmentsFilePath),"r",1024);
+			braf = new MappedLineReader(new File(alignmentsFilePath));
 		}
 		
 		for(InitialRead read : context.getReads()) {
-			readSequence = this.string2bitset.decompress(this.read2sequence.get(read.getId()));
+			readSequence = this.readSequenceCodec.decompress(this.read2sequence.get(read.getId()));
+			readSequenceRevComp = ReadSequenceCodec.view(this.read2sequence.get(read.getId()), true);
 			
 			if(readSequence == null) {
 				System.err.println(read.getId());
@@ -687,8 +681,8 @@ public class MappingProcessor {
 					startA = readLocation.getStartA();
 					endB = readLocation.getEndA();
 
-					getMismatchesForSplitPartA(mismatchesSplitPartA,readSequence,localReference,contextOffset,readSequenceBuffer,startA,startA + readSequence.length() - 1,readLocation.getStrand());
-					getMismatchesForSplitPartB(mismatchesSplitPartB,readSequence,localReference,contextOffset,readSequenceBuffer,endB - readSequence.length() + 1,endB,readLocation.getStrand());
+					getMismatchesForSplitPartA(mismatchesSplitPartA,(readLocation.getStrand() == '-') ? readSequenceRevComp : readSequence,localReference,contextOffset,startA,startA + readSequence.length() - 1);
+					getMismatchesForSplitPartB(mismatchesSplitPartB,(readLocation.getStrand() == '-') ? readSequenceRevComp : readSequence,localReference,contextOffset,endB - readSequence.length() + 1,endB);
 					//j defines the length of the first split part
 					for(int j = 1; j < readSequence.length(); j++) {
 						endA = startA + j - 1;
@@ -731,8 +725,7 @@ public class MappingProcessor {
 								
 								//in case an annotation is given check if the actual split overlaps with an annotated junction
 								if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(tmpLocation.getChr())) {
-									if((currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getEndA()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getEndA()).contains(tmpLocation.getStartB())) ||
-									   (currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getStartB()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getStartB()).contains(tmpLocation.getEndA()))){
+									if(currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getEndA(),tmpLocation.getStartB()) || currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getStartB(),tmpLocation.getEndA())) {
 										tmpLocation.setOverlapsKnownJunction(true);
 										
 									}
@@ -781,8 +774,7 @@ public class MappingProcessor {
 							tmpLocation.setStrandOfSpliceSignal(strandOfSpliceSignal);
 							
 							if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(tmpLocation.getChr())) {
-								if((currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getEndA()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getEndA()).contains(tmpLocation.getStartB())) ||
-								   (currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getStartB()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getStartB()).contains(tmpLocation.getEndA()))){
+								if(currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getEndA(),tmpLocation.getStartB()) || currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getStartB(),tmpLocation.getEndA())) {
 									tmpLocation.setOverlapsKnownJunction(true);
 								}
 							}
@@ -1003,29 +995,15 @@ public class MappingProcessor {
 				continue;
 			
 			
-			if(hashedSplits.containsKey(split.getSplitPositionA()))
-				hashedSplits.get(split.getSplitPositionA()).add(split.getSplitPositionB());
-			else {
-				HashSet<Integer> tmpSet = new HashSet<Integer>();
-				tmpSet.add(split.getSplitPositionB());
-				hashedSplits.put(split.getSplitPositionA(), tmpSet);
-			}
+			hashedSplits.add(split.getSplitPositionA(),split.getSplitPositionB());
 			
 			
 			if(split.getSplitPositionA() < split.getSplitPositionB()) {
-				if(hashedSplits.containsKey(split.getSplitPositionB())) {
-					hashedSplits.get(split.getSplitPositionB()).add(split.getSplitPositionA());
-				}
-				else {
-					HashSet<Integer> tmpSet = new HashSet<Integer>();
-					tmpSet.add(split.getSplitPositionA());
-					hashedSplits.put(split.getSplitPositionB(), tmpSet);
-				}
+				hashedSplits.add(split.getSplitPositionB(),split.getSplitPositionA());
 			}
 			
 			else {
-				//insertionKeys.add(String.format("%s_%s",split.getSplitPositionA(), split.getSplitPositionB()));
-				insertionKeys.add(split.getSplitPositionA() + "_" + split.getSplitPositionB());
+				insertionKeys.add(split.getSplitPositionA(),split.getSplitPositionB());
 			}
 			
 		}
@@ -1074,7 +1052,11 @@ public class MappingProcessor {
 	}
 	
 	
-	private void getMismatchesForSplitPartA(int[] mismatches,String readSequence,StringBuilder localReference, int contextOffset, StringBuilder readSequenceBuffer, int start, int end, char strand) {
+	/**
+	 * cumulative mismatch counts of the read aligned to [start,end], from the read start on. The read sequence has to be
+	 * in the orientation of the alignment, e.g. a reverse complemented view of the packed read for strand '-'.
+	 */
+	private void getMismatchesForSplitPartA(int[] mismatches,CharSequence readSequence,PackedReferenceSequence localReference, int contextOffset, int start, int end) {
 		int mismatchCount = 0;
 		
 		if(start - contextOffset < 0 || end - contextOffset + 1 > localReference.length()) {
@@ -1085,19 +1067,10 @@ public class MappingProcessor {
 		}
 		
 		int referenceOffset = start - contextOffset;
+		int readLength = readSequence.length();
 		
-		if(strand == '-') {
-			readSequenceBuffer.setLength(0);
-			readSequenceBuffer.append(readSequence);
-			readSequenceBuffer.reverse();
-			for(int i = 0; i < readSequenceBuffer.length(); i++) {
-				readSequenceBuffer.setCharAt(i, substitute(readSequenceBuffer.charAt(i)));
-			}
-			readSequence = readSequenceBuffer.toString();
-		}
-		
-		int j = readSequence.length();
-		for(int i = 0; i < readSequence.length(); i++) {
+		int j = readLength;
+		for(int i = 0; i < readLength; i++) {
 			if(readSequence.charAt(i) != localReference.charAt(referenceOffset + i))
 				mismatchCount++;
 			mismatches[i] = mismatchCount;
@@ -1108,27 +1081,17 @@ public class MappingProcessor {
 			}
 		}
 		
-		for(int i = j; i < readSequence.length(); i++) {
+		for(int i = j; i < readLength; i++) {
 			mismatches[i] = mismatchCount;
 		}
 
 	}
 	
 	/**
-	 * 
-	 * use strand '0' if the read sequence of an alignment to the negative strand is already reverse complemented. 
-	 * 
-	 * @param mismatches
-	 * @param readSequence
-	 * @param localReference
-	 * @param contextOffset
-	 * @param readSequenceBuffer
-	 * @param start
-	 * @param end
-	 * @param strand
+	 * cumulative mismatch counts of the read aligned to [start,end], from the read end on. The read sequence has to be
+	 * in the orientation of the alignment.
 	 */
-	
-	private void getMismatchesForSplitPartB(int[] mismatches,String readSequence,StringBuilder localReference, int contextOffset, StringBuilder readSequenceBuffer, int start, int end, char strand) {
+	private void getMismatchesForSplitPartB(int[] mismatches,CharSequence readSequence,PackedReferenceSequence localReference, int contextOffset, int start, int end) {
 		int mismatchCount = 0;
 		
 		if(start - contextOffset <= 0 || end - contextOffset + 1 > localReference.length()) {
@@ -1139,22 +1102,13 @@ public class MappingProcessor {
 		}
 		
 		int referenceOffset = start - contextOffset;
-		
-		if(strand == '-') {
-			readSequenceBuffer.setLength(0);
-			readSequenceBuffer.append(readSequence);
-			readSequenceBuffer.reverse();
-			for(int i = 0; i < readSequenceBuffer.length(); i++) {
-				readSequenceBuffer.setCharAt(i, substitute(readSequenceBuffer.charAt(i)));
-			}
-			readSequence = readSequenceBuffer.toString();
-		}
+		int readLength = readSequence.length();
 		
 		int j = -1;
-		for(int i = readSequence.length() - 1; i >= 0; i--) {
+		for(int i = readLength - 1; i >= 0; i--) {
 			if(readSequence.charAt(i) != localReference.charAt(referenceOffset + i))
 				mismatchCount++;
-			mismatches[readSequence.length() -i -1] = mismatchCount;
+			mismatches[readLength -i -1] = mismatchCount;
 			
 			if(mismatchCount > this.maxMissmatches) {
 				j = i - 1;
@@ -1163,14 +1117,14 @@ public class MappingProcessor {
 		}
 		
 		for(int i = j; i >= 0; i--) {
-			mismatches[readSequence.length() -i -1] = mismatchCount;
+			mismatches[readLength -i -1] = mismatchCount;
 		}
 	}
 	
 	
 		
 	
-	private ArrayList<Triplet<Integer,Integer,Integer>> getBestLocalAlignmentIndices(String readSequence, StringBuilder localReference, int contextOffset, StringBuilder readSequenceBuffer, int start, int end, char strand, int matchScore, int mismatchPenalty, int maxMismatches, int minAlignmentLength, boolean clipAtStartOnly, boolean clipAtEndOnly) {
+	private ArrayList<Triplet<Integer,Integer,Integer>> getBestLocalAlignmentIndices(CharSequence readSequence, PackedReferenceSequence localReference, int contextOffset, StringBuilder readSequenceBuffer, int start, int end, char strand, int matchScore, int mismatchPenalty, int maxMismatches, int minAlignmentLength, boolean clipAtStartOnly, boolean clipAtEndOnly) {
 		ArrayList<Triplet<Integer,Integer,Integer>> results = new ArrayList<Triplet<Integer,Integer,Integer>>();
 		
 		if(start - contextOffset < 0 || (end - contextOffset + 1) > localReference.length())
@@ -1270,11 +1224,11 @@ public class MappingProcessor {
 	}
 	
 
-	private char hasSpliceSignal(StringBuilder localReference, int contextOffset,StringBuilder donorSite, StringBuilder acceptorSite, int splitPointA, int splitPointB, char strand, boolean strandSpecific) {
+	private char hasSpliceSignal(PackedReferenceSequence localReference, int contextOffset,StringBuilder donorSite, StringBuilder acceptorSite, int splitPointA, int splitPointB, char strand, boolean strandSpecific) {
 		donorSite.setLength(0);
 		acceptorSite.setLength(0);
-		donorSite.append(localReference.substring((splitPointA + 1) - contextOffset, (splitPointA + 3) - contextOffset));
-		acceptorSite.append(localReference.substring((splitPointB - 2) - contextOffset, splitPointB - contextOffset));
+		donorSite.append(localReference, (splitPointA + 1) - contextOffset, (splitPointA + 3) - contextOffset);
+		acceptorSite.append(localReference, (splitPointB - 2) - contextOffset, splitPointB - contextOffset);
 		
 		//check forward splice sites
 		if(!strandSpecific || strand == '+') {
@@ -1299,9 +1253,9 @@ public class MappingProcessor {
 	}
 	
 			
-	private void extendPartialReads(Context context,StringBuilder localReference,int contextOffset,TreeMap<Integer,HashSet<Integer>> hashedSplits, HashSet<String> insertionKeys, long filePointer, ArrayList<ReadLocation> readLocationPool, UnsynchronizedBufferedWriter pw, String alignmentsFilePath) {
+	private void extendPartialReads(Context context,PackedReferenceSequence localReference,int contextOffset,JunctionIndex hashedSplits, JunctionIndex insertionKeys, long filePointer, ArrayList<ReadLocation> readLocationPool, UnsynchronizedBufferedWriter pw, String alignmentsFilePath) {
 		try {
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentAnnotatedSpliceSiteMap = null;
+			HashMap<String,JunctionIndex> currentAnnotatedSpliceSiteMap = null;
 			if(!context.isStrandSpecific())
 				currentAnnotatedSpliceSiteMap = this.chr2annotatedSpliceSites;
 			if(context.isStrandSpecific() && context.getStrand().equals("+"))
@@ -1318,7 +1272,8 @@ public class MappingProcessor {
 			int endB = -1;
 			int tmpEndB;
 			String readSequence;
-			String readSequenceRevComp;
+			//reverse complement, read from the packed sequence
+			CharSequence readSequenceRevComp;
 			int mismatches = Integer.MAX_VALUE;
 			int minMismatches = -1;
 			int insertionSize = -1;
@@ -1336,7 +1291,8 @@ public class MappingProcessor {
 			ArrayList<ReadLocation> fullLocationsToAdd = new ArrayList<ReadLocation>();
 			ArrayList<ReadLocation> locationsToAdd = new ArrayList<ReadLocation>();
 			ArrayList<ReadLocation> clippedLocations = new ArrayList<ReadLocation>();
-			NavigableMap<Integer,HashSet<Integer>> subMap;
+			int splitPositionA;
+			int splitPositionB;
 			StringBuilder referenceSequenceBuffer = new StringBuilder();
 			StringBuilder readSequenceBuffer = new StringBuilder();
 			StringBuilder donorSite = new StringBuilder();
@@ -1371,7 +1327,7 @@ public class MappingProcessor {
 			HashSet<Integer> indicesToSkip = new HashSet<Integer>();
 			StringBuilder splitKey = new StringBuilder();
 			StringBuilder extendedSplitKey = new StringBuilder();
-			String currentInsertionKey;
+			boolean isInsertion;
 			String currentLocationKey;
 			
 			HashMap<Integer,MutableInt> splitSize2frequency = new HashMap<Integer,MutableInt>();
@@ -1384,9 +1340,9 @@ public class MappingProcessor {
 			ArrayList<int[]> mismatchArraysForDownstreamInsertions = new ArrayList<int[]>();
 			ArrayList<int[]> mismatchArraysForUpstreamInsertions = new ArrayList<int[]>();
 			
-			BufferedRandomAccessFile braf = null;
+			MappedLineReader braf = null;
 			if(alignmentsFilePath != null) {
-				braf = new BufferedRandomAccessFile(new File(alignmentsFilePath),"r",1024);
+				braf = new MappedLineReader(new File(alignmentsFilePath));
 			}
 			
 			for(InitialRead read : context.getReads()) {
@@ -1442,7 +1398,7 @@ public class MappingProcessor {
 					if(location.getMappingType() == 'P') {
 						
 						if(readSequence == null)
-							readSequence = this.string2bitset.decompress(this.read2sequence.get(read.getId()));
+							readSequence = this.readSequenceCodec.decompress(this.read2sequence.get(read.getId()));
 						
 						tmpLineBuilder.setLength(0);
 						currentLocationKey = tmpLineBuilder.append(readSequence).append('_').append(location.getStartA()).append('_').append(location.getEndA()).append('_').append(location.getStrand()).toString();						
@@ -1506,7 +1462,7 @@ public class MappingProcessor {
 						
 						startA = location.getStartA();
 						endA = location.getEndA();
-						subMap = hashedSplits.subMap(startA,true,endA,true);
+
 						
 						currentSplits.clear();
 						upstreamSplits.clear();
@@ -1514,45 +1470,44 @@ public class MappingProcessor {
 						startOfVariableSplitPart = Integer.MIN_VALUE;
 						insertionSizes.clear();
 						
-						for(int splitPositionA : subMap.keySet()) {
-							for(int splitPositionB : subMap.get(splitPositionA)) {
+						for(int j = hashedSplits.getFirstIndex(startA); j < hashedSplits.size() && hashedSplits.getDonor(j) <= endA; j++) {
+							splitPositionA = hashedSplits.getDonor(j);
+							splitPositionB = hashedSplits.getAcceptor(j);
 
-								if(noValidSplitFound.contains(currentLocationKey + "_" + splitPositionA + "_" + splitPositionB)) {
+							if(noValidSplitFound.contains(currentLocationKey + "_" + splitPositionA + "_" + splitPositionB)) {
+								continue;
+							}
+							
+							isInsertion = insertionKeys.contains(splitPositionA,splitPositionB);
+							if(splitPositionB >= splitPositionA || isInsertion) {
+								if((splitPositionA - startA + 1) == readSequence.length())
 									continue;
-								}
 								
-								tmpLineBuilder.setLength(0);
-								currentInsertionKey = tmpLineBuilder.append(splitPositionA).append('_').append(splitPositionB).toString();
-								if(splitPositionB >= splitPositionA || insertionKeys.contains(currentInsertionKey)) {
-									if((splitPositionA - startA + 1) == readSequence.length())
-										continue;
+								if(isInsertion) {
+									if(splitPositionA > startA + readSequence.length()/2) {
+										if(readSequence.length() - ((splitPositionA - startA + 1)) - (splitPositionA - splitPositionB + 1) < 0) 
+											continue;
+									}
 									
-									if(insertionKeys.contains(currentInsertionKey)) {
-										if(splitPositionA > startA + readSequence.length()/2) {
-											if(readSequence.length() - ((splitPositionA - startA + 1)) - (splitPositionA - splitPositionB + 1) < 0) 
-												continue;
-										}
-										
-										else {
-											if(splitPositionA - (startA + splitPositionA - splitPositionB + 1) + 1 < 0) {
-												continue;
-											}
+									else {
+										if(splitPositionA - (startA + splitPositionA - splitPositionB + 1) + 1 < 0) {
+											continue;
 										}
 									}
 								}
-								
-								
-								if(splitPositionA - splitPositionB + 1 <= this.maxDelSize && insertionKeys.contains(currentInsertionKey)) {
-									insertionSizes.add(splitPositionA - splitPositionB + 1);
-								}
-								
-								if(splitPositionB >= splitPositionA || (splitPositionA - splitPositionB + 1 <= this.maxDelSize && insertionKeys.contains(currentInsertionKey))) {
-									downstreamSplits.add(new Pair<Integer,Integer>(splitPositionA,splitPositionB));
-								}
-								
-								else if(!insertionKeys.contains(currentInsertionKey)) {
-									upstreamSplits.add(new Pair<Integer,Integer>(splitPositionA,splitPositionB));
-								}
+							}
+							
+							
+							if(splitPositionA - splitPositionB + 1 <= this.maxDelSize && isInsertion) {
+								insertionSizes.add(splitPositionA - splitPositionB + 1);
+							}
+							
+							if(splitPositionB >= splitPositionA || (splitPositionA - splitPositionB + 1 <= this.maxDelSize && isInsertion)) {
+								downstreamSplits.add(new Pair<Integer,Integer>(splitPositionA,splitPositionB));
+							}
+							
+							else if(!isInsertion) {
+								upstreamSplits.add(new Pair<Integer,Integer>(splitPositionA,splitPositionB));
 							}
 						}
 						
@@ -1573,21 +1528,14 @@ public class MappingProcessor {
 							}
 							
 							
-							if(readSequenceRevComp == null && location.getStrand() == '-') {
-								readSequenceBuffer.setLength(0);
-								readSequenceBuffer.append(readSequence);
-								readSequenceBuffer.reverse();
-								for(int i = 0; i < readSequenceBuffer.length(); i++) {
-									readSequenceBuffer.setCharAt(i, substitute(readSequenceBuffer.charAt(i)));
-								}
-								readSequenceRevComp = readSequenceBuffer.toString();
-							}
+							if(readSequenceRevComp == null && location.getStrand() == '-')
+								readSequenceRevComp = ReadSequenceCodec.view(this.read2sequence.get(read.getId()), true);
 														
 							if(!downstreamSplits.isEmpty())
-								getMismatchesForSplitPartA(mismatchesArrayForDownstreamSplits,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA,endA,'0');
+								getMismatchesForSplitPartA(mismatchesArrayForDownstreamSplits,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA,endA);
 							
 							if(!upstreamSplits.isEmpty() || !insertionSizes.isEmpty())
-								getMismatchesForSplitPartB(mismatchesArrayForUpstreamSplits,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA,endA,'0');
+								getMismatchesForSplitPartB(mismatchesArrayForUpstreamSplits,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA,endA);
 							
 							mismatchArraysForDownstreamInsertions.clear();
 							mismatchArraysForUpstreamInsertions.clear();
@@ -1602,7 +1550,7 @@ public class MappingProcessor {
 											tmpDownstream = new int[readSequence.length()];
 											poolForDownstreamInsertions.add(tmpDownstream);
 										}
-										getMismatchesForSplitPartA(tmpDownstream,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA + i,endA + i,'0');
+										getMismatchesForSplitPartA(tmpDownstream,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA + i,endA + i);
 										mismatchArraysForDownstreamInsertions.add(tmpDownstream);
 										
 										
@@ -1615,7 +1563,7 @@ public class MappingProcessor {
 											poolForUpstreamInsertions.add(tmpUpstream);
 										}
 										
-										getMismatchesForSplitPartB(tmpUpstream,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA - i,endA - i,'0');
+										getMismatchesForSplitPartB(tmpUpstream,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA - i,endA - i);
 										mismatchArraysForUpstreamInsertions.add(tmpUpstream);
 									}
 									
@@ -1632,26 +1580,25 @@ public class MappingProcessor {
 							currentSplitPosB = currentSplits.get(i).getSecond();
 
 							
-							tmpLineBuilder.setLength(0);
-							currentInsertionKey = tmpLineBuilder.append(currentSplitPosA).append('_').append(currentSplitPosB).toString();
+							isInsertion = insertionKeys.contains(currentSplitPosA,currentSplitPosB);
 							//s2 is downstream of s1
 							foundValidSplit = false;
 							hasInsertion = false;
-							if(currentSplitPosB >= currentSplitPosA || insertionKeys.contains(currentInsertionKey)) {
+							if(currentSplitPosB >= currentSplitPosA || isInsertion) {
 								startA = location.getStartA();
 								endA = currentSplitPosA;
 								startB = currentSplitPosB;
 								endB = startB + (readSequence.length() - (endA - startA + 1)) - 1;
 																
 								//check if the intron size != 0
-								if(startB - endA == 1 && !insertionKeys.contains(currentInsertionKey)) {
+								if(startB - endA == 1 && !isInsertion) {
 									continue;
 								}
 								
 								
 								foundValidSplit = true;								
 								hasInsertion = false;
-								if(insertionKeys.contains(currentInsertionKey)) {
+								if(isInsertion) {
 									
 									insertionSize = currentSplitPosA - currentSplitPosB + 1;
 									hasInsertion = true;
@@ -1696,7 +1643,7 @@ public class MappingProcessor {
 								
 								else {
 									if(endB != startOfVariableSplitPart) {
-										getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,endB - readSequence.length() + 1,endB,'0');
+										getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,endB - readSequence.length() + 1,endB);
 										startOfVariableSplitPart = endB;
 									}
 									
@@ -1724,7 +1671,7 @@ public class MappingProcessor {
 								
 								foundValidSplit = true;
 								if(startA != startOfVariableSplitPart) {
-									getMismatchesForSplitPartA(mismatchesArrayForVariableSplitPart,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA,startA + readSequence.length() - 1,'0');
+									getMismatchesForSplitPartA(mismatchesArrayForVariableSplitPart,(location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA,startA + readSequence.length() - 1);
 									startOfVariableSplitPart = startA;
 								}
 								
@@ -1760,8 +1707,7 @@ public class MappingProcessor {
 											locationToHash.setStrandOfSpliceSignal(hasSpliceSignal);
 											
 											if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(locationToHash.getChr())) {
-												if((currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).containsKey(locationToHash.getEndA()) && currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).get(locationToHash.getEndA()).contains(locationToHash.getStartB())) ||
-												   (currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).containsKey(locationToHash.getStartB()) && currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).get(locationToHash.getStartB()).contains(locationToHash.getEndA()))){
+												if(currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).contains(locationToHash.getEndA(),locationToHash.getStartB()) || currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).contains(locationToHash.getStartB(),locationToHash.getEndA())) {
 													locationToHash.setOverlapsKnownJunction(true);
 												}
 											}
@@ -1799,8 +1745,7 @@ public class MappingProcessor {
 										
 										//in case an annotation is given check if the actual split overlaps with an annotated junction
 										if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(tmpLocation.getChr())) {
-											if((currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getEndA()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getEndA()).contains(tmpLocation.getStartB())) ||
-											   (currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getStartB()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getStartB()).contains(tmpLocation.getEndA()))){
+											if(currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getEndA(),tmpLocation.getStartB()) || currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getStartB(),tmpLocation.getEndA())) {
 												tmpLocation.setOverlapsKnownJunction(true);
 												foundLocationOverlappingKnownJunction = true;
 											}
@@ -1830,8 +1775,7 @@ public class MappingProcessor {
 										locationToHash.setStrandOfSpliceSignal(hasSpliceSignal);
 										
 										if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(locationToHash.getChr())) {
-											if((currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).containsKey(locationToHash.getEndA()) && currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).get(locationToHash.getEndA()).contains(locationToHash.getStartB())) ||
-											   (currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).containsKey(locationToHash.getStartB()) && currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).get(locationToHash.getStartB()).contains(locationToHash.getEndA()))){
+											if(currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).contains(locationToHash.getEndA(),locationToHash.getStartB()) || currentAnnotatedSpliceSiteMap.get(locationToHash.getChr()).contains(locationToHash.getStartB(),locationToHash.getEndA())) {
 												locationToHash.setOverlapsKnownJunction(true);
 											}
 										}
@@ -1852,15 +1796,8 @@ public class MappingProcessor {
 						
 						if(this.clipping && locationsToAdd.isEmpty() && !hasFullReadAlignment && !hasSplicedAlignment && !read.getId().contains("MSC")) {
 							
-							if(readSequenceRevComp == null && location.getStrand() == '-') {
-								readSequenceBuffer.setLength(0);
-								readSequenceBuffer.append(readSequence);
-								readSequenceBuffer.reverse();
-								for(int i = 0; i < readSequenceBuffer.length(); i++) {
-									readSequenceBuffer.setCharAt(i, substitute(readSequenceBuffer.charAt(i)));
-								}
-								readSequenceRevComp = readSequenceBuffer.toString();
-							}
+							if(readSequenceRevComp == null && location.getStrand() == '-')
+								readSequenceRevComp = ReadSequenceCodec.view(this.read2sequence.get(read.getId()), true);
 							
 							ArrayList<Triplet<Integer,Integer,Integer>> clippingIndices =  getBestLocalAlignmentIndices((location.getStrand() == '+')? readSequence : readSequenceRevComp,localReference,contextOffset, readSequenceBuffer, location.getStartA(), location.getStartA() + readSequence.length() -1 ,'0', 1, -4, this.maxMissmatches,this.seedLength,false,false);
 							for(int j = 0; j < clippingIndices.size(); j++) {
@@ -2019,12 +1956,10 @@ public class MappingProcessor {
 	}
 	
 	
-	private class PairComparator implements Comparator {
+	private class PairComparator implements Comparator<Pair<Integer,Integer>> {
 
 		@Override
-		public int compare(Object o1, Object o2) {
-			Pair<Integer,Integer> p1 = (Pair<Integer,Integer>)o1;
-			Pair<Integer,Integer> p2 = (Pair<Integer,Integer>)o2;
+		public int compare(Pair<Integer,Integer> p1, Pair<Integer,Integer> p2) {
 			return p1.getSecond().compareTo(p2.getSecond());
 		}
 		
@@ -2032,7 +1967,7 @@ public class MappingProcessor {
 	
 
 	
-	private ArrayList<ReadLocation> getSplitLocations(int start, int end, String readSequence, StringBuilder localReference, int[] mismatchesArrayForDownstreamSplits, int[] mismatchesArrayForUpstreamSplits, int contextOffset, String chr, char strand, TreeMap<Integer,HashSet<Integer>> hashedSplits, HashSet<String> insertionKeys, HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentAnnotatedSpliceSiteMap,ArrayList<ReadLocation> readLocationPool, ArrayList<int[]> mismatchArrayPool, boolean strandSpecific,boolean onlyUpstream, boolean onlyDownstream) {
+	private ArrayList<ReadLocation> getSplitLocations(int start, int end, String readSequence, PackedReferenceSequence localReference, int[] mismatchesArrayForDownstreamSplits, int[] mismatchesArrayForUpstreamSplits, int contextOffset, String chr, char strand, JunctionIndex hashedSplits, JunctionIndex insertionKeys, HashMap<String,JunctionIndex> currentAnnotatedSpliceSiteMap,ArrayList<ReadLocation> readLocationPool, ArrayList<int[]> mismatchArrayPool, boolean strandSpecific,boolean onlyUpstream, boolean onlyDownstream) {
 		//now we check for every full and partial read if it overlaps with an existing split
 		
 		String readSequenceRevComp = null;
@@ -2053,7 +1988,8 @@ public class MappingProcessor {
 		
 		ArrayList<Integer> splitPositions = new ArrayList<Integer>();
 		ArrayList<ReadLocation> locationsToAdd = new ArrayList<ReadLocation>();
-		NavigableMap<Integer,HashSet<Integer>> subMap;
+		int splitPositionA;
+		int splitPositionB;
 		
 		StringBuilder readSequenceBuffer = new StringBuilder();
 		StringBuilder donorSite = new StringBuilder();
@@ -2080,46 +2016,43 @@ public class MappingProcessor {
 		HashSet<Integer> insertionSizes = new HashSet<Integer>();
 		HashSet<String> newlyAddedSplits = new HashSet<String>();
 		StringBuilder splitKey = new StringBuilder();
-		String currentInsertionKey;
+		boolean isInsertion;
 		StringBuilder extendedSplitKey = new StringBuilder();
 		
 		
-		subMap = hashedSplits.subMap(start,true,end,true);
 		currentSplits.clear();
 		startOfVariableSplitPart = Integer.MIN_VALUE;
-		for(int splitPositionA : subMap.keySet()) {
-			for(int splitPositionB : subMap.get(splitPositionA)) {
-				
-				splitKey.setLength(0);
-				splitKey.append(splitPositionA).append('_').append(splitPositionB);
-				currentInsertionKey = splitKey.toString();
-				if((!onlyUpstream && !onlyDownstream)  || 
-					(onlyUpstream &&  (splitPositionB < splitPositionA)) ||
-					(onlyDownstream && splitPositionB >= splitPositionA) ||
-					insertionKeys.contains(currentInsertionKey)) {
-					
-					if(splitPositionB >= splitPositionA || insertionKeys.contains(currentInsertionKey)) {
-						if((splitPositionA - start + 1) == readSequence.length())
-							continue;
+		for(int j = hashedSplits.getFirstIndex(start); j < hashedSplits.size() && hashedSplits.getDonor(j) <= end; j++) {
+			splitPositionA = hashedSplits.getDonor(j);
+			splitPositionB = hashedSplits.getAcceptor(j);
+			
+			isInsertion = insertionKeys.contains(splitPositionA,splitPositionB);
+			if((!onlyUpstream && !onlyDownstream)  || 
+				(onlyUpstream &&  (splitPositionB < splitPositionA)) ||
+				(onlyDownstream && splitPositionB >= splitPositionA) ||
+				isInsertion) {
+				
+				if(splitPositionB >= splitPositionA || isInsertion) {
+					if((splitPositionA - start + 1) == readSequence.length())
+						continue;
+					
+					if(isInsertion) {
+						if(splitPositionA > start + readSequence.length()/2) {
+							if(readSequence.length() - ((splitPositionA - start + 1)) - (splitPositionA - splitPositionB + 1) < 0) 
+								continue;
+						}
 						
-						if(insertionKeys.contains(currentInsertionKey)) {
-							if(splitPositionA > start + readSequence.length()/2) {
-								if(readSequence.length() - ((splitPositionA - start + 1)) - (splitPositionA - splitPositionB + 1) < 0) 
-									continue;
-							}
-							
-							else {
-								if(splitPositionA - (start + splitPositionA - splitPositionB + 1) + 1 < 0) {
-									continue;
-								}
+						else {
+							if(splitPositionA - (start + splitPositionA - splitPositionB + 1) + 1 < 0) {
+								continue;
 							}
 						}
 					}
-					
-					currentSplits.add(new Split(splitPositionA,splitPositionB));
-					if(insertionKeys.contains(currentInsertionKey)) {
-						insertionSizes.add(splitPositionA - splitPositionB + 1);
-					}
+				}
+				
+				currentSplits.add(new Split(splitPositionA,splitPositionB));
+				if(isInsertion) {
+					insertionSizes.add(splitPositionA - splitPositionB + 1);
 				}
 			}
 		}
@@ -2136,8 +2069,8 @@ public class MappingProcessor {
 				readSequenceRevComp = readSequenceBuffer.toString();
 			}
 			
-			getMismatchesForSplitPartA(mismatchesArrayForDownstreamSplits,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,start,end,'0');
-			getMismatchesForSplitPartB(mismatchesArrayForUpstreamSplits,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,start,end,'0');
+			getMismatchesForSplitPartA(mismatchesArrayForDownstreamSplits,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,start,end);
+			getMismatchesForSplitPartB(mismatchesArrayForUpstreamSplits,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,start,end);
 			
 			mismatchArraysForDownstreamInsertions.clear();
 			for(int i = 1; i <= this.maxDelSize; i++) {
@@ -2151,7 +2084,7 @@ public class MappingProcessor {
 						mismatchArrayPool.add(tmpDownstream);
 						}
 					
-					getMismatchesForSplitPartA(tmpDownstream,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,start + i,end + i,'0');
+					getMismatchesForSplitPartA(tmpDownstream,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,start + i,end + i);
 					mismatchArraysForDownstreamInsertions.add(tmpDownstream);
 				}
 				else {
@@ -2165,14 +2098,12 @@ public class MappingProcessor {
 			currentSplitPosA = currentSplits.get(i).getSplitPositionA();
 			currentSplitPosB = currentSplits.get(i).getSplitPositionB();
 			
-			splitKey.setLength(0);
-			splitKey.append(currentSplitPosA).append('_').append(currentSplitPosB);
-			currentInsertionKey = splitKey.toString();
+			isInsertion = insertionKeys.contains(currentSplitPosA,currentSplitPosB);
 			
 				//s2 is downstream of s1
 				foundValidSplit = false;
 				hasInsertion = false;
-				if(currentSplitPosB >= currentSplitPosA || insertionKeys.contains(currentInsertionKey)) {
+				if(currentSplitPosB >= currentSplitPosA || isInsertion) {
 					startA = start;
 					endA = currentSplitPosA;
 					startB = currentSplitPosB;
@@ -2180,7 +2111,7 @@ public class MappingProcessor {
 
 					foundValidSplit = true;
 					
-					if(insertionKeys.contains(currentInsertionKey)) {										
+					if(isInsertion) {										
 						insertionSize = currentSplitPosA - currentSplitPosB + 1;
 						hasInsertion = true;
 					
@@ -2213,7 +2144,7 @@ public class MappingProcessor {
 								mismatches = mismatchesArrayForDownstreamSplits[endA - startA];
 							if(readSequence.length() - ((endA - startA + 1)) - insertionSize > 0) {
 								if(endB != startOfVariableSplitPart) {
-									getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,endB - readSequence.length() + 1,endB,'0');
+									getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,endB - readSequence.length() + 1,endB);
 									startOfVariableSplitPart = endB;
 								}
 								mismatches += mismatchesArrayForVariableSplitPart[readSequence.length() - ((endA - startA + 1)) - 1 - insertionSize];
@@ -2224,7 +2155,7 @@ public class MappingProcessor {
 				
 					else {
 						if(endB != startOfVariableSplitPart) {
-							getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,endB - readSequence.length() + 1,endB,'0');
+							getMismatchesForSplitPartB(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,endB - readSequence.length() + 1,endB);
 							startOfVariableSplitPart = endB;
 						}
 						mismatches = mismatchesArrayForDownstreamSplits[endA - startA] + mismatchesArrayForVariableSplitPart[readSequence.length() - ((endA - startA + 1)) - 1];
@@ -2246,7 +2177,7 @@ public class MappingProcessor {
 					foundValidSplit = true;
 					
 					if(startA != startOfVariableSplitPart) {
-						getMismatchesForSplitPartA(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,null,startA,startA + readSequence.length() - 1,'0');
+						getMismatchesForSplitPartA(mismatchesArrayForVariableSplitPart,(strand == '+')? readSequence : readSequenceRevComp,localReference,contextOffset,startA,startA + readSequence.length() - 1);
 						startOfVariableSplitPart = startA;
 					}
 					
@@ -2294,8 +2225,7 @@ public class MappingProcessor {
 							
 							//in case an annotation is given check if the actual split overlaps with an annotated junction
 							if(currentAnnotatedSpliceSiteMap != null && currentAnnotatedSpliceSiteMap.containsKey(tmpLocation.getChr())) {
-								if((currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getEndA()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getEndA()).contains(tmpLocation.getStartB())) ||
-								   (currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).containsKey(tmpLocation.getStartB()) && currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).get(tmpLocation.getStartB()).contains(tmpLocation.getEndA()))){
+								if(currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getEndA(),tmpLocation.getStartB()) || currentAnnotatedSpliceSiteMap.get(tmpLocation.getChr()).contains(tmpLocation.getStartB(),tmpLocation.getEndA())) {
 									tmpLocation.setOverlapsKnownJunction(true);
 								}
 							}
@@ -2310,12 +2240,12 @@ public class MappingProcessor {
 	}
 
 		
-	public void extendSplitAndFullAlignments(String multiMappingFilePath, Context context, StringBuilder localReference, int contextOffset, String outputFilePath, int minStartPositionOverlaps) {
+	public void extendSplitAndFullAlignments(String multiMappingFilePath, Context context, PackedReferenceSequence localReference, int contextOffset, String outputFilePath, int minStartPositionOverlaps) {
 		try {
 			
 			//hash splits
-			TreeMap<Integer,HashSet<Integer>> hashedSplits = new TreeMap<Integer,HashSet<Integer>>();
-			HashSet<String> insertionKeys = new HashSet<String>();
+			JunctionIndex hashedSplits = new JunctionIndex();
+			JunctionIndex insertionKeys = new JunctionIndex();
 			HashMap<String,Split> key2split = new HashMap<String,Split>();
 			String splitKey;
 			String currentLine;
@@ -2363,37 +2293,22 @@ public class MappingProcessor {
 					continue;
 					
 					
-				if(hashedSplits.containsKey(split.getSplitPositionA()))
-					hashedSplits.get(split.getSplitPositionA()).add(split.getSplitPositionB());
-				else {
-					HashSet<Integer> tmpSet = new HashSet<Integer>();
-					tmpSet.add(split.getSplitPositionB());
-					hashedSplits.put(split.getSplitPositionA(), tmpSet);
-				}
+				hashedSplits.add(split.getSplitPositionA(),split.getSplitPositionB());
 				
 				
 				if(split.getSplitPositionA() < split.getSplitPositionB()) {
-					if(hashedSplits.containsKey(split.getSplitPositionB())) {
-						hashedSplits.get(split.getSplitPositionB()).add(split.getSplitPositionA());
-					}
-					else {
-						HashSet<Integer> tmpSet = new HashSet<Integer>();
-						tmpSet.add(split.getSplitPositionA());
-						hashedSplits.put(split.getSplitPositionB(), tmpSet);
-					}
+					hashedSplits.add(split.getSplitPositionB(),split.getSplitPositionA());
 				}
 				
 				else {
-					tmpBuilder.setLength(0);
-					tmpBuilder.append(split.getSplitPositionA()).append('_').append(split.getSplitPositionB());
-					insertionKeys.add(tmpBuilder.toString());
+					insertionKeys.add(split.getSplitPositionA(),split.getSplitPositionB());
 				}
 				
 			}
 			key2split.clear();
 
 			
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentAnnotatedSpliceSiteMap = null;
+			HashMap<String,JunctionIndex> currentAnnotatedSpliceSiteMap = null;
 			if(!context.isStrandSpecific())
 				currentAnnotatedSpliceSiteMap = this.chr2annotatedSpliceSites;
 			if(context.isStrandSpecific() && context.getStrand().equals("+"))
@@ -2472,7 +2387,7 @@ public class MappingProcessor {
 				mismatchesOfOriginalAlignment = Integer.valueOf(splittedLine[8]);
 				strandOfSpliceSignal = splittedLine[9].charAt(0);
 				overlapsKnownJunction = Boolean.valueOf(splittedLine[10]);
-				readSequence = this.string2bitset.decompress(this.read2sequence.get(splittedLine[1]));
+				readSequence = this.readSequenceCodec.decompress(this.read2sequence.get(splittedLine[1]));
 				
 				tmpBuilder.setLength(0);
 				tmpBuilder.append(readSequence).append('_').append(startA).append('_').append(endA);
@@ -3047,9 +2962,9 @@ public class MappingProcessor {
 	}
 	
 	
-	private void addAnnotatedSpliceSitesToHash(Context context, TreeMap<Integer,HashSet<Integer>> hashedSplits) {
+	private void addAnnotatedSpliceSitesToHash(Context context, JunctionIndex hashedSplits) {
 		//in case we have given an annotation we also hash the predefined junctions here
-		HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentMap = null;
+		HashMap<String,JunctionIndex> currentMap = null;
 		if(!context.isStrandSpecific())
 			currentMap = this.chr2annotatedSpliceSites;
 		if(context.isStrandSpecific() && context.getStrand().equals("+"))
@@ -3057,15 +2972,8 @@ public class MappingProcessor {
 		else if(context.isStrandSpecific() && context.getStrand().equals("-"))
 			currentMap = this.chr2annotatedReverseSpliceSites;
 		
-		if(currentMap != null && currentMap.containsKey(context.getChr())) {
-			NavigableMap<Integer,HashSet<Integer>> subMap = currentMap.get(context.getChr()).subMap(context.getStart(), true, context.getEnd(), true);
-			for(int i : subMap.keySet()) {
-				if(hashedSplits.containsKey(i))
-					hashedSplits.get(i).addAll(subMap.get(i));
-				else 
-					hashedSplits.put(i,subMap.get(i));
-			}
-		}
+		if(currentMap != null && currentMap.containsKey(context.getChr()))
+			hashedSplits.addAll(currentMap.get(context.getChr()), context.getStart(), context.getEnd());
 	}
 	
 	
@@ -3073,8 +2981,8 @@ public class MappingProcessor {
 	public void extractBestMatchingAlignmentsInLocalResolution(Context context,boolean localContext) {
 		try {
 			//since we are seeking quite often into the file, we do not need a large buffer here.
-			BufferedRandomAccessFile upperReader = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
-			BufferedRandomAccessFile lowerReader = new BufferedRandomAccessFile(new File(this.multiMappingFilePath),"r",10240);
+			MappedLineReader upperReader = new MappedLineReader(new File(this.multiMappingFilePath));
+			MappedLineReader lowerReader = new MappedLineReader(new File(this.multiMappingFilePath));
 			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(this.outputPath)),10240);
 			long filePointerToFirstOccurence = upperReader.getFilePointer();
 			String currentLine = upperReader.getNextLine();
@@ -3840,48 +3748,60 @@ public class MappingProcessor {
 	
 	
 	public void extractBestMatchingAlignments(boolean isGlobalResolution) {
+		extractBestMatchingAlignments(isGlobalResolution,false);
+	}
+	
+	/**
+	 * 
+	 * @param isGlobalResolution
+	 * @param binaryOutput if set, the best matches are written as alignment records (see AlignmentRecordWriter) instead of text lines
+	 */
+	public void extractBestMatchingAlignments(boolean isGlobalResolution, boolean binaryOutput) {
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(new File(this.multiMappingFilePath)));
-			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(this.outputPath)));
+			UnsynchronizedBufferedWriter pw = null;
+			AlignmentRecordWriter recordWriter = null;
+			if(binaryOutput)
+				recordWriter = new AlignmentRecordWriter(this.outputPath);
+			else
+				pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(this.outputPath)));
 			String currentLine = br.readLine();
 			
 			if(currentLine == null) {
 				Date date = new Date();
 				//System.err.println(String.format("[%s]\tWARNING, found local context without any full reads.",date.toLocaleString()));
 				br.close();
-				pw.close();
+				if(binaryOutput)
+					recordWriter.close();
+				else
+					pw.close();
 				return;
 			}
 			
-			StringTokenizer st = new StringTokenizer(currentLine,"\t");
-			String currentContextId = st.nextToken();
-			String currentReadId = st.nextToken();
+			//every line is parsed once, in binary mode the records are written without formatting them again
+			AlignmentRecord record = new AlignmentRecord();
+			parseMappingLine(currentLine,record,binaryOutput);
+			String currentContextId = record.getContextId();
+			String currentReadId = record.getReadId();
 			String prevReadId = currentReadId;
-			//chr strand startA endA startB endB
-			st.nextToken();
-			st.nextToken();
 			
-			ArrayList<Pair<Integer,Integer>> coordinates;
-			Pattern commaPattern = Pattern.compile(",");
-			String[] splittedCoordinates = commaPattern.split(st.nextToken());
+			int coordinateCount = record.getCoordinateCount();
 			boolean isClippedLocation = false;
 			boolean isSplitLocation = false;
-			if(splittedCoordinates.length > 2) {
-				if(Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 2]) > 0)
+			if(coordinateCount > 2) {
+				if(record.getCoordinate(coordinateCount - 2) > 0)
 					isSplitLocation = true;
 				
-				else if(Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 2]) < 0 || Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 1]) < 0)
+				else if(record.getCoordinate(coordinateCount - 2) < 0 || record.getCoordinate(coordinateCount - 1) < 0)
 					isClippedLocation = true;
 				
 			}
 
 
-			int missmatches = Integer.valueOf(st.nextToken());
-			char hasKnownSpliceSignal = st.nextToken().charAt(0);
-			boolean overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-			st.nextToken();
-			st.nextToken();
-			boolean overlapsCleavageSite = st.nextToken().charAt(0) == '1';
+			int missmatches = record.getMismatches();
+			char hasKnownSpliceSignal = record.getStrandOfSpliceSignal();
+			boolean overlapsKnownJunction = record.overlapsKnownJunction();
+			boolean overlapsCleavageSite = record.getOverlapsPolyA() == '1';
 			boolean foundCandidateSplit = isSplitLocation;
 			
 			
@@ -3898,6 +3818,7 @@ public class MappingProcessor {
 			ArrayList<MultiMappingLine> currentClippedMappings = new ArrayList<MultiMappingLine>();
 			ArrayList<MultiMappingLine> mappingLinePool = new ArrayList<MultiMappingLine>();
 			MultiMappingLine tmpLine = new MultiMappingLine(currentLine,missmatches,-1,-1,isSplitLocation,hasKnownSpliceSignal,overlapsKnownJunction,overlapsCleavageSite);
+			record = tmpLine.setRecord(record);
 			
 			if(!isClippedLocation) {
 				currentMappings.add(tmpLine);
@@ -3909,30 +3830,25 @@ public class MappingProcessor {
 			mappingLinePool.add(tmpLine);
 			
 			while((currentLine = br.readLine()) != null) {
-				st = new StringTokenizer(currentLine,"\t");
-				currentContextId = st.nextToken();
-				currentReadId = st.nextToken();
-				//chr strand startA endA startB endB
-				st.nextToken();
-				st.nextToken();
-				splittedCoordinates = commaPattern.split(st.nextToken());
+				parseMappingLine(currentLine,record,binaryOutput);
+				currentContextId = record.getContextId();
+				currentReadId = record.getReadId();
 				
+				coordinateCount = record.getCoordinateCount();
 				isSplitLocation = false;
 				isClippedLocation = false;
-				if(splittedCoordinates.length > 2) {
-					if(Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 2]) > 0)
+				if(coordinateCount > 2) {
+					if(record.getCoordinate(coordinateCount - 2) > 0)
 						isSplitLocation = true;
 					
-					else if(Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 2]) < 0 || Integer.valueOf(splittedCoordinates[splittedCoordinates.length - 1]) < 0)
+					else if(record.getCoordinate(coordinateCount - 2) < 0 || record.getCoordinate(coordinateCount - 1) < 0)
 						isClippedLocation = true;
 				}
 				
-				missmatches = Integer.valueOf(st.nextToken());
-				hasKnownSpliceSignal = st.nextToken().charAt(0);
-				overlapsKnownJunction = Boolean.valueOf(st.nextToken());
-				st.nextToken();
-				st.nextToken();
-				overlapsCleavageSite = st.nextToken().charAt(0) == '1';
+				missmatches = record.getMismatches();
+				hasKnownSpliceSignal = record.getStrandOfSpliceSignal();
+				overlapsKnownJunction = record.overlapsKnownJunction();
+				overlapsCleavageSite = record.getOverlapsPolyA() == '1';
 				
 				if(prevReadId.equals(currentReadId)) {
 					
@@ -3944,6 +3860,7 @@ public class MappingProcessor {
 						tmpLine = new MultiMappingLine(currentLine,missmatches,-1,-1,isSplitLocation,hasKnownSpliceSignal,overlapsKnownJunction,overlapsCleavageSite);
 						mappingLinePool.add(tmpLine);
 					}
+					record = tmpLine.setRecord(record);
 					
 					if(!isClippedLocation) {
 						currentMappings.add(tmpLine);
@@ -4003,7 +3920,10 @@ public class MappingProcessor {
 					Collections.sort(currentMappings);
 					//in case we process a global context we have filter for reads which contain known splice signals or overlap known junctions
 					currentMappings = getReadsOverlappingKnownSignals(currentMappings,minMissmatches);
-					printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,pw);
+					if(binaryOutput)
+						printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,recordWriter);
+					else
+						printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,pw);
 					
 					minMissmatches = Integer.MAX_VALUE;
 					if(missmatches < minMissmatches && (!isGlobalResolution || !isClippedLocation))
@@ -4023,6 +3943,7 @@ public class MappingProcessor {
 						tmpLine = new MultiMappingLine(currentLine,missmatches,-1,-1,isSplitLocation,hasKnownSpliceSignal,overlapsKnownJunction,overlapsCleavageSite);
 						mappingLinePool.add(tmpLine);
 					}
+					record = tmpLine.setRecord(record);
 					
 					if(!isGlobalResolution || !isClippedLocation) {
 						currentMappings.add(tmpLine);
@@ -4075,10 +3996,16 @@ public class MappingProcessor {
 			
 			Collections.sort(currentMappings);
 			currentMappings = getReadsOverlappingKnownSignals(currentMappings,minMissmatches);
-			printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,pw);
+			if(binaryOutput)
+				printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,recordWriter);
+			else
+				printRead(currentMappings,minMissmatches,this.maxMissmatchDifference,pw);
 			
 			br.close();
-			pw.close();
+			if(binaryOutput)
+				recordWriter.close();
+			else
+				pw.close();
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -4113,7 +4040,7 @@ public class MappingProcessor {
 		public void run() {
 			try {
 				
-				BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(inputPath),"r",10000);
+				MappedLineReader braf = new MappedLineReader(new File(inputPath));
 				braf.seek(this.startFilePointer);
 				PrintWriter pw = new PrintWriter(new FileWriter(new File(this.outputFilePath)));
 				String currentLine = braf.getNextLine();
@@ -4314,8 +4241,8 @@ public class MappingProcessor {
 	
 	public void filterSplitCandidates(String inputPath, String outputDirPath,String outputFilePath, int maxMismatchDifference, int readLength, int threads, boolean pairedEnd) {
 		try {
-			BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(inputPath),"r",1024);
-			long fileSize = braf.getChannel().size();
+			MappedLineReader braf = new MappedLineReader(new File(inputPath));
+			long fileSize = braf.length();
 			long incRate = fileSize/threads;
 			long prevPosition = 0;
 			long currentPosition = 0;
@@ -4537,7 +4464,7 @@ public class MappingProcessor {
 		
 		public void run() {
 			try {
-				BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(inputFilePath), "r",10000);
+				MappedLineReader braf = new MappedLineReader(new File(inputFilePath));
 				UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(outputFilePath));
 				
 				braf.seek(this.startPointer);			
@@ -4864,8 +4791,8 @@ public class MappingProcessor {
 	
 	public void filterPairedEndCandidates(String inputFilePath, String outputDirPath, String outputFilePath, int readLength, int maxContextSize, int threads) {
 		try {
-			BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(inputFilePath),"r",1024);
-			long fileSize = braf.getChannel().size();
+			MappedLineReader braf = new MappedLineReader(new File(inputFilePath));
+			long fileSize = braf.length();
 			long incRate = fileSize/threads;
 			long prevPosition = 0;
 			long currentPosition = 0;
@@ -5265,6 +5192,26 @@ public class MappingProcessor {
 			}
 	}
 	
+	/**
+	 * parses a line of the internal multi mapping format. Lines which are written as binary records are checked for an exact round trip
+	 * (see AlignmentRecord.parse())
+	 */
+	private void parseMappingLine(String line, AlignmentRecord record, boolean binaryOutput) throws Exception {
+		if(binaryOutput)
+			record.parse(line);
+		else
+			record.parseFields(line);
+	}
+	
+	private void printRead(ArrayList<MultiMappingLine> mappings, int minMissmatches,int maxMissmatchDifference, AlignmentRecordWriter recordWriter) throws Exception {
+			for(int i = 0; i < mappings.size(); i++) {
+				if(mappings.get(i).getMissmatches() - minMissmatches <= maxMissmatchDifference)
+					recordWriter.write(mappings.get(i).getRecord());
+				else
+					break;
+			}
+	}
+	
 /*	private void printPartialReads(ArrayList<MultiMappingLine> mappings, IntervalTree<PartialReadAlignment> partialReads, int minMissmatches,int maxMissmatchDifference, UnsynchronizedBufferedWriter pw) throws Exception {
 		Collection<PartialReadAlignment> currentPartialReads;
 		for(int i = 0; i < mappings.size(); i++) {
@@ -5325,6 +5272,7 @@ public class MappingProcessor {
 	private class MultiMappingLine implements Comparable {
 
 		private String mappingLine;
+		private AlignmentRecord record;
 		private int missmatches;
 		private boolean isSplitLocation;
 		private char strandOfSpliceSignal;
@@ -5360,6 +5308,19 @@ public class MappingProcessor {
 			return this.mappingLine;
 		}
 		
+		public AlignmentRecord getRecord() {
+			return this.record;
+		}
+		
+		/**
+		 * sets the parsed record of the current line, returns the previous record for reuse
+		 */
+		public AlignmentRecord setRecord(AlignmentRecord record) {
+			AlignmentRecord prevRecord = this.record;
+			this.record = record;
+			return (prevRecord != null) ? prevRecord : new AlignmentRecord();
+		}
+		
 		public int getMissmatches() {
 			return this.missmatches;
 		}
@@ -5399,7 +5360,7 @@ public class MappingProcessor {
 	
 	
 	//expects the best matching alignments,splitted by chr and sorted by start position
-	public void resolveOverlappingSpliceSites(String mappingFilePath, int readLength,int maxMissmatches,StringBuilder localReference, int contextOffset, String outputPath) {
+	public void resolveOverlappingSpliceSites(String mappingFilePath, int readLength,int maxMissmatches,PackedReferenceSequence localReference, int contextOffset, String outputPath) {
 		try {
 			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(outputPath)),10240);
 			
@@ -5498,7 +5459,7 @@ public class MappingProcessor {
 						downstreamClippingLength = readLength - (downstreamClippingIndex  + 1);
 					
 						
-						readSequence = this.string2bitset.decompress(this.read2sequence.get(readId));
+						readSequence = this.readSequenceCodec.decompress(this.read2sequence.get(readId));
 						clippingIndices =  getBestLocalAlignmentIndices(readSequence,localReference,contextOffset, readSequenceBuffer, startA, startA + readSequence.length() -1 ,strand, 1, -4, maxMissmatches,this.seedLength,false,false);
 						
 						for(int j = 0; j < clippingIndices.size();j++) {
@@ -5533,8 +5494,8 @@ public class MappingProcessor {
 			HashMap<Integer,Double> clippedScores = getSplitScores(clippedCoverages,maxMissmatches);
 			clippedCoverages.clear();
 
-			BufferedRandomAccessFile br = new BufferedRandomAccessFile(mappingFile, "r",4096);
-			BufferedRandomAccessFile brForRandomSeeks = new BufferedRandomAccessFile(mappingFile, "r",4096);
+			MappedLineReader br = new MappedLineReader(mappingFile);
+			MappedLineReader brForRandomSeeks = new MappedLineReader(mappingFile);
 			prevFilePointer = br.getFilePointer();
 			while((currentLine = br.getNextLine()) != null) {
 				
@@ -5801,7 +5762,7 @@ public class MappingProcessor {
 		for(ExtendedReadLocation l : readLocations) {
 			
 			readLength = l.getStartB() - l.getEndA() + 1;
-			tmpSequence = this.string2bitset.decompress(this.read2sequence.get(l.getReadId())).toUpperCase();
+			tmpSequence = this.readSequenceCodec.decompress(this.read2sequence.get(l.getReadId()));
 			if(l.getStrand() == '-') {
 				readSequenceBuffer.setLength(0);
 				readSequenceBuffer.append(tmpSequence);
@@ -5937,7 +5898,7 @@ public class MappingProcessor {
 	
 	
 	@SuppressWarnings("unchecked")
-	private void resolveSpliceSites(ArrayList<ExtendedReadLocation> readLocations,HashMap<Integer,Double> splitScores, int readLength, UnsynchronizedBufferedWriter pw, BufferedRandomAccessFile br) throws Exception {
+	private void resolveSpliceSites(ArrayList<ExtendedReadLocation> readLocations,HashMap<Integer,Double> splitScores, int readLength, UnsynchronizedBufferedWriter pw, MappedLineReader br) throws Exception {
 		
 		//first check if the second split positions also overlap
 		ArrayList<ExtendedReadLocation> unsolvedLocations = new ArrayList<ExtendedReadLocation>();
@@ -5985,7 +5946,7 @@ public class MappingProcessor {
 	}
 	
 	
-	private void getAndPrintHighScoringSplitLocations(ArrayList<ExtendedReadLocation> locations,HashMap<Integer,HashSet<Integer>> containedSplits, HashMap<Integer,Double> splitScores, UnsynchronizedBufferedWriter pw, BufferedRandomAccessFile br) throws Exception {
+	private void getAndPrintHighScoringSplitLocations(ArrayList<ExtendedReadLocation> locations,HashMap<Integer,HashSet<Integer>> containedSplits, HashMap<Integer,Double> splitScores, UnsynchronizedBufferedWriter pw, MappedLineReader br) throws Exception {
 		//first determine best split position
 		double currentScore;
 		StringBuilder sb = new StringBuilder();
@@ -6019,7 +5980,7 @@ public class MappingProcessor {
 	}
 	
 	
-	private void getAndPrintHighScoringPolyAlocations(ArrayList<ExtendedReadLocation> locations, HashMap<Integer,Double> clippedScores, UnsynchronizedBufferedWriter pw, BufferedRandomAccessFile br) throws Exception {
+	private void getAndPrintHighScoringPolyAlocations(ArrayList<ExtendedReadLocation> locations, HashMap<Integer,Double> clippedScores, UnsynchronizedBufferedWriter pw, MappedLineReader br) throws Exception {
 		//first determine best polyA position
 		ArrayList<TranscriptEnd> transcriptEnds = new ArrayList<TranscriptEnd>();
 		HashSet<Integer> addedEnds = new HashSet<Integer>();
@@ -6188,7 +6149,7 @@ public class MappingProcessor {
 	}
 	
 	
-	private void printLocation(ExtendedReadLocation location,UnsynchronizedBufferedWriter pw, BufferedRandomAccessFile br, boolean overlapsPolyAtail) throws Exception {
+	private void printLocation(ExtendedReadLocation location,UnsynchronizedBufferedWriter pw, MappedLineReader br, boolean overlapsPolyAtail) throws Exception {
 		br.seek(location.getFilePointer());
 		pw.write(br.getNextLine());
 		
@@ -6390,7 +6351,7 @@ public class MappingProcessor {
 	}
 	
 	
-	public void buildAllMultiSplitCombinations(String multiMappingFilePath,String multiMappingOutputPath, boolean pairedend,StringBuilder localReference,int contextOffset) {
+	public void buildAllMultiSplitCombinations(String multiMappingFilePath,String multiMappingOutputPath, boolean pairedend,PackedReferenceSequence localReference,int contextOffset) {
 		HashMap<Integer,IntervalTree<ReadLocation>> currentInterval2location = null;
 		try {
 			
@@ -6540,7 +6501,7 @@ public class MappingProcessor {
 						if(!interval2locationPair.getFirst().isEmpty()) {
 							tmpReadId = interval2locationPair.getFirst().values().iterator().next().first().getReadId();
 							realReadId = doublePointPattern.split(tmpReadId)[0];
-							realReadSequence = this.string2bitset.decompress(this.read2sequence.get(realReadId));
+							realReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(realReadId));
 							realReadSequenceRevComp = getRevComplement(realReadSequence, readSequenceBuffer);
 							
 							
@@ -6559,7 +6520,7 @@ public class MappingProcessor {
 											}
 											
 											segmentReadSequences.clear();
-											segmentReadSequences.add(this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId())));
+											segmentReadSequences.add(this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId())));
 											determineCombinations(startLocation, i+1, maxIntervalIndex, interval2locationPair.getFirst(),currentCombinations,(startLocation.getCoordinates().get(0).getSecond() - startLocation.getCoordinates().get(0).getFirst() + 1) + (startLocation.getCoordinates().get(1).getSecond() - startLocation.getCoordinates().get(1).getFirst() + 1),realReadSequence,realReadSequenceRevComp,readSequenceBuffer,segmentReadSequences,localReference,contextOffset);
 										}
 									}
@@ -6574,7 +6535,7 @@ public class MappingProcessor {
 											while(locationIt.hasNext()) {
 												startLocation = locationIt.next();
 												segmentReadSequences.clear();
-												segmentReadSequence = this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId()));
+												segmentReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId()));
 												segmentReadSequences.add(segmentReadSequence);
 												generateNonOverlappingCoordintes(startLocation,segmentReadSequences,realReadSequence);
 												if(startLocation.getCoordinates() != null) {
@@ -6627,7 +6588,7 @@ public class MappingProcessor {
 						if(!interval2locationPair.getSecond().isEmpty()) {
 							tmpReadId = interval2locationPair.getSecond().values().iterator().next().first().getReadId();
 							realReadId = doublePointPattern.split(tmpReadId)[0];
-							realReadSequence = this.string2bitset.decompress(this.read2sequence.get(realReadId));
+							realReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(realReadId));
 							realReadSequenceRevComp = getRevComplement(realReadSequence, readSequenceBuffer);
 							currentCombinations.clear();
 							
@@ -6641,7 +6602,7 @@ public class MappingProcessor {
 												continue;
 											}
 											segmentReadSequences.clear();
-											segmentReadSequences.add(this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId())));
+											segmentReadSequences.add(this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId())));
 											determineCombinations(startLocation, i+1, maxIntervalIndex, interval2locationPair.getSecond(),currentCombinations,(startLocation.getCoordinates().get(0).getSecond() - startLocation.getCoordinates().get(0).getFirst() + 1) + (startLocation.getCoordinates().get(1).getSecond() - startLocation.getCoordinates().get(1).getFirst() + 1),realReadSequence,realReadSequenceRevComp,readSequenceBuffer,segmentReadSequences,localReference,contextOffset);
 										}
 									}
@@ -6656,7 +6617,7 @@ public class MappingProcessor {
 											while(locationIt.hasNext()) {
 												startLocation = locationIt.next();
 												segmentReadSequences.clear();
-												segmentReadSequence = this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId()));
+												segmentReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId()));
 												segmentReadSequences.add(segmentReadSequence);
 												generateNonOverlappingCoordintes(startLocation,segmentReadSequences,realReadSequence);
 												if(startLocation.getCoordinates() != null) {
@@ -6747,7 +6708,7 @@ public class MappingProcessor {
 					if(!interval2locationPair.getFirst().isEmpty()) {
 						tmpReadId = interval2locationPair.getFirst().values().iterator().next().first().getReadId();
 						realReadId = doublePointPattern.split(tmpReadId)[0];
-						realReadSequence = this.string2bitset.decompress(this.read2sequence.get(realReadId));
+						realReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(realReadId));
 						realReadSequenceRevComp = getRevComplement(realReadSequence, readSequenceBuffer);
 						currentCombinations.clear();
 						
@@ -6762,7 +6723,7 @@ public class MappingProcessor {
 										}
 										
 										segmentReadSequences.clear();
-										segmentReadSequences.add(this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId())));
+										segmentReadSequences.add(this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId())));
 										determineCombinations(startLocation, i+1, maxIntervalIndex, interval2locationPair.getFirst(),currentCombinations,(startLocation.getCoordinates().get(0).getSecond() - startLocation.getCoordinates().get(0).getFirst() + 1) + (startLocation.getCoordinates().get(1).getSecond() - startLocation.getCoordinates().get(1).getFirst() + 1),realReadSequence,realReadSequenceRevComp,readSequenceBuffer,segmentReadSequences,localReference,contextOffset);
 									}
 								}
@@ -6777,7 +6738,7 @@ public class MappingProcessor {
 										while(locationIt.hasNext()) {
 											startLocation = locationIt.next();
 											segmentReadSequences.clear();
-											segmentReadSequence = this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId()));
+											segmentReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId()));
 											segmentReadSequences.add(segmentReadSequence);
 											generateNonOverlappingCoordintes(startLocation,segmentReadSequences,realReadSequence);
 											if(startLocation.getCoordinates() != null) {
@@ -6830,7 +6791,7 @@ public class MappingProcessor {
 					if(!interval2locationPair.getSecond().isEmpty()) {
 						tmpReadId = interval2locationPair.getSecond().values().iterator().next().first().getReadId();
 						realReadId = doublePointPattern.split(tmpReadId)[0];
-						realReadSequence = this.string2bitset.decompress(this.read2sequence.get(realReadId));
+						realReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(realReadId));
 						realReadSequenceRevComp = getRevComplement(realReadSequence, readSequenceBuffer);
 						currentCombinations.clear();
 						
@@ -6844,7 +6805,7 @@ public class MappingProcessor {
 											continue;
 										}
 										segmentReadSequences.clear();
-										segmentReadSequences.add(this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId())));
+										segmentReadSequences.add(this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId())));
 										determineCombinations(startLocation, i+1, maxIntervalIndex, interval2locationPair.getSecond(),currentCombinations,(startLocation.getCoordinates().get(0).getSecond() - startLocation.getCoordinates().get(0).getFirst() + 1) + (startLocation.getCoordinates().get(1).getSecond() - startLocation.getCoordinates().get(1).getFirst() + 1),realReadSequence,realReadSequenceRevComp,readSequenceBuffer,segmentReadSequences,localReference,contextOffset);
 									}
 								}
@@ -6859,7 +6820,7 @@ public class MappingProcessor {
 										while(locationIt.hasNext()) {
 											startLocation = locationIt.next();
 											segmentReadSequences.clear();
-											segmentReadSequence = this.string2bitset.decompress(this.read2sequence.get(startLocation.getReadId()));
+											segmentReadSequence = this.readSequenceCodec.decompress(this.read2sequence.get(startLocation.getReadId()));
 											segmentReadSequences.add(segmentReadSequence);
 											generateNonOverlappingCoordintes(startLocation,segmentReadSequences,realReadSequence);
 											if(startLocation.getCoordinates() != null) {
@@ -7034,7 +6995,7 @@ public class MappingProcessor {
 	 * @return
 	 */
 	
-	private int getMismatchCountForClippedLocation(ReadLocation location, String readSequence, StringBuilder localReference, int contextOffset) {
+	private int getMismatchCountForClippedLocation(ReadLocation location, String readSequence, PackedReferenceSequence localReference, int contextOffset) {
 		StringBuilder refBuffer = new StringBuilder();
 		StringBuffer readBuffer = new StringBuffer();
 		Pair<Integer,Integer> coordinate;
@@ -7046,12 +7007,12 @@ public class MappingProcessor {
 			coordinate = location.getCoordinates().get(i);
 			
 			if(coordinate.getFirst() > location.getCoordinates().get(i-1).getSecond()) {
-				refBuffer.append(localReference.substring(coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1).toUpperCase());
+				refBuffer.append(localReference, coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1);
 				readBuffer.append(readSequence.substring(readPos, readPos + (coordinate.getSecond() - coordinate.getFirst() + 1)));
 				readPos += (coordinate.getSecond() - coordinate.getFirst() + 1);
 			}
 			else {
-				refBuffer.append(localReference.substring(location.getCoordinates().get(i-1).getSecond() - contextOffset + 1, coordinate.getSecond() - contextOffset + 1).toUpperCase());
+				refBuffer.append(localReference, location.getCoordinates().get(i-1).getSecond() - contextOffset + 1, coordinate.getSecond() - contextOffset + 1);
 				readBuffer.append(readSequence.substring(readPos + location.getCoordinates().get(i-1).getSecond() - coordinate.getFirst() + 1,readPos + (coordinate.getSecond() - coordinate.getFirst() + 1)));
 				readPos += (coordinate.getSecond() - coordinate.getFirst() + 1);
 				
@@ -7067,7 +7028,7 @@ public class MappingProcessor {
 	}
 	
 	
-	private int getMismatchCount(ReadLocation location, String readSequence, StringBuilder localReference, int contextOffset) {
+	private int getMismatchCount(ReadLocation location, String readSequence, PackedReferenceSequence localReference, int contextOffset) {
 		
 		StringBuilder refBuffer = new StringBuilder();
 		StringBuffer readBuffer = new StringBuffer();
@@ -7089,7 +7050,7 @@ public class MappingProcessor {
 		if(coordinate.getSecond() < coordinate.getFirst() || coordinate.getSecond() - contextOffset + 1 >= localReference.length()  || coordinate.getFirst() - contextOffset < 0)
 			return Integer.MAX_VALUE;
 		
-		refBuffer.append(localReference.substring(coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1).toUpperCase());
+		refBuffer.append(localReference, coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1);
 		readBuffer.append(readSequence.substring(readBuffer.length(), readBuffer.length() + (coordinate.getSecond() - coordinate.getFirst() + 1)));
 		
 		
@@ -7105,12 +7066,12 @@ public class MappingProcessor {
 			
 
 			if(coordinate.getFirst() > location.getCoordinates().get(i-1).getSecond()) {
-				refBuffer.append(localReference.substring(coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1).toUpperCase());
+				refBuffer.append(localReference, coordinate.getFirst() - contextOffset, coordinate.getSecond() - contextOffset + 1);
 				readBuffer.append(readSequence.substring(readPos, readPos + (coordinate.getSecond() - coordinate.getFirst() + 1)));
 				readPos += (coordinate.getSecond() - coordinate.getFirst() + 1);
 			}
 			else {
-				refBuffer.append(localReference.substring(location.getCoordinates().get(i-1).getSecond() - contextOffset + 1, coordinate.getSecond() - contextOffset + 1).toUpperCase());
+				refBuffer.append(localReference, location.getCoordinates().get(i-1).getSecond() - contextOffset + 1, coordinate.getSecond() - contextOffset + 1);
 				readBuffer.append(readSequence.substring(readPos + location.getCoordinates().get(i-1).getSecond() - coordinate.getFirst() + 1,readPos + (coordinate.getSecond() - coordinate.getFirst() + 1)));
 				insertionSize += location.getCoordinates().get(i-1).getSecond() - coordinate.getFirst() + 1;
 				readPos += (coordinate.getSecond() - coordinate.getFirst() + 1);
@@ -7241,7 +7202,7 @@ public class MappingProcessor {
 	
 	
 
-	private void determineCombinations(ReadLocation location, int currentIntervalIndex, int maxIntervalIndex, HashMap<Integer,IntervalTree<ReadLocation>> interval2tree, ArrayList<ReadLocation> combinations, int currentReadLength, String realReadSequence, String realReadSequenceRevComp, StringBuilder readSequenceBuffer, ArrayList<String> segmentReadSequences, StringBuilder localReference, int contextOffset) {
+	private void determineCombinations(ReadLocation location, int currentIntervalIndex, int maxIntervalIndex, HashMap<Integer,IntervalTree<ReadLocation>> interval2tree, ArrayList<ReadLocation> combinations, int currentReadLength, String realReadSequence, String realReadSequenceRevComp, StringBuilder readSequenceBuffer, ArrayList<String> segmentReadSequences, PackedReferenceSequence localReference, int contextOffset) {
 		
 		IntervalTree<ReadLocation> currentTree;
 		int intersectionLength;
@@ -7275,7 +7236,7 @@ public class MappingProcessor {
 						
 						tmpSegmentReadSequences = new ArrayList<String>();
 						tmpSegmentReadSequences.addAll(segmentReadSequences);
-						tmpSegmentReadSequences.add(this.string2bitset.decompress(this.read2sequence.get(intersectingIntervals.get(j).getReadId())));
+						tmpSegmentReadSequences.add(this.readSequenceCodec.decompress(this.read2sequence.get(intersectingIntervals.get(j).getReadId())));
 						
 						tmpCoordinates = new ArrayList<Pair<Integer,Integer>>();
 						tmpCoordinates.addAll(location.getCoordinates());
@@ -7430,12 +7391,29 @@ public class MappingProcessor {
 	}
 	                
 	
-	private ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> parseAnnotatedSplitPositions(String annotationFilePath,boolean strandSpecific) {
+	/**
+	 * parses the annotated junctions of the given annotation (own format or gtf) and writes them to a junction index file (see JunctionIndexFile),
+	 * which can be used instead of the annotation in subsequent runs.
+	 * @param referenceChrName name of one of the reference chromosomes, needed to match the chromosome names of a gtf file
+	 */
+	public void writeAnnotatedSpliceSiteIndex(String annotationFilePath, String gtfFilePath, String referenceChrName, boolean strandSpecific, String outputPath) throws Exception {
+		ArrayList<HashMap<String,JunctionIndex>> annotatedSpliceSites;
+		if(gtfFilePath != null)
+			annotatedSpliceSites = parseAnnotatedSplitPositionsFromGtf(gtfFilePath, referenceChrName, strandSpecific);
+		else
+			annotatedSpliceSites = parseAnnotatedSplitPositions(annotationFilePath, strandSpecific);
+		if(annotatedSpliceSites == null)
+			throw new Exception(String.format("Could not parse the junctions of %s.",(gtfFilePath != null) ? gtfFilePath : annotationFilePath));
+		
+		JunctionIndexFile.write(annotatedSpliceSites, (gtfFilePath != null) ? gtfFilePath : annotationFilePath, outputPath);
+	}
+	
+	private ArrayList<HashMap<String,JunctionIndex>> parseAnnotatedSplitPositions(String annotationFilePath,boolean strandSpecific) {
 		try {
-			ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> annotatedSpliceSites = new ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> hashedAnnotatedSplits = new HashMap<String,TreeMap<Integer,HashSet<Integer>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> hashedReverseAnnotatedSplits = new HashMap<String,TreeMap<Integer,HashSet<Integer>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentMap;
+			ArrayList<HashMap<String,JunctionIndex>> annotatedSpliceSites = new ArrayList<HashMap<String,JunctionIndex>>();
+			HashMap<String,JunctionIndex> hashedAnnotatedSplits = new HashMap<String,JunctionIndex>();
+			HashMap<String,JunctionIndex> hashedReverseAnnotatedSplits = new HashMap<String,JunctionIndex>();
+			HashMap<String,JunctionIndex> currentMap;
 			annotatedSpliceSites.add(hashedAnnotatedSplits);
 			if(strandSpecific)
 				annotatedSpliceSites.add(hashedReverseAnnotatedSplits);
@@ -7482,7 +7460,7 @@ public class MappingProcessor {
 					
 					
 					if(!currentMap.containsKey(chr))
-						currentMap.put(chr,new TreeMap<Integer,HashSet<Integer>>());
+						currentMap.put(chr,new JunctionIndex());
 					
 					currentLine = br.readLine();
 					splittedLine = tabPattern.split(currentLine);
@@ -7512,27 +7490,20 @@ public class MappingProcessor {
 							exonA = transcriptExons.get(j);
 							exonB = transcriptExons.get(j+1);
 
-							if(currentMap.get(chr).containsKey(exonA.getEnd()))
-								currentMap.get(chr).get(exonA.getEnd()).add(exonB.getStart());
-							else {
-								HashSet<Integer> tmpSet = new HashSet<Integer>();
-								tmpSet.add(exonB.getStart());
-								currentMap.get(chr).put(exonA.getEnd(), tmpSet);
-							}
-							
-							if(currentMap.get(chr).containsKey(exonB.getStart()))
-								currentMap.get(chr).get(exonB.getStart()).add(exonA.getEnd());
-							else {
-								HashSet<Integer> tmpSet = new HashSet<Integer>();
-								tmpSet.add(exonA.getEnd());
-								currentMap.get(chr).put(exonB.getStart(), tmpSet);
-							}
+							currentMap.get(chr).add(exonA.getEnd(),exonB.getStart());
+							currentMap.get(chr).add(exonB.getStart(),exonA.getEnd());
 						}
 						
 					}
 				}
 			}
 			br.close();
+			
+			//sort the indices here, afterwards they are only queried
+			for(HashMap<String,JunctionIndex> chr2junctions : annotatedSpliceSites) {
+				for(JunctionIndex junctions : chr2junctions.values())
+					junctions.sort();
+			}
 			return annotatedSpliceSites;
 		}
 		catch(Exception e) {
@@ -7541,12 +7512,12 @@ public class MappingProcessor {
 		}
 	}
 	
-	private ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> parseAnnotatedSplitPositionsFromGtf(String gtfFilePath, boolean strandSpecific) {
+	private ArrayList<HashMap<String,JunctionIndex>> parseAnnotatedSplitPositionsFromGtf(String gtfFilePath, String referenceChrName, boolean strandSpecific) {
 		try {
-			ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>> annotatedSpliceSites = new ArrayList<HashMap<String,TreeMap<Integer,HashSet<Integer>>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> hashedAnnotatedSplits = new HashMap<String,TreeMap<Integer,HashSet<Integer>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> hashedReverseAnnotatedSplits = new HashMap<String,TreeMap<Integer,HashSet<Integer>>>();
-			HashMap<String,TreeMap<Integer,HashSet<Integer>>> currentMap;
+			ArrayList<HashMap<String,JunctionIndex>> annotatedSpliceSites = new ArrayList<HashMap<String,JunctionIndex>>();
+			HashMap<String,JunctionIndex> hashedAnnotatedSplits = new HashMap<String,JunctionIndex>();
+			HashMap<String,JunctionIndex> hashedReverseAnnotatedSplits = new HashMap<String,JunctionIndex>();
+			HashMap<String,JunctionIndex> currentMap;
 			annotatedSpliceSites.add(hashedAnnotatedSplits);
 			if(strandSpecific)
 				annotatedSpliceSites.add(hashedReverseAnnotatedSplits);
@@ -7560,7 +7531,7 @@ public class MappingProcessor {
 			}
 			
 			//first check if we need a prefix.
-			String tmpChr = this.chr2rmap.keySet().iterator().next();
+			String tmpChr = referenceChrName;
 			String chrPrefix = "";
 			if(tmpChr.length() > 3 && tmpChr.substring(0,3).equals("chr"))
 				chrPrefix = "chr";
@@ -7599,7 +7570,7 @@ public class MappingProcessor {
 					currentMap = hashedReverseAnnotatedSplits;
 				
 				if(!currentMap.containsKey(chr))
-					currentMap.put(chr, new TreeMap<Integer,HashSet<Integer>>());
+					currentMap.put(chr, new JunctionIndex());
 				
 				if(splittedLine[2].equals("exon")) {
 					start = Integer.valueOf(splittedLine[3]);
@@ -7612,21 +7583,8 @@ public class MappingProcessor {
 							exonA = currentExons.get(j);
 							exonB = currentExons.get(j+1);
 
-							if(currentMap.get(chr).containsKey(exonA.getEnd()))
-								currentMap.get(chr).get(exonA.getEnd()).add(exonB.getStart());
-							else {
-								HashSet<Integer> tmpSet = new HashSet<Integer>();
-								tmpSet.add(exonB.getStart());
-								currentMap.get(chr).put(exonA.getEnd(), tmpSet);
-							}
-							
-							if(currentMap.get(chr).containsKey(exonB.getStart()))
-								currentMap.get(chr).get(exonB.getStart()).add(exonA.getEnd());
-							else {
-								HashSet<Integer> tmpSet = new HashSet<Integer>();
-								tmpSet.add(exonA.getEnd());
-								currentMap.get(chr).put(exonB.getStart(), tmpSet);
-							}
+							currentMap.get(chr).add(exonA.getEnd(),exonB.getStart());
+							currentMap.get(chr).add(exonB.getStart(),exonA.getEnd());
 						}
 						currentExons.clear();
 					}
@@ -7636,6 +7594,12 @@ public class MappingProcessor {
 				}
 			}
 			br.close();
+			
+			//sort the indices here, afterwards they are only queried
+			for(HashMap<String,JunctionIndex> chr2junctions : annotatedSpliceSites) {
+				for(JunctionIndex junctions : chr2junctions.values())
+					junctions.sort();
+			}
 			return annotatedSpliceSites;
 		}
 		catch(Exception e) {
@@ -0,0 +1,197 @@
+package main;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tools.PackedReferenceSequence;
+
+/**
+ * loads the chromosome sequences in processing order ahead of the contexts using them. Chromosomes are loaded by a separate
+ * thread as long as the sizes of the resident chromosomes fit into the given budget, at least one chromosome is always
+ * resident. Every user of a chromosome calls acquire() before and release() after using it, a chromosome is dropped
+ * when its last user releases it and the next chromosomes are scheduled.
+ *
+ * A chromosome without reference file is returned as empty sequence, a chromosome which cannot be loaded fails getSequence().
+ */
+public class ChromosomePrefetcher {
+
+	//memory for resident chromosome sequences (in MB)
+	public static final int DEFAULT_MEMORY_LIMIT = 1024;
+
+	private List<String> chrNames;
+	private Map<String,File> chrName2refFile;
+	private long memoryBudget;
+	private long usedMemory;
+	//index of the first chromosome (in processing order) which might not have been scheduled yet
+	private int nextChr;
+
+	private HashSet<String> scheduledChrs;
+	private HashMap<String,Future<PackedReferenceSequence>> chr2sequence;
+	private HashMap<String,Long> chr2size;
+	private HashMap<String,Integer> chr2users;
+	private ExecutorService loader;
+
+
+	/**
+	 * @param memoryLimit memory in MB which may be used by resident chromosome sequences
+	 */
+	public ChromosomePrefetcher(List<String> chrNames, Map<String,File> chrName2refFile, int memoryLimit) {
+		this.chrNames = new ArrayList<String>(chrNames);
+		this.chrName2refFile = chrName2refFile;
+		this.memoryBudget = (long)Math.max(1, memoryLimit) * 1024 * 1024;
+		this.usedMemory = 0;
+		this.nextChr = 0;
+		this.scheduledChrs = new HashSet<String>();
+		this.chr2sequence = new HashMap<String,Future<PackedReferenceSequence>>();
+		this.chr2size = new HashMap<String,Long>();
+		this.chr2users = new HashMap<String,Integer>();
+		this.loader = Executors.newSingleThreadExecutor();
+		schedule();
+	}
+
+
+	/**
+	 * registers a user of the given chromosome. The chromosome is loaded immediately if it has not been scheduled yet.
+	 */
+	public synchronized void acquire(String chrName) {
+		if(!this.chr2sequence.containsKey(chrName))
+			load(chrName);
+		Integer users = this.chr2users.get(chrName);
+		this.chr2users.put(chrName, (users == null) ? 1 : users + 1);
+	}
+
+	/**
+	 * waits until the given (acquired) chromosome is loaded and returns its sequence. Throws an ExecutionException if the
+	 * chromosome could not be loaded.
+	 */
+	public PackedReferenceSequence getSequence(String chrName) throws Exception {
+		Future<PackedReferenceSequence> sequence;
+		synchronized(this) {
+			sequence = this.chr2sequence.get(chrName);
+		}
+		if(sequence == null)
+			throw new IllegalStateException(String.format("chromosome %s has not been acquired", chrName));
+		return sequence.get();
+	}
+
+	/**
+	 * unregisters a user of the given chromosome, the chromosome is dropped when there are no more users
+	 */
+	public synchronized void release(String chrName) {
+		Integer users = this.chr2users.get(chrName);
+		if(users == null)
+			return;
+		if(users > 1) {
+			this.chr2users.put(chrName, users - 1);
+			return;
+		}
+
+		this.chr2users.remove(chrName);
+		Future<PackedReferenceSequence> sequence = this.chr2sequence.remove(chrName);
+		this.usedMemory -= this.chr2size.remove(chrName);
+		if(sequence.isDone()) {
+			try {
+				sequence.get().clear();
+			}
+			catch(Exception e) {
+				//a failed load is reported by getSequence()
+			}
+		}
+		schedule();
+	}
+
+	public synchronized void shutdown() {
+		this.loader.shutdownNow();
+		this.chr2sequence.clear();
+		this.chr2size.clear();
+		this.chr2users.clear();
+		this.usedMemory = 0;
+	}
+
+
+	/**
+	 * schedules the next chromosomes (in processing order) as long as they fit into the budget
+	 */
+	private void schedule() {
+		while(this.nextChr < this.chrNames.size()) {
+			String chrName = this.chrNames.get(this.nextChr);
+			if(this.scheduledChrs.contains(chrName)) {
+				this.nextChr++;
+				continue;
+			}
+			if(!this.chr2sequence.isEmpty() && this.usedMemory + getEstimatedSize(chrName) > this.memoryBudget)
+				break;
+			load(chrName);
+			this.nextChr++;
+		}
+	}
+
+	private void load(String chrName) {
+		this.scheduledChrs.add(chrName);
+		long size = getEstimatedSize(chrName);
+		this.chr2size.put(chrName, size);
+		this.usedMemory += size;
+		this.chr2sequence.put(chrName, this.loader.submit(new ChromosomeLoader(chrName, this.chrName2refFile.get(chrName))));
+	}
+
+	/**
+	 * size of the packed file if it exists, otherwise 3/8 of the fasta file (2 bits per base and the N bitmap)
+	 */
+	private long getEstimatedSize(String chrName) {
+		File chrFile = this.chrName2refFile.get(chrName);
+		if(chrFile == null)
+			return 0;
+		File packedFile = PackedReferenceSequence.getPackedFile(chrFile);
+		if(packedFile.isFile())
+			return packedFile.length();
+		return chrFile.length() * 3 / 8;
+	}
+
+	/**
+	 * replaces the estimated size of a loaded chromosome
+	 */
+	private synchronized void setSize(String chrName, long size) {
+		if(!this.chr2size.containsKey(chrName))
+			return;
+		this.usedMemory += size - this.chr2size.get(chrName);
+		this.chr2size.put(chrName, size);
+		schedule();
+	}
+
+
+	private class ChromosomeLoader implements Callable<PackedReferenceSequence> {
+
+		private String chrName;
+		private File chrFile;
+
+		public ChromosomeLoader(String chrName, File chrFile) {
+			this.chrName = chrName;
+			this.chrFile = chrFile;
+		}
+
+		@Override
+		public PackedReferenceSequence call() throws Exception {
+			PackedReferenceSequence sequence = new PackedReferenceSequence();
+			if(this.chrFile == null)
+				return sequence;
+			try {
+				//maps the packed chromosome, the packed file is built on first use of the reference
+				sequence.load(this.chrFile);
+			}
+			catch(Exception e) {
+				sequence.clear();
+				throw e;
+			}
+			setSize(this.chrName, (long)sequence.length() * 3 / 8);
+			return sequence;
+		}
+	}
+}
@@ -2,8 +2,6 @@ package main;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 public class Context {
 
@@ -21,8 +19,8 @@ public class Context {
 	private ArrayList<InitialRead> reads;
 	//key is the index of a read in the reads array
 	private HashMap<String,Long> partialAndFullReads2filePointer;
-	private TreeMap<Integer,MutableDouble> upstreamCoverage;
-	private TreeMap<Integer,MutableDouble> downstreamCoverage;
+	private CoverageTrack upstreamCoverage;
+	private CoverageTrack downstreamCoverage;
 	
 	public Context(String chr, int start, int end, String strand) {
 		this.chr = chr;
@@ -40,25 +38,25 @@ public class Context {
 		this.reads = new ArrayList<InitialRead>();
 		this.partialAndFullReads2filePointer = new HashMap<String,Long>();
 		
-		this.upstreamCoverage = new TreeMap<Integer,MutableDouble>();
-		this.downstreamCoverage = new TreeMap<Integer,MutableDouble>();
+		this.upstreamCoverage = new CoverageTrack(start,start - 1);
+		this.downstreamCoverage = new CoverageTrack(end + 1,end);
 		
 	}
 	
 	
-	public void setUpstreamCoverage(SortedMap<Integer,MutableDouble> coverage) {
-		this.upstreamCoverage.putAll(coverage);
+	public void setUpstreamCoverage(CoverageTrack coverage) {
+		this.upstreamCoverage = coverage;
 	}
 	
-	public void setDownstreamCoverage(SortedMap<Integer,MutableDouble> coverage) {
-		this.downstreamCoverage.putAll(coverage);
+	public void setDownstreamCoverage(CoverageTrack coverage) {
+		this.downstreamCoverage = coverage;
 	}
 	
-	public TreeMap<Integer,MutableDouble> getUpstreamCoverage() {
+	public CoverageTrack getUpstreamCoverage() {
 		return this.upstreamCoverage;
 	}
 	
-	public TreeMap<Integer,MutableDouble> getDownstreamCoverage() {
+	public CoverageTrack getDownstreamCoverage() {
 		return this.downstreamCoverage;
 	}
 	
@@ -142,8 +140,8 @@ public class Context {
 	}
 	
 	public void clearUpAndDownstreamCoverages() {
-		this.upstreamCoverage.clear();
-		this.downstreamCoverage.clear();
+		this.upstreamCoverage = new CoverageTrack(this.start,this.start - 1);
+		this.downstreamCoverage = new CoverageTrack(this.end + 1,this.end);
 	}
 	
 	
@@ -21,8 +21,10 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -39,20 +41,22 @@ import org.mapdb.Serializer;
 import org.mapdb.DB.BTreeMapMaker;
 
 import alignment.AlignmentCoordinator;
-import augmentedTree.IntervalTree;
 import context.ContextExtractor;
 import context.ContextProcessingCoordinator;
 import context.ContextResolver;
 import context.GlobalContextResolverPairedEnd;
 import context.GlobalContextResolverSingleEnd;
 import context.MappingProcessor;
-import tools.BufferedRandomAccessFile;
+import tools.ExternalMergeSort;
 import tools.FileSorter7;
+import tools.MappedLineReader;
+import tools.PackedReferenceSequence;
 import tools.ReadAligner;
+import tools.ReadFileIndex;
+import tools.ReadSequenceCodec;
 import tools.RmapProcessor;
 import tools.SamProcessor;
-import tools.String2Bitset;
-import tools.UnixSort;
+import tools.SpeciesLocator;
 
 
 public class ContextMap implements ActionListener {
@@ -104,6 +108,7 @@ public class ContextMap implements ActionListener {
 	private int maxMismatchDifference;
 	private String referencesDir;
 	private String annotationFilePath;
+	private String junctionIndexFilePath;
 	private String gtfFilePath;
 	private String indexDirPath;
 	private int minDistanceBetweenContext;
@@ -148,15 +153,14 @@ public class ContextMap implements ActionListener {
 	private final int read2sequenceSize = 20000000;
 	
 	
-	private AtomicInteger contextsNeedingBufferedChromosomeSequence;
 	private AtomicInteger contextsNeedingBufferedReadSequences;
 	
-	private AtomicInteger threadsBufferingReadSequences;
-	private AtomicInteger threadsBufferingChromosomeSequences;
+	//memory for resident chromosome sequences (in MB)
+	private int chromosomeMemory;
 	
-	public ContextMap(String contextmapVersion, String readFilePath, String samFilePath, String alignerName, String alignerBinPath, String alignerTmpDirPath, String alignerIndexerBinPath, ArrayList<String> genomeIndexBasePaths, String referencesDir, String annotationFilePath, String gtfFilePath, String indexDirPath, String outputDirPath, String readFormat, int readLength,
+	public ContextMap(String contextmapVersion, String readFilePath, String samFilePath, String alignerName, String alignerBinPath, String alignerTmpDirPath, String alignerIndexerBinPath, ArrayList<String> genomeIndexBasePaths, String referencesDir, String annotationFilePath, String gtfFilePath, String junctionIndexFilePath, String indexDirPath, String outputDirPath, String readFormat, int readLength,
 			int seedLength, int seedMissmatches, int maxMismatches, int maxMismatchDifference, int[] splitSeedSizes, int[] splitSeedMismatches, int maxIntronLength, int maxIntronCount, int maxHits, int threads,
-			boolean skipPass1,ArrayList<Boolean> skipSplitDetection, ArrayList<Boolean> skipMultiSplitDetection, boolean skipRealignment, int minDistanceBetweenContext, int maxContextSize, int maxGapSize, int minGapSize, int maxDelSize, int minNumberOfReadsInContext,boolean strandSpecific, boolean pairedEnd, boolean preferExtensionsWithKnownSpliceSignals, boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean updateQueue, int updateInterval, boolean printMultiMappings, boolean printSecondBestChr, boolean lowCoverage, boolean clipping, boolean polyA, boolean strandedPolyA, int minPolyALength, int minPolyAReadCount, double upperPolyACutoff, double lowerPolyACutoff, int maxConsideredClippingLength, boolean verbose, boolean developer, boolean keepTmp, boolean writeSequenceDB, boolean autosetAlignmentOptions, int databaseSortBatchSize) {
+			boolean skipPass1,ArrayList<Boolean> skipSplitDetection, ArrayList<Boolean> skipMultiSplitDetection, boolean skipRealignment, int minDistanceBetweenContext, int maxContextSize, int maxGapSize, int minGapSize, int maxDelSize, int minNumberOfReadsInContext,boolean strandSpecific, boolean pairedEnd, boolean preferExtensionsWithKnownSpliceSignals, boolean skipDenovoJunctions, boolean skipNonCanonicalJunctions, boolean updateQueue, int updateInterval, boolean printMultiMappings, boolean printSecondBestChr, boolean lowCoverage, boolean clipping, boolean polyA, boolean strandedPolyA, int minPolyALength, int minPolyAReadCount, double upperPolyACutoff, double lowerPolyACutoff, int maxConsideredClippingLength, boolean verbose, boolean developer, boolean keepTmp, boolean writeSequenceDB, boolean autosetAlignmentOptions, int databaseSortBatchSize, int chromosomeMemory) {
 		
 		//init the global settings
 		this.contextmapVersion = contextmapVersion;
@@ -171,6 +175,7 @@ public class ContextMap implements ActionListener {
 		this.referencesDir = referencesDir;
 		this.annotationFilePath = annotationFilePath;
 		this.gtfFilePath = gtfFilePath;
+		this.junctionIndexFilePath = junctionIndexFilePath;
 		this.indexDirPath = indexDirPath;
 		this.readFormat = readFormat;
 		this.readLength = readLength;
@@ -235,10 +240,8 @@ public class ContextMap implements ActionListener {
 		else
 			this.minStartPositionOverlaps = 4;
 		
-		this.contextsNeedingBufferedChromosomeSequence = new AtomicInteger(0);
 		this.contextsNeedingBufferedReadSequences = new AtomicInteger(0);
-		this.threadsBufferingReadSequences = new AtomicInteger(0);
-		this.threadsBufferingChromosomeSequences = new AtomicInteger(0);
+		this.chromosomeMemory = (chromosomeMemory > 0) ? chromosomeMemory : ChromosomePrefetcher.DEFAULT_MEMORY_LIMIT;
 		this.verbose = verbose;
 		this.developer = developer;
 		this.keepTmp = keepTmp;
@@ -378,50 +381,21 @@ public class ContextMap implements ActionListener {
 			checkReader.close();
 			
 			//sorting rmap file by read ids in order to pre filter split candidates.
+			//the candidates of a read come from several alignment steps (and indices), they are grouped by a single sort of the whole file.
 			File[] splittedFiles;
 			int threadIndex;
 			File[] filesToDelete;
 			maxSortThreads = numberOfThreads;
 			
-			ExecutorService sortExecutor = Executors.newFixedThreadPool(maxSortThreads);
-			ArrayList<Future> futures = new ArrayList<Future>();
+			ExecutorService sortExecutor;
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
 		
 			date = new Date();
-			System.out.println(String.format("[%s]\tSplitting and sorting candidate mappings by read id.",date.toLocaleString()));
-			rmapProcessor.splitByChromosome(this.tmpOutputDirPath + "/all_reads.rmap",this.tmpOutputDirPath + "/splitted_rmap",numberOfThreads);
-		
-			splittedFiles = new File(this.tmpOutputDirPath + "/splitted_rmap").listFiles();
-			threadIndex = 0; 
-			for(File rmapFile : splittedFiles) {
-				//futures.add(sortExecutor.submit(new FileSorter7(rmapFile.getAbsolutePath(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + rmapFile.getName(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + threadIndex,new int[]{0},100,"\t",false)));
-				futures.add(sortExecutor.submit(new UnixSort(rmapFile.getAbsolutePath(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + rmapFile.getName(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + threadIndex,"\t",1,500,false,true,this.verbose)));
-				threadIndex++;
-			}
-			sortExecutor.shutdown();
-			//check if there is still a thread running
-			for(Future future : futures) {
-				future.get();
-			}
-			futures.clear();
-			//delete unsorted rmap files
-			filesToDelete = new File(this.tmpOutputDirPath + "/splitted_rmap").listFiles();
-			for(File toDel : filesToDelete) {
-				toDel.delete();
-			}
-			
-			//delete tmp directories
-			filesToDelete = new File(this.tmpOutputDirPath + "/splitted_rmap_sorted/").listFiles();
-			for(File folderToDel : filesToDelete) {
-				if(folderToDel.isDirectory())
-					deleteFolderWithContent(folderToDel);
-			}
-			
-			//now merge sorted files
-			new FileSorter7(new File(this.tmpOutputDirPath + "/splitted_rmap_sorted"),new int[]{0},100,"\t",false).mergeFiles(new File(this.tmpOutputDirPath + "/splitted_rmap_sorted"), this.tmpOutputDirPath + "/all_reads.rmap.sorted",100);
-			filesToDelete = new File(this.tmpOutputDirPath + "/splitted_rmap_sorted").listFiles();
-			for(File toDel : filesToDelete) {
-				toDel.delete();
-			}
+			System.out.println(String.format("[%s]\tSorting candidate mappings by read id.",date.toLocaleString()));
+			ExternalMergeSort readIdSorter = new ExternalMergeSort();
+			readIdSorter.sort(this.tmpOutputDirPath + "/all_reads.rmap", this.tmpOutputDirPath + "/all_reads.rmap.sorted", this.tmpOutputDirPath + "/read_id_sort_tmp", "\t", 1, 500 * maxSortThreads, false, true, this.verbose);
+			if(new File(this.tmpOutputDirPath + "/read_id_sort_tmp").isDirectory())
+				deleteFolderWithContent(new File(this.tmpOutputDirPath + "/read_id_sort_tmp"));
 			
 			
 			
@@ -469,12 +443,12 @@ public class ContextMap implements ActionListener {
 			threadIndex = 0; 
 			for(File rmapFile : splittedFiles) {
 				//futures.add(sortExecutor.submit(new FileSorter7(rmapFile.getAbsolutePath(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + rmapFile.getName(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + threadIndex,new int[]{3},100,"\t",true)));
-				futures.add(sortExecutor.submit(new UnixSort(rmapFile.getAbsolutePath(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + rmapFile.getName(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + threadIndex,"\t",4,500,true,true,this.verbose)));
+				futures.add(sortExecutor.submit(new ExternalMergeSort(rmapFile.getAbsolutePath(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + rmapFile.getName(),this.tmpOutputDirPath + "/splitted_rmap_sorted/" + threadIndex,"\t",4,500,true,true,this.verbose)));
 				threadIndex++;
 			}
 			sortExecutor.shutdown();
 			//check if there is still a thread running
-			for(Future future : futures) {
+			for(Future<?> future : futures) {
 				future.get();
 			}
 			futures.clear();
@@ -568,19 +542,19 @@ public class ContextMap implements ActionListener {
 			date = new Date();
 			System.out.println(String.format("[%s]\tProcessing local contexts.",date.toLocaleString()));
 			
-			MappingProcessor mappingProcessor = new MappingProcessor(this.tmpOutputDirPath + "/splitted_rmap_sorted",this.referencesDir,this.annotationFilePath,this.gtfFilePath,this.readFilePath,this.readFormat,this.readLength,Integer.valueOf(this.maxMismatches),Integer.valueOf(this.maxMismatchDifference),Integer.valueOf(this.maxIntronLength), this.maxDelSize,Integer.valueOf(this.seedLength),Integer.valueOf(this.seedMissmatches),this.preferExtensionsWithKnownSpliceSignals,this.skipDenovoJunctions,this.skipNonCanonicalJunctions,this.strandSpecific,this.clipping, this.polyA, this.strandedPolyA, this.minPolyALength,this.minPolyAReadCount,this.upperPolyACutoff,this.lowerPolyACutoff,this.maxConsideredClippingLength);
+			MappingProcessor mappingProcessor = new MappingProcessor(this.tmpOutputDirPath + "/splitted_rmap_sorted",this.referencesDir,this.annotationFilePath,this.gtfFilePath,this.junctionIndexFilePath,this.readFilePath,this.readFormat,this.readLength,Integer.valueOf(this.maxMismatches),Integer.valueOf(this.maxMismatchDifference),Integer.valueOf(this.maxIntronLength), this.maxDelSize,Integer.valueOf(this.seedLength),Integer.valueOf(this.seedMissmatches),this.preferExtensionsWithKnownSpliceSignals,this.skipDenovoJunctions,this.skipNonCanonicalJunctions,this.strandSpecific,this.clipping, this.polyA, this.strandedPolyA, this.minPolyALength,this.minPolyAReadCount,this.upperPolyACutoff,this.lowerPolyACutoff,this.maxConsideredClippingLength);
 			IOCoordinator ioCoordinator = new IOCoordinator(this.maxIOThreads);
 			boolean chrSequenceAvailable;
 			
-			ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
-			futures.clear();
-			Future tmpFuture;
+			//contexts run on the scheduler's workers in cost order, the read sequence parsers share them
+			ContextScheduler contextScheduler = new ContextScheduler(numberOfThreads);
+			ExecutorService executor = contextScheduler.getExecutor();
 			
-			HashMap<String,IntervalTree<Microbe>> chr2intervalTree = null;
-			IntervalTree<Microbe> currentIntervalTree;
+			HashMap<String,SpeciesLocator<Microbe>> chr2genomeLocator = null;
+			SpeciesLocator<Microbe> currentGenomeLocator;
 			if(this.indexDirPath != null) {
-				chr2intervalTree = buildIntervalTrees(this.indexDirPath);
-				filterIntervalTrees(chr2intervalTree,contexts);
+				chr2genomeLocator = buildSpeciesLocators(this.indexDirPath);
+				filterSpeciesLocators(chr2genomeLocator,contexts);
 				
 			}
 			
@@ -617,16 +591,9 @@ public class ContextMap implements ActionListener {
 				}
 			}
 			
-			//mapping chrName -> sequence
-			StringBuilder sb = new StringBuilder();
-			ChromosomeSequenceParser csp;
-			if(chrName2refFile.containsKey(chrNames.get(0))) {
-				csp = new ChromosomeSequenceParser(sb,chrName2refFile.get(chrNames.get(0)));
-				csp.addListener(this);
-				executor.submit(csp);
-				this.threadsBufferingChromosomeSequences.incrementAndGet();
-			}
-			boolean chrPreBuffered;
+			//mapping chrName -> sequence, the next chromosomes are loaded while the contexts of the current one are processed
+			ChromosomePrefetcher chromosomePrefetcher = new ChromosomePrefetcher(chrNames,chrName2refFile,this.chromosomeMemory);
+			PackedReferenceSequence sb;
 			
 			
 			//mapping readId -> sequence
@@ -634,14 +601,18 @@ public class ContextMap implements ActionListener {
 			Set<String> readIds = null;
 			int alreadyProcessedContexts = 0;
 			int newlyBufferedContexts = contexts.get(chrNames.get(0)).size();
-			ReadSequenceParser rsp = null;
-			MscSequenceParser mscp = null;
+			ReadFileIndex readFileIndex = null;
+			ArrayList<Future<?>> readBufferingTasks = new ArrayList<Future<?>>();
 			//readIds = new HashSet<String>();
 			DB readIdDb = DBMaker.newMemoryDB().transactionDisable().closeOnJvmShutdown().cacheSize(1000000).make();
 			readIds = readIdDb.createHashSet("readIds").counterEnable().serializer(Serializer.STRING).makeOrGet();
 			
 			if(!this.writeSequenceDB) {
-				readFps = getReadFilePointers(this.readFilePath, this.threads);
+				//with a read index only the sequences of the currently needed reads are read, otherwise the whole read file is scanned per batch
+				if(new File(this.readFilePath + ReadFileIndex.FILE_EXTENSION).isFile())
+					readFileIndex = new ReadFileIndex(this.readFilePath + ReadFileIndex.FILE_EXTENSION);
+				else
+					readFps = getReadFilePointers(this.readFilePath, this.threads);
 				
 				//db = DBMaker.newMemoryDB().transactionDisable().make();
 				//read2sequence = db.createHashMap("read2sequence").keySerializer(Serializer.STRING).valueSerializer(Serializer.STRING).makeOrGet();
@@ -650,20 +621,8 @@ public class ContextMap implements ActionListener {
 			
 				alreadyProcessedContexts = 0;
 				newlyBufferedContexts = getNextReadIds(contexts.get(chrNames.get(0)),readIds, chrName2rmapPath.get(chrNames.get(0)), alreadyProcessedContexts,this.read2sequenceSize);
-				for(Pair<Long,Long> fpPair : readFps) {
-					rsp = new ReadSequenceParser(readIds, read2sequence, fpPair.getFirst(), fpPair.getSecond(), this.readFilePath);
-					rsp.addListener(this);
-					executor.submit(rsp);
-					this.threadsBufferingReadSequences.incrementAndGet();
-				}
-				mscp = new MscSequenceParser(readIds, read2sequence, chr2Name2MscPath.get(chrNames.get(0)));
-				mscp.addListener(this);
-				executor.submit(mscp);
-				this.threadsBufferingReadSequences.incrementAndGet();
-				
-				while(this.threadsBufferingReadSequences.get() != 0) {
-					Thread.sleep(500);
-				}
+				readBufferingTasks = bufferReadSequences(executor, readIds, read2sequence, readFps, readFileIndex, chr2Name2MscPath.get(chrNames.get(0)));
+				awaitBufferedReadSequences(readBufferingTasks);
 				readIds.clear();
 			}
 			
@@ -673,52 +632,40 @@ public class ContextMap implements ActionListener {
 			
 			for(int k = 0; k < chrNames.size(); k++) {
 				
-				while(this.threadsBufferingChromosomeSequences.get() != 0) {
-					Thread.sleep(500);
-				}
-				chrPreBuffered = false;
-				mappingProcessor.setCurrentChromosome(sb);
-				
 				chrName = chrNames.get(k);
+				//held until all contexts of the chromosome are submitted, every context holds its own reference
+				chromosomePrefetcher.acquire(chrName);
+				try {
+					sb = chromosomePrefetcher.getSequence(chrName);
+				}
+				catch(ExecutionException e) {
+					e.getCause().printStackTrace();
+					date = new Date();
+					System.err.println(String.format("[%s]\tCould not load the sequence of chr: %s. Aborting ContextMap run.",date.toLocaleString(),chrName));
+					System.exit(1);
+					return;
+				}
 				chr2length.put(chrName,sb.length());
 				
-				if(chr2intervalTree != null && chr2intervalTree.containsKey(chrName))
-					currentIntervalTree = chr2intervalTree.get(chrName);
+				if(chr2genomeLocator != null && chr2genomeLocator.containsKey(chrName))
+					currentGenomeLocator = chr2genomeLocator.get(chrName);
 				else
-					currentIntervalTree = null;
+					currentGenomeLocator = null;
 				
 				ArrayList<Context> currentContexts = contexts.get(chrName);
 				
 				if(sb.length() == 0) {
 					date = new Date();
 					System.err.println(String.format("[%s]\tWARNING, could not find sequence for chr: %s",date.toLocaleString(),chrName));
+					chromosomePrefetcher.release(chrName);
 					if(k < chrNames.size() - 1) {
-						
-						sb = new StringBuilder();
-						if(chrName2refFile.containsKey(chrNames.get(k+1))) {
-							csp = new ChromosomeSequenceParser(sb,chrName2refFile.get(chrNames.get(k+1)));
-							csp.addListener(this);
-							executor.submit(csp);
-							this.threadsBufferingChromosomeSequences.incrementAndGet();
-						}
-						
-						
 						if(!this.writeSequenceDB) {
 							read2sequence = new ConcurrentHashMap<String,long[]>();
 							//db = DBMaker.newMemoryDB().transactionDisable().make();
 							//read2sequence = db.createHashMap("read2sequence").keySerializer(Serializer.STRING).valueSerializer(Serializer.STRING).makeOrGet();
 							
 							newlyBufferedContexts = getNextReadIds(contexts.get(chrNames.get(k+1)),readIds, chrName2rmapPath.get(chrNames.get(k+1)), 0,read2sequenceSize);
-							for(Pair<Long,Long> fpPair : readFps) {
-								rsp = new ReadSequenceParser(readIds, read2sequence, fpPair.getFirst(), fpPair.getSecond(), this.readFilePath);
-								rsp.addListener(this);
-								executor.submit(rsp);
-								this.threadsBufferingReadSequences.incrementAndGet();
-							}
-							mscp = new MscSequenceParser(readIds, read2sequence, chr2Name2MscPath.get(chrNames.get(k+1)));
-							mscp.addListener(this);
-							executor.submit(mscp);
-							this.threadsBufferingReadSequences.incrementAndGet();
+							readBufferingTasks = bufferReadSequences(executor, readIds, read2sequence, readFps, readFileIndex, chr2Name2MscPath.get(chrNames.get(k+1)));
 						}
 						else {
 							newlyBufferedContexts = contexts.get(chrNames.get(k+1)).size();
@@ -731,18 +678,18 @@ public class ContextMap implements ActionListener {
 				alreadyProcessedContexts = 0;
 				while(alreadyProcessedContexts < currentContexts.size()) {
 					
-					while(this.threadsBufferingReadSequences.get() != 0) {
-						Thread.sleep(500);
-					}
+					awaitBufferedReadSequences(readBufferingTasks);
 					readIds.clear();
 					mappingProcessor.setCurrentReadSequences(read2sequence);
 					
 					foundLargeContext = false;
+					//contexts are sorted by decreasing cost, so the most expensive contexts start first
 					for(int i = alreadyProcessedContexts; i < alreadyProcessedContexts + newlyBufferedContexts; i++) {
-						ContextProcessingCoordinator coordinator = new ContextProcessingCoordinator(mappingProcessor,ioCoordinator,currentContexts.get(i),chr2rmap.get(chrName), String.format("%s/%s_thread_%s",this.tmpOutputDirPath,chrName,i),currentIntervalTree,windowSizes,maxMismatchDifference,Integer.valueOf(maxMismatches),minStartPositionOverlaps,readLength,this.maxContextSize,this.maxGapSize,this.preferExtensionsWithKnownSpliceSignals,skipDenovoJunctions,this.skipNonCanonicalJunctions,this.updateQueue, this.pairedEnd, this.updateInterval,this.verbose,this.developer,(currentContexts.get(i).getContainedReads() > this.read2sequenceSize));
+						ContextProcessingCoordinator coordinator = new ContextProcessingCoordinator(mappingProcessor,ioCoordinator,chromosomePrefetcher,chrName,currentContexts.get(i),chr2rmap.get(chrName), String.format("%s/%s_thread_%s",this.tmpOutputDirPath,chrName,i),currentGenomeLocator,windowSizes,maxMismatchDifference,Integer.valueOf(maxMismatches),minStartPositionOverlaps,readLength,this.maxContextSize,this.maxGapSize,this.preferExtensionsWithKnownSpliceSignals,skipDenovoJunctions,this.skipNonCanonicalJunctions,this.updateQueue, this.pairedEnd, this.updateInterval,this.verbose,this.developer,(currentContexts.get(i).getContainedReads() > this.read2sequenceSize));
 						coordinator.addListener(this);
-						futures.add(executor.submit(coordinator));
-						this.contextsNeedingBufferedChromosomeSequence.incrementAndGet();
+						coordinator.setKeepTmp(this.keepTmp);
+						chromosomePrefetcher.acquire(chrName);
+						contextScheduler.submit(coordinator);
 						if(!this.writeSequenceDB)
 							this.contextsNeedingBufferedReadSequences.incrementAndGet();
 						
@@ -751,47 +698,21 @@ public class ContextMap implements ActionListener {
 					}
 					
 					if(foundLargeContext) {
-						while(this.contextsNeedingBufferedReadSequences.get() > 0) {
-							Thread.sleep(500);
-						}
+						awaitReleasedReadSequences();
 						
 						mappingProcessor.getCurrentReadSequence().clear();
-						for(int i = 0; i < futures.size(); i++) {
-							tmpFuture = futures.get(i);
-							tmpFuture.get();
-						}
+						contextScheduler.awaitCompletion();
 					}
 					
 					
 					
-					if(!chrPreBuffered && k < chrNames.size() - 1) {
-						sb = new StringBuilder();
-						if(chrName2refFile.containsKey(chrNames.get(k+1))) {
-							csp = new ChromosomeSequenceParser(sb,chrName2refFile.get(chrNames.get(k+1)));
-							csp.addListener(this);
-							executor.submit(csp);
-							this.threadsBufferingChromosomeSequences.incrementAndGet();
-						}
-						chrPreBuffered = true;
-					}
-					
-					
 					alreadyProcessedContexts += newlyBufferedContexts;
 					
 					if(alreadyProcessedContexts < currentContexts.size()) {
 						if(!writeSequenceDB) {
 							read2sequence = new ConcurrentHashMap<String,long[]>();
 							newlyBufferedContexts = getNextReadIds(contexts.get(chrName),readIds, chrName2rmapPath.get(chrName), alreadyProcessedContexts,read2sequenceSize);
-							for(Pair<Long,Long> fpPair : readFps) {
-								rsp = new ReadSequenceParser(readIds, read2sequence, fpPair.getFirst(), fpPair.getSecond(), this.readFilePath);
-								rsp.addListener(this);
-								executor.submit(rsp);
-								this.threadsBufferingReadSequences.incrementAndGet();
-							}
-							mscp = new MscSequenceParser(readIds, read2sequence, chr2Name2MscPath.get(chrName));
-							mscp.addListener(this);
-							executor.submit(mscp);
-							this.threadsBufferingReadSequences.incrementAndGet();
+							readBufferingTasks = bufferReadSequences(executor, readIds, read2sequence, readFps, readFileIndex, chr2Name2MscPath.get(chrName));
 						}
 						else {
 							newlyBufferedContexts = contexts.get(chrName).size();
@@ -805,16 +726,7 @@ public class ContextMap implements ActionListener {
 							//read2sequence = db.createHashMap("read2sequence").keySerializer(Serializer.STRING).valueSerializer(Serializer.STRING).makeOrGet();
 							
 							newlyBufferedContexts = getNextReadIds(contexts.get(chrNames.get(k+1)),readIds, chrName2rmapPath.get(chrNames.get(k+1)), 0,read2sequenceSize);
-							for(Pair<Long,Long> fpPair : readFps) {
-								rsp = new ReadSequenceParser(readIds, read2sequence, fpPair.getFirst(), fpPair.getSecond(), this.readFilePath);
-								rsp.addListener(this);
-								executor.submit(rsp);
-								this.threadsBufferingReadSequences.incrementAndGet();
-							}
-							mscp = new MscSequenceParser(readIds, read2sequence, chr2Name2MscPath.get(chrNames.get(k+1)));
-							mscp.addListener(this);
-							executor.submit(mscp);
-							this.threadsBufferingReadSequences.incrementAndGet();
+							readBufferingTasks = bufferReadSequences(executor, readIds, read2sequence, readFps, readFileIndex, chr2Name2MscPath.get(chrNames.get(k+1)));
 						}
 						else {
 							newlyBufferedContexts = contexts.get(chrNames.get(k+1)).size();
@@ -823,35 +735,20 @@ public class ContextMap implements ActionListener {
 					}
 					
 					//wait until the last thread unlocks buffered read sequences
-					while(this.contextsNeedingBufferedReadSequences.get() > 0) {
-						Thread.sleep(500);
-						
-						//free mem
-						if(this.threadsBufferingReadSequences.get() == 0) 
-							readIds.clear();
-					}
+					awaitReleasedReadSequences();
 					
 				}
 
-				//wait until the last thread unlocks the actual buffered chromosome sequence
-				while(this.contextsNeedingBufferedChromosomeSequence.get() > 0) {
-					Thread.sleep(500);
-					
-					//free mem
-					if(this.threadsBufferingReadSequences.get() == 0) 
-						readIds.clear();
-				}
+				//the chromosome is dropped as soon as its last context is finished, contexts of the next chromosome can already start
+				sb = null;
+				chromosomePrefetcher.release(chrName);
 			}
-			executor.shutdown();
-			for(int i = 0; i < futures.size(); i++) {
-				tmpFuture = futures.get(i);
-				tmpFuture.get();
-			}
-			futures.clear();
+			contextScheduler.awaitCompletion();
+			contextScheduler.shutdown();
 			contexts.clear();
 			contexts = null;
+			chromosomePrefetcher.shutdown();
 			mappingProcessor.emptyReadSequences();
-			mappingProcessor.emptyChrSequence();
 			mappingProcessor = null;
 			System.gc();
 			
@@ -871,7 +768,7 @@ public class ContextMap implements ActionListener {
 			//FileSorter7 fileSorter = new FileSorter7(allResolvedLocalContexts,allResolvedLocalContexts + ".sorted",null,new int[]{1},200, "\t",false);
 			//fileSorter.sortFile(allResolvedLocalContexts, allResolvedLocalContexts + ".sorted",null);
 			
-			new UnixSort().merge(this.tmpOutputDirPath + "/resolved_local_contexts", allResolvedLocalContexts, this.tmpOutputDirPath +"/sort_tmp", "\t", 2, 500, false, this.verbose);
+			new ExternalMergeSort().merge(this.tmpOutputDirPath + "/resolved_local_contexts", allResolvedLocalContexts, this.tmpOutputDirPath +"/sort_tmp", "\t", 2, 500, false, this.verbose);
 			
 			
 			
@@ -883,9 +780,9 @@ public class ContextMap implements ActionListener {
 			
 			ContextResolver contextResolver;
 			if(!this.pairedEnd)
-				contextResolver = new GlobalContextResolverSingleEnd(allResolvedLocalContexts + ".sorted.best.matchings", this.outputDirPath + "/mapping.sam",chr2length,chr2intervalTree,this.windowSizes,this.readLength,this.maxContextSize,this.maxDelSize,false,this.updateQueue,this.updateInterval,numberOfThreads,this.printMultiMappings,printSecondBestChr,verbose,this.strandSpecific);
+				contextResolver = new GlobalContextResolverSingleEnd(allResolvedLocalContexts + ".sorted.best.matchings", this.outputDirPath + "/mapping.sam",chr2length,chr2genomeLocator,this.windowSizes,this.readLength,this.maxContextSize,this.maxDelSize,false,this.updateQueue,this.updateInterval,numberOfThreads,this.printMultiMappings,printSecondBestChr,verbose,this.strandSpecific);
 			else
-				contextResolver = new GlobalContextResolverPairedEnd(allResolvedLocalContexts + ".sorted.best.matchings", this.outputDirPath + "/mapping.sam",chr2length,chr2intervalTree,this.windowSizes,this.readLength,this.maxContextSize,this.maxDelSize,false,this.updateQueue,this.updateInterval,numberOfThreads,this.printMultiMappings,printSecondBestChr,verbose,this.strandSpecific);
+				contextResolver = new GlobalContextResolverPairedEnd(allResolvedLocalContexts + ".sorted.best.matchings", this.outputDirPath + "/mapping.sam",chr2length,chr2genomeLocator,this.windowSizes,this.readLength,this.maxContextSize,this.maxDelSize,false,this.updateQueue,this.updateInterval,numberOfThreads,this.printMultiMappings,printSecondBestChr,verbose,this.strandSpecific);
 			
 			contextResolver.resolve();
 			
@@ -900,6 +797,8 @@ public class ContextMap implements ActionListener {
 				deleteFolderWithContent(new File(this.tmpOutputDirPath));
 			if(new File(this.outputDirPath + "/tmp_reads.fa").exists())
 				new File(this.outputDirPath + "/tmp_reads.fa").delete();
+			if(new File(this.outputDirPath + "/tmp_reads.fa" + ReadFileIndex.FILE_EXTENSION).exists())
+				new File(this.outputDirPath + "/tmp_reads.fa" + ReadFileIndex.FILE_EXTENSION).delete();
 			
 			
 			
@@ -941,7 +840,7 @@ public class ContextMap implements ActionListener {
 		
 		public void run() {
 			try {
-				BufferedRandomAccessFile br = new BufferedRandomAccessFile(new File(this.readFilePath),"r",10240);
+				MappedLineReader br = new MappedLineReader(new File(this.readFilePath));
 				br.seek(this.startFilePointer);
 				
 				String currentLine;
@@ -974,15 +873,15 @@ public class ContextMap implements ActionListener {
 		try {
 			
 
-			BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(readFilePath),"r",1024);
-			long fileSize = braf.getChannel().size();
+			MappedLineReader braf = new MappedLineReader(new File(readFilePath));
+			long fileSize = braf.length();
 			long incRate = fileSize/threads;
 			long prevPosition = 0;
 			long currentPosition = 0;
 			
 			
 			ExecutorService executor = Executors.newFixedThreadPool(threads);
-			ArrayList<Future> futures = new ArrayList<Future>();
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
 			String currentLine;
 			
 			while(currentPosition < fileSize) {
@@ -1003,7 +902,7 @@ public class ContextMap implements ActionListener {
 			braf.close();
 			
 			executor.shutdown();
-			for(Future f : futures) {
+			for(Future<?> f : futures) {
 				f.get();
 			}
 		}
@@ -1018,13 +917,13 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 		private BufferedReader br;
 		private boolean isMSC;
 		private final Pattern tabPattern = Pattern.compile("\t");
-		private String2Bitset string2bitset;
+		private ReadSequenceCodec readSequenceCodec;
 		
 		public KeyIterator(String readFilePath, boolean isMSC) {
 			try {
 				this.br = new BufferedReader(new FileReader(new File(readFilePath)));
 				this.isMSC = isMSC;
-				this.string2bitset = new String2Bitset();
+				this.readSequenceCodec = new ReadSequenceCodec();
 			}
 			catch(Exception e) {
 				e.printStackTrace();
@@ -1049,12 +948,12 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 				if(!this.isMSC) {
 					String id = br.readLine().substring(1);
 					String sequence = br.readLine();
-					Fun.Tuple2<String, long[]> tmpTuple2 = new Fun.Tuple2<String,long[]>(id,this.string2bitset.compress(sequence));
+					Fun.Tuple2<String, long[]> tmpTuple2 = new Fun.Tuple2<String,long[]>(id,this.readSequenceCodec.compress(sequence));
 					return tmpTuple2;
 				}
 				else {
 					String[] splittedLine = tabPattern.split(br.readLine());
-					Fun.Tuple2<String, long[]> tmpTuple2 = new Fun.Tuple2<String,long[]>(splittedLine[0],this.string2bitset.compress(splittedLine[1]));
+					Fun.Tuple2<String, long[]> tmpTuple2 = new Fun.Tuple2<String,long[]>(splittedLine[0],this.readSequenceCodec.compress(splittedLine[1]));
 					return tmpTuple2;
 				}
 			}
@@ -1344,53 +1243,9 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	}
 	
 	
-	private class ChromosomeSequenceParser extends Thread {
-		
-		private StringBuilder sb;
-		private File chrFile;
-		
-		private ArrayList<ActionListener> listeners;
-		
-		
-		public ChromosomeSequenceParser(StringBuilder sb, File chrFile) {
-			this.sb = sb;
-			this.chrFile = chrFile;
-			this.listeners = new ArrayList<ActionListener>();
-		}
-		
-		public void run() {
-			try {
-				BufferedReader br = new BufferedReader(new FileReader(this.chrFile));
-				this.sb.setLength(0);
-				br.readLine();
-				while(br.ready()) {
-					sb.append(br.readLine());
-				}
-				br.close();
-				fireAction(new ActionEvent(this,0,"chromosome_parsed"));
-			}
-			
-			catch(Exception e) {
-				e.printStackTrace();
-			}
-		}
-		
-		public void addListener(ActionListener listener) {
-			this.listeners.add(listener);
-		}
-		
-		public void fireAction(ActionEvent e) {
-			for(ActionListener listener : this.listeners) {
-				listener.actionPerformed(e);
-			}
-		}
-		
-	}
-	
-	
 	private int getNextReadIds(ArrayList<Context> contexts,Set<String> readIds, String rmapFilePath, int alreadyProcessedContexts, int maxBufferSize) {
 		try {
-			BufferedRandomAccessFile contextReader = new BufferedRandomAccessFile(new File(rmapFilePath),"r",1000000);
+			MappedLineReader contextReader = new MappedLineReader(new File(rmapFilePath));
 			int newlyBufferedContexts = 0;
 			
 			readIds.clear();
@@ -1439,11 +1294,64 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	}
 	
 	
+	/**
+	 * starts the threads buffering the sequences of the given read ids. If a read index is available, only the indexed records
+	 * are read (distributed over the threads by file offset), otherwise every chunk of the read file is scanned.
+	 */
+	private ArrayList<Future<?>> bufferReadSequences(ExecutorService executor, Set<String> readIds, ConcurrentMap<String,long[]> read2sequence, ArrayList<Pair<Long,Long>> readFps, ReadFileIndex readFileIndex, String mscFilePath) {
+		ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+		if(readFileIndex != null) {
+			long[] offsets = readFileIndex.getOffsets(readIds);
+			int chunkSize = Math.max(1, (offsets.length + this.threads - 1) / this.threads);
+			for(int start = 0; start < offsets.length; start += chunkSize) {
+				IndexedReadSequenceParser irsp = new IndexedReadSequenceParser(readIds, read2sequence, offsets, start, Math.min(offsets.length, start + chunkSize), this.readFilePath);
+				tasks.add(executor.submit(irsp));
+			}
+		}
+		else {
+			for(Pair<Long,Long> fpPair : readFps) {
+				ReadSequenceParser rsp = new ReadSequenceParser(readIds, read2sequence, fpPair.getFirst(), fpPair.getSecond(), this.readFilePath);
+				tasks.add(executor.submit(rsp));
+			}
+		}
+		MscSequenceParser mscp = new MscSequenceParser(readIds, read2sequence, mscFilePath);
+		tasks.add(executor.submit(mscp));
+		return tasks;
+	}
+	
+	/**
+	 * waits until the given read sequence buffering tasks are finished, aborts the run if one of them failed
+	 */
+	private void awaitBufferedReadSequences(ArrayList<Future<?>> tasks) throws Exception {
+		try {
+			for(Future<?> task : tasks)
+				task.get();
+		}
+		catch(ExecutionException e) {
+			e.getCause().printStackTrace();
+			Date date = new Date();
+			System.err.println(String.format("[%s]\tCould not buffer the read sequences. Aborting ContextMap run.",date.toLocaleString()));
+			System.exit(1);
+		}
+		tasks.clear();
+	}
+	
+	/**
+	 * waits until all submitted contexts unlocked the buffered read sequences
+	 */
+	private void awaitReleasedReadSequences() throws InterruptedException {
+		synchronized(this.contextsNeedingBufferedReadSequences) {
+			while(this.contextsNeedingBufferedReadSequences.get() > 0)
+				this.contextsNeedingBufferedReadSequences.wait();
+		}
+	}
+	
+	
 	private ArrayList<Pair<Long,Long>> getReadFilePointers(String readFilePath, int threads) {
 		try {
 			ArrayList<Pair<Long,Long>> pointers = new ArrayList<Pair<Long,Long>>();
-			BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(readFilePath),"r",1024);
-			long fileSize = braf.getChannel().size();
+			MappedLineReader braf = new MappedLineReader(new File(readFilePath));
+			long fileSize = braf.length();
 			long incRate = fileSize/threads;
 			long prevPosition = 0;
 			long currentPosition = 0;
@@ -1472,11 +1380,11 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	}
 	
 	
-	private class MscSequenceParser extends Thread {
+	private class MscSequenceParser implements Callable<Void> {
 		private Set<String> readIds;
 		private ConcurrentMap<String,long[]> read2sequence;
 		private String mscFilePath;
-		private String2Bitset string2bitset;
+		private ReadSequenceCodec readSequenceCodec;
 		
 		private ArrayList<ActionListener> listeners;
 		
@@ -1485,33 +1393,28 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 			this.read2sequence = read2sequence;
 			this.mscFilePath = mscFilePath;
 			this.listeners = new ArrayList<ActionListener>();
-			this.string2bitset = new String2Bitset();
+			this.readSequenceCodec = new ReadSequenceCodec();
 		}
 		
-		public void run() {
-			try {
-				if(this.mscFilePath != null) {
-					BufferedReader br = new BufferedReader(new FileReader(new File(this.mscFilePath)));
-					String currentLine;
-					String[] splittedLine;
-					Pattern tabPattern = Pattern.compile("\t");
-					while((currentLine = br.readLine()) != null) {
-						splittedLine = tabPattern.split(currentLine);
-						
-						if(this.readIds.contains(splittedLine[0])) {
-							this.read2sequence.put(splittedLine[0],this.string2bitset.compress(splittedLine[1]));
-							
-						}
+		public Void call() throws Exception {
+			if(this.mscFilePath != null) {
+				BufferedReader br = new BufferedReader(new FileReader(new File(this.mscFilePath)));
+				String currentLine;
+				String[] splittedLine;
+				Pattern tabPattern = Pattern.compile("\t");
+				while((currentLine = br.readLine()) != null) {
+					splittedLine = tabPattern.split(currentLine);
+					
+					if(this.readIds.contains(splittedLine[0])) {
+						this.read2sequence.put(splittedLine[0],this.readSequenceCodec.compress(splittedLine[1]));
 						
 					}
-					br.close();
+					
 				}
-				fireAction(new ActionEvent(this,0,"sequences_parsed"));
-			}
-			
-			catch(Exception e) {
-				e.printStackTrace();
+				br.close();
 			}
+			fireAction(new ActionEvent(this,0,"sequences_parsed"));
+			return null;
 		}
 		
 		public void addListener(ActionListener listener) {
@@ -1527,7 +1430,7 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	}
 	
 	
-	private class ReadSequenceParser extends Thread {
+	private class ReadSequenceParser implements Callable<Void> {
 		
 		private Set<String> readIds;
 		private ConcurrentMap<String,long[]> read2sequence;
@@ -1536,7 +1439,7 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 		private String readFilePath;
 		
 		private ArrayList<ActionListener> listeners;
-		private String2Bitset string2bitset;
+		private ReadSequenceCodec readSequenceCodec;
 		
 		public ReadSequenceParser(Set<String> readIds, ConcurrentMap<String,long[]> read2sequence, long startPointer, long stopPointer, String readFilePath) {
 			this.readIds = readIds;
@@ -1544,32 +1447,27 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 			this.startPointer  = startPointer;
 			this.stopPointer = stopPointer;
 			this.readFilePath = readFilePath;
-			this.string2bitset = new String2Bitset();
+			this.readSequenceCodec = new ReadSequenceCodec();
 			this.listeners = new ArrayList<ActionListener>();
 		}
 		
-		public void run() {
-			try {
-				
-				BufferedRandomAccessFile braf = new BufferedRandomAccessFile(new File(readFilePath),"r",10000);
-				String currentLine;
-				braf.seek(this.startPointer);
-				while((currentLine = braf.getNextLine()) != null) {
-					if(currentLine.charAt(0) == '>') {
-						if(this.readIds.contains(currentLine.substring(1))) {
-							this.read2sequence.put(currentLine.substring(1), string2bitset.compress(braf.getNextLine()));
-						}
+		public Void call() throws Exception {
+			MappedLineReader braf = new MappedLineReader(new File(readFilePath));
+			String currentLine;
+			braf.seek(this.startPointer);
+			while((currentLine = braf.getNextLine()) != null) {
+				if(currentLine.charAt(0) == '>') {
+					if(this.readIds.contains(currentLine.substring(1))) {
+						this.read2sequence.put(currentLine.substring(1), readSequenceCodec.compress(braf.getNextLine()));
 					}
-					
-					if(braf.getFilePointer() == this.stopPointer)
-						break;
 				}
-				braf.close();
-				fireAction(new ActionEvent(this,0,"sequences_parsed"));
-			}
-			catch(Exception e) {
-				e.printStackTrace();
+				
+				if(braf.getFilePointer() == this.stopPointer)
+					break;
 			}
+			braf.close();
+			fireAction(new ActionEvent(this,0,"sequences_parsed"));
+			return null;
 		}
 		
 		public void addListener(ActionListener listener) {
@@ -1585,6 +1483,62 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	
 	
 	
+	private class IndexedReadSequenceParser implements Callable<Void> {
+		
+		private Set<String> readIds;
+		private ConcurrentMap<String,long[]> read2sequence;
+		private long[] offsets;
+		private int startIndex;
+		private int stopIndex;
+		private String readFilePath;
+		
+		private ArrayList<ActionListener> listeners;
+		private ReadSequenceCodec readSequenceCodec;
+		
+		public IndexedReadSequenceParser(Set<String> readIds, ConcurrentMap<String,long[]> read2sequence, long[] offsets, int startIndex, int stopIndex, String readFilePath) {
+			this.readIds = readIds;
+			this.read2sequence = read2sequence;
+			this.offsets = offsets;
+			this.startIndex = startIndex;
+			this.stopIndex = stopIndex;
+			this.readFilePath = readFilePath;
+			this.readSequenceCodec = new ReadSequenceCodec();
+			this.listeners = new ArrayList<ActionListener>();
+		}
+		
+		public Void call() throws Exception {
+			//offsets are sorted, so most seeks are served from the current buffer
+			MappedLineReader braf = new MappedLineReader(new File(readFilePath));
+			String currentLine;
+			String readId;
+			for(int i = this.startIndex; i < this.stopIndex; i++) {
+				braf.seek(this.offsets[i]);
+				currentLine = braf.getNextLine();
+				if(currentLine == null || currentLine.isEmpty() || currentLine.charAt(0) != '>')
+					continue;
+				
+				//different ids might share the same hash value, so we check the header here
+				readId = currentLine.substring(1);
+				if(this.readIds.contains(readId))
+					this.read2sequence.put(readId, readSequenceCodec.compress(braf.getNextLine()));
+			}
+			braf.close();
+			fireAction(new ActionEvent(this,0,"sequences_parsed"));
+			return null;
+		}
+		
+		public void addListener(ActionListener listener) {
+			this.listeners.add(listener);
+		}
+		
+		public void fireAction(ActionEvent e) {
+			for(ActionListener listener : this.listeners) {
+				listener.actionPerformed(e);
+			}
+		}
+	}
+	
+	
 	private int getFreeSlot(Thread[] threads) {
 		for(int i = 0; i < threads.length; i++) {
 			Thread thread = threads[i];
@@ -1648,7 +1602,7 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 		public int compare(Object o1, Object o2) {
 			Context c1 = (Context)o1;
 			Context c2 = (Context)o2;
-			return Integer.valueOf(c2.getContainedReads()).compareTo(c1.getContainedReads());
+			return Long.valueOf(ContextScheduler.getCost(c2,readLength)).compareTo(ContextScheduler.getCost(c1,readLength));
 		}
 		
 	}
@@ -1663,51 +1617,47 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 		public int compare(Object o1, Object o2) {
 			String chrNameA = (String)o1;
 			String chrNameB = (String)o2;
-			return Integer.valueOf(this.chrName2contexts.get(chrNameB).get(0).getContainedReads()).compareTo(this.chrName2contexts.get(chrNameA).get(0).getContainedReads());
+			return Long.valueOf(ContextScheduler.getCost(this.chrName2contexts.get(chrNameB).get(0),readLength)).compareTo(ContextScheduler.getCost(this.chrName2contexts.get(chrNameA).get(0),readLength));
 		}
 	}
 
 	@Override
 	public void actionPerformed(ActionEvent event) {
 		
-		if(event.getActionCommand().equals("sequences_parsed"))
-			this.threadsBufferingReadSequences.decrementAndGet();
-		
-		else if(event.getActionCommand().equals("chromosome_parsed"))
-			this.threadsBufferingChromosomeSequences.decrementAndGet();
-		
-		else if(event.getActionCommand().equals("chromosome_unlocked"))
-			this.contextsNeedingBufferedChromosomeSequence.decrementAndGet();
-		
-		else if(event.getActionCommand().equals("reads_unlocked"))
-			this.contextsNeedingBufferedReadSequences.decrementAndGet();
+		if(event.getActionCommand().equals("reads_unlocked")) {
+			synchronized(this.contextsNeedingBufferedReadSequences) {
+				if(this.contextsNeedingBufferedReadSequences.decrementAndGet() <= 0)
+					this.contextsNeedingBufferedReadSequences.notifyAll();
+			}
+		}
 	}
 	
 	
-	private HashMap<String,IntervalTree<Microbe>> buildIntervalTrees(String indexDirPath) {
+	private HashMap<String,SpeciesLocator<Microbe>> buildSpeciesLocators(String indexDirPath) {
 		try {
-			HashMap<String,IntervalTree<Microbe>> index2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
+			HashMap<String,SpeciesLocator<Microbe>> index2genomeLocator = new HashMap<String,SpeciesLocator<Microbe>>();
 			File[] indexFiles = new File(indexDirPath).listFiles();
 			
 			BufferedReader br;
 			String currentLine;
 			String[] splittedLine;
 			Pattern tabPattern = Pattern.compile("\t");
+			ArrayList<Microbe> genomes = new ArrayList<Microbe>();
 			for(File indexFile : indexFiles) {
 				if(indexFile.getName().contains(".idx")) {
 					br = new BufferedReader(new FileReader(indexFile));
-					IntervalTree<Microbe> genomeTree = new IntervalTree<Microbe>();
+					genomes.clear();
 					while(br.ready()) {
 						currentLine = br.readLine();
 						splittedLine = tabPattern.split(currentLine);
 						Microbe tmpMicrobe = new Microbe(splittedLine[0],Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]));
-						genomeTree.add(tmpMicrobe);
+						genomes.add(tmpMicrobe);
 					}
 					br.close();
-					index2genomeTree.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), genomeTree);
+					index2genomeLocator.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), new SpeciesLocator<Microbe>(genomes));
 				}
 			}
-			return index2genomeTree;
+			return index2genomeLocator;
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -1716,30 +1666,26 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 	}
 	
 	
-	private void filterIntervalTrees(HashMap<String,IntervalTree<Microbe>> index2genomeTree, HashMap<String,ArrayList<Context>> contexts) {
+	/**
+	 * restricts the genomes of every chromosome to those overlapping a context
+	 */
+	private void filterSpeciesLocators(HashMap<String,SpeciesLocator<Microbe>> index2genomeLocator, HashMap<String,ArrayList<Context>> contexts) {
 		try {
-			int offset;
-			IntervalTree<Microbe> currentTree;
-			IntervalTree<Microbe> filteredTree;
+			SpeciesLocator<Microbe> currentLocator;
 			HashSet<Microbe> spanningMicrobes = new HashSet<Microbe>();
 			boolean foundMicrobe;
-			ArrayList<Microbe> tmpHits = new ArrayList<Microbe>();
 			for(String chr : contexts.keySet()) {
-				if(index2genomeTree.containsKey(chr)) {
-					currentTree = index2genomeTree.get(chr);
-					filteredTree = new IntervalTree<Microbe>();
+				if(index2genomeLocator.containsKey(chr)) {
+					currentLocator = index2genomeLocator.get(chr);
+					spanningMicrobes.clear();
 					for(Context context : contexts.get(chr)) {
-						offset = 0;
 						foundMicrobe = false;
-						while(context.getStart() + offset <= context.getEnd()) {
-							tmpHits.clear();
-							tmpHits = currentTree.getIntervalsSpanning(context.getStart() + offset,tmpHits);
-							if(!tmpHits.isEmpty()) {
-								spanningMicrobes.add(tmpHits.get(0));
-								foundMicrobe = true;
-							}
+						for(int i = Math.max(0,currentLocator.getFloorIndex(context.getStart())); i < currentLocator.size() && currentLocator.getStart(i) <= context.getEnd(); i++) {
+							if(currentLocator.getEnd(i) < context.getStart())
+								continue;
 							
-							offset++;
+							spanningMicrobes.add(currentLocator.get(i));
+							foundMicrobe = true;
 						}
 						
 						if(!foundMicrobe) {
@@ -1747,10 +1693,7 @@ private class KeyIterator implements Iterator<Fun.Tuple2<String, long[]>> {
 						}
 					}
 					
-					for(Microbe m : spanningMicrobes)
-						filteredTree.add(m);
-					
-					index2genomeTree.put(chr,filteredTree);
+					index2genomeLocator.put(chr,new SpeciesLocator<Microbe>(spanningMicrobes));
 				}
 			}
 		}
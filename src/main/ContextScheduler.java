@@ -0,0 +1,77 @@
+package main;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * runs the local context tasks on a fixed number of worker threads (a ForkJoinPool in FIFO mode). A context is a single task,
+ * it is not forked into subtasks, so the workers take the tasks in submission order. The scheduler counts the submitted tasks
+ * which are not finished yet, awaitCompletion() waits until there are none.
+ *
+ * The load balancing comes from the submission order: contexts should be submitted in decreasing order of getCost(), so a
+ * single expensive context does not start last and leave the other workers idle.
+ */
+public class ContextScheduler {
+
+	private ForkJoinPool pool;
+	private int pendingTasks;
+
+
+	public ContextScheduler(int threads) {
+		this.pool = new ForkJoinPool(Math.max(1, threads), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		this.pendingTasks = 0;
+	}
+
+	/**
+	 * predicted processing cost of a context. Every read is compared with the reads overlapping it, which gives
+	 * reads * (1 + coverage depth) with depth = reads * read length / span.
+	 */
+	public static long getCost(Context context, int readLength) {
+		long reads = context.getContainedReads();
+		long span = Math.max(1, context.getEnd() - context.getStart() + 1);
+		return reads + reads * (reads * Math.max(1, readLength) / span);
+	}
+
+
+	public void submit(final Runnable task) {
+		synchronized(this) {
+			this.pendingTasks++;
+		}
+		this.pool.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				}
+				finally {
+					taskFinished();
+				}
+			}
+		});
+	}
+
+	/**
+	 * waits until all submitted tasks are finished
+	 */
+	public synchronized void awaitCompletion() throws InterruptedException {
+		while(this.pendingTasks > 0)
+			wait();
+	}
+
+	/**
+	 * the pool of the scheduler, for tasks which are not counted by awaitCompletion()
+	 */
+	public ExecutorService getExecutor() {
+		return this.pool;
+	}
+
+	public void shutdown() {
+		this.pool.shutdown();
+	}
+
+	private synchronized void taskFinished() {
+		this.pendingTasks--;
+		if(this.pendingTasks == 0)
+			notifyAll();
+	}
+}
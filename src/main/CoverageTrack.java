@@ -0,0 +1,81 @@
+package main;
+
+/**
+ * per base coverage of the genomic interval [start,end], stored in a primitive array.
+ * Positions without coverage have the value 0.
+ */
+public class CoverageTrack {
+
+	private final int start;
+	private final double[] coverage;
+
+	public CoverageTrack(int start, int end) {
+		this.start = start;
+		this.coverage = new double[Math.max(0,end - start + 1)];
+	}
+
+
+	/**
+	 * adds the given weight to every position of [from,to] which lies within this track
+	 * @param from
+	 * @param to
+	 * @param weight
+	 */
+	public void add(int from, int to, double weight) {
+		int first = Math.max(from,this.start) - this.start;
+		int last = Math.min(to,getEnd()) - this.start;
+		for(int i = first; i <= last; i++)
+			this.coverage[i] += weight;
+	}
+
+	public double get(int position) {
+		if(position < this.start || position > getEnd())
+			return 0;
+		return this.coverage[position - this.start];
+	}
+
+	public int getStart() {
+		return this.start;
+	}
+
+	public int getEnd() {
+		return this.start + this.coverage.length - 1;
+	}
+
+	public boolean isEmpty() {
+		return getCoveredPositions() == 0;
+	}
+
+	public int getCoveredPositions() {
+		int positions = 0;
+		for(int i = 0; i < this.coverage.length; i++) {
+			if(this.coverage[i] > 0)
+				positions++;
+		}
+		return positions;
+	}
+
+	/**
+	 * returns the first position with coverage > 0 or -1 if there is no such position
+	 * @return
+	 */
+	public int getFirstCoveredPosition() {
+		for(int i = 0; i < this.coverage.length; i++) {
+			if(this.coverage[i] > 0)
+				return this.start + i;
+		}
+		return -1;
+	}
+
+	/**
+	 * returns the last position with coverage > 0 or -1 if there is no such position
+	 * @return
+	 */
+	public int getLastCoveredPosition() {
+		for(int i = this.coverage.length - 1; i >= 0; i--) {
+			if(this.coverage[i] > 0)
+				return this.start + i;
+		}
+		return -1;
+	}
+}
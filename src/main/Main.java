@@ -13,13 +13,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.regex.Pattern;
 
+import alignment.SplitCandidateExtractor;
 import assembly.AssemblyProcessor;
 import context.ContextExtractor;
 import context.MappingProcessor;
 import tools.BamConverter;
+import tools.ExternalMergeSort;
 import tools.FileHandler;
 import tools.FileSorter;
 import tools.GenomeIndexer;
+import tools.JunctionIndexFile;
 import tools.ReadAligner;
 import tools.ReadSampler;
 import tools.RmapProcessor;
@@ -41,6 +44,7 @@ public class Main {
 			System.out.println("\t 2. 'indexer' - Prepares large sets of genomes for being indexed with Bowtie");
 			System.out.println("\t 3. 'inspector' - Determines read counts, confidence values, genome coverages and the square root of the Jensen-Shannon divergence for species contained in a sam file");
 			System.out.println("\t 4. 'separator' - Splits up a sam file containing a mixture of mappings to a set of different species");
+			System.out.println("\t 5. 'junctionindexer' - Compiles the junctions of an annotation into a binary index, which can be reused by the mapper (-junctionindex)");
 			//System.out.println("\t 5. 'error_estimator' - Determines the mismatch rates for a set of species contained in a given sam file");
 			//System.out.println("\t 6. 'confidence_estimator' - Determines confidence values for a set of species contained in a given sam file");
 			//System.out.println("\t 7. 'distance_estimator' - Determines distance values for a set of species contained in a given sam file");
@@ -86,6 +90,7 @@ public class Main {
 				System.out.println("-minsize\t\t<The minimum number of reads a genomic region has to contain for being regarded as a local context. (default:10)");
 				System.out.println("-annotation\t\t<The path to an annotation file in our own format>");
 				System.out.println("-gtf\t\t\t<The path to an annotation file in gtf format. This option is mutually exclusive with the -annotation option>");
+				System.out.println("-junctionindex\t\t<The path to a junction index created with the 'junctionindexer' tool. Replaces the -annotation and -gtf options>");
 				System.out.println("-t\t\t\t<The number of threads used for the run> (default: 1)");
 				System.out.println("--autosetalioptions\t<Automatically sets the alignment options dependent on the maximum read length>");
 				System.out.println("--noclipping\t\t<Disables the calculation of clipped alignments> (default: not set)");
@@ -96,6 +101,11 @@ public class Main {
 				System.out.println("--sequenceDB\t\t<Writes a readId -> sequence mapping to disk. Recommended for very large data sets. (default: off)>");
 				System.out.println("--verbose\t\t<verbose mode> (default: not set)");
 				System.out.println("--keeptmp\t\t<does not delete some temporary files> (default: not set)");
+				System.out.println("-sortmem\t\t<The memory in MB which may be used by all concurrently running file sorts> (default: 1/4 of the max. heap size)");
+				System.out.println("-sorttmp\t\t<The path to a directory for temporary sort files> (default: within the output directory)");
+				System.out.println("--unixsort\t\t<Uses the unix sort command instead of the built-in file sort> (default: not set)");
+				System.out.println("-chrmem\t\t\t<The memory in MB which may be used by chromosome sequences loaded ahead of the local context processing> (default: 1024)");
+				System.out.println("--builtinsplitaligner\t<Aligns the split seeds of the sliding windows in memory with the built-in k-mer aligner instead of the given aligner. Experimental, the alignments may differ from the given aligner> (default: not set)");
 				System.out.println();
 				System.exit(1);
 			}
@@ -158,6 +168,7 @@ public class Main {
 			String referencesDir = null;
 			String annotationFilePath = null;
 			String gtfFilePath = null;
+			String junctionIndexFilePath = null;
 			String indexDirPath = null;
 			int maxMismatchDifference = 0;
 			int minDistanceBetweenContext = 10000;
@@ -182,6 +193,11 @@ public class Main {
 			
 			boolean writeSequenceDB = false;
 			int databaseSortBatchSize = 3000000;
+			int sortMemory = -1;
+			int chromosomeMemory = -1;
+			String sortTmpDirPath = null;
+			boolean useUnixSort = false;
+			boolean useBuiltInSplitAligner = false;
 				
 			
 			
@@ -361,6 +377,10 @@ public class Main {
 					gtfFilePath = args[++i];
 					continue;
 				}
+				if(args[i].equals("-junctionindex")) {
+					junctionIndexFilePath = args[++i];
+					continue;
+				}
 				if(args[i].equals("-idx") || args[i].equals("-speciesindex")) {
 					indexDirPath = args[++i];
 					continue;
@@ -466,6 +486,31 @@ public class Main {
 					continue;
 				}
 				
+				if(args[i].equals("-sortmem")) {
+					sortMemory = Integer.valueOf(args[++i]);
+					continue;
+				}
+				
+				if(args[i].equals("-chrmem")) {
+					chromosomeMemory = Integer.valueOf(args[++i]);
+					continue;
+				}
+				
+				if(args[i].equals("-sorttmp")) {
+					sortTmpDirPath = args[++i];
+					continue;
+				}
+				
+				if(args[i].equals("--unixsort")) {
+					useUnixSort = true;
+					continue;
+				}
+				
+				if(args[i].equals("--builtinsplitaligner")) {
+					useBuiltInSplitAligner = true;
+					continue;
+				}
+				
 				
 			}
 			
@@ -530,6 +575,48 @@ public class Main {
 				System.exit(1);
 			}
 			
+			/*
+			 * checking -junctionindex option, the prebuilt index replaces the annotation
+			 */
+			if(junctionIndexFilePath != null) {
+				if(gtfFilePath != null || annotationFilePath != null) {
+					date = new Date();
+					System.err.println(String.format("[%s]\tOption -junctionindex is mutually exclusive with the -annotation and -gtf options.",date.toLocaleString()));
+					System.err.println(String.format("[%s]\tAborting ContextMap run.",date.toLocaleString()));
+					System.exit(1);
+				}
+				if(!JunctionIndexFile.isJunctionIndexFile(junctionIndexFilePath)) {
+					date = new Date();
+					System.err.println(String.format("[%s]\tValue of %s is not a valid junction index. Please create the index with the 'junctionindexer' tool",date.toLocaleString(), "-junctionindex"));
+					System.err.println(String.format("[%s]\tAborting ContextMap run.",date.toLocaleString()));
+					System.exit(1);
+				}
+				try {
+					if(JunctionIndexFile.isStrandSpecific(junctionIndexFilePath) != strandSpecific) {
+						date = new Date();
+						System.err.println(String.format("[%s]\tThe junction index was built %s the --strandspecific option. Please use the same setting for the mapping or rebuild the index.",date.toLocaleString(), strandSpecific ? "without" : "with"));
+						System.err.println(String.format("[%s]\tAborting ContextMap run.",date.toLocaleString()));
+						System.exit(1);
+					}
+					//an index of a changed annotation is rejected, the check is skipped if the annotation is not available anymore
+					String indexedAnnotationFilePath = JunctionIndexFile.getAnnotationFilePath(junctionIndexFilePath);
+					if(!new File(indexedAnnotationFilePath).isFile()) {
+						date = new Date();
+						System.out.println(String.format("[%s]\tCould not find the annotation the junction index was built from (%s). Using the index without checking it.",date.toLocaleString(),indexedAnnotationFilePath));
+					}
+					else if(!JunctionIndexFile.isBuiltFrom(junctionIndexFilePath, indexedAnnotationFilePath)) {
+						date = new Date();
+						System.err.println(String.format("[%s]\tThe annotation the junction index was built from (%s) has changed. Please rebuild the index with the 'junctionindexer' tool.",date.toLocaleString(),indexedAnnotationFilePath));
+						System.err.println(String.format("[%s]\tAborting ContextMap run.",date.toLocaleString()));
+						System.exit(1);
+					}
+				}
+				catch(Exception e) {
+					e.printStackTrace();
+					System.exit(1);
+				}
+			}
+			
 			if(!clipping && polyA) {
 				date = new Date();
 				System.err.println(String.format("[%s]\tOptions --noclipping and --polyA are mutually exclusive. Either use --noclipping or --polyA, but not both.",date.toLocaleString()));
@@ -678,9 +765,20 @@ public class Main {
 			
 			
 			
-			ContextMap contextMap = new ContextMap(contextmapVersion,readFilePath, samFilePath,alignerName, alignerBinPath, alignerTmpDirPath, alignerIndexerPath, genomeIndexBasePaths, referencesDir,annotationFilePath,gtfFilePath, indexDirPath, outputDirPath, "fasta", readLength,
+			//file sort settings
+			ExternalMergeSort.setThreads(threads);
+			ExternalMergeSort.setUseUnixSort(useUnixSort);
+			if(sortMemory > 0)
+				ExternalMergeSort.setMemoryLimit(sortMemory);
+			if(sortTmpDirPath != null)
+				ExternalMergeSort.setTmpDirPath(sortTmpDirPath);
+			
+			//split seed alignment settings
+			SplitCandidateExtractor.setUseBuiltInWindowAligner(useBuiltInSplitAligner);
+			
+			ContextMap contextMap = new ContextMap(contextmapVersion,readFilePath, samFilePath,alignerName, alignerBinPath, alignerTmpDirPath, alignerIndexerPath, genomeIndexBasePaths, referencesDir,annotationFilePath,gtfFilePath,junctionIndexFilePath, indexDirPath, outputDirPath, "fasta", readLength,
 					seedSize,seedMismatches, maxMismatches,maxMismatchDifference, splitSeedSizes,splitSeedMismatches,maxIntronLength, maxIntronCount,maxHits, threads,
-					skipPass1,skipSplitDetection,skipMultiSplitDetection,skipRealignment, minDistanceBetweenContext, maxContextSize,maxGapSize, minGapSize, maxIndelSize, minNumberOfReadsInContext,strandSpecific,pairedEnd,preferExtensionsWithKnownSpliceSignals,skipDenovoJunctions,skipNonCanonicalJunctions,updateQueue,updateInterval,printMultiMappings,printSecondBestChr,lowCoverage,clipping,polyA,strandedPolyA,minPolyALength,minPolyAReadCount,upperPolyACutoff,lowerPolyACutoff,maxConsideredClippingLength,verbose,developer,keepTmp,writeSequenceDB,autosetAlignmentOptions,databaseSortBatchSize);
+					skipPass1,skipSplitDetection,skipMultiSplitDetection,skipRealignment, minDistanceBetweenContext, maxContextSize,maxGapSize, minGapSize, maxIndelSize, minNumberOfReadsInContext,strandSpecific,pairedEnd,preferExtensionsWithKnownSpliceSignals,skipDenovoJunctions,skipNonCanonicalJunctions,updateQueue,updateInterval,printMultiMappings,printSecondBestChr,lowCoverage,clipping,polyA,strandedPolyA,minPolyALength,minPolyAReadCount,upperPolyACutoff,lowerPolyACutoff,maxConsideredClippingLength,verbose,developer,keepTmp,writeSequenceDB,autosetAlignmentOptions,databaseSortBatchSize,chromosomeMemory);
 			contextMap.start();
 		}
 		
@@ -758,6 +856,105 @@ public class Main {
 		}
 		
 		
+		else if(args[0].equals("junctionindexer")) {
+			if(args.length == 1 || args[1].equals("--help") || args[1].equals("-h")) {
+				System.out.println();
+				System.out.println("Compiles the annotated junctions of an annotation (own format or gtf) into a binary junction index.");
+				System.out.println("The index can be passed to the mapper (-junctionindex) instead of the annotation and is loaded without parsing the annotation again.");
+				System.out.println();
+				System.out.println(String.format("Usage: java -jar ContextMap_%s.jar junctionindexer <arguments> [options]*",contextmapVersion));
+				System.out.println();
+				System.out.println("Required arguments:");
+				System.out.println();
+				System.out.println("-annotation\t<The path to an annotation file in our own format>");
+				System.out.println("-gtf\t\t<The path to an annotation file in gtf format. This option is mutually exclusive with the -annotation option>");
+				System.out.println("-genome\t\t<The path to the directory with genome sequences used for the mapping (required for gtf files to match the chromosome names)>");
+				System.out.println("-o\t\t<The path to the junction index file>");
+				System.out.println();
+				System.out.println();
+				System.out.println("Options:");
+				System.out.println();
+				System.out.println("--strandspecific\t<Builds an index for strand specific mappings (default: off)>");
+				System.out.println();
+				System.exit(1);
+			}
+			
+			String annotationFilePath = null;
+			String gtfFilePath = null;
+			String referencesDir = null;
+			String outputFilePath = null;
+			boolean strandSpecific = false;
+			for(int i = 1; i < args.length; i++) {
+				if(args[i].equals("-annotation")) {
+					annotationFilePath = args[++i];
+					continue;
+				}
+				if(args[i].equals("-gtf")) {
+					gtfFilePath = args[++i];
+					continue;
+				}
+				if(args[i].equals("-genome")) {
+					referencesDir = args[++i];
+					continue;
+				}
+				if(args[i].equals("-o")) {
+					outputFilePath = args[++i];
+					continue;
+				}
+				if(args[i].equals("--strandspecific")) {
+					strandSpecific = true;
+					continue;
+				}
+			}
+			
+			Date date;
+			if((annotationFilePath == null) == (gtfFilePath == null)) {
+				date = new Date();
+				System.err.println(String.format("[%s]\tEither -annotation or -gtf is required (but not both). Please check the help by calling the junctionindexer without any parameters",date.toLocaleString()));
+				System.exit(1);
+			}
+			if(outputFilePath == null) {
+				date = new Date();
+				System.err.println(String.format("[%s]\tMissing %s parameter. Please check the help by calling the junctionindexer without any parameters",date.toLocaleString(), "-o"));
+				System.exit(1);
+			}
+			
+			//the chromosome names of the genome directory decide if gtf chromosome names need a 'chr' prefix
+			String referenceChrName = null;
+			if(gtfFilePath != null) {
+				File[] chromosomeFiles = (referencesDir != null) ? new File(referencesDir).listFiles() : null;
+				if(chromosomeFiles != null) {
+					for(File chrFile : chromosomeFiles) {
+						if(chrFile.isFile() && chrFile.getName().contains(".")) {
+							referenceChrName = chrFile.getName().substring(0,chrFile.getName().lastIndexOf("."));
+							break;
+						}
+					}
+				}
+				if(referenceChrName == null) {
+					date = new Date();
+					System.err.println(String.format("[%s]\tValue of %s is not a valid genome directory. Please check the help by calling the junctionindexer without any parameters",date.toLocaleString(), "-genome"));
+					System.exit(1);
+				}
+			}
+			
+			date = new Date();
+			System.out.println(String.format("[%s]\tBuilding junction index.",date.toLocaleString()));
+			try {
+				new MappingProcessor().writeAnnotatedSpliceSiteIndex(annotationFilePath, gtfFilePath, referenceChrName, strandSpecific, outputFilePath);
+			}
+			catch(Exception e) {
+				e.printStackTrace();
+				new File(outputFilePath).delete();
+				date = new Date();
+				System.err.println(String.format("[%s]\tCould not write the junction index.",date.toLocaleString()));
+				System.exit(1);
+			}
+			date = new Date();
+			System.out.println(String.format("[%s]\tWrote junction index to %s",date.toLocaleString(),outputFilePath));
+		}
+		
+		
 		else if(args[0].equals("inspector")) {
 			if(args.length == 1 || args[1].equals("--help") || args[1].equals("-h")) {
 				System.out.println();
@@ -779,6 +976,7 @@ public class Main {
 				System.out.println("-refseqcatalog\t<The path to a RefSeq *.catalog file. Trivial species names will be extracted in case they are not available in the index files.>");
 				System.out.println("--mergecontigs\t<Mappings to different contigs of the same species will be merged>");
 				System.out.println("--mdflag\t<Uses the MD field of the sam file to evaluate mismatch counts. Per default, the NM field is used.>");
+				System.out.println("-t\t\t<The number of threads used to process the sam file> (default: 1)");
 				System.out.println();
 				System.exit(1);
 			}
@@ -791,6 +989,7 @@ public class Main {
 			String customSpeciesNamesFilePath = null;
 			boolean mergeContigs = false;
 			boolean useMDflag = false;
+			int threads = 1;
 			HashSet<String> referenceChromosomes = new HashSet<String>();
 			
 			for(int i = 1; i < args.length; i++) {
@@ -822,11 +1021,15 @@ public class Main {
 				}
 				if(args[i].equals("--mdflag")) {
 					useMDflag = true;
+					continue;
+				}
+				if(args[i].equals("-t")) {
+					threads = Integer.valueOf(args[++i]);
 				}
 			}
 			
 			SamProcessor samProcessor = new SamProcessor();
-			samProcessor.getMicrobialContentFromConcatenatedGenomes(samFilePath, indexFolderPath,refseqCatalogFilePath,customSpeciesNamesFilePath,mergeContigs,useMDflag,referenceChromosomes);
+			samProcessor.getMicrobialContentFromConcatenatedGenomes(samFilePath, indexFolderPath,refseqCatalogFilePath,customSpeciesNamesFilePath,mergeContigs,useMDflag,referenceChromosomes,threads);
 		}
 		
 		
@@ -913,6 +1116,7 @@ public class Main {
 				System.out.println();
 				System.out.println("-specieslist\t<The path to a tab seperated file containing for each species its id and trivial name. The output will be limited to the set of given species.>");
 				System.out.println("--mdflag\t<Uses the MD field of the sam file to evaluate mismatch counts. Per default, the NM field is used.>");
+				System.out.println("-t\t\t<The number of threads used to process the sam file> (default: 1)");
 				System.out.println();
 				System.exit(1);
 			}
@@ -922,6 +1126,7 @@ public class Main {
 			String microbialContentFilePath = null;
 			String genomeIndexDirPath = null;
 			boolean useMDflag = false;
+			int threads = 1;
 			HashSet<String> referenceChromosomes = new HashSet<String>();
 			for(int i = 1; i < args.length; i++) {
 				if(args[i].equals("-sam")) {
@@ -942,9 +1147,12 @@ public class Main {
 				if(args[i].equals("--mdflag")) {
 					useMDflag = true;
 				}
+				if(args[i].equals("-t")) {
+					threads = Integer.valueOf(args[++i]);
+				}
 				
 			}
-			new Statistic().generateErrorRateTableFromConcatenatedGenomes(samFilePath,microbialContentFilePath,genomeIndexDirPath,useMDflag,referenceChromosomes,null);
+			new Statistic().generateErrorRateTableFromConcatenatedGenomes(samFilePath,microbialContentFilePath,genomeIndexDirPath,useMDflag,referenceChromosomes,null,threads);
 		}
 		
 		
@@ -961,6 +1169,10 @@ public class Main {
 				System.out.println("-idx\t\t<The path to a directory containing index files, which were generated with the 'indexer' tool>");
 				System.out.println("-specieslist\t<The path to a tab seperated file containing for each species its id and trivial name. The output will be limited to the set of given species.>");
 				System.out.println();
+				System.out.println("Options:");
+				System.out.println();
+				System.out.println("-t\t\t<The number of threads used to process the sam file> (default: 1)");
+				System.out.println();
 				System.exit(1);
 			}
 			
@@ -968,6 +1180,7 @@ public class Main {
 			String microbialContentFilePath = null;
 			String genomeIndexDirPath = null;
 			boolean mergeYeastChr = true;
+			int threads = 1;
 			for(int i = 1; i < args.length; i++) {
 				if(args[i].equals("-sam")) {
 					samFilePath = args[++i];
@@ -981,8 +1194,11 @@ public class Main {
 				if(args[i].equals("--noyeastmerge")) {
 					mergeYeastChr = false;
 				}
+				if(args[i].equals("-t")) {
+					threads = Integer.valueOf(args[++i]);
+				}
 			}
-			new Statistic().generateConfidenceScoresFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,mergeYeastChr,null);
+			new Statistic().generateConfidenceScoresFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,mergeYeastChr,null,threads);
 		}
 		
 		
@@ -1000,6 +1216,10 @@ public class Main {
 				System.out.println("-idx\t\t<The path to a directory containing index files, which were generated with the 'indexer' tool>");
 				System.out.println("-specieslist\t<The path to a tab seperated file containing for each species its id and trivial name. The output will be limited to the set of given species.>");
 				System.out.println();
+				System.out.println("Options:");
+				System.out.println();
+				System.out.println("-t\t\t<The number of threads used to process the sam file> (default: 1)");
+				System.out.println();
 				System.exit(1);
 			}
 			
@@ -1009,6 +1229,7 @@ public class Main {
 			String microbialContentFilePath = null;
 			String genomeIndexDirPath = null;
 			boolean mergeYeastChr = true;
+			int threads = 1;
 			HashSet<String> speciesFilterNames = new HashSet<String>();
 			for(int i = 1; i < args.length; i++) {
 				if(args[i].equals("-sam")) {
@@ -1027,8 +1248,11 @@ public class Main {
 				if(args[i].equals("--noyeastmerge")) {
 					mergeYeastChr = false;
 				}
+				if(args[i].equals("-t")) {
+					threads = Integer.valueOf(args[++i]);
+				}
 			}
-			new Statistic().generateDistanceTableFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,speciesFilterNames,mergeYeastChr);
+			new Statistic().generateDistanceTableFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,speciesFilterNames,mergeYeastChr,threads);
 		}
 		
 		
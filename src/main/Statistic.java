@@ -22,6 +22,8 @@ import java.util.regex.Pattern;
 
 import augmentedTree.Interval;
 import augmentedTree.IntervalTree;
+import tools.SamChunkReader;
+import tools.SpeciesLocator;
 
 public class Statistic {
 
@@ -186,7 +188,7 @@ public class Statistic {
 				}
 				
 			}
-			generateErrorRateTableFromConcatenatedGenomes(samFilePath,microbialContentFilePath,genomeIndexDirPath,useMDflag,referenceChromosomes,null);
+			generateErrorRateTableFromConcatenatedGenomes(samFilePath,microbialContentFilePath,genomeIndexDirPath,useMDflag,referenceChromosomes,null,1);
 		}
 		
 		if(args[0].equals("averageErrorRateTable")) {
@@ -228,7 +230,7 @@ public class Statistic {
 					mergeYeastChr = false;
 				}
 			}
-			generateDistanceTableFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,speciesFilterNames,mergeYeastChr);
+			generateDistanceTableFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,speciesFilterNames,mergeYeastChr,1);
 		}
 		
 		if(args[0].equals("getDistanceTableFromUnconcatenatedGenomes")) {
@@ -299,7 +301,7 @@ public class Statistic {
 					mergeYeastChr = false;
 				}
 			}
-			generateConfidenceScoresFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,mergeYeastChr,null);
+			generateConfidenceScoresFromConcatenatedGenomes(samFilePath, microbialContentFilePath,genomeIndexDirPath,mergeYeastChr,null,1);
 		}
 		
 		if(args[0].equals("getConfidenceScoresFromUnconcatenatedGenomes")) {
@@ -1027,18 +1029,31 @@ public class Statistic {
 	
 	
 	
-	public static HashMap<String,HashMap<Integer,Double>> generateErrorRateTableFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath,String genomeIndexDirPath, boolean useMDflag, HashSet<String> referenceChromosomes,HashMap<String,String> id2trivialName) {
+	public static HashMap<String,HashMap<Integer,Double>> generateErrorRateTableFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath,String genomeIndexDirPath, boolean useMDflag, HashSet<String> referenceChromosomes,HashMap<String,String> id2trivialName, int threads) {
+		try {
+			ErrorRateAggregator errorRates = new ErrorRateAggregator(new GenomeIndex(genomeIndexDirPath),useMDflag);
+			ArrayList<ErrorRateAggregator> aggregators = new ArrayList<ErrorRateAggregator>();
+			aggregators.add(errorRates);
+			SamChunkReader.read(samFilePath, threads, aggregators);
+			return getErrorRateTable(errorRates, microbialContentFilePath, referenceChromosomes, id2trivialName);
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * error rate table from the mismatch counts collected by the given aggregator (see generateErrorRateTableFromConcatenatedGenomes)
+	 */
+	public static HashMap<String,HashMap<Integer,Double>> getErrorRateTable(ErrorRateAggregator errorRates, String microbialContentFilePath, HashSet<String> referenceChromosomes, HashMap<String,String> id2trivialName) {
 		try {
 			HashMap<String,HashMap<Integer,Double>> species2errorRate = new HashMap<String,HashMap<Integer,Double>>();
 			HashMap<String,String> species2trivialName = new HashMap<String,String>();
 			BufferedReader br;
 			String currentLine;
 			String[] splittedLine;
-			String[] splittedId;
-			String shortId;
 			Pattern tabPattern = Pattern.compile("\t");
-			Pattern barPattern = Pattern.compile("\\|");
-			String tmpChr;
 			
 			if(id2trivialName != null) {
 				for(String id : id2trivialName.keySet()) {
@@ -1067,140 +1082,45 @@ public class Statistic {
 				species2trivialName.put("Reference", "Reference");
 			}
 			
-			
-			//now generate interval trees on all contained genomes
-			HashMap<String,IntervalTree<Microbe>> index2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
-			File[] indexFiles = new File(genomeIndexDirPath).listFiles();
-			for(File indexFile : indexFiles) {
-				if(indexFile.getName().contains(".idx")) {
-					br = new BufferedReader(new FileReader(indexFile));
-					IntervalTree<Microbe> genomeTree = new IntervalTree<Microbe>();
-					while(br.ready()) {
-						currentLine = br.readLine();
-						splittedLine = tabPattern.split(currentLine);
-						splittedId = barPattern.split(splittedLine[0]);
-						
-						//here we have a species, which does not come from refseq
-						if(splittedId.length < 3)
-							shortId = splittedId[0];
-						else
-							shortId = splittedId[3];
-							
-						if(species2errorRate.containsKey(shortId) || microbialContentFilePath == null) {
-							Microbe tmpMicrobe = new Microbe(shortId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0);
-							genomeTree.add(tmpMicrobe);
-						}
-						else if(shortId.contains("NZ_")) {
-							String tmpMicrobeId = shortId.substring(0,9) + "000000";
-							if(species2errorRate.containsKey(tmpMicrobeId) || microbialContentFilePath == null) {
-								Microbe tmpMicrobe = new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0);
-								genomeTree.add(tmpMicrobe);
-							}
-						}
-						else if(shortId.length() >= 6 && (species2errorRate.containsKey(shortId.substring(0,6) + "000000") || microbialContentFilePath == null)) {
-							String tmpMicrobeId = shortId.substring(0,6) + "000000";
-							Microbe tmpMicrobe = new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0);
-							genomeTree.add(tmpMicrobe);
-						}
-					}
-					br.close();
-					index2genomeTree.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), genomeTree);
+			//mismatch counts of the index entries, entries of species not contained in the species list are skipped
+			int maxMismatches = Integer.MIN_VALUE;
+			String speciesId;
+			HashMap<Integer,Double> mismatchCounts;
+			for(Microbe entry : errorRates.entry2errorRate.keySet()) {
+				speciesId = getErrorRateSpeciesId(entry.getId(), species2errorRate, microbialContentFilePath);
+				if(speciesId == null)
+					continue;
+				
+				if(!species2errorRate.containsKey(speciesId)) {
+					species2errorRate.put(speciesId, new HashMap<Integer,Double>());
+					species2trivialName.put(speciesId,speciesId);
 				}
-			}
-			
-			//adding chromosomes of not indexed species
-			br = new BufferedReader(new FileReader(new File(samFilePath)));
-			String chr;
-			while((currentLine = br.readLine()) != null) {
-				splittedLine = tabPattern.split(currentLine);
-				chr = splittedLine[2];
-				if(!index2genomeTree.containsKey(chr) && (referenceChromosomes.size() < 2 || !referenceChromosomes.contains(chr))) {
-					species2errorRate.put(chr, new HashMap<Integer,Double>());
-					species2trivialName.put(chr,chr);
+				mismatchCounts = errorRates.entry2errorRate.get(entry);
+				addMismatchCounts(species2errorRate.get(speciesId), mismatchCounts);
+				for(int mismatches : mismatchCounts.keySet()) {
+					if(mismatches > maxMismatches)
+						maxMismatches = mismatches;
 				}
 			}
-			br.close();
 			
-			//now go through the sam file and collect relevant information
-			br = new BufferedReader(new FileReader(new File(samFilePath)));
-			int start;
-			IntervalTree<Microbe> currentGenomeTree;
-			Collection<Microbe> currentMicrobes;
-			Microbe currentMicrobe;
-			int mismatches = Integer.MAX_VALUE;
-			int maxMismatches = Integer.MIN_VALUE;
-			while(br.ready()) {
-				currentLine = br.readLine();
-				splittedLine = tabPattern.split(currentLine);
-				chr = splittedLine[2];
-				if(index2genomeTree.containsKey(chr)) {
-					currentGenomeTree = index2genomeTree.get(chr);
-					start = Integer.valueOf(splittedLine[3]);
-					currentMicrobes = currentGenomeTree.getIntervalsSpanning(start, new ArrayList<Microbe>());
-					if(!currentMicrobes.isEmpty()) {
-						currentMicrobe = currentMicrobes.iterator().next();
-						
-						//additional sam fields start at index 11
-						mismatches = Integer.MAX_VALUE;
-						for(int i = 11; i < splittedLine.length; i++) {
-							if(!useMDflag && splittedLine[i].contains("NM:i:")) {
-								mismatches = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								break;
-							}
-							else if(useMDflag && splittedLine[i].contains("MD:Z:")) {
-								mismatches = getMismatchCountFromMDtag(splittedLine[i].substring(5));
-								break;
-							}
-						}
-						
-						
-						if(mismatches > maxMismatches)
-							maxMismatches = mismatches;
-						
-						
-						if(microbialContentFilePath == null) {
-							if(!species2errorRate.containsKey(currentMicrobe.getId())) {
-								species2errorRate.put(currentMicrobe.getId(), new HashMap<Integer,Double>());
-								species2trivialName.put(currentMicrobe.getId(),currentMicrobe.getId());
-							}
-						}
-						
-						if(species2errorRate.get(currentMicrobe.getId()).containsKey(mismatches))
-							species2errorRate.get(currentMicrobe.getId()).put(mismatches, species2errorRate.get(currentMicrobe.getId()).get(mismatches) + 1);
-						else
-							species2errorRate.get(currentMicrobe.getId()).put(mismatches, 1.0);
-					
-					}
-					
-				}
+			//found mapping on reference or to something unknown....
+			String tmpChr;
+			for(String chr : errorRates.chr2errorRate.keySet()) {
+				tmpChr = chr;
+				if(referenceChromosomes.size() > 1 && referenceChromosomes.contains(chr))
+					tmpChr = "Reference";
 				
-				//found mapping on reference or to something unknown....
-				else {
-					mismatches = Integer.MAX_VALUE;
-					for(int i = 11; i < splittedLine.length; i++) {
-						if(splittedLine[i].contains("NM:i:")) {
-							mismatches = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-							break;
-						}
-					}
-					
-					
+				if(!species2errorRate.containsKey(tmpChr)) {
+					species2errorRate.put(tmpChr, new HashMap<Integer,Double>());
+					species2trivialName.put(tmpChr,tmpChr);
+				}
+				mismatchCounts = errorRates.chr2errorRate.get(chr);
+				addMismatchCounts(species2errorRate.get(tmpChr), mismatchCounts);
+				for(int mismatches : mismatchCounts.keySet()) {
 					if(mismatches > maxMismatches)
 						maxMismatches = mismatches;
-					
-					tmpChr = chr;
-					if(referenceChromosomes.contains(chr)) {
-						tmpChr = "Reference";
-					}
-					
-					if(species2errorRate.get(tmpChr).containsKey(mismatches))
-						species2errorRate.get(tmpChr).put(mismatches, species2errorRate.get(tmpChr).get(mismatches) + 1);
-					else
-						species2errorRate.get(tmpChr).put(mismatches, 1.0);
-				
 				}
 			}
-			br.close();
 			
 			//merge yeast content (if available...)
 			HashMap<Integer,Double> yeastMergedRates = new HashMap<Integer,Double>();
@@ -1254,6 +1174,100 @@ public class Statistic {
 		}
 	}
 	
+	/**
+	 * maps the id of an index entry to the species id used in the error rate table (null if the species is not contained in the species list)
+	 */
+	private static String getErrorRateSpeciesId(String shortId, HashMap<String,HashMap<Integer,Double>> species2errorRate, String microbialContentFilePath) {
+		if(species2errorRate.containsKey(shortId) || microbialContentFilePath == null)
+			return shortId;
+		
+		if(shortId.contains("NZ_")) {
+			String tmpMicrobeId = shortId.substring(0,9) + "000000";
+			if(species2errorRate.containsKey(tmpMicrobeId))
+				return tmpMicrobeId;
+			return null;
+		}
+		
+		if(shortId.length() >= 6 && species2errorRate.containsKey(shortId.substring(0,6) + "000000"))
+			return shortId.substring(0,6) + "000000";
+		
+		return null;
+	}
+	
+	private static void addMismatchCounts(HashMap<Integer,Double> errorRate, HashMap<Integer,Double> mismatchCounts) {
+		for(int mismatches : mismatchCounts.keySet()) {
+			if(errorRate.containsKey(mismatches))
+				errorRate.put(mismatches, errorRate.get(mismatches) + mismatchCounts.get(mismatches));
+			else
+				errorRate.put(mismatches, mismatchCounts.get(mismatches));
+		}
+	}
+	
+	/**
+	 * maps the id of an index entry to the species id used in the confidence and distance tables
+	 */
+	private static String getSpeciesId(String shortId, HashMap<String,HashMap<String,Double[]>> species2secondBestSpecies, boolean mergeYeastChr) {
+		if(shortId.contains("NZ_"))
+			return shortId.substring(0,9) + "000000";
+		
+		if(shortId.length() >= 6 && species2secondBestSpecies.containsKey(shortId.substring(0,6) + "000000"))
+			return shortId.substring(0,6) + "000000";
+		
+		if(mergeYeastChr && yeastChr.contains(shortId))
+			return "Yeast";
+		
+		return shortId;
+	}
+	
+	/**
+	 * adds the best and second best hit counts of the index entries to their species. Entries of species without an entry in species2bestHitCounter
+	 * are skipped, second best species without an entry in species2secondBestSpecies are only added if addSecondBestSpecies is set.
+	 */
+	private static void addBestHitCounts(BestHitAggregator bestHits, HashMap<String,Double> species2bestHitCounter, HashMap<String,HashMap<String,Double[]>> species2secondBestSpecies, boolean mergeYeastChr, boolean addSecondBestSpecies) {
+		HashMap<Microbe,String> entry2species = new HashMap<Microbe,String>();
+		for(Microbe entry : bestHits.entry2bestHitCounter.keySet())
+			entry2species.put(entry, getSpeciesId(entry.getId(), species2secondBestSpecies, mergeYeastChr));
+		for(HashMap<Microbe,double[]> secondBestEntries : bestHits.entry2secondBestEntries.values()) {
+			for(Microbe entry : secondBestEntries.keySet()) {
+				if(!entry2species.containsKey(entry))
+					entry2species.put(entry, getSpeciesId(entry.getId(), species2secondBestSpecies, mergeYeastChr));
+			}
+		}
+		
+		String speciesId;
+		for(Microbe entry : bestHits.entry2bestHitCounter.keySet()) {
+			speciesId = entry2species.get(entry);
+			if(species2bestHitCounter.containsKey(speciesId))
+				species2bestHitCounter.put(speciesId, species2bestHitCounter.get(speciesId) + bestHits.entry2bestHitCounter.get(entry));
+		}
+		
+		String secondBestSpeciesId;
+		HashMap<String,Double[]> currentSpeciesMap;
+		double[] counts;
+		for(Microbe entry : bestHits.entry2secondBestEntries.keySet()) {
+			speciesId = entry2species.get(entry);
+			currentSpeciesMap = species2secondBestSpecies.get(speciesId);
+			if(currentSpeciesMap == null)
+				continue;
+			
+			for(Microbe secondBestEntry : bestHits.entry2secondBestEntries.get(entry).keySet()) {
+				secondBestSpeciesId = entry2species.get(secondBestEntry);
+				if(speciesId.equals(secondBestSpeciesId))
+					continue;
+				
+				if(!currentSpeciesMap.containsKey(secondBestSpeciesId)) {
+					if(!addSecondBestSpecies)
+						continue;
+					Double[] tmpArray = {0.0,0.0};
+					currentSpeciesMap.put(secondBestSpeciesId, tmpArray);
+				}
+				counts = bestHits.entry2secondBestEntries.get(entry).get(secondBestEntry);
+				currentSpeciesMap.get(secondBestSpeciesId)[0] += counts[0];
+				currentSpeciesMap.get(secondBestSpeciesId)[1] += counts[1];
+			}
+		}
+	}
+	
 	private static int getMismatchCountFromMDtag(String MDtag) {
 		int mismatches = 0;
 		HashSet<String> knownCharacters = new HashSet<String>();
@@ -1360,7 +1374,7 @@ public class Statistic {
 	}
 	
 	
-	public static void generateDistanceTableFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath, String genomeIndexDirPath,HashSet<String> speciesFilter,boolean mergeYeastChr) {
+	public static void generateDistanceTableFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath, String genomeIndexDirPath,HashSet<String> speciesFilter,boolean mergeYeastChr, int threads) {
 		try {
 			ArrayList<String> speciesList = new ArrayList<String>();
 			HashMap<String,String> species2trivialName = new HashMap<String,String>();
@@ -1403,128 +1417,12 @@ public class Statistic {
 			}
 			
 			
-			//now generate interval trees on all contained genomes
-			HashMap<String,IntervalTree<Microbe>> index2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
-			File[] indexFiles = new File(genomeIndexDirPath).listFiles();
-			Pattern barPattern = Pattern.compile("\\|");
-			String[] splittedId;
-			String shortId;
-			for(File indexFile : indexFiles) {
-				if(indexFile.getName().contains(".idx")) {
-					br = new BufferedReader(new FileReader(indexFile));
-					IntervalTree<Microbe> genomeTree = new IntervalTree<Microbe>();
-					while(br.ready()) {
-						currentLine = br.readLine();
-						splittedLine = tabPattern.split(currentLine);
-						splittedId = barPattern.split(splittedLine[0]);
-						
-						//here we have a species, which does not come from refseq
-						if(splittedId.length < 3)
-							shortId = splittedId[0];
-						else
-							shortId = splittedId[3];
-							
-					
-						if(shortId.contains("NZ_")) {
-							String tmpMicrobeId = shortId.substring(0,9) + "000000";
-							genomeTree.add(new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						else if(shortId.length() >= 6 && species2secondBestSpecies.containsKey(shortId.substring(0,6) + "000000")) {
-							String tmpMicrobeId = shortId.substring(0,6) + "000000";
-							genomeTree.add(new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						
-						else if(mergeYeastChr && yeastChr.contains(shortId)) {
-							genomeTree.add(new Microbe("Yeast",Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						else {
-							Microbe tmpMicrobe = new Microbe(shortId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0);
-							genomeTree.add(tmpMicrobe);
-						}
-					}
-					br.close();
-					index2genomeTree.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), genomeTree);
-				}
-			}
-						
 			//now go through the sam file and collect relevant information
-			br = new BufferedReader(new FileReader(new File(samFilePath)));
-			String chr;
-			int start;
-			IntervalTree<Microbe> currentGenomeTree;
-			Collection<Microbe> currentMicrobes;
-			Microbe bestHitMicrobe;
-			Microbe secondBestHitMicrobe;
-			String chrOfSecondBestHit;
-			int startOfSecondBestHit = -1;
-			double scoreOfBestHit = Double.MIN_VALUE;
-			double scoreOfSecondBestHit = Double.MIN_VALUE;
-			double scoreDifference;
-			HashMap<String,Double[]> currentSpeciesMap;
-			while(br.ready()) {
-				currentLine = br.readLine();
-				splittedLine = tabPattern.split(currentLine);
-				chr = splittedLine[2];
-				if(index2genomeTree.containsKey(chr)) {
-					currentGenomeTree = index2genomeTree.get(chr);
-					start = Integer.valueOf(splittedLine[3]);
-					currentMicrobes = currentGenomeTree.getIntervalsSpanning(start, new ArrayList<Microbe>());
-					
-					if(!currentMicrobes.isEmpty()) {
-						bestHitMicrobe = currentMicrobes.iterator().next();
-						currentSpeciesMap = species2secondBestSpecies.get(bestHitMicrobe.getId());
-						species2bestHitCounter.put(bestHitMicrobe.getId(),species2bestHitCounter.get(bestHitMicrobe.getId()) + 1.0);
-						
-						
-						chrOfSecondBestHit = null;
-						for(int i = 11; i < splittedLine.length; i++) {
-							if(splittedLine[i].contains("CC:Z:")) {
-								chrOfSecondBestHit = splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1);
-								continue;
-							}
-							if(splittedLine[i].contains("CP:i:")) {
-								startOfSecondBestHit = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								continue;
-							}
-							if(splittedLine[i].contains("S1:f:")) {
-								scoreOfBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								continue;
-							}
-							if(splittedLine[i].contains("S2:f:")) {
-								scoreOfSecondBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								continue;
-							}
-							
-						}
-						if(chrOfSecondBestHit != null && index2genomeTree.containsKey(chrOfSecondBestHit)) {
-							currentGenomeTree = index2genomeTree.get(chrOfSecondBestHit);
-							currentMicrobes = currentGenomeTree.getIntervalsSpanning(startOfSecondBestHit, new ArrayList<Microbe>());
-							if(!currentMicrobes.isEmpty()) {
-								secondBestHitMicrobe = currentMicrobes.iterator().next();
-								if(!bestHitMicrobe.getId().equals(secondBestHitMicrobe.getId()) && currentSpeciesMap.containsKey(secondBestHitMicrobe.getId())) {
-									if(scoreOfBestHit != 0.0) {
-										scoreDifference = Math.abs(scoreOfBestHit - scoreOfSecondBestHit)/Math.abs(scoreOfBestHit);
-									}
-									else
-										scoreDifference = 0.0;
-									
-									currentSpeciesMap.get(secondBestHitMicrobe.getId())[0]++;
-									currentSpeciesMap.get(secondBestHitMicrobe.getId())[1]+=scoreDifference;
-								}
-								
-							}
-							else {
-								System.err.println(String.format("WARNING: Found no entry for chr '%s' at position '%s'",chr,startOfSecondBestHit));
-							}
-						}
-					}
-					else {
-						System.err.println(String.format("WARNING: Found no entry for chr '%s' at position '%s'",chr,start));
-					}
-					
-				}
-			}
-			br.close();
+			BestHitAggregator bestHits = new BestHitAggregator(new GenomeIndex(genomeIndexDirPath),false,true);
+			ArrayList<BestHitAggregator> aggregators = new ArrayList<BestHitAggregator>();
+			aggregators.add(bestHits);
+			SamChunkReader.read(samFilePath, threads, aggregators);
+			addBestHitCounts(bestHits, species2bestHitCounter, species2secondBestSpecies, mergeYeastChr, false);
 			
 			
 			//output distance table now
@@ -1863,7 +1761,33 @@ public class Statistic {
 		}
 	}
 	
-	public static HashMap<String,Double> generateConfidenceScoresFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath, String genomeIndexDirPath, boolean mergeYeastChr, HashMap<String,String> hashedMicrobialContent) {
+	public static HashMap<String,Double> generateConfidenceScoresFromConcatenatedGenomes(String samFilePath, String microbialContentFilePath, String genomeIndexDirPath, boolean mergeYeastChr, HashMap<String,String> hashedMicrobialContent, int threads) {
+		try {
+			Date date = new Date();
+			if(hashedMicrobialContent == null)
+				System.err.println(String.format("[%s]\tReading index files.",date.toLocaleString()));
+			BestHitAggregator bestHits = new BestHitAggregator(new GenomeIndex(genomeIndexDirPath),true,false);
+			
+			date = new Date();
+			if(hashedMicrobialContent == null)
+				System.err.println(String.format("[%s]\tProcessing sam file.",date.toLocaleString()));
+			ArrayList<BestHitAggregator> aggregators = new ArrayList<BestHitAggregator>();
+			aggregators.add(bestHits);
+			SamChunkReader.read(samFilePath, threads, aggregators);
+			
+			return getConfidenceScores(bestHits, microbialContentFilePath, mergeYeastChr, hashedMicrobialContent);
+		}
+		
+		catch(Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * confidence scores from the hit counts collected by the given aggregator (see generateConfidenceScoresFromConcatenatedGenomes)
+	 */
+	public static HashMap<String,Double> getConfidenceScores(BestHitAggregator bestHits, String microbialContentFilePath, boolean mergeYeastChr, HashMap<String,String> hashedMicrobialContent) {
 		try {
 			Date date;
 			HashMap<String,Double> species2confidence = new HashMap<String,Double>();
@@ -1931,135 +1855,7 @@ public class Statistic {
 				}
 			}
 			
-			date = new Date();
-			if(hashedMicrobialContent == null)
-				System.err.println(String.format("[%s]\tReading index files.",date.toLocaleString()));
-			//now generate interval trees on all contained genomes
-			HashMap<String,IntervalTree<Microbe>> index2genomeTree = new HashMap<String,IntervalTree<Microbe>>();
-			File[] indexFiles = new File(genomeIndexDirPath).listFiles();
-			Pattern barPattern = Pattern.compile("\\|");
-			String[] splittedId;
-			String shortId;
-			for(File indexFile : indexFiles) {
-				if(indexFile.getName().contains(".idx")) {
-					br = new BufferedReader(new FileReader(indexFile));
-					IntervalTree<Microbe> genomeTree = new IntervalTree<Microbe>();
-					while(br.ready()) {
-						currentLine = br.readLine();
-						splittedLine = tabPattern.split(currentLine);
-						splittedId = barPattern.split(splittedLine[0]);
-						
-						//here we have a species, which does not come from refseq
-						if(splittedId.length < 3)
-							shortId = splittedId[0];
-						else
-							shortId = splittedId[3];
-							
-						if(shortId.contains("NZ_")) {
-							String tmpMicrobeId = shortId.substring(0,9) + "000000";
-							genomeTree.add(new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						else if(shortId.length() >= 6 && species2secondBestSpecies.containsKey(shortId.substring(0,6) + "000000")) {
-							String tmpMicrobeId = shortId.substring(0,6) + "000000";
-							genomeTree.add(new Microbe(tmpMicrobeId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						else if(mergeYeastChr && yeastChr.contains(shortId)) {
-							genomeTree.add(new Microbe("Yeast",Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
-						}
-						else {
-							Microbe tmpMicrobe = new Microbe(shortId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0);
-							genomeTree.add(tmpMicrobe);
-						}
-						
-					}
-					br.close();
-					index2genomeTree.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), genomeTree);
-				}
-			}
-			
-			
-			date = new Date();
-			if(hashedMicrobialContent == null)
-				System.err.println(String.format("[%s]\tProcessing sam file.",date.toLocaleString()));
-			//now go through the sam file and collect relevant information
-			br = new BufferedReader(new FileReader(new File(samFilePath)));
-			String chr;
-			int start;
-			IntervalTree<Microbe> currentGenomeTree;
-			Collection<Microbe> currentMicrobes;
-			Microbe bestHitMicrobe;
-			Microbe secondBestHitMicrobe;
-			String chrOfSecondBestHit;
-			int startOfSecondBestHit = -1;
-			double scoreOfBestHit = Double.MIN_VALUE;
-			double scoreOfSecondBestHit = Double.MIN_VALUE;
-			double scoreDifference;
-			HashMap<String,Double[]> currentSpeciesMap;
-			while(br.ready()) {
-				currentLine = br.readLine();
-				splittedLine = tabPattern.split(currentLine);
-				chr = splittedLine[2];
-				if(index2genomeTree.containsKey(chr)) {
-					currentGenomeTree = index2genomeTree.get(chr);
-					start = Integer.valueOf(splittedLine[3]);
-					currentMicrobes = currentGenomeTree.getIntervalsSpanning(start, new ArrayList<Microbe>());
-					if(!currentMicrobes.isEmpty()) {
-						bestHitMicrobe = currentMicrobes.iterator().next();						
-						currentSpeciesMap = species2secondBestSpecies.get(bestHitMicrobe.getId());
-						species2bestHitCounter.put(bestHitMicrobe.getId(),species2bestHitCounter.get(bestHitMicrobe.getId()) + 1.0);
-						
-						
-						chrOfSecondBestHit = null;
-						for(int i = 11; i < splittedLine.length; i++) {
-							if(splittedLine[i].contains("CC:Z:")) {
-								chrOfSecondBestHit = splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1);
-								continue;
-							}
-							if(splittedLine[i].contains("CP:i:")) {
-								startOfSecondBestHit = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								continue;
-							}
-							if(splittedLine[i].contains("S1:f:")) {
-								scoreOfBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								if(scoreOfBestHit < 0)
-									scoreOfBestHit = 0;
-								continue;
-							}
-							if(splittedLine[i].contains("S2:f:")) {
-								scoreOfSecondBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
-								if(scoreOfSecondBestHit < 0)
-									scoreOfSecondBestHit = 0;
-								continue;
-							}
-							
-						}
-						if(chrOfSecondBestHit != null && index2genomeTree.containsKey(chrOfSecondBestHit)) {
-							currentGenomeTree = index2genomeTree.get(chrOfSecondBestHit);
-							currentMicrobes = currentGenomeTree.getIntervalsSpanning(startOfSecondBestHit, new ArrayList<Microbe>());
-							if(!currentMicrobes.isEmpty()) {
-								secondBestHitMicrobe = currentMicrobes.iterator().next();
-								if(!bestHitMicrobe.getId().equals(secondBestHitMicrobe.getId())) {
-									if(scoreOfBestHit != 0.0) {
-										scoreDifference = Math.abs(scoreOfBestHit - scoreOfSecondBestHit)/Math.abs(scoreOfBestHit);
-									}
-									else
-										scoreDifference = 0.0;
-									
-									if(!currentSpeciesMap.containsKey(secondBestHitMicrobe.getId())) {
-										Double[] tmpArray = {0.0,0.0};
-										currentSpeciesMap.put(secondBestHitMicrobe.getId(), tmpArray);
-									}
-									
-									currentSpeciesMap.get(secondBestHitMicrobe.getId())[0]++;
-									currentSpeciesMap.get(secondBestHitMicrobe.getId())[1]+=scoreDifference;
-								}
-							}
-						}
-					}
-					
-				}
-			}
-			br.close();
+			addBestHitCounts(bestHits, species2bestHitCounter, species2secondBestSpecies, mergeYeastChr, true);
 			
 			date = new Date();
 			if(hashedMicrobialContent == null)
@@ -2474,6 +2270,299 @@ public class Statistic {
 		return twoDec.format(inValue);
 		}
 	
+	/**
+	 * interval trees on the entries of the genome index files (one tree per index file). The entries keep the ids given in the
+	 * index files, these are mapped to species ids after processing the sam file.
+	 * The trees are only read after construction and are shared by all threads of a SamChunkReader.
+	 */
+	public static class GenomeIndex {
+		
+		private HashMap<String,SpeciesLocator<Microbe>> index2genomeLocator;
+		
+		public GenomeIndex(String genomeIndexDirPath) throws Exception {
+			this.index2genomeLocator = new HashMap<String,SpeciesLocator<Microbe>>();
+			File[] indexFiles = new File(genomeIndexDirPath).listFiles();
+			Pattern tabPattern = Pattern.compile("\t");
+			Pattern barPattern = Pattern.compile("\\|");
+			BufferedReader br;
+			String currentLine;
+			String[] splittedLine;
+			String[] splittedId;
+			String shortId;
+			for(File indexFile : indexFiles) {
+				if(indexFile.getName().contains(".idx")) {
+					br = new BufferedReader(new FileReader(indexFile));
+					ArrayList<Microbe> genomes = new ArrayList<Microbe>();
+					while(br.ready()) {
+						currentLine = br.readLine();
+						splittedLine = tabPattern.split(currentLine);
+						splittedId = barPattern.split(splittedLine[0]);
+						
+						//here we have a species, which does not come from refseq
+						if(splittedId.length < 3)
+							shortId = splittedId[0];
+						else
+							shortId = splittedId[3];
+						
+						genomes.add(new Microbe(shortId,Integer.valueOf(splittedLine[1]),Integer.valueOf(splittedLine[2]),0));
+					}
+					br.close();
+					this.index2genomeLocator.put(indexFile.getName().substring(0, indexFile.getName().lastIndexOf('.')), new SpeciesLocator<Microbe>(genomes));
+				}
+			}
+		}
+		
+		public boolean contains(String chr) {
+			return this.index2genomeLocator.containsKey(chr);
+		}
+		
+		/**
+		 * returns the entry spanning the given position (null if there is none)
+		 */
+		private Microbe getEntry(String chr, int position) {
+			return this.index2genomeLocator.get(chr).getGenome(position);
+		}
+	}
+	
+	
+	/**
+	 * counts the best hits of every index entry and the second best hits (CC and CP fields) for every pair of index entries,
+	 * used for the confidence and distance calculation.
+	 */
+	public static class BestHitAggregator implements SamChunkReader.Aggregator {
+		
+		private GenomeIndex genomeIndex;
+		private boolean clipNegativeScores;
+		private boolean reportMissingEntries;
+		
+		private HashMap<Microbe,Double> entry2bestHitCounter;
+		// first field contains the number of second best hits and the second field the sum of score differences
+		private HashMap<Microbe,HashMap<Microbe,double[]>> entry2secondBestEntries;
+		
+		/**
+		 * @param clipNegativeScores negative S1 and S2 scores are set to 0
+		 * @param reportMissingEntries prints a warning for hits without a spanning index entry
+		 */
+		public BestHitAggregator(GenomeIndex genomeIndex, boolean clipNegativeScores, boolean reportMissingEntries) {
+			this.genomeIndex = genomeIndex;
+			this.clipNegativeScores = clipNegativeScores;
+			this.reportMissingEntries = reportMissingEntries;
+			this.entry2bestHitCounter = new HashMap<Microbe,Double>();
+			this.entry2secondBestEntries = new HashMap<Microbe,HashMap<Microbe,double[]>>();
+		}
+		
+		@Override
+		public SamChunkReader.Aggregator createPartial() {
+			return new BestHitAggregator(this.genomeIndex,this.clipNegativeScores,this.reportMissingEntries);
+		}
+		
+		@Override
+		public void processRecord(String[] splittedLine) {
+			if(splittedLine.length < 4)
+				return;
+			
+			String chr = splittedLine[2];
+			if(!this.genomeIndex.contains(chr))
+				return;
+			
+			int start = Integer.valueOf(splittedLine[3]);
+			Microbe bestHitMicrobe = this.genomeIndex.getEntry(chr, start);
+			if(bestHitMicrobe == null) {
+				if(this.reportMissingEntries)
+					System.err.println(String.format("WARNING: Found no entry for chr '%s' at position '%s'",chr,start));
+				return;
+			}
+			if(this.entry2bestHitCounter.containsKey(bestHitMicrobe))
+				this.entry2bestHitCounter.put(bestHitMicrobe, this.entry2bestHitCounter.get(bestHitMicrobe) + 1.0);
+			else
+				this.entry2bestHitCounter.put(bestHitMicrobe, 1.0);
+			
+			String chrOfSecondBestHit = null;
+			int startOfSecondBestHit = -1;
+			double scoreOfBestHit = Double.MIN_VALUE;
+			double scoreOfSecondBestHit = Double.MIN_VALUE;
+			for(int i = 11; i < splittedLine.length; i++) {
+				if(splittedLine[i].contains("CC:Z:")) {
+					chrOfSecondBestHit = splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1);
+					continue;
+				}
+				if(splittedLine[i].contains("CP:i:")) {
+					startOfSecondBestHit = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
+					continue;
+				}
+				if(splittedLine[i].contains("S1:f:")) {
+					scoreOfBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
+					if(this.clipNegativeScores && scoreOfBestHit < 0)
+						scoreOfBestHit = 0;
+					continue;
+				}
+				if(splittedLine[i].contains("S2:f:")) {
+					scoreOfSecondBestHit = Double.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
+					if(this.clipNegativeScores && scoreOfSecondBestHit < 0)
+						scoreOfSecondBestHit = 0;
+					continue;
+				}
+			}
+			
+			if(chrOfSecondBestHit == null || !this.genomeIndex.contains(chrOfSecondBestHit))
+				return;
+			
+			Microbe secondBestHitMicrobe = this.genomeIndex.getEntry(chrOfSecondBestHit, startOfSecondBestHit);
+			if(secondBestHitMicrobe == null) {
+				if(this.reportMissingEntries)
+					System.err.println(String.format("WARNING: Found no entry for chr '%s' at position '%s'",chr,startOfSecondBestHit));
+				return;
+			}
+			//hits on the same entry belong to the same species
+			if(secondBestHitMicrobe == bestHitMicrobe)
+				return;
+			
+			double scoreDifference = 0.0;
+			if(scoreOfBestHit != 0.0)
+				scoreDifference = Math.abs(scoreOfBestHit - scoreOfSecondBestHit)/Math.abs(scoreOfBestHit);
+			
+			HashMap<Microbe,double[]> secondBestEntries = this.entry2secondBestEntries.get(bestHitMicrobe);
+			if(secondBestEntries == null) {
+				secondBestEntries = new HashMap<Microbe,double[]>();
+				this.entry2secondBestEntries.put(bestHitMicrobe, secondBestEntries);
+			}
+			double[] counts = secondBestEntries.get(secondBestHitMicrobe);
+			if(counts == null) {
+				counts = new double[2];
+				secondBestEntries.put(secondBestHitMicrobe, counts);
+			}
+			counts[0]++;
+			counts[1] += scoreDifference;
+		}
+		
+		@Override
+		public void merge(SamChunkReader.Aggregator partial) {
+			BestHitAggregator bestHits = (BestHitAggregator)partial;
+			for(Microbe entry : bestHits.entry2bestHitCounter.keySet()) {
+				if(this.entry2bestHitCounter.containsKey(entry))
+					this.entry2bestHitCounter.put(entry, this.entry2bestHitCounter.get(entry) + bestHits.entry2bestHitCounter.get(entry));
+				else
+					this.entry2bestHitCounter.put(entry, bestHits.entry2bestHitCounter.get(entry));
+			}
+			
+			HashMap<Microbe,double[]> secondBestEntries;
+			double[] counts;
+			for(Microbe entry : bestHits.entry2secondBestEntries.keySet()) {
+				secondBestEntries = this.entry2secondBestEntries.get(entry);
+				if(secondBestEntries == null) {
+					this.entry2secondBestEntries.put(entry, bestHits.entry2secondBestEntries.get(entry));
+					continue;
+				}
+				for(Microbe secondBestEntry : bestHits.entry2secondBestEntries.get(entry).keySet()) {
+					counts = bestHits.entry2secondBestEntries.get(entry).get(secondBestEntry);
+					if(secondBestEntries.containsKey(secondBestEntry)) {
+						secondBestEntries.get(secondBestEntry)[0] += counts[0];
+						secondBestEntries.get(secondBestEntry)[1] += counts[1];
+					}
+					else
+						secondBestEntries.put(secondBestEntry, counts);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * counts the reads per mismatch count for every index entry (NM or MD field) and for every chromosome not contained in the
+	 * genome index (NM field), used for the error rate tables.
+	 */
+	public static class ErrorRateAggregator implements SamChunkReader.Aggregator {
+		
+		private GenomeIndex genomeIndex;
+		private boolean useMDflag;
+		
+		private HashMap<Microbe,HashMap<Integer,Double>> entry2errorRate;
+		private HashMap<String,HashMap<Integer,Double>> chr2errorRate;
+		
+		public ErrorRateAggregator(GenomeIndex genomeIndex, boolean useMDflag) {
+			this.genomeIndex = genomeIndex;
+			this.useMDflag = useMDflag;
+			this.entry2errorRate = new HashMap<Microbe,HashMap<Integer,Double>>();
+			this.chr2errorRate = new HashMap<String,HashMap<Integer,Double>>();
+		}
+		
+		@Override
+		public SamChunkReader.Aggregator createPartial() {
+			return new ErrorRateAggregator(this.genomeIndex,this.useMDflag);
+		}
+		
+		@Override
+		public void processRecord(String[] splittedLine) {
+			if(splittedLine.length < 4)
+				return;
+			
+			String chr = splittedLine[2];
+			int mismatches = Integer.MAX_VALUE;
+			HashMap<Integer,Double> mismatchCounts;
+			if(this.genomeIndex.contains(chr)) {
+				Microbe currentMicrobe = this.genomeIndex.getEntry(chr, Integer.valueOf(splittedLine[3]));
+				if(currentMicrobe == null)
+					return;
+				
+				//additional sam fields start at index 11
+				for(int i = 11; i < splittedLine.length; i++) {
+					if(!this.useMDflag && splittedLine[i].contains("NM:i:")) {
+						mismatches = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
+						break;
+					}
+					else if(this.useMDflag && splittedLine[i].contains("MD:Z:")) {
+						mismatches = getMismatchCountFromMDtag(splittedLine[i].substring(5));
+						break;
+					}
+				}
+				
+				mismatchCounts = this.entry2errorRate.get(currentMicrobe);
+				if(mismatchCounts == null) {
+					mismatchCounts = new HashMap<Integer,Double>();
+					this.entry2errorRate.put(currentMicrobe, mismatchCounts);
+				}
+			}
+			
+			//found mapping on reference or to something unknown....
+			else {
+				for(int i = 11; i < splittedLine.length; i++) {
+					if(splittedLine[i].contains("NM:i:")) {
+						mismatches = Integer.valueOf(splittedLine[i].substring(splittedLine[i].lastIndexOf(":") + 1));
+						break;
+					}
+				}
+				
+				mismatchCounts = this.chr2errorRate.get(chr);
+				if(mismatchCounts == null) {
+					mismatchCounts = new HashMap<Integer,Double>();
+					this.chr2errorRate.put(chr, mismatchCounts);
+				}
+			}
+			
+			if(mismatchCounts.containsKey(mismatches))
+				mismatchCounts.put(mismatches, mismatchCounts.get(mismatches) + 1);
+			else
+				mismatchCounts.put(mismatches, 1.0);
+		}
+		
+		@Override
+		public void merge(SamChunkReader.Aggregator partial) {
+			ErrorRateAggregator errorRates = (ErrorRateAggregator)partial;
+			for(Microbe entry : errorRates.entry2errorRate.keySet()) {
+				if(this.entry2errorRate.containsKey(entry))
+					addMismatchCounts(this.entry2errorRate.get(entry), errorRates.entry2errorRate.get(entry));
+				else
+					this.entry2errorRate.put(entry, errorRates.entry2errorRate.get(entry));
+			}
+			for(String chr : errorRates.chr2errorRate.keySet()) {
+				if(this.chr2errorRate.containsKey(chr))
+					addMismatchCounts(this.chr2errorRate.get(chr), errorRates.chr2errorRate.get(chr));
+				else
+					this.chr2errorRate.put(chr, errorRates.chr2errorRate.get(chr));
+			}
+		}
+	}
+	
 	private static class Microbe implements Interval {
 		
 		private String id;
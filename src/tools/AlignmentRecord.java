@@ -0,0 +1,218 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.StringTokenizer;
+
+import main.Pair;
+
+/**
+ * a single alignment candidate of the internal multi mapping format:
+ *
+ * context_id	read_id	chr	strand	start,end[,start,end...]	mismatches	strand_of_splice_signal	overlaps_known_junction	overall_mapping_count	overall_valid_pairs_count	overlaps_polyA
+ *
+ * Lines which do not match this layout exactly (e.g. additional fields) are kept as raw line.
+ */
+public class AlignmentRecord {
+
+	public static final int FIELD_COUNT = 11;
+
+	private String contextId;
+	private String readId;
+	private String chr;
+	private char strand;
+	private int[] coordinates;
+	private int coordinateCount;
+	private int mismatches;
+	private char strandOfSpliceSignal;
+	private boolean overlapsKnownJunction;
+	private int overallMappingCount;
+	private int overallValidPairsCount;
+	private char overlapsPolyA;
+
+	private String rawLine;
+	private int fieldCount;
+
+	private StringBuilder lineBuilder;
+
+	public AlignmentRecord() {
+		this.coordinates = new int[8];
+		this.lineBuilder = new StringBuilder();
+	}
+
+
+	/**
+	 * parses the given line. Returns true if the line can be restored by toLine(), otherwise the line is kept as raw line.
+	 * Throws an exception if the first FIELD_COUNT fields are missing or invalid.
+	 * @param line
+	 * @return
+	 */
+	public boolean parse(String line) throws Exception {
+		parseFields(line);
+		if(this.fieldCount == FIELD_COUNT && line.equals(toLine()))
+			return true;
+		
+		this.rawLine = line;
+		return false;
+	}
+
+
+	/**
+	 * parses the first FIELD_COUNT fields of the given line without checking if the line can be restored by toLine()
+	 * @param line
+	 */
+	public void parseFields(String line) throws Exception {
+		this.rawLine = null;
+		StringTokenizer st = new StringTokenizer(line,"\t");
+		this.fieldCount = st.countTokens();
+		this.contextId = st.nextToken();
+		this.readId = st.nextToken();
+		this.chr = st.nextToken();
+		this.strand = st.nextToken().charAt(0);
+
+		this.coordinateCount = 0;
+		StringTokenizer coordinateTokenizer = new StringTokenizer(st.nextToken(),",");
+		while(coordinateTokenizer.hasMoreTokens())
+			addCoordinate(Integer.valueOf(coordinateTokenizer.nextToken()));
+
+		this.mismatches = Integer.valueOf(st.nextToken());
+		this.strandOfSpliceSignal = st.nextToken().charAt(0);
+		this.overlapsKnownJunction = Boolean.valueOf(st.nextToken());
+		this.overallMappingCount = Integer.valueOf(st.nextToken());
+		this.overallValidPairsCount = Integer.valueOf(st.nextToken());
+		this.overlapsPolyA = st.nextToken().charAt(0);
+	}
+
+
+	public void set(String contextId, String readId, String chr, char strand, int[] coordinates, int coordinateCount, int mismatches, char strandOfSpliceSignal, boolean overlapsKnownJunction, int overallMappingCount, int overallValidPairsCount, char overlapsPolyA) {
+		this.contextId = contextId;
+		this.readId = readId;
+		this.chr = chr;
+		this.strand = strand;
+		this.coordinateCount = 0;
+		for(int i = 0; i < coordinateCount; i++)
+			addCoordinate(coordinates[i]);
+		this.mismatches = mismatches;
+		this.strandOfSpliceSignal = strandOfSpliceSignal;
+		this.overlapsKnownJunction = overlapsKnownJunction;
+		this.overallMappingCount = overallMappingCount;
+		this.overallValidPairsCount = overallValidPairsCount;
+		this.overlapsPolyA = overlapsPolyA;
+		this.rawLine = null;
+		this.fieldCount = FIELD_COUNT;
+	}
+
+
+	public String toLine() {
+		if(this.rawLine != null)
+			return this.rawLine;
+
+		this.lineBuilder.setLength(0);
+		this.lineBuilder.append(this.contextId).append("\t").append(this.readId).append("\t").append(this.chr).append("\t").append(this.strand).append("\t");
+		for(int i = 0; i < this.coordinateCount; i++) {
+			if(i > 0)
+				this.lineBuilder.append(",");
+			this.lineBuilder.append(this.coordinates[i]);
+		}
+		this.lineBuilder.append("\t").append(this.mismatches).append("\t").append(this.strandOfSpliceSignal).append("\t").append(this.overlapsKnownJunction).append("\t").append(this.overallMappingCount).append("\t").append(this.overallValidPairsCount).append("\t").append(this.overlapsPolyA);
+		return this.lineBuilder.toString();
+	}
+
+
+	/**
+	 * returns the coordinates as (start,end) pairs, a trailing single coordinate is skipped.
+	 * @return
+	 */
+	public ArrayList<Pair<Integer,Integer>> getCoordinatePairs() {
+		ArrayList<Pair<Integer,Integer>> pairs = new ArrayList<Pair<Integer,Integer>>(Math.max(2,this.coordinateCount / 2));
+		for(int i = 0; i < this.coordinateCount - 1; i+=2)
+			pairs.add(new Pair<Integer,Integer>(this.coordinates[i],this.coordinates[i+1]));
+		return pairs;
+	}
+
+
+	/**
+	 * key identifying the segments of this alignment (start_end_start_end_...)
+	 * @return
+	 */
+	public String getSplitKey() {
+		this.lineBuilder.setLength(0);
+		for(int i = 0; i < this.coordinateCount - 1; i+=2)
+			this.lineBuilder.append(this.coordinates[i]).append("_").append(this.coordinates[i+1]).append("_");
+		return this.lineBuilder.toString();
+	}
+
+
+	private void addCoordinate(int coordinate) {
+		if(this.coordinateCount == this.coordinates.length) {
+			int[] tmp = new int[this.coordinates.length * 2];
+			System.arraycopy(this.coordinates, 0, tmp, 0, this.coordinateCount);
+			this.coordinates = tmp;
+		}
+		this.coordinates[this.coordinateCount++] = coordinate;
+	}
+
+
+	public boolean isRaw() {
+		return this.rawLine != null;
+	}
+
+	public String getRawLine() {
+		return this.rawLine;
+	}
+
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	public String getContextId() {
+		return this.contextId;
+	}
+
+	public String getReadId() {
+		return this.readId;
+	}
+
+	public String getChr() {
+		return this.chr;
+	}
+
+	public char getStrand() {
+		return this.strand;
+	}
+
+	public int[] getCoordinates() {
+		return this.coordinates;
+	}
+
+	public int getCoordinateCount() {
+		return this.coordinateCount;
+	}
+
+	public int getCoordinate(int index) {
+		return this.coordinates[index];
+	}
+
+	public int getMismatches() {
+		return this.mismatches;
+	}
+
+	public char getStrandOfSpliceSignal() {
+		return this.strandOfSpliceSignal;
+	}
+
+	public boolean overlapsKnownJunction() {
+		return this.overlapsKnownJunction;
+	}
+
+	public int getOverallMappingCount() {
+		return this.overallMappingCount;
+	}
+
+	public int getOverallValidPairsCount() {
+		return this.overallValidPairsCount;
+	}
+
+	public char getOverlapsPolyA() {
+		return this.overlapsPolyA;
+	}
+}
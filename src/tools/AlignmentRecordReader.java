@@ -0,0 +1,201 @@
+package tools;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+
+import main.UnsynchronizedBufferedWriter;
+
+/**
+ * reads alignment records written by AlignmentRecordWriter. Records can be read sequentially (next()) or
+ * directly via their file offset (seek()).
+ */
+public class AlignmentRecordReader {
+
+	private RandomAccessFile raf;
+	private String[] dictionary;
+	private long recordsEnd;
+	private long records;
+
+	private byte[] buffer;
+	private long bufferStart;
+	private int bufferPosition;
+	private int bufferLimit;
+
+	private int[] coordinates;
+
+	public AlignmentRecordReader(String inputPath) throws Exception {
+		this.raf = new RandomAccessFile(new File(inputPath),"r");
+		this.buffer = new byte[65536];
+		this.coordinates = new int[8];
+
+		long fileSize = this.raf.length();
+		if(fileSize < AlignmentRecordWriter.HEADER_SIZE + AlignmentRecordWriter.TRAILER_SIZE || this.raf.readLong() != AlignmentRecordWriter.MAGIC) {
+			this.raf.close();
+			throw new Exception(String.format("%s is not a valid alignment record file.",inputPath));
+		}
+		int version = this.raf.readInt();
+		if(version != AlignmentRecordWriter.VERSION) {
+			this.raf.close();
+			throw new Exception(String.format("%s: unsupported alignment record file version (%s).",inputPath,version));
+		}
+
+		this.raf.seek(fileSize - AlignmentRecordWriter.TRAILER_SIZE);
+		this.recordsEnd = this.raf.readLong();
+		this.records = this.raf.readLong();
+		if(this.raf.readLong() != AlignmentRecordWriter.MAGIC) {
+			this.raf.close();
+			throw new Exception(String.format("%s is incomplete.",inputPath));
+		}
+
+		//dictionary
+		seek(this.recordsEnd);
+		this.dictionary = new String[readVarInt()];
+		for(int i = 0; i < this.dictionary.length; i++)
+			this.dictionary[i] = readString();
+
+		seek(AlignmentRecordWriter.HEADER_SIZE);
+	}
+
+
+	public long getFilePointer() {
+		return this.bufferStart + this.bufferPosition;
+	}
+
+	public void seek(long position) {
+		if(position >= this.bufferStart && position <= this.bufferStart + this.bufferLimit) {
+			this.bufferPosition = (int)(position - this.bufferStart);
+		}
+		else {
+			this.bufferStart = position;
+			this.bufferPosition = 0;
+			this.bufferLimit = 0;
+		}
+	}
+
+	public long getRecordCount() {
+		return this.records;
+	}
+
+
+	/**
+	 * reads the next record into the given record object. Returns false if there is no further record.
+	 * @param record
+	 * @return
+	 */
+	public boolean next(AlignmentRecord record) throws Exception {
+		if(getFilePointer() >= this.recordsEnd)
+			return false;
+
+		int flags = readByte();
+		if((flags & AlignmentRecordWriter.FLAG_RAW) != 0) {
+			record.parse(readString());
+			return true;
+		}
+
+		char strandOfSpliceSignal;
+		int spliceSignal = (flags >>> AlignmentRecordWriter.SPLICE_SIGNAL_SHIFT) & 3;
+		if(spliceSignal == AlignmentRecordWriter.SPLICE_SIGNAL_LITERAL)
+			strandOfSpliceSignal = (char)readByte();
+		else
+			strandOfSpliceSignal = AlignmentRecordWriter.SPLICE_SIGNALS[spliceSignal];
+
+		String contextId = this.dictionary[readVarInt()];
+		String readId = this.dictionary[readVarInt()];
+		String chr = this.dictionary[readVarInt()];
+
+		int coordinateCount = readVarInt();
+		if(coordinateCount > this.coordinates.length)
+			this.coordinates = new int[Math.max(coordinateCount,this.coordinates.length * 2)];
+		int prevCoordinate = 0;
+		for(int i = 0; i < coordinateCount; i++) {
+			prevCoordinate += readSignedVarInt();
+			this.coordinates[i] = prevCoordinate;
+		}
+
+		int mismatches = readSignedVarInt();
+		int overallMappingCount = readSignedVarInt();
+		int overallValidPairsCount = readSignedVarInt();
+
+		record.set(contextId, readId, chr, ((flags & AlignmentRecordWriter.FLAG_REVERSE_STRAND) != 0) ? '-' : '+', this.coordinates, coordinateCount, mismatches, strandOfSpliceSignal, (flags & AlignmentRecordWriter.FLAG_KNOWN_JUNCTION) != 0, overallMappingCount, overallValidPairsCount, ((flags & AlignmentRecordWriter.FLAG_POLYA) != 0) ? '1' : '0');
+		return true;
+	}
+
+
+	/**
+	 * reads the record at the given file offset
+	 * @param filePointer
+	 * @param record
+	 * @return
+	 */
+	public boolean read(long filePointer, AlignmentRecord record) throws Exception {
+		seek(filePointer);
+		return next(record);
+	}
+
+
+	public void close() throws Exception {
+		this.raf.close();
+	}
+
+
+	/**
+	 * writes the records of the given file as text (one line per record)
+	 * @param inputPath
+	 * @param outputPath
+	 */
+	public static void dump(String inputPath, String outputPath) {
+		try {
+			AlignmentRecordReader reader = new AlignmentRecordReader(inputPath);
+			UnsynchronizedBufferedWriter pw = new UnsynchronizedBufferedWriter(new FileWriter(new File(outputPath)),1024 * 1024);
+			AlignmentRecord record = new AlignmentRecord();
+			while(reader.next(record)) {
+				pw.write(record.toLine());
+				pw.newLine();
+			}
+			reader.close();
+			pw.close();
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private String readString() throws Exception {
+		int length = readVarInt();
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++)
+			bytes[i] = (byte)readByte();
+		return new String(bytes,"UTF-8");
+	}
+
+	private int readVarInt() throws Exception {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return value;
+	}
+
+	private int readSignedVarInt() throws Exception {
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private int readByte() throws Exception {
+		if(this.bufferPosition == this.bufferLimit) {
+			this.bufferStart += this.bufferLimit;
+			this.bufferPosition = 0;
+			this.raf.seek(this.bufferStart);
+			this.bufferLimit = Math.max(0,this.raf.read(this.buffer, 0, this.buffer.length));
+			if(this.bufferLimit == 0)
+				throw new Exception("unexpected end of alignment record file.");
+		}
+		return this.buffer[this.bufferPosition++] & 0xff;
+	}
+}
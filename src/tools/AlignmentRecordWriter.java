@@ -0,0 +1,211 @@
+package tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * writes alignment records (see AlignmentRecord) in a compact binary format:
+ *
+ * header:		magic (long), version (int)
+ * records:		flags (byte), [splice signal (byte)], context id, read id, chr (varint dictionary indices),
+ * 				coordinate count (varint), coordinates (zigzag varint, delta to the previous coordinate),
+ * 				mismatches, overall mapping count, overall valid pairs count (zigzag varint)
+ * 				raw records: flags (byte), line length (varint), line (utf-8)
+ * dictionary:	number of strings (varint), for each string: length (varint), string (utf-8)
+ * trailer:		dictionary offset (long), number of records (long), magic (long)
+ *
+ * Records are addressed by their file offset (getFilePointer() before writing a record), see AlignmentRecordReader.
+ * The format is used for the per context best matches (.bestmatches), the other intermediate files are text.
+ */
+public class AlignmentRecordWriter {
+
+	static final long MAGIC = 0x434d32414c4e5245L;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 12;
+	static final int TRAILER_SIZE = 24;
+
+	static final int FLAG_RAW = 1;
+	static final int FLAG_REVERSE_STRAND = 2;
+	static final int FLAG_KNOWN_JUNCTION = 4;
+	static final int FLAG_POLYA = 8;
+	//bits 4 and 5: strand of splice signal ('0','+','-' or stored in a separate byte)
+	static final int SPLICE_SIGNAL_SHIFT = 4;
+	static final int SPLICE_SIGNAL_LITERAL = 3;
+	static final char[] SPLICE_SIGNALS = {'0','+','-'};
+
+	private OutputStream out;
+	private long filePointer;
+	private long records;
+	private byte[] buffer;
+	private int bufferSize;
+
+	private HashMap<String,Integer> dictionary;
+	private ArrayList<String> dictionaryEntries;
+
+	public AlignmentRecordWriter(String outputPath) throws Exception {
+		this.out = new BufferedOutputStream(new FileOutputStream(new File(outputPath)),1024 * 1024);
+		this.buffer = new byte[1024];
+		this.dictionary = new HashMap<String,Integer>();
+		this.dictionaryEntries = new ArrayList<String>();
+
+		writeLong(MAGIC);
+		writeInt(VERSION);
+		flushBuffer();
+	}
+
+
+	public long getFilePointer() {
+		return this.filePointer;
+	}
+
+	public long getRecordCount() {
+		return this.records;
+	}
+
+
+	public void write(AlignmentRecord record) throws Exception {
+		if(record.isRaw()) {
+			writeRaw(record.getRawLine());
+			return;
+		}
+
+		int flags = 0;
+		if(record.getStrand() == '-')
+			flags |= FLAG_REVERSE_STRAND;
+		else if(record.getStrand() != '+') {
+			writeRaw(record.toLine());
+			return;
+		}
+
+		if(record.overlapsKnownJunction())
+			flags |= FLAG_KNOWN_JUNCTION;
+
+		if(record.getOverlapsPolyA() == '1')
+			flags |= FLAG_POLYA;
+		else if(record.getOverlapsPolyA() != '0') {
+			writeRaw(record.toLine());
+			return;
+		}
+
+		int spliceSignal = SPLICE_SIGNAL_LITERAL;
+		for(int i = 0; i < SPLICE_SIGNALS.length; i++) {
+			if(SPLICE_SIGNALS[i] == record.getStrandOfSpliceSignal()) {
+				spliceSignal = i;
+				break;
+			}
+		}
+		if(spliceSignal == SPLICE_SIGNAL_LITERAL && record.getStrandOfSpliceSignal() > 127) {
+			writeRaw(record.toLine());
+			return;
+		}
+		flags |= (spliceSignal << SPLICE_SIGNAL_SHIFT);
+
+		writeByte(flags);
+		if(spliceSignal == SPLICE_SIGNAL_LITERAL)
+			writeByte(record.getStrandOfSpliceSignal());
+
+		writeVarInt(getDictionaryIndex(record.getContextId()));
+		writeVarInt(getDictionaryIndex(record.getReadId()));
+		writeVarInt(getDictionaryIndex(record.getChr()));
+
+		int prevCoordinate = 0;
+		writeVarInt(record.getCoordinateCount());
+		for(int i = 0; i < record.getCoordinateCount(); i++) {
+			writeSignedVarInt(record.getCoordinate(i) - prevCoordinate);
+			prevCoordinate = record.getCoordinate(i);
+		}
+
+		writeSignedVarInt(record.getMismatches());
+		writeSignedVarInt(record.getOverallMappingCount());
+		writeSignedVarInt(record.getOverallValidPairsCount());
+		flushBuffer();
+		this.records++;
+	}
+
+
+	private void writeRaw(String line) throws Exception {
+		byte[] bytes = line.getBytes("UTF-8");
+		writeByte(FLAG_RAW);
+		writeVarInt(bytes.length);
+		flushBuffer();
+		this.out.write(bytes);
+		this.filePointer += bytes.length;
+		this.records++;
+	}
+
+
+	/**
+	 * writes the dictionary and the trailer and closes the file
+	 */
+	public void close() throws Exception {
+		long dictionaryOffset = this.filePointer;
+		writeVarInt(this.dictionaryEntries.size());
+		flushBuffer();
+		byte[] bytes;
+		for(String entry : this.dictionaryEntries) {
+			bytes = entry.getBytes("UTF-8");
+			writeVarInt(bytes.length);
+			flushBuffer();
+			this.out.write(bytes);
+			this.filePointer += bytes.length;
+		}
+
+		writeLong(dictionaryOffset);
+		writeLong(this.records);
+		writeLong(MAGIC);
+		flushBuffer();
+		this.out.close();
+		this.dictionary.clear();
+		this.dictionaryEntries.clear();
+	}
+
+
+	private int getDictionaryIndex(String s) {
+		Integer index = this.dictionary.get(s);
+		if(index == null) {
+			index = this.dictionaryEntries.size();
+			this.dictionary.put(s, index);
+			this.dictionaryEntries.add(s);
+		}
+		return index;
+	}
+
+
+	private void writeByte(int b) throws Exception {
+		if(this.bufferSize == this.buffer.length)
+			flushBuffer();
+		this.buffer[this.bufferSize++] = (byte)b;
+	}
+
+	private void writeVarInt(int value) throws Exception {
+		while((value & ~0x7f) != 0) {
+			writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	private void writeSignedVarInt(int value) throws Exception {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	private void writeInt(int value) throws Exception {
+		for(int i = 24; i >= 0; i -= 8)
+			writeByte(value >>> i);
+	}
+
+	private void writeLong(long value) throws Exception {
+		for(int i = 56; i >= 0; i -= 8)
+			writeByte((int)(value >>> i));
+	}
+
+	private void flushBuffer() throws Exception {
+		this.out.write(this.buffer, 0, this.bufferSize);
+		this.filePointer += this.bufferSize;
+		this.bufferSize = 0;
+	}
+}
@@ -131,6 +131,9 @@ public class BamConverter {
 			SAMRecordIterator recordIterator;
 			
 			for(File chrFile : chrFiles) {
+				if(!chrFile.isFile())
+					continue;
+				
 				//get chromosome sequence
 				date = new Date();
 				currentChrName = chrFile.getName().substring(0,chrFile.getName().lastIndexOf('.'));
@@ -0,0 +1,155 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ * compressed set of int values (roaring style). Values are partitioned by their upper 16 bits into containers,
+ * sparse containers store the lower 16 bits as a sorted char array, dense containers (more than 4096 values) as a
+ * bitset of 1024 longs. A container never takes more than 8 KB, a HashSet<Integer> takes ~50 bytes per value.
+ */
+public class CompactBitmap {
+
+	private static final int MAX_ARRAY_SIZE = 4096;
+	private static final int BITSET_SIZE = 1024;
+
+	//sorted upper 16 bits of the values
+	private char[] keys;
+	//char[] (sorted lower 16 bits) or long[] (bitset)
+	private Object[] containers;
+	private int[] cardinalities;
+	private int size;
+
+	public CompactBitmap() {
+		this.keys = new char[4];
+		this.containers = new Object[4];
+		this.cardinalities = new int[4];
+		this.size = 0;
+	}
+
+
+	/**
+	 * adds the given value, returns false if it was already contained
+	 */
+	public boolean add(int value) {
+		char key = (char)(value >>> 16);
+		char low = (char)value;
+		int index = getContainerIndex(key);
+		if(index < 0) {
+			index = -index - 1;
+			insertContainer(index, key, new char[4]);
+		}
+
+		if(this.containers[index] instanceof long[]) {
+			long[] bitset = (long[])this.containers[index];
+			long bit = 1L << low;
+			if((bitset[low >>> 6] & bit) != 0)
+				return false;
+			bitset[low >>> 6] |= bit;
+			this.cardinalities[index]++;
+			return true;
+		}
+
+		char[] values = (char[])this.containers[index];
+		int cardinality = this.cardinalities[index];
+		int position = Arrays.binarySearch(values, 0, cardinality, low);
+		if(position >= 0)
+			return false;
+
+		if(cardinality == MAX_ARRAY_SIZE) {
+			long[] bitset = toBitset(values, cardinality);
+			bitset[low >>> 6] |= 1L << low;
+			this.containers[index] = bitset;
+			this.cardinalities[index]++;
+			return true;
+		}
+
+		position = -position - 1;
+		if(cardinality == values.length) {
+			values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, values.length * 2));
+			this.containers[index] = values;
+		}
+		System.arraycopy(values, position, values, position + 1, cardinality - position);
+		values[position] = low;
+		this.cardinalities[index]++;
+		return true;
+	}
+
+	public boolean contains(int value) {
+		int index = getContainerIndex((char)(value >>> 16));
+		if(index < 0)
+			return false;
+
+		char low = (char)value;
+		if(this.containers[index] instanceof long[])
+			return (((long[])this.containers[index])[low >>> 6] & (1L << low)) != 0;
+		return Arrays.binarySearch((char[])this.containers[index], 0, this.cardinalities[index], low) >= 0;
+	}
+
+	/**
+	 * adds all values of the given bitmap
+	 */
+	public void or(CompactBitmap bitmap) {
+		for(int i = 0; i < bitmap.size; i++) {
+			int high = bitmap.keys[i] << 16;
+			if(bitmap.containers[i] instanceof long[]) {
+				long[] bitset = (long[])bitmap.containers[i];
+				for(int j = 0; j < BITSET_SIZE; j++) {
+					long word = bitset[j];
+					while(word != 0) {
+						add(high | (j << 6) | Long.numberOfTrailingZeros(word));
+						word &= word - 1;
+					}
+				}
+			}
+			else {
+				char[] values = (char[])bitmap.containers[i];
+				for(int j = 0; j < bitmap.cardinalities[i]; j++)
+					add(high | values[j]);
+			}
+		}
+	}
+
+	/**
+	 * number of contained values
+	 */
+	public long getCardinality() {
+		long cardinality = 0;
+		for(int i = 0; i < this.size; i++)
+			cardinality += this.cardinalities[i];
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+
+	private int getContainerIndex(char key) {
+		//values are usually added in ascending order
+		if(this.size > 0 && this.keys[this.size - 1] == key)
+			return this.size - 1;
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+
+	private void insertContainer(int index, char key, Object container) {
+		if(this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			this.containers = Arrays.copyOf(this.containers, this.size * 2);
+			this.cardinalities = Arrays.copyOf(this.cardinalities, this.size * 2);
+		}
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		System.arraycopy(this.containers, index, this.containers, index + 1, this.size - index);
+		System.arraycopy(this.cardinalities, index, this.cardinalities, index + 1, this.size - index);
+		this.keys[index] = key;
+		this.containers[index] = container;
+		this.cardinalities[index] = 0;
+		this.size++;
+	}
+
+	private long[] toBitset(char[] values, int cardinality) {
+		long[] bitset = new long[BITSET_SIZE];
+		for(int i = 0; i < cardinality; i++)
+			bitset[values[i] >>> 6] |= 1L << values[i];
+		return bitset;
+	}
+}
@@ -0,0 +1,743 @@
+package tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * In-process replacement for UnixSort (same constructors and method signatures).
+ *
+ * The input is cut into chunks which are sorted in parallel (on primitive offset/key arrays) and written to run files.
+ * The runs are combined with a k-way heap merge. Keys are compared byte wise (like sort in the C locale), numerical keys
+ * are parsed as integers. As last resort whole lines are compared (like GNU sort without -s).
+ *
+ * The memory of all concurrently running sorts is limited by a global budget (setMemoryLimit()). If setUseUnixSort(true) is
+ * called or the in-process sort fails, the sort is delegated to UnixSort.
+ */
+public class ExternalMergeSort extends Thread {
+
+	//max number of files merged at once
+	private static final int MAX_MERGE_FILES = 128;
+	//estimated bytes per line for offsets and keys (without the key count dependent part)
+	private static final int LINE_OVERHEAD = 8;
+	private static final int KEY_OVERHEAD = 16;
+
+	private static int threads = 1;
+	private static int memoryLimit = (int)Math.max(64, Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024));
+	private static Semaphore memoryBudget = new Semaphore(memoryLimit, true);
+	private static String tmpDirPath = null;
+	private static boolean useUnixSort = false;
+	private static ExecutorService runExecutor = null;
+
+	private String inputFilePath;
+	private String outputFilePath;
+	private String tmpFolderPath;
+	private String delimiter;
+	private int column;
+	private int maxMem;
+	private boolean numericalSort;
+	private boolean deleteInputFile;
+	private boolean verbose;
+
+	private int[] columns;
+	private String[] orderingOptions;
+
+	//key definition of the current sort (0-based columns)
+	private byte delimiterByte;
+	private int[] keyColumns;
+	private boolean[] numericKeys;
+	private boolean[] reverseKeys;
+
+
+	public ExternalMergeSort(String inputFilePath, String outputFilePath, String tmpFolderPath, String delimiter, int column, int maxMem, boolean numericalSort, boolean deleteInputFile, boolean verbose) {
+		this.inputFilePath = inputFilePath;
+		this.outputFilePath = outputFilePath;
+		this.tmpFolderPath = tmpFolderPath;
+		this.delimiter = delimiter;
+		this.column = column;
+		this.maxMem = maxMem;
+		this.numericalSort = numericalSort;
+		this.deleteInputFile = deleteInputFile;
+		this.verbose = verbose;
+
+		this.columns = null;
+		this.orderingOptions = null;
+	}
+
+	public ExternalMergeSort(String inputFilePath, String outputFilePath, String tmpFolderPath, String delimiter, int[] columns,String[] orderingOptions, int maxMem,boolean deleteInputFile, boolean verbose) {
+		this.inputFilePath = inputFilePath;
+		this.outputFilePath = outputFilePath;
+		this.tmpFolderPath = tmpFolderPath;
+		this.delimiter = delimiter;
+		this.columns = columns;
+		this.maxMem = maxMem;
+		this.orderingOptions = orderingOptions;
+		this.deleteInputFile = deleteInputFile;
+		this.verbose = verbose;
+	}
+
+	public ExternalMergeSort() {
+
+	}
+
+
+	/**
+	 * number of threads used for sorting chunks (shared by all sorts)
+	 */
+	public static synchronized void setThreads(int threads) {
+		ExternalMergeSort.threads = Math.max(1, threads);
+		if(runExecutor != null) {
+			runExecutor.shutdown();
+			runExecutor = null;
+		}
+	}
+
+	/**
+	 * memory in MB which may be used by all concurrently running sorts together
+	 */
+	public static synchronized void setMemoryLimit(int memoryLimit) {
+		ExternalMergeSort.memoryLimit = Math.max(1, memoryLimit);
+		memoryBudget = new Semaphore(ExternalMergeSort.memoryLimit, true);
+	}
+
+	/**
+	 * overrides the tmp folders given by the callers
+	 */
+	public static void setTmpDirPath(String tmpDirPath) {
+		ExternalMergeSort.tmpDirPath = tmpDirPath;
+	}
+
+	public static void setUseUnixSort(boolean useUnixSort) {
+		ExternalMergeSort.useUnixSort = useUnixSort;
+	}
+
+	private static synchronized ExecutorService getRunExecutor() {
+		if(runExecutor == null) {
+			runExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return runExecutor;
+	}
+
+
+	public void run() {
+		try {
+			if(this.columns == null)
+				sort(inputFilePath,outputFilePath,tmpFolderPath,delimiter, column, maxMem, numericalSort,deleteInputFile, verbose);
+			else
+				sort(inputFilePath,outputFilePath,tmpFolderPath,delimiter, columns, orderingOptions, maxMem,deleteInputFile, verbose);
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	public void sort(String inputFilePath, String outputFilePath, String tmpFolderPath, String delimiter, int[] columns, String[] orderingOptions, int maxMem,boolean deleteInputFile, boolean verbose) {
+		if(useUnixSort) {
+			new UnixSort().sort(inputFilePath, outputFilePath, tmpFolderPath, delimiter, columns, orderingOptions, maxMem, deleteInputFile, verbose);
+			return;
+		}
+
+		try {
+			boolean[] numeric = new boolean[columns.length];
+			boolean[] reverse = new boolean[columns.length];
+			for(int i = 0; i < columns.length; i++) {
+				numeric[i] = orderingOptions[i].indexOf('n') != -1;
+				reverse[i] = orderingOptions[i].indexOf('r') != -1;
+			}
+			setKeys(delimiter, columns, numeric, reverse);
+			sortFile(inputFilePath, outputFilePath, tmpFolderPath, maxMem);
+
+			if(deleteInputFile)
+				new File(inputFilePath).delete();
+		}
+		catch(Exception e) {
+			System.err.println(String.format("WARNING, in-process sort of %s failed (%s). Falling back to unix sort.", inputFilePath, e.toString()));
+			new UnixSort().sort(inputFilePath, outputFilePath, tmpFolderPath, delimiter, columns, orderingOptions, maxMem, deleteInputFile, verbose);
+		}
+	}
+
+
+	public void sort(String inputFilePath, String outputFilePath, String tmpFolderPath, String delimiter, int column, int maxMem, boolean numericalSort,boolean deleteInputFile, boolean verbose) {
+		if(useUnixSort) {
+			new UnixSort().sort(inputFilePath, outputFilePath, tmpFolderPath, delimiter, column, maxMem, numericalSort, deleteInputFile, verbose);
+			return;
+		}
+
+		try {
+			setKeys(delimiter, new int[]{column}, new boolean[]{numericalSort}, new boolean[]{false});
+			sortFile(inputFilePath, outputFilePath, tmpFolderPath, maxMem);
+
+			if(deleteInputFile)
+				new File(inputFilePath).delete();
+		}
+		catch(Exception e) {
+			System.err.println(String.format("WARNING, in-process sort of %s failed (%s). Falling back to unix sort.", inputFilePath, e.toString()));
+			new UnixSort().sort(inputFilePath, outputFilePath, tmpFolderPath, delimiter, column, maxMem, numericalSort, deleteInputFile, verbose);
+		}
+	}
+
+
+	/**
+	 * merges all (already sorted) files of the given directory
+	 */
+	public void merge(String inputDirPath, String outputFilePath, String tmpFolderPath, String delimiter, int column, int maxMem, boolean numericalSort,boolean verbose) {
+		if(useUnixSort) {
+			new UnixSort().merge(inputDirPath, outputFilePath, tmpFolderPath, delimiter, column, maxMem, numericalSort, verbose);
+			return;
+		}
+
+		try {
+			setKeys(delimiter, new int[]{column}, new boolean[]{numericalSort}, new boolean[]{false});
+			File tmpFolder = getTmpFolder(tmpFolderPath);
+			ArrayList<File> files = new ArrayList<File>();
+			for(File f : new File(inputDirPath).listFiles()) {
+				if(f.isFile())
+					files.add(f);
+			}
+			mergeFiles(files, new File(outputFilePath), tmpFolder, false);
+			tmpFolder.delete();
+		}
+		catch(Exception e) {
+			System.err.println(String.format("WARNING, in-process merge of %s failed (%s). Falling back to unix sort.", inputDirPath, e.toString()));
+			new UnixSort().merge(inputDirPath, outputFilePath, tmpFolderPath, delimiter, column, maxMem, numericalSort, verbose);
+		}
+	}
+
+
+	private void setKeys(String delimiter, int[] columns, boolean[] numeric, boolean[] reverse) {
+		this.delimiterByte = (byte)delimiter.charAt(0);
+		this.keyColumns = new int[columns.length];
+		for(int i = 0; i < columns.length; i++)
+			this.keyColumns[i] = columns[i] - 1;
+		this.numericKeys = numeric;
+		this.reverseKeys = reverse;
+	}
+
+	private File getTmpFolder(String tmpFolderPath) {
+		File tmpFolder = new File((tmpDirPath != null) ? tmpDirPath : tmpFolderPath);
+		if(!tmpFolder.isDirectory())
+			tmpFolder.mkdirs();
+		return tmpFolder;
+	}
+
+
+	private void sortFile(String inputFilePath, String outputFilePath, String tmpFolderPath, int maxMem) throws Exception {
+		File tmpFolder = getTmpFolder(tmpFolderPath);
+
+		//one chunk is filled while the others are sorted
+		int chunkMem = Math.max(1, Math.min(maxMem, memoryLimit) / (threads + 1));
+		int dataSize = (int)Math.min(Integer.MAX_VALUE - 8, (long)chunkMem * 1024 * 1024 / 2);
+		int maxLines = Math.max(1, dataSize / (LINE_OVERHEAD + KEY_OVERHEAD * this.keyColumns.length));
+
+		ArrayList<File> runs = new ArrayList<File>();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		File inputFile = new File(inputFilePath);
+		//the buffers are sized to the unread part of the input, small files do not allocate a full chunk
+		long remainingBytes = inputFile.length();
+		InputStream is = new FileInputStream(inputFile);
+		Semaphore budget = memoryBudget;
+
+		Chunk chunk = null;
+		try {
+			budget.acquire(chunkMem);
+			chunk = new Chunk(getInitialDataSize(remainingBytes, dataSize), dataSize, maxLines, chunkMem);
+			byte[] incompleteLine;
+			File run;
+			int read;
+			while(true) {
+				read = chunk.fill(is);
+				if(read == -1) {
+					chunk.finish();
+					break;
+				}
+				remainingBytes -= read;
+
+				if(chunk.isFull()) {
+					//hand over the full chunk before reserving memory for the next one (no hold and wait between concurrent sorts)
+					incompleteLine = chunk.removeIncompleteLine();
+					run = File.createTempFile("run_", ".tmp", tmpFolder);
+					runs.add(run);
+					futures.add(getRunExecutor().submit(new RunWriter(chunk, run, budget)));
+					chunk = null;
+
+					budget.acquire(chunkMem);
+					chunk = new Chunk(Math.max(getInitialDataSize(remainingBytes + incompleteLine.length, dataSize), incompleteLine.length + 1), Math.max(dataSize, incompleteLine.length * 2), maxLines, chunkMem);
+					chunk.append(incompleteLine);
+				}
+			}
+			is.close();
+
+			//everything fits into memory
+			if(runs.isEmpty()) {
+				Chunk lastChunk = chunk;
+				chunk = null;
+				new RunWriter(lastChunk, new File(outputFilePath), budget).run();
+			}
+
+			else {
+				run = File.createTempFile("run_", ".tmp", tmpFolder);
+				runs.add(run);
+				futures.add(getRunExecutor().submit(new RunWriter(chunk, run, budget)));
+				chunk = null;
+				for(Future<?> future : futures)
+					future.get();
+
+				mergeFiles(runs, new File(outputFilePath), tmpFolder, true);
+			}
+		}
+		finally {
+			is.close();
+			if(chunk != null)
+				budget.release(chunk.reservedMem);
+			for(Future<?> future : futures)
+				future.cancel(false);
+			for(File run : runs)
+				run.delete();
+		}
+		tmpFolder.delete();
+	}
+
+
+	/**
+	 * the end of the input fits into the first buffer if possible, the buffer grows on demand otherwise
+	 */
+	private int getInitialDataSize(long remainingBytes, int dataSize) {
+		return (int)Math.max(1, Math.min(dataSize, remainingBytes + 1));
+	}
+
+
+	/**
+	 * k-way merge of the given files. Uses intermediate files if there are more than MAX_MERGE_FILES inputs.
+	 */
+	private void mergeFiles(ArrayList<File> files, File outputFile, File tmpFolder, boolean deleteInputFiles) throws Exception {
+		ArrayList<File> currentFiles = new ArrayList<File>(files);
+		ArrayList<File> nextFiles;
+		boolean intermediate = deleteInputFiles;
+		while(currentFiles.size() > MAX_MERGE_FILES) {
+			nextFiles = new ArrayList<File>();
+			for(int i = 0; i < currentFiles.size(); i += MAX_MERGE_FILES) {
+				File mergedRun = File.createTempFile("merged_", ".tmp", tmpFolder);
+				mergeRuns(currentFiles.subList(i, Math.min(currentFiles.size(), i + MAX_MERGE_FILES)), mergedRun);
+				if(intermediate) {
+					for(int j = i; j < Math.min(currentFiles.size(), i + MAX_MERGE_FILES); j++)
+						currentFiles.get(j).delete();
+				}
+				nextFiles.add(mergedRun);
+			}
+			currentFiles = nextFiles;
+			intermediate = true;
+		}
+		mergeRuns(currentFiles, outputFile);
+		if(intermediate) {
+			for(File f : currentFiles)
+				f.delete();
+		}
+	}
+
+	private void mergeRuns(java.util.List<File> runs, File outputFile) throws Exception {
+		RunReader[] readers = new RunReader[runs.size()];
+		int[] heap = new int[runs.size()];
+		int heapSize = 0;
+		for(int i = 0; i < readers.length; i++) {
+			readers[i] = new RunReader(runs.get(i));
+			if(readers[i].next())
+				heap[heapSize++] = i;
+			else
+				readers[i].close();
+		}
+		for(int i = (heapSize >>> 1) - 1; i >= 0; i--)
+			siftDown(heap, heapSize, i, readers);
+
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(outputFile), 1048576);
+		RunReader reader;
+		while(heapSize > 0) {
+			reader = readers[heap[0]];
+			os.write(reader.line, 0, reader.length);
+			os.write('\n');
+			if(!reader.next()) {
+				reader.close();
+				heap[0] = heap[--heapSize];
+			}
+			if(heapSize > 0)
+				siftDown(heap, heapSize, 0, readers);
+		}
+		os.close();
+	}
+
+	private void siftDown(int[] heap, int heapSize, int index, RunReader[] readers) {
+		int child;
+		int tmp = heap[index];
+		while((child = (index << 1) + 1) < heapSize) {
+			if(child + 1 < heapSize && compare(readers[heap[child + 1]], readers[heap[child]]) < 0)
+				child++;
+			if(compare(readers[heap[child]], readers[tmp]) >= 0)
+				break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = tmp;
+	}
+
+	private int compare(RunReader a, RunReader b) {
+		return compare(a.line, 0, a.length, a.keyStarts, a.keyLengths, a.numericKeys, 0, b.line, 0, b.length, b.keyStarts, b.keyLengths, b.numericKeys, 0);
+	}
+
+
+	/**
+	 * compares two lines by their keys, whole lines are compared as last resort
+	 */
+	private int compare(byte[] a, int aStart, int aLength, int[] aKeyStarts, int[] aKeyLengths, long[] aNumericKeys, int aOffset,
+						byte[] b, int bStart, int bLength, int[] bKeyStarts, int[] bKeyLengths, long[] bNumericKeys, int bOffset) {
+		int result;
+		for(int k = 0; k < this.keyColumns.length; k++) {
+			if(this.numericKeys[k])
+				result = (aNumericKeys[aOffset + k] < bNumericKeys[bOffset + k]) ? -1 : ((aNumericKeys[aOffset + k] == bNumericKeys[bOffset + k]) ? 0 : 1);
+			else
+				result = compareBytes(a, aKeyStarts[aOffset + k], aKeyLengths[aOffset + k], b, bKeyStarts[bOffset + k], bKeyLengths[bOffset + k]);
+
+			if(result != 0)
+				return this.reverseKeys[k] ? -result : result;
+		}
+		return compareBytes(a, aStart, aLength, b, bStart, bLength);
+	}
+
+	private static int compareBytes(byte[] a, int aStart, int aLength, byte[] b, int bStart, int bLength) {
+		int length = Math.min(aLength, bLength);
+		int diff;
+		for(int i = 0; i < length; i++) {
+			diff = (a[aStart + i] & 0xff) - (b[bStart + i] & 0xff);
+			if(diff != 0)
+				return diff;
+		}
+		return aLength - bLength;
+	}
+
+
+	/**
+	 * determines start and length of the key columns (and the numerical value for numerical keys) of the given line.
+	 */
+	private void parseKeys(byte[] data, int lineStart, int lineLength, int[] keyStarts, int[] keyLengths, long[] numericKeys, int offset) {
+		int lineEnd = lineStart + lineLength;
+		int fieldStart;
+		int fieldEnd;
+		int currentColumn;
+		int position;
+		for(int k = 0; k < this.keyColumns.length; k++) {
+			//find the start of the column
+			currentColumn = 0;
+			position = lineStart;
+			while(currentColumn < this.keyColumns[k] && position < lineEnd) {
+				if(data[position] == this.delimiterByte)
+					currentColumn++;
+				position++;
+			}
+			if(currentColumn < this.keyColumns[k]) {
+				fieldStart = lineEnd;
+				fieldEnd = lineEnd;
+			}
+			else {
+				fieldStart = position;
+				fieldEnd = position;
+				while(fieldEnd < lineEnd && data[fieldEnd] != this.delimiterByte)
+					fieldEnd++;
+			}
+
+			keyStarts[offset + k] = fieldStart;
+			keyLengths[offset + k] = fieldEnd - fieldStart;
+			if(this.numericKeys[k])
+				numericKeys[offset + k] = parseNumber(data, fieldStart, fieldEnd);
+		}
+	}
+
+	/**
+	 * leading blanks are skipped, the number ends with the first non digit (non numeric fields are 0)
+	 */
+	private static long parseNumber(byte[] data, int start, int end) {
+		int position = start;
+		while(position < end && (data[position] == ' ' || data[position] == '\t'))
+			position++;
+		boolean negative = false;
+		if(position < end && data[position] == '-') {
+			negative = true;
+			position++;
+		}
+		long value = 0;
+		int digits = 0;
+		while(position < end && data[position] >= '0' && data[position] <= '9' && digits < 18) {
+			value = value * 10 + (data[position] - '0');
+			position++;
+			digits++;
+		}
+		return negative ? -value : value;
+	}
+
+
+	/**
+	 * lines of the input which are sorted in memory
+	 */
+	private class Chunk {
+		private byte[] data;
+		private int maxDataSize;
+		private int size;
+		private int scanned;
+		private int lineBegin;
+
+		private int lines;
+		private int maxLines;
+		private int[] lineStarts;
+		private int[] lineLengths;
+		private int[] keyStarts;
+		private int[] keyLengths;
+		private long[] numericKeys;
+
+		private int reservedMem;
+
+		public Chunk(int initialDataSize, int maxDataSize, int maxLines, int reservedMem) {
+			this.data = new byte[Math.min(initialDataSize, maxDataSize)];
+			this.maxDataSize = maxDataSize;
+			this.maxLines = maxLines;
+			int initialLines = Math.min(maxLines, 1024);
+			this.lineStarts = new int[initialLines];
+			this.lineLengths = new int[initialLines];
+			this.keyStarts = new int[initialLines * keyColumns.length];
+			this.keyLengths = new int[initialLines * keyColumns.length];
+			this.numericKeys = new long[initialLines * keyColumns.length];
+			this.reservedMem = reservedMem;
+		}
+
+		/**
+		 * reads the next block of the input and adds all complete lines.
+		 * returns -1 at the end of the input
+		 */
+		public int fill(InputStream is) throws Exception {
+			//the buffer grows up to maxDataSize, beyond that only if a single line does not fit into it
+			if(this.size == this.data.length && (this.data.length < this.maxDataSize || this.lineBegin == 0)) {
+				long capacity = Math.max(8192, (long)this.data.length * 2);
+				if(this.data.length < this.maxDataSize)
+					capacity = Math.min(capacity, this.maxDataSize);
+				this.data = Arrays.copyOf(this.data, (int)Math.min(Integer.MAX_VALUE - 8, capacity));
+			}
+
+			int read = is.read(this.data, this.size, this.data.length - this.size);
+			if(read == -1)
+				return -1;
+
+			this.size += read;
+			for(; this.scanned < this.size && this.lines < this.maxLines; this.scanned++) {
+				if(this.data[this.scanned] == '\n') {
+					addLine(this.lineBegin, this.scanned - this.lineBegin);
+					this.lineBegin = this.scanned + 1;
+				}
+			}
+			return read;
+		}
+
+		public boolean isFull() {
+			return (this.size == this.data.length && this.data.length >= this.maxDataSize && this.lineBegin > 0) || this.lines == this.maxLines;
+		}
+
+		/**
+		 * adds the last line if the input does not end with a line break
+		 */
+		public void finish() {
+			for(; this.scanned < this.size; this.scanned++) {
+				if(this.data[this.scanned] == '\n') {
+					addLine(this.lineBegin, this.scanned - this.lineBegin);
+					this.lineBegin = this.scanned + 1;
+				}
+			}
+			if(this.lineBegin < this.size)
+				addLine(this.lineBegin, this.size - this.lineBegin);
+			this.lineBegin = this.size;
+		}
+
+		/**
+		 * removes and returns the bytes behind the last complete line
+		 */
+		public byte[] removeIncompleteLine() {
+			byte[] incompleteLine = Arrays.copyOfRange(this.data, this.lineBegin, this.size);
+			this.size = this.lineBegin;
+			return incompleteLine;
+		}
+
+		public void append(byte[] bytes) {
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		private void addLine(int start, int length) {
+			if(this.lines == this.lineStarts.length) {
+				int capacity = Math.min(this.maxLines, this.lineStarts.length * 2);
+				this.lineStarts = Arrays.copyOf(this.lineStarts, capacity);
+				this.lineLengths = Arrays.copyOf(this.lineLengths, capacity);
+				this.keyStarts = Arrays.copyOf(this.keyStarts, capacity * keyColumns.length);
+				this.keyLengths = Arrays.copyOf(this.keyLengths, capacity * keyColumns.length);
+				this.numericKeys = Arrays.copyOf(this.numericKeys, capacity * keyColumns.length);
+			}
+			this.lineStarts[this.lines] = start;
+			this.lineLengths[this.lines] = length;
+			parseKeys(this.data, start, length, this.keyStarts, this.keyLengths, this.numericKeys, this.lines * keyColumns.length);
+			this.lines++;
+		}
+
+		private int compareLines(int i, int j) {
+			int keys = keyColumns.length;
+			return compare(this.data, this.lineStarts[i], this.lineLengths[i], this.keyStarts, this.keyLengths, this.numericKeys, i * keys,
+						   this.data, this.lineStarts[j], this.lineLengths[j], this.keyStarts, this.keyLengths, this.numericKeys, j * keys);
+		}
+
+		/**
+		 * returns the line indices in sorted order
+		 */
+		public int[] sort() {
+			int[] order = new int[this.lines];
+			for(int i = 0; i < order.length; i++)
+				order[i] = i;
+			int[] buffer = new int[this.lines];
+			mergeSort(order, buffer, 0, order.length);
+			return order;
+		}
+
+		private void mergeSort(int[] order, int[] buffer, int from, int to) {
+			if(to - from <= 16) {
+				int tmp;
+				int j;
+				for(int i = from + 1; i < to; i++) {
+					tmp = order[i];
+					for(j = i; j > from && compareLines(order[j - 1], tmp) > 0; j--)
+						order[j] = order[j - 1];
+					order[j] = tmp;
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			mergeSort(order, buffer, from, mid);
+			mergeSort(order, buffer, mid, to);
+			if(compareLines(order[mid - 1], order[mid]) <= 0)
+				return;
+
+			System.arraycopy(order, from, buffer, from, to - from);
+			int i = from;
+			int j = mid;
+			int k = from;
+			while(i < mid && j < to)
+				order[k++] = (compareLines(buffer[j], buffer[i]) < 0) ? buffer[j++] : buffer[i++];
+			while(i < mid)
+				order[k++] = buffer[i++];
+			while(j < to)
+				order[k++] = buffer[j++];
+		}
+	}
+
+
+	/**
+	 * sorts a chunk and writes it to the given file
+	 */
+	private class RunWriter implements Runnable {
+		private Chunk chunk;
+		private File outputFile;
+		private Semaphore budget;
+
+		public RunWriter(Chunk chunk, File outputFile, Semaphore budget) {
+			this.chunk = chunk;
+			this.outputFile = outputFile;
+			this.budget = budget;
+		}
+
+		public void run() {
+			try {
+				int[] order = this.chunk.sort();
+				OutputStream os = new BufferedOutputStream(new FileOutputStream(this.outputFile), 1048576);
+				for(int index : order) {
+					os.write(this.chunk.data, this.chunk.lineStarts[index], this.chunk.lineLengths[index]);
+					os.write('\n');
+				}
+				os.close();
+			}
+			catch(Exception e) {
+				throw new RuntimeException(e);
+			}
+			finally {
+				this.budget.release(this.chunk.reservedMem);
+				this.chunk = null;
+			}
+		}
+	}
+
+
+	/**
+	 * line wise reader of a sorted run
+	 */
+	private class RunReader {
+		private InputStream is;
+		private byte[] buffer;
+		private int bufferPosition;
+		private int bufferSize;
+
+		private byte[] line;
+		private int length;
+		private int[] keyStarts;
+		private int[] keyLengths;
+		private long[] numericKeys;
+
+		public RunReader(File run) throws Exception {
+			this.is = new FileInputStream(run);
+			this.buffer = new byte[65536];
+			this.line = new byte[256];
+			this.keyStarts = new int[keyColumns.length];
+			this.keyLengths = new int[keyColumns.length];
+			this.numericKeys = new long[keyColumns.length];
+		}
+
+		public boolean next() throws Exception {
+			this.length = 0;
+			boolean foundLineBreak = false;
+			int lineEnd;
+			while(!foundLineBreak) {
+				if(this.bufferPosition == this.bufferSize) {
+					this.bufferSize = this.is.read(this.buffer);
+					this.bufferPosition = 0;
+					if(this.bufferSize == -1) {
+						this.bufferSize = 0;
+						if(this.length == 0)
+							return false;
+						break;
+					}
+				}
+
+				for(lineEnd = this.bufferPosition; lineEnd < this.bufferSize && this.buffer[lineEnd] != '\n'; lineEnd++);
+				if(this.length + (lineEnd - this.bufferPosition) > this.line.length)
+					this.line = Arrays.copyOf(this.line, Math.max(this.line.length * 2, this.length + (lineEnd - this.bufferPosition)));
+				System.arraycopy(this.buffer, this.bufferPosition, this.line, this.length, lineEnd - this.bufferPosition);
+				this.length += lineEnd - this.bufferPosition;
+				foundLineBreak = (lineEnd < this.bufferSize);
+				this.bufferPosition = foundLineBreak ? lineEnd + 1 : lineEnd;
+			}
+
+			parseKeys(this.line, 0, this.length, this.keyStarts, this.keyLengths, this.numericKeys, 0);
+			return true;
+		}
+
+		public void close() throws Exception {
+			this.is.close();
+		}
+	}
+}
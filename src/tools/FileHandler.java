@@ -183,6 +183,9 @@ public class FileHandler {
 				}
 			}
 			
+			//read id -> file offset index, allows to buffer the sequences of single contexts without scanning the whole file
+			new ReadFileIndex().buildIndex(outputPath, outputPath + ReadFileIndex.FILE_EXTENSION, tmpOutDir);
+			
 			deleteFolderWithContent(new File(tmpOutDir));
 		}
 		catch(Exception e) {
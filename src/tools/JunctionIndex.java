@@ -0,0 +1,165 @@
+package tools;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * set of junctions (donor/acceptor position pairs) stored as packed long keys (donor in the upper, acceptor in the lower 32 bits)
+ * in a sorted primitive array. Replaces TreeMap<Integer,HashSet<Integer>> lookups without boxing.
+ *
+ * Junctions are appended with add() and sorted (and deduplicated) with the next query, so a series of insertions costs O(1) each.
+ * Lookups are binary searches, range queries over donor positions return an index into the sorted keys:
+ *
+ * for(int i = index.getFirstIndex(start); i < index.size() && index.getDonor(i) <= end; i++)
+ * 		... index.getDonor(i), index.getAcceptor(i)
+ *
+ * The order of the acceptors of a donor is ascending (unsigned).
+ * An index is safe for concurrent queries once it is sorted (call sort() before sharing it).
+ * Indices loaded from a junction index file (see JunctionIndexFile) are read-only views of the (memory mapped) file.
+ */
+public class JunctionIndex {
+
+	private long[] keys;
+	private LongBuffer mappedKeys;
+	private int size;
+	private boolean sorted;
+
+	public JunctionIndex() {
+		this(16);
+	}
+
+	public JunctionIndex(int initialCapacity) {
+		this.keys = new long[Math.max(1,initialCapacity)];
+		this.mappedKeys = null;
+		this.size = 0;
+		this.sorted = true;
+	}
+
+	/**
+	 * read-only index backed by the given buffer, the keys have to be sorted and distinct
+	 */
+	public JunctionIndex(LongBuffer sortedKeys) {
+		this.keys = null;
+		this.mappedKeys = sortedKeys;
+		this.size = sortedKeys.limit();
+		this.sorted = true;
+	}
+
+
+	public static long getKey(int donor, int acceptor) {
+		return ((long)donor << 32) | (acceptor & 0xffffffffL);
+	}
+
+	public static int getDonor(long key) {
+		return (int)(key >> 32);
+	}
+
+	public static int getAcceptor(long key) {
+		return (int)key;
+	}
+
+
+	public void add(int donor, int acceptor) {
+		if(this.mappedKeys != null)
+			throw new UnsupportedOperationException("junction index is read-only");
+
+		if(this.size == this.keys.length)
+			this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+
+		long key = getKey(donor,acceptor);
+		if(this.sorted && this.size > 0 && key <= this.keys[this.size - 1]) {
+			//same key as the last one, nothing to do
+			if(key == this.keys[this.size - 1])
+				return;
+			this.sorted = false;
+		}
+		this.keys[this.size++] = key;
+	}
+
+	/**
+	 * adds all junctions of the given index with a donor position in [from,to]
+	 */
+	public void addAll(JunctionIndex index, int from, int to) {
+		for(int i = index.getFirstIndex(from); i < index.size() && index.getDonor(i) <= to; i++)
+			add(index.getDonor(i),index.getAcceptor(i));
+	}
+
+
+	public boolean contains(int donor, int acceptor) {
+		long key = getKey(donor,acceptor);
+		int index = getFirstIndex(key);
+		return index < this.size && getKeyAt(index) == key;
+	}
+
+	/**
+	 * returns the index of the first junction with a donor position >= donor (size() if there is none)
+	 */
+	public int getFirstIndex(int donor) {
+		return getFirstIndex(getKey(donor,0));
+	}
+
+	private int getFirstIndex(long key) {
+		sort();
+		int low = 0;
+		int high = this.size;
+		int mid;
+		while(low < high) {
+			mid = (low + high) >>> 1;
+			if(getKeyAt(mid) < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	public long getKeyAt(int index) {
+		sort();
+		if(this.mappedKeys != null)
+			return this.mappedKeys.get(index);
+		return this.keys[index];
+	}
+
+	public int getDonor(int index) {
+		return getDonor(getKeyAt(index));
+	}
+
+	public int getAcceptor(int index) {
+		return getAcceptor(getKeyAt(index));
+	}
+
+	public int size() {
+		sort();
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public void clear() {
+		if(this.mappedKeys != null)
+			throw new UnsupportedOperationException("junction index is read-only");
+
+		this.size = 0;
+		this.sorted = true;
+	}
+
+
+	/**
+	 * sorts the keys and removes duplicates, does nothing if the index is already sorted
+	 */
+	public void sort() {
+		if(this.sorted)
+			return;
+
+		Arrays.sort(this.keys, 0, this.size);
+		int distinct = 0;
+		for(int i = 0; i < this.size; i++) {
+			if(distinct == 0 || this.keys[i] != this.keys[distinct - 1])
+				this.keys[distinct++] = this.keys[i];
+		}
+		this.size = distinct;
+		this.sorted = true;
+	}
+}
@@ -0,0 +1,235 @@
+package tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * binary file of annotated junctions (see JunctionIndex), built once per annotation with the 'junctionindexer' tool and
+ * memory mapped by the mapper:
+ *
+ * header:	magic (long), version (int), strand specific (byte), annotation size (long), annotation checksum (long, crc32),
+ * 			data checksum (long, crc32 of everything after the header)
+ * table:	absolute path of the annotation (modified utf-8), number of strands (int, 1 or 2 for strand specific indices: forward, reverse), for each strand: number of chromosomes (int),
+ * 			for each chromosome: name (modified utf-8), number of junctions (int), offset of the junctions (long)
+ * data:	sorted junction keys of every chromosome (long, 8 byte aligned)
+ *
+ * The loaded indices are read-only views of the mapped file and can be shared by all threads.
+ */
+public class JunctionIndexFile {
+
+	static final long MAGIC = 0x434d324a554e4349L;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 37;
+
+	/**
+	 * writes the given junctions (one map for unstranded, two maps (forward, reverse) for strand specific junctions)
+	 * @param annotationFilePath the annotation the junctions were parsed from, its size and checksum are stored in the header
+	 */
+	public static void write(ArrayList<HashMap<String,JunctionIndex>> chr2junctions, String annotationFilePath, String outputPath) throws Exception {
+		//table with placeholder offsets to get its size, the offsets have a fixed width
+		File annotationFile = new File(annotationFilePath);
+		byte[] table = getTable(chr2junctions, annotationFile.getAbsolutePath(), 0);
+		long dataStart = align(HEADER_SIZE + table.length);
+		table = getTable(chr2junctions, annotationFile.getAbsolutePath(), dataStart);
+
+		CRC32 dataChecksum = new CRC32();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(outputPath)),1024 * 1024));
+		out.write(new byte[HEADER_SIZE]);
+		out.write(table);
+		dataChecksum.update(table);
+		byte[] padding = new byte[(int)(dataStart - HEADER_SIZE - table.length)];
+		out.write(padding);
+		dataChecksum.update(padding);
+
+		byte[] keyBytes = new byte[8];
+		long key;
+		for(HashMap<String,JunctionIndex> currentMap : chr2junctions) {
+			for(String chr : currentMap.keySet()) {
+				JunctionIndex junctions = currentMap.get(chr);
+				for(int i = 0; i < junctions.size(); i++) {
+					key = junctions.getKeyAt(i);
+					for(int j = 0; j < 8; j++)
+						keyBytes[j] = (byte)(key >>> (56 - 8 * j));
+					out.write(keyBytes);
+					dataChecksum.update(keyBytes);
+				}
+			}
+		}
+		out.close();
+
+		RandomAccessFile raf = new RandomAccessFile(new File(outputPath),"rw");
+		raf.writeLong(MAGIC);
+		raf.writeInt(VERSION);
+		raf.writeByte((chr2junctions.size() > 1) ? 1 : 0);
+		raf.writeLong(annotationFile.length());
+		raf.writeLong(getChecksum(annotationFile));
+		raf.writeLong(dataChecksum.getValue());
+		raf.close();
+	}
+
+	private static byte[] getTable(ArrayList<HashMap<String,JunctionIndex>> chr2junctions, String annotationFilePath, long dataStart) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream table = new DataOutputStream(bytes);
+		long offset = dataStart;
+		table.writeUTF(annotationFilePath);
+		table.writeInt(chr2junctions.size());
+		for(HashMap<String,JunctionIndex> currentMap : chr2junctions) {
+			table.writeInt(currentMap.size());
+			for(String chr : currentMap.keySet()) {
+				JunctionIndex junctions = currentMap.get(chr);
+				junctions.sort();
+				table.writeUTF(chr);
+				table.writeInt(junctions.size());
+				table.writeLong(offset);
+				offset += 8L * junctions.size();
+			}
+		}
+		table.close();
+		return bytes.toByteArray();
+	}
+
+
+	/**
+	 * maps the given index file and returns the junctions (one map for unstranded, two maps (forward, reverse) for strand specific indices)
+	 */
+	public static ArrayList<HashMap<String,JunctionIndex>> load(String inputPath) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(inputPath),"r");
+		try {
+			checkHeader(raf,inputPath);
+			raf.readByte();
+			raf.readLong();
+			raf.readLong();
+			long expectedChecksum = raf.readLong();
+
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			buffer.position(HEADER_SIZE);
+			CRC32 dataChecksum = new CRC32();
+			dataChecksum.update(buffer);
+			if(dataChecksum.getValue() != expectedChecksum)
+				throw new Exception(String.format("%s is corrupt (checksum mismatch). Please rebuild the junction index.",inputPath));
+
+			ArrayList<HashMap<String,JunctionIndex>> chr2junctions = new ArrayList<HashMap<String,JunctionIndex>>();
+			//annotation path
+			raf.readUTF();
+			int strands = raf.readInt();
+			int chrs;
+			String chr;
+			int junctions;
+			long offset;
+			for(int i = 0; i < strands; i++) {
+				HashMap<String,JunctionIndex> currentMap = new HashMap<String,JunctionIndex>();
+				chrs = raf.readInt();
+				for(int j = 0; j < chrs; j++) {
+					chr = raf.readUTF();
+					junctions = raf.readInt();
+					offset = raf.readLong();
+					buffer.limit((int)(offset + 8L * junctions));
+					buffer.position((int)offset);
+					currentMap.put(chr, new JunctionIndex(buffer.slice().asLongBuffer()));
+					buffer.clear();
+				}
+				chr2junctions.add(currentMap);
+			}
+			return chr2junctions;
+		}
+		finally {
+			//the mapping stays valid after closing the file
+			raf.close();
+		}
+	}
+
+
+	public static boolean isJunctionIndexFile(String path) {
+		File file = new File(path);
+		if(!file.isFile() || file.length() < HEADER_SIZE)
+			return false;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file,"r");
+			boolean isIndex = (raf.readLong() == MAGIC);
+			raf.close();
+			return isIndex;
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	public static boolean isStrandSpecific(String path) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(path),"r");
+		try {
+			checkHeader(raf,path);
+			return raf.readByte() == 1;
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * returns the absolute path of the annotation the index was built from
+	 */
+	public static String getAnnotationFilePath(String path) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(path),"r");
+		try {
+			checkHeader(raf,path);
+			raf.seek(HEADER_SIZE);
+			return raf.readUTF();
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * returns true if the index was built from the given annotation file (same size and checksum)
+	 */
+	public static boolean isBuiltFrom(String path, String annotationFilePath) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(path),"r");
+		try {
+			checkHeader(raf,path);
+			raf.readByte();
+			File annotationFile = new File(annotationFilePath);
+			return raf.readLong() == annotationFile.length() && raf.readLong() == getChecksum(annotationFile);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+
+	private static void checkHeader(RandomAccessFile raf, String path) throws Exception {
+		if(raf.length() < HEADER_SIZE || raf.readLong() != MAGIC)
+			throw new Exception(String.format("%s is not a valid junction index file.",path));
+		int version = raf.readInt();
+		if(version != VERSION)
+			throw new Exception(String.format("%s: unsupported junction index version (%s). Please rebuild the junction index.",path,version));
+	}
+
+	private static long getChecksum(File file) throws Exception {
+		CRC32 checksum = new CRC32();
+		byte[] buffer = new byte[1024 * 1024];
+		int length;
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		while((length = in.read(buffer)) != -1)
+			checksum.update(buffer, 0, length);
+		in.close();
+		return checksum.getValue();
+	}
+
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+}
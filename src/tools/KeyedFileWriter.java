@@ -0,0 +1,147 @@
+package tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * writes lines to one file per key (e.g. <outputDir>/<chr>.rmap) from several threads. Every thread collects its lines in
+ * a Buffer, which writes them in blocks per key. A block is written under the lock of its key stripe only, so blocks of
+ * different keys are written concurrently.
+ *
+ * At most maxOpenFiles files are kept open, the least recently used file which is not written at the moment is closed
+ * when another file has to be opened. Files are opened in append mode, a closed file is reopened on its next block.
+ */
+public class KeyedFileWriter {
+
+	private static final int STRIPES = 64;
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private String outputDir;
+	private String fileExtension;
+	private int maxOpenFiles;
+	private Object[] stripes;
+	//access ordered, the first entry is the least recently used file
+	private LinkedHashMap<String,OpenFile> key2file;
+
+
+	public KeyedFileWriter(String outputDir, String fileExtension, int maxOpenFiles) {
+		this.outputDir = outputDir;
+		this.fileExtension = fileExtension;
+		this.maxOpenFiles = Math.max(1, maxOpenFiles);
+		this.stripes = new Object[STRIPES];
+		for(int i = 0; i < this.stripes.length; i++)
+			this.stripes[i] = new Object();
+		this.key2file = new LinkedHashMap<String,OpenFile>(16, 0.75f, true);
+	}
+
+	/**
+	 * buffer for the lines of one thread, the buffer must not be shared by several threads
+	 */
+	public Buffer newBuffer() {
+		return new Buffer();
+	}
+
+	/**
+	 * appends a block of complete lines to the file of the given key
+	 */
+	public void write(String key, CharSequence lines) throws Exception {
+		if(lines.length() == 0)
+			return;
+		byte[] bytes = lines.toString().getBytes();
+		synchronized(this.stripes[(key.hashCode() & 0x7fffffff) % STRIPES]) {
+			OpenFile file = acquire(key);
+			try {
+				file.outputStream.write(bytes);
+			}
+			finally {
+				release(file);
+			}
+		}
+	}
+
+	public synchronized void close() throws Exception {
+		for(OpenFile file : this.key2file.values())
+			file.outputStream.close();
+		this.key2file.clear();
+	}
+
+
+	private synchronized OpenFile acquire(String key) throws Exception {
+		OpenFile file = this.key2file.get(key);
+		if(file == null) {
+			closeUnusedFiles(this.maxOpenFiles - 1);
+			file = new OpenFile(new FileOutputStream(new File(this.outputDir + "/" + key + this.fileExtension),true));
+			this.key2file.put(key, file);
+		}
+		file.users++;
+		return file;
+	}
+
+	private synchronized void release(OpenFile file) {
+		file.users--;
+	}
+
+	/**
+	 * closes least recently used files until at most maxFiles files are open. Files which are written at the moment are
+	 * kept open, so there can be more open files than maxFiles (at most one per writing thread).
+	 */
+	private void closeUnusedFiles(int maxFiles) throws Exception {
+		Iterator<Map.Entry<String,OpenFile>> iter = this.key2file.entrySet().iterator();
+		OpenFile file;
+		while(this.key2file.size() > maxFiles && iter.hasNext()) {
+			file = iter.next().getValue();
+			if(file.users > 0)
+				continue;
+			file.outputStream.close();
+			iter.remove();
+		}
+	}
+
+
+	private class OpenFile {
+
+		private FileOutputStream outputStream;
+		private int users;
+
+		public OpenFile(FileOutputStream outputStream) {
+			this.outputStream = outputStream;
+			this.users = 0;
+		}
+	}
+
+
+	public class Buffer {
+
+		private HashMap<String,StringBuilder> key2lines;
+
+		private Buffer() {
+			this.key2lines = new HashMap<String,StringBuilder>();
+		}
+
+		public void write(String key, String line) throws Exception {
+			StringBuilder lines = this.key2lines.get(key);
+			if(lines == null) {
+				lines = new StringBuilder();
+				this.key2lines.put(key, lines);
+			}
+			lines.append(line).append('\n');
+			if(lines.length() >= BUFFER_SIZE) {
+				KeyedFileWriter.this.write(key, lines);
+				lines.setLength(0);
+			}
+		}
+
+		/**
+		 * writes all buffered lines
+		 */
+		public void flush() throws Exception {
+			for(Map.Entry<String,StringBuilder> entry : this.key2lines.entrySet())
+				KeyedFileWriter.this.write(entry.getKey(), entry.getValue());
+			this.key2lines.clear();
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * line reader on a memory mapped file with the seek(), getFilePointer() and getNextLine() contract of BufferedRandomAccessFile.
+ * The file is mapped in segments (64 MB per default) which start at multiples of the segment size (counted from the start of
+ * the range, see below), a line crossing the end of a segment is read from a larger mapping of its segment. Every segment is
+ * mapped once and reused by later seeks, so there are at most length / segment size mappings per reader. Lines are decoded
+ * as in BufferedRandomAccessFile (one char per byte), a trailing '\r' is removed.
+ *
+ * Besides getNextLine() there is an allocation free line api: nextLine() moves to the next line, getLine() returns a view on it
+ * and splitLine() determines the fields, which can be parsed or compared without creating Strings. The view and the fields are
+ * only valid until the next call of nextLine(), getNextLine() or seek().
+ *
+ * A reader can be restricted to a byte range of the file (e.g. the lines of a single context), only this range is mapped then.
+ * Positions stay file positions, positions outside of the range are treated as its start or end. A reader must not be shared
+ * by several threads.
+ */
+public class MappedLineReader {
+
+	private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long NEWLINES = '\n' * LOW_BITS;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long length;
+	private long rangeStart;
+	private boolean isRange;
+	private int segmentSize;
+
+	private MappedByteBuffer segment;
+	//segment start -> mapping
+	private HashMap<Long,MappedByteBuffer> segments;
+	private long segmentStart;
+	private int segmentLength;
+	private int position;
+
+	//current line (relative to the segment)
+	private int lineStart;
+	private int lineLength;
+	private LineView lineView;
+	private byte[] lineBytes;
+
+	//start and end (exclusive) of the fields of the current line, relative to the line start
+	private int[] fieldBounds;
+	private int fieldCount;
+
+	public MappedLineReader(File file) throws IOException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MappedLineReader(File file, int segmentSize) throws IOException {
+		this(file, 0, -1, segmentSize);
+	}
+
+	/**
+	 * reader on the bytes from start (inclusive) to end (exclusive) of the file, starting at position start
+	 */
+	public MappedLineReader(File file, long start, long end) throws IOException {
+		this(file, start, end, DEFAULT_SEGMENT_SIZE);
+	}
+
+	private MappedLineReader(File file, long start, long end, int segmentSize) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.isRange = end >= 0;
+		this.length = this.isRange ? Math.min(end, this.channel.size()) : this.channel.size();
+		this.rangeStart = Math.max(0, Math.min(start, this.length));
+		this.segmentSize = Math.max(1, segmentSize);
+		this.segments = new HashMap<Long,MappedByteBuffer>();
+		this.lineView = new LineView();
+		this.lineBytes = new byte[256];
+		this.fieldBounds = new int[32];
+		this.fieldCount = 0;
+		map(this.rangeStart, 0);
+	}
+
+
+	public long length() {
+		return this.length;
+	}
+
+	public long getFilePointer() {
+		return this.segmentStart + this.position;
+	}
+
+	public void seek(long pos) throws IOException {
+		this.lineLength = 0;
+		this.fieldCount = 0;
+		pos = Math.max(this.rangeStart, Math.min(pos, this.length));
+		if(pos >= this.segmentStart && pos <= this.segmentStart + this.segmentLength)
+			this.position = (int)(pos - this.segmentStart);
+		else
+			map(pos, 0);
+	}
+
+	public void close() throws IOException {
+		this.segment = null;
+		this.segments.clear();
+		this.channel.close();
+		this.file.close();
+	}
+
+
+	/**
+	 * returns the next line (without line break), null at the end of the file
+	 */
+	public String getNextLine() throws IOException {
+		if(!nextLine())
+			return null;
+		return getString(this.lineStart, this.lineLength);
+	}
+
+	/**
+	 * moves to the next line, returns false at the end of the file
+	 */
+	public boolean nextLine() throws IOException {
+		this.fieldCount = 0;
+		if(this.position >= this.segmentLength && !hasMoreSegments()) {
+			this.lineLength = 0;
+			return false;
+		}
+		if(this.position >= this.segmentLength)
+			map(this.segmentStart + this.position, 0);
+
+		int lineEnd = this.position;
+		while(true) {
+			lineEnd = indexOf(NEWLINES, lineEnd, this.segmentLength);
+			if(lineEnd < this.segmentLength || !hasMoreSegments())
+				break;
+
+			//the line continues in the next segment
+			int scanned = lineEnd - this.position;
+			map(this.segmentStart + this.position, scanned + 1);
+			lineEnd = this.position + scanned;
+		}
+
+		this.lineStart = this.position;
+		this.position = (lineEnd < this.segmentLength) ? lineEnd + 1 : lineEnd;
+		if(lineEnd > this.lineStart && this.segment.get(lineEnd - 1) == '\r')
+			lineEnd--;
+		this.lineLength = lineEnd - this.lineStart;
+		return true;
+	}
+
+	/**
+	 * reads a single byte (0 to 255), -1 at the end of the file
+	 */
+	public int read() throws IOException {
+		this.lineLength = 0;
+		this.fieldCount = 0;
+		if(this.position >= this.segmentLength) {
+			if(!hasMoreSegments())
+				return -1;
+			map(this.segmentStart + this.position, 0);
+		}
+		return this.segment.get(this.position++) & 0xff;
+	}
+
+	/**
+	 * view on the current line of nextLine(), valid until the next line is read
+	 */
+	public CharSequence getLine() {
+		return this.lineView;
+	}
+
+	public int getLineLength() {
+		return this.lineLength;
+	}
+
+
+	/**
+	 * splits the current line at the given separator and returns the number of fields
+	 */
+	public int splitLine(char separator) {
+		this.fieldCount = 0;
+		long pattern = (separator & 0xffL) * LOW_BITS;
+		int lineEnd = this.lineStart + this.lineLength;
+		int fieldStart = this.lineStart;
+		int i = this.lineStart;
+		long word;
+		long matches;
+		int match;
+		//all separators of a word, the highest bit of every byte equal to the separator is set (no false positives)
+		for(; i + 8 <= lineEnd; i += 8) {
+			word = this.segment.getLong(i) ^ pattern;
+			matches = ~(((word & LOW_7_BITS) + LOW_7_BITS) | word | LOW_7_BITS);
+			while(matches != 0) {
+				match = i + (Long.numberOfTrailingZeros(matches) >>> 3);
+				addField(fieldStart - this.lineStart, match - this.lineStart);
+				fieldStart = match + 1;
+				matches &= matches - 1;
+			}
+		}
+		for(; i < lineEnd; i++) {
+			if(this.segment.get(i) == separator) {
+				addField(fieldStart - this.lineStart, i - this.lineStart);
+				fieldStart = i + 1;
+			}
+		}
+		addField(fieldStart - this.lineStart, this.lineLength);
+		return this.fieldCount;
+	}
+
+	private void addField(int start, int end) {
+		if(2 * this.fieldCount + 1 >= this.fieldBounds.length) {
+			int[] tmpBounds = new int[this.fieldBounds.length * 2];
+			System.arraycopy(this.fieldBounds, 0, tmpBounds, 0, this.fieldBounds.length);
+			this.fieldBounds = tmpBounds;
+		}
+		this.fieldBounds[2 * this.fieldCount] = start;
+		this.fieldBounds[2 * this.fieldCount + 1] = end;
+		this.fieldCount++;
+	}
+
+	/**
+	 * number of fields of the last splitLine() call
+	 */
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	public int getFieldLength(int field) {
+		checkField(field);
+		return this.fieldBounds[2 * field + 1] - this.fieldBounds[2 * field];
+	}
+
+	public char getFieldChar(int field, int index) {
+		checkField(field);
+		return (char)(this.segment.get(this.lineStart + this.fieldBounds[2 * field] + index) & 0xff);
+	}
+
+	public String getField(int field) {
+		checkField(field);
+		return getString(this.lineStart + this.fieldBounds[2 * field], getFieldLength(field));
+	}
+
+	public boolean fieldEquals(int field, String value) {
+		int fieldLength = getFieldLength(field);
+		if(fieldLength != value.length())
+			return false;
+		int fieldStart = this.lineStart + this.fieldBounds[2 * field];
+		for(int i = 0; i < fieldLength; i++) {
+			if((char)(this.segment.get(fieldStart + i) & 0xff) != value.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	public int parseIntField(int field) {
+		long value = parseLongField(field);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new NumberFormatException(String.format("For input string: \"%s\"", getField(field)));
+		return (int)value;
+	}
+
+	public long parseLongField(int field) {
+		int fieldLength = getFieldLength(field);
+		int fieldStart = this.lineStart + this.fieldBounds[2 * field];
+		int i = 0;
+		boolean negative = false;
+		if(fieldLength > 0 && (this.segment.get(fieldStart) == '-' || this.segment.get(fieldStart) == '+')) {
+			negative = this.segment.get(fieldStart) == '-';
+			i++;
+		}
+		if(i == fieldLength || fieldLength - i > 18)
+			return Long.valueOf(getField(field));
+
+		long value = 0;
+		byte digit;
+		for(; i < fieldLength; i++) {
+			digit = this.segment.get(fieldStart + i);
+			if(digit < '0' || digit > '9')
+				throw new NumberFormatException(String.format("For input string: \"%s\"", getField(field)));
+			value = value * 10 + (digit - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	private void checkField(int field) {
+		if(field < 0 || field >= this.fieldCount)
+			throw new IndexOutOfBoundsException(String.format("field %s of %s fields", field, this.fieldCount));
+	}
+
+
+	/**
+	 * returns the first position in [from,to) of the byte repeated in the given pattern (to if there is none).
+	 * Eight bytes are compared at once, a byte equal to the searched one is a zero byte of (word ^ pattern).
+	 */
+	private int indexOf(long pattern, int from, int to) {
+		int i = from;
+		long word;
+		long zeroBytes;
+		for(; i + 8 <= to; i += 8) {
+			word = this.segment.getLong(i) ^ pattern;
+			zeroBytes = (word - LOW_BITS) & ~word & HIGH_BITS;
+			if(zeroBytes != 0)
+				return i + (Long.numberOfTrailingZeros(zeroBytes) >>> 3);
+		}
+		byte b = (byte)pattern;
+		for(; i < to; i++) {
+			if(this.segment.get(i) == b)
+				return i;
+		}
+		return to;
+	}
+
+	private boolean hasMoreSegments() throws IOException {
+		if(this.segmentStart + this.segmentLength < this.length)
+			return true;
+		if(this.isRange)
+			return false;
+		//the file may have grown since it was opened
+		this.length = this.channel.size();
+		return this.segmentStart + this.segmentLength < this.length;
+	}
+
+	/**
+	 * moves to the given file position in its segment, the segment contains at least minLength bytes from this position on if the
+	 * file is long enough. The mapping of the segment is reused unless it is too short.
+	 */
+	private void map(long pos, int minLength) throws IOException {
+		long start = pos - ((pos - this.rangeStart) % this.segmentSize);
+		long size = Math.min(Math.max((long)this.segmentSize, (pos - start) + (long)minLength * 2), this.length - start);
+		size = Math.min(size, Integer.MAX_VALUE);
+		this.segment = this.segments.get(start);
+		if(this.segment == null || this.segment.capacity() < size) {
+			this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			//the first byte of a word is its lowest byte (see indexOf())
+			this.segment.order(ByteOrder.LITTLE_ENDIAN);
+			this.segments.put(start, this.segment);
+		}
+		this.segmentStart = start;
+		this.segmentLength = this.segment.capacity();
+		this.position = (int)(pos - start);
+	}
+
+	private String getString(int start, int length) {
+		if(length > this.lineBytes.length)
+			this.lineBytes = new byte[Math.max(length, 2 * this.lineBytes.length)];
+		this.segment.position(start);
+		this.segment.get(this.lineBytes, 0, length);
+		return new String(this.lineBytes, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+
+	private class LineView implements CharSequence {
+
+		@Override
+		public int length() {
+			return lineLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if(index < 0 || index >= lineLength)
+				throw new IndexOutOfBoundsException(String.format("index %s of line with length %s", index, lineLength));
+			return (char)(segment.get(lineStart + index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return getString(lineStart + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return getString(lineStart, lineLength);
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * 2 bit packed chromosome sequence backed by a memory mapped file.
+ *
+ * The packed file is built once per reference fasta file (in the 'packed' sub directory of the reference directory) and
+ * is rebuilt whenever size or modification date of the fasta file change.
+ *
+ * File layout: magic (long), version (int), fasta size (long), fasta modification date (long), sequence length (int),
+ * number of soft masked runs (int), number of exceptions (int), followed by the packed bases (4 per byte),
+ * the N bitmap (1 bit per base), the soft masked runs (start,end int pairs, end exclusive) and the exceptions
+ * (positions as int followed by the original characters).
+ * Every position that is not A,C,G or T is flagged in the N bitmap. If the original character is not an N it is additionally
+ * stored as exception.
+ *
+ * Sub sequences are views on the same mapped buffers, charAt() returns upper case characters unless the original
+ * case is requested explicitly.
+ */
+public class PackedReferenceSequence implements CharSequence {
+
+	public static final String PACKED_DIR = "packed";
+	public static final String FILE_EXTENSION = ".2bit";
+
+	private static final long MAGIC = 0x434d32524546L;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 40;
+
+	private static final char[] BASES = {'A','C','G','T'};
+	private static final byte[] BASE2CODE = new byte[256];
+	static {
+		Arrays.fill(BASE2CODE, (byte)-1);
+		BASE2CODE['A'] = 0; BASE2CODE['a'] = 0;
+		BASE2CODE['C'] = 1; BASE2CODE['c'] = 1;
+		BASE2CODE['G'] = 2; BASE2CODE['g'] = 2;
+		BASE2CODE['T'] = 3; BASE2CODE['t'] = 3;
+	}
+
+	private MappedByteBuffer bases;
+	private MappedByteBuffer nBitmap;
+	private int[] maskStarts;
+	private int[] maskEnds;
+	private int[] exceptionPositions;
+	private byte[] exceptionCharacters;
+
+	private int offset;
+	private int length;
+
+
+	/**
+	 * empty sequence, use load() to map a chromosome
+	 */
+	public PackedReferenceSequence() {
+		clear();
+	}
+
+	private PackedReferenceSequence(PackedReferenceSequence parent, int offset, int length) {
+		this.bases = parent.bases;
+		this.nBitmap = parent.nBitmap;
+		this.maskStarts = parent.maskStarts;
+		this.maskEnds = parent.maskEnds;
+		this.exceptionPositions = parent.exceptionPositions;
+		this.exceptionCharacters = parent.exceptionCharacters;
+		this.offset = offset;
+		this.length = length;
+	}
+
+
+	/**
+	 * maps the packed version of the given single sequence fasta file. The packed file is built if it does not exist or is outdated.
+	 * @param fastaFile
+	 */
+	public void load(File fastaFile) throws Exception {
+		File packedFile = getPackedFile(fastaFile);
+		if(!isUpToDate(packedFile, fastaFile)) {
+			File packedDir = packedFile.getParentFile();
+			packedDir.mkdirs();
+			if(packedDir.isDirectory() && packedDir.canWrite()) {
+				//build to a tmp file first, concurrent runs may use the same reference directory
+				File tmpFile = File.createTempFile(packedFile.getName() + ".", ".tmp", packedDir);
+				buildPackedFile(fastaFile, tmpFile);
+				if(!tmpFile.renameTo(packedFile)) {
+					packedFile.delete();
+					if(!tmpFile.renameTo(packedFile))
+						packedFile = tmpFile;
+				}
+			}
+			//reference directory is not writable
+			else {
+				packedFile = File.createTempFile(packedFile.getName() + ".", ".tmp");
+				packedFile.deleteOnExit();
+				buildPackedFile(fastaFile, packedFile);
+			}
+		}
+		map(packedFile);
+	}
+
+	public void clear() {
+		this.bases = null;
+		this.nBitmap = null;
+		this.maskStarts = new int[0];
+		this.maskEnds = new int[0];
+		this.exceptionPositions = new int[0];
+		this.exceptionCharacters = new byte[0];
+		this.offset = 0;
+		this.length = 0;
+	}
+
+	public static File getPackedFile(File fastaFile) {
+		String name = fastaFile.getName();
+		if(name.indexOf('.') != -1)
+			name = name.substring(0,name.lastIndexOf('.'));
+		return new File(fastaFile.getAbsoluteFile().getParentFile(), PACKED_DIR + "/" + name + FILE_EXTENSION);
+	}
+
+	private boolean isUpToDate(File packedFile, File fastaFile) {
+		if(!packedFile.isFile() || packedFile.length() < HEADER_SIZE)
+			return false;
+		try {
+			DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(packedFile),HEADER_SIZE));
+			boolean upToDate = (dis.readLong() == MAGIC && dis.readInt() == VERSION && dis.readLong() == fastaFile.length() && dis.readLong() == fastaFile.lastModified());
+			dis.close();
+			return upToDate;
+		}
+		catch(Exception e) {
+			return false;
+		}
+	}
+
+
+	private void map(File packedFile) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(packedFile,"r");
+		FileChannel channel = raf.getChannel();
+		if(raf.readLong() != MAGIC || raf.readInt() != VERSION) {
+			raf.close();
+			throw new Exception(String.format("%s is not a valid packed reference file.",packedFile.getAbsolutePath()));
+		}
+		raf.readLong();
+		raf.readLong();
+		int sequenceLength = raf.readInt();
+		int maskRuns = raf.readInt();
+		int exceptions = raf.readInt();
+
+		long position = HEADER_SIZE;
+		this.bases = channel.map(FileChannel.MapMode.READ_ONLY, position, getPackedSize(sequenceLength));
+		position += getPackedSize(sequenceLength);
+		this.nBitmap = channel.map(FileChannel.MapMode.READ_ONLY, position, getBitmapSize(sequenceLength));
+		position += getBitmapSize(sequenceLength);
+
+		//masked runs and exceptions are small, keep them on the heap
+		raf.seek(position);
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD()),65536));
+		this.maskStarts = new int[maskRuns];
+		this.maskEnds = new int[maskRuns];
+		for(int i = 0; i < maskRuns; i++) {
+			this.maskStarts[i] = dis.readInt();
+			this.maskEnds[i] = dis.readInt();
+		}
+		this.exceptionPositions = new int[exceptions];
+		this.exceptionCharacters = new byte[exceptions];
+		for(int i = 0; i < exceptions; i++)
+			this.exceptionPositions[i] = dis.readInt();
+		dis.readFully(this.exceptionCharacters);
+		raf.close();
+
+		this.offset = 0;
+		this.length = sequenceLength;
+	}
+
+
+	private void buildPackedFile(File fastaFile, File packedFile) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(packedFile,"rw");
+		raf.setLength(0);
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(raf.getFD()),1048576));
+		dos.write(new byte[HEADER_SIZE]);
+
+		//the fasta size is an upper bound for the sequence length
+		byte[] bitmap = new byte[getBitmapSize((int)Math.min(Integer.MAX_VALUE, fastaFile.length()))];
+		IntArray maskRuns = new IntArray();
+		IntArray exceptionPositions = new IntArray();
+		ByteArray exceptionCharacters = new ByteArray();
+
+		BufferedInputStream bis = new BufferedInputStream(new FileInputStream(fastaFile),1048576);
+		int c = bis.read();
+		//skip the header
+		if(c == '>') {
+			while((c = bis.read()) != -1 && c != '\n');
+			c = bis.read();
+		}
+
+		int position = 0;
+		int currentByte = 0;
+		int code;
+		boolean masked = false;
+		for(; c != -1; c = bis.read()) {
+			if(c == '\n' || c == '\r')
+				continue;
+
+			//a second header is not expected, stop here
+			if(c == '>')
+				break;
+
+			if(c >= 'a' && c <= 'z') {
+				if(!masked) {
+					maskRuns.add(position);
+					masked = true;
+				}
+			}
+			else if(masked) {
+				maskRuns.add(position);
+				masked = false;
+			}
+
+			code = BASE2CODE[c];
+			if(code == -1) {
+				bitmap[position >>> 3] |= (1 << (position & 7));
+				if(c != 'N' && c != 'n') {
+					exceptionPositions.add(position);
+					exceptionCharacters.add((byte)c);
+				}
+				code = 0;
+			}
+			currentByte |= (code << ((position & 3) << 1));
+			position++;
+			if((position & 3) == 0) {
+				dos.write(currentByte);
+				currentByte = 0;
+			}
+		}
+		bis.close();
+		if(masked)
+			maskRuns.add(position);
+		if((position & 3) != 0)
+			dos.write(currentByte);
+
+		dos.write(bitmap, 0, getBitmapSize(position));
+		for(int i = 0; i < maskRuns.size(); i++)
+			dos.writeInt(maskRuns.get(i));
+		for(int i = 0; i < exceptionPositions.size(); i++)
+			dos.writeInt(exceptionPositions.get(i));
+		for(int i = 0; i < exceptionCharacters.size(); i++)
+			dos.write(exceptionCharacters.get(i));
+		dos.flush();
+
+		raf.seek(0);
+		raf.writeLong(MAGIC);
+		raf.writeInt(VERSION);
+		raf.writeLong(fastaFile.length());
+		raf.writeLong(fastaFile.lastModified());
+		raf.writeInt(position);
+		raf.writeInt(maskRuns.size() / 2);
+		raf.writeInt(exceptionPositions.size());
+		raf.close();
+	}
+
+	private static long getPackedSize(int sequenceLength) {
+		return ((long)sequenceLength + 3) >>> 2;
+	}
+
+	private static int getBitmapSize(int sequenceLength) {
+		return (int)(((long)sequenceLength + 7) >>> 3);
+	}
+
+
+	public int length() {
+		return this.length;
+	}
+
+	/**
+	 * returns the upper case base at the given index
+	 */
+	public char charAt(int index) {
+		if(index < 0 || index >= this.length)
+			throw new StringIndexOutOfBoundsException(index);
+		int position = this.offset + index;
+		if((this.nBitmap.get(position >>> 3) & (1 << (position & 7))) != 0)
+			return Character.toUpperCase(getUnknownBase(position));
+		return BASES[(this.bases.get(position >>> 2) >>> ((position & 3) << 1)) & 3];
+	}
+
+	private char getUnknownBase(int position) {
+		int index = Arrays.binarySearch(this.exceptionPositions, position);
+		if(index >= 0)
+			return (char)this.exceptionCharacters[index];
+		return 'N';
+	}
+
+	/**
+	 * zero copy view on the given range
+	 */
+	public PackedReferenceSequence subSequence(int start, int end) {
+		if(start < 0 || end > this.length || start > end)
+			throw new StringIndexOutOfBoundsException(String.format("start %s, end %s, length %s",start,end,this.length));
+		return new PackedReferenceSequence(this, this.offset + start, end - start);
+	}
+
+	/**
+	 * upper case copy of the given range
+	 */
+	public String substring(int start, int end) {
+		return substring(start,end,false);
+	}
+
+	/**
+	 * copy of the given range. With originalCase set soft masked bases are returned in lower case (as they are written in the fasta file).
+	 */
+	public String substring(int start, int end, boolean originalCase) {
+		if(start < 0 || end > this.length || start > end)
+			throw new StringIndexOutOfBoundsException(String.format("start %s, end %s, length %s",start,end,this.length));
+		char[] sequence = new char[end - start];
+		for(int i = 0; i < sequence.length; i++)
+			sequence[i] = charAt(start + i);
+
+		if(originalCase && this.maskStarts.length > 0) {
+			int from = this.offset + start;
+			int to = this.offset + end;
+			//first run ending behind 'from'
+			int runIndex = Arrays.binarySearch(this.maskEnds, from);
+			runIndex = (runIndex >= 0) ? runIndex + 1 : -runIndex - 1;
+			for(; runIndex < this.maskStarts.length && this.maskStarts[runIndex] < to; runIndex++) {
+				for(int i = Math.max(from, this.maskStarts[runIndex]); i < Math.min(to, this.maskEnds[runIndex]); i++)
+					sequence[i - from] = Character.toLowerCase(sequence[i - from]);
+			}
+		}
+		return new String(sequence);
+	}
+
+	public String toString() {
+		return substring(0,this.length);
+	}
+
+
+	private class IntArray {
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		public void add(int value) {
+			if(this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			this.values[this.size++] = value;
+		}
+
+		public int get(int index) {
+			return this.values[index];
+		}
+
+		public int size() {
+			return this.size;
+		}
+	}
+
+	private class ByteArray {
+		private byte[] values = new byte[1024];
+		private int size = 0;
+
+		public void add(byte value) {
+			if(this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			this.values[this.size++] = value;
+		}
+
+		public byte get(int index) {
+			return this.values[index];
+		}
+
+		public int size() {
+			return this.size;
+		}
+	}
+}
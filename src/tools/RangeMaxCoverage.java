@@ -0,0 +1,135 @@
+package tools;
+
+/**
+ * per base coverage values stored in a primitive segment tree (leaves at [size,2*size), node i = max(2i,2i+1)).
+ * Returns the maximum coverage of a range in O(log n).
+ *
+ * Updates only change the leaves and mark them as dirty, the inner nodes of the dirty range are
+ * recomputed with the next range query. Series of updates without queries in between (e.g. discarding
+ * the non-best locations of multi mapped reads) therefore cost O(1) per position.
+ */
+public class RangeMaxCoverage {
+
+	private final int size;
+	private final double[] tree;
+	private int dirtyStart;
+	private int dirtyEnd;
+
+	public RangeMaxCoverage(int size) {
+		this.size = size;
+		this.tree = new double[Math.max(2,2 * size)];
+		this.dirtyStart = Integer.MAX_VALUE;
+		this.dirtyEnd = Integer.MIN_VALUE;
+	}
+
+	public RangeMaxCoverage(RangeMaxCoverage coverage) {
+		this.size = coverage.size;
+		this.tree = coverage.tree.clone();
+		this.dirtyStart = coverage.dirtyStart;
+		this.dirtyEnd = coverage.dirtyEnd;
+	}
+
+
+	public int size() {
+		return this.size;
+	}
+
+	public double get(int index) {
+		checkRange(index,index);
+		return this.tree[this.size + index];
+	}
+
+	public void set(int index, double value) {
+		checkRange(index,index);
+		this.tree[this.size + index] = value;
+		markDirty(index,index);
+	}
+
+
+	/**
+	 * adds value to every position of [from,to]
+	 * @param from
+	 * @param to
+	 * @param value
+	 */
+	public void add(int from, int to, double value) {
+		if(to < from)
+			return;
+
+		checkRange(from,to);
+		for(int i = this.size + from; i <= this.size + to; i++)
+			this.tree[i] += value;
+		markDirty(from,to);
+	}
+
+
+	/**
+	 * subtracts value from every position of [from,to], negative coverages are set to 0
+	 * @param from
+	 * @param to
+	 * @param value
+	 */
+	public void subtract(int from, int to, double value) {
+		if(to < from)
+			return;
+
+		checkRange(from,to);
+		for(int i = this.size + from; i <= this.size + to; i++) {
+			this.tree[i] -= value;
+			if(this.tree[i] < 0)
+				this.tree[i] = 0.0;
+		}
+		markDirty(from,to);
+	}
+
+
+	/**
+	 * returns the maximum coverage of [from,to] (at least 0)
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public double getMaximum(int from, int to) {
+		if(to < from)
+			return 0.0;
+
+		checkRange(from,to);
+		if(this.dirtyStart <= this.dirtyEnd)
+			updateInnerNodes();
+
+		double maxCover = 0.0;
+		for(int l = this.size + from, r = this.size + to + 1; l < r; l >>>= 1, r >>>= 1) {
+			if((l & 1) == 1 && this.tree[l++] > maxCover)
+				maxCover = this.tree[l - 1];
+			if((r & 1) == 1 && this.tree[--r] > maxCover)
+				maxCover = this.tree[r];
+		}
+		return maxCover;
+	}
+
+
+	private void markDirty(int from, int to) {
+		if(from < this.dirtyStart)
+			this.dirtyStart = from;
+		if(to > this.dirtyEnd)
+			this.dirtyEnd = to;
+	}
+
+	private void updateInnerNodes() {
+		int l = this.size + this.dirtyStart;
+		int r = this.size + this.dirtyEnd;
+		while(l > 1) {
+			l >>>= 1;
+			r >>>= 1;
+			for(int i = l; i <= r; i++)
+				this.tree[i] = Math.max(this.tree[2 * i],this.tree[2 * i + 1]);
+		}
+		this.dirtyStart = Integer.MAX_VALUE;
+		this.dirtyEnd = Integer.MIN_VALUE;
+	}
+
+	private void checkRange(int from, int to) {
+		if(from < 0 || to >= this.size)
+			throw new ArrayIndexOutOfBoundsException(String.format("coverage range [%s,%s] out of bounds (size: %s)",from,to,this.size));
+	}
+}
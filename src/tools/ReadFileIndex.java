@@ -0,0 +1,303 @@
+package tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+
+
+/**
+ * On-disk read id -> file offset index for a two-line fasta file (header line followed by the sequence line).
+ *
+ * Index layout: magic (long), number of entries (long), followed by (hash,offset) long pairs sorted by hash.
+ * The hash is a 64 bit FNV-1a hash of the read id. Collisions are possible and have to be resolved by the caller
+ * by comparing the header line found at the returned offset.
+ */
+public class ReadFileIndex {
+
+	public static final String FILE_EXTENSION = ".fpidx";
+
+	private static final long MAGIC = 0x434d3252464958L;
+	private static final int HEADER_SIZE = 16;
+	private static final int ENTRY_SIZE = 16;
+	private static final int BUCKET_BITS = 8;
+	//entries per mapped segment (1GB segments)
+	private static final int SEGMENT_BITS = 26;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private MappedByteBuffer[] segments;
+	private long entries;
+
+	public ReadFileIndex() {
+
+	}
+
+	/**
+	 * maps an index file previously created with buildIndex()
+	 * @param indexFilePath
+	 */
+	public ReadFileIndex(String indexFilePath) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(indexFilePath),"r");
+		FileChannel channel = raf.getChannel();
+		if(raf.readLong() != MAGIC) {
+			raf.close();
+			throw new Exception(String.format("%s is not a valid read index file.",indexFilePath));
+		}
+		this.entries = raf.readLong();
+		int segmentCount = (int)((this.entries + SEGMENT_MASK) >> SEGMENT_BITS);
+		this.segments = new MappedByteBuffer[segmentCount];
+		long segmentEntries;
+		for(int i = 0; i < segmentCount; i++) {
+			segmentEntries = Math.min(1L << SEGMENT_BITS, this.entries - ((long)i << SEGMENT_BITS));
+			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (((long)i << SEGMENT_BITS) * ENTRY_SIZE), segmentEntries * ENTRY_SIZE);
+		}
+		raf.close();
+	}
+
+
+	/**
+	 * Scans the given fasta file once and writes the index. Entries are first distributed into hash buckets (tmpDirPath),
+	 * each bucket is sorted in memory and appended to the index file.
+	 * @param readFilePath
+	 * @param indexFilePath
+	 * @param tmpDirPath
+	 */
+	public void buildIndex(String readFilePath, String indexFilePath, String tmpDirPath) throws Exception {
+		int bucketCount = 1 << BUCKET_BITS;
+		File bucketDir = new File(tmpDirPath + "/read_index_buckets");
+		bucketDir.mkdirs();
+		DataOutputStream[] bucketWriters = new DataOutputStream[bucketCount];
+		long[] bucketSizes = new long[bucketCount];
+		for(int i = 0; i < bucketCount; i++)
+			bucketWriters[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(bucketDir,String.valueOf(i))),65536));
+
+		BufferedInputStream bis = new BufferedInputStream(new FileInputStream(new File(readFilePath)),1048576);
+		long filePointer = 0;
+		long lineStart = 0;
+		long hash = 0;
+		boolean isHeader = false;
+		boolean lineBegin = true;
+		boolean pendingCarriageReturn = false;
+		int c;
+		int bucket;
+		while((c = bis.read()) != -1) {
+			if(lineBegin) {
+				lineStart = filePointer;
+				isHeader = (c == '>');
+				lineBegin = false;
+				hash = 0xcbf29ce484222325L;
+				pendingCarriageReturn = false;
+				filePointer++;
+				if(isHeader)
+					continue;
+			}
+			else
+				filePointer++;
+
+			if(c == '\n') {
+				if(isHeader) {
+					//flipping the sign bit keeps the bucket order consistent with the signed hash order
+					bucket = (int)((hash ^ Long.MIN_VALUE) >>> (64 - BUCKET_BITS));
+					bucketWriters[bucket].writeLong(hash);
+					bucketWriters[bucket].writeLong(lineStart);
+					bucketSizes[bucket]++;
+				}
+				lineBegin = true;
+				continue;
+			}
+
+			if(isHeader) {
+				//a '\r' is only part of the id if it is not directly followed by the line break
+				if(pendingCarriageReturn)
+					hash = updateHash(hash,'\r');
+
+				if(c == '\r')
+					pendingCarriageReturn = true;
+				else {
+					pendingCarriageReturn = false;
+					hash = updateHash(hash,c);
+				}
+			}
+		}
+		bis.close();
+		//last header without trailing line break does not have a sequence and is therefore not indexed
+
+		long totalEntries = 0;
+		for(int i = 0; i < bucketCount; i++) {
+			bucketWriters[i].close();
+			totalEntries += bucketSizes[i];
+		}
+
+		DataOutputStream indexWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(indexFilePath)),1048576));
+		indexWriter.writeLong(MAGIC);
+		indexWriter.writeLong(totalEntries);
+
+		DataInputStream bucketReader;
+		long[] hashes;
+		long[] offsets;
+		File bucketFile;
+		for(int i = 0; i < bucketCount; i++) {
+			bucketFile = new File(bucketDir,String.valueOf(i));
+			hashes = new long[(int)bucketSizes[i]];
+			offsets = new long[(int)bucketSizes[i]];
+			bucketReader = new DataInputStream(new BufferedInputStream(new FileInputStream(bucketFile),65536));
+			for(int j = 0; j < hashes.length; j++) {
+				hashes[j] = bucketReader.readLong();
+				offsets[j] = bucketReader.readLong();
+			}
+			bucketReader.close();
+			bucketFile.delete();
+
+			sort(hashes,offsets,0,hashes.length - 1);
+			for(int j = 0; j < hashes.length; j++) {
+				indexWriter.writeLong(hashes[j]);
+				indexWriter.writeLong(offsets[j]);
+			}
+		}
+		indexWriter.close();
+		bucketDir.delete();
+	}
+
+
+	public long size() {
+		return this.entries;
+	}
+
+
+	/**
+	 * returns the sorted and unique file offsets of all header lines whose read id hash matches one of the given ids.
+	 * @param readIds
+	 * @return
+	 */
+	public long[] getOffsets(Collection<String> readIds) {
+		long[] offsets = new long[Math.max(16,readIds.size())];
+		int size = 0;
+		long hash;
+		long index;
+		for(String readId : readIds) {
+			hash = getHash(readId);
+			index = getFirstIndex(hash);
+			while(index < this.entries && getHashAt(index) == hash) {
+				if(size == offsets.length)
+					offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+				offsets[size++] = getOffsetAt(index);
+				index++;
+			}
+		}
+
+		Arrays.sort(offsets,0,size);
+		int uniqueSize = 0;
+		for(int i = 0; i < size; i++) {
+			if(uniqueSize == 0 || offsets[uniqueSize - 1] != offsets[i])
+				offsets[uniqueSize++] = offsets[i];
+		}
+		return Arrays.copyOf(offsets, uniqueSize);
+	}
+
+
+	/**
+	 * returns the offset of the first header line with a matching hash, -1 if there is no such entry.
+	 * @param readId
+	 * @return
+	 */
+	public long getOffset(String readId) {
+		long hash = getHash(readId);
+		long index = getFirstIndex(hash);
+		if(index < this.entries && getHashAt(index) == hash)
+			return getOffsetAt(index);
+		return -1;
+	}
+
+
+	private long getFirstIndex(long hash) {
+		long low = 0;
+		long high = this.entries;
+		long mid;
+		while(low < high) {
+			mid = (low + high) >>> 1;
+			if(getHashAt(mid) < hash)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private long getHashAt(long index) {
+		return this.segments[(int)(index >>> SEGMENT_BITS)].getLong((int)((index & SEGMENT_MASK) * ENTRY_SIZE));
+	}
+
+	private long getOffsetAt(long index) {
+		return this.segments[(int)(index >>> SEGMENT_BITS)].getLong((int)((index & SEGMENT_MASK) * ENTRY_SIZE) + 8);
+	}
+
+
+	public static long getHash(String readId) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i = 0; i < readId.length(); i++)
+			hash = updateHash(hash,readId.charAt(i));
+		return hash;
+	}
+
+	private static long updateHash(long hash, int c) {
+		hash ^= (c & 0xff);
+		hash *= 0x100000001b3L;
+		return hash;
+	}
+
+
+	/**
+	 * sorts keys and values by keys (quicksort with insertion sort for small ranges)
+	 */
+	private void sort(long[] keys, long[] values, int left, int right) {
+		int i;
+		int j;
+		long pivot;
+		while(right - left > 16) {
+			pivot = keys[(left + right) >>> 1];
+			i = left;
+			j = right;
+			while(i <= j) {
+				while(keys[i] < pivot) i++;
+				while(keys[j] > pivot) j--;
+				if(i <= j) {
+					swap(keys,values,i,j);
+					i++;
+					j--;
+				}
+			}
+			//recurse into the smaller part
+			if(j - left < right - i) {
+				sort(keys,values,left,j);
+				left = i;
+			}
+			else {
+				sort(keys,values,i,right);
+				right = j;
+			}
+		}
+
+		for(i = left + 1; i <= right; i++) {
+			for(j = i; j > left && keys[j - 1] > keys[j]; j--)
+				swap(keys,values,j,j - 1);
+		}
+	}
+
+	private void swap(long[] keys, long[] values, int i, int j) {
+		long tmp = keys[i];
+		keys[i] = keys[j];
+		keys[j] = tmp;
+		tmp = values[i];
+		values[i] = values[j];
+		values[j] = tmp;
+	}
+
+}
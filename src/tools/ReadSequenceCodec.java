@@ -0,0 +1,196 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ * 2 bit encoding of read sequences (A -> 00, C -> 01, G -> 10, T -> 11).
+ *
+ * layout of the long array:
+ * [0]	sequence length (lower 32 bits), number of N positions (upper 32 bits)
+ * [1..]	bases, 32 per long (base i at bits 2*(i%32))
+ * [..]	N positions, 2 ints per long (sorted)
+ *
+ * every character except A,C,G and T (case insensitive) is decoded as N.
+ * The encoding is unique for a given sequence, i.e. two packed sequences can be compared with Arrays.equals().
+ */
+public class ReadSequenceCodec {
+
+	private static final char[] BASES = {'A','C','G','T'};
+	private static final byte[] BASE2CODE = new byte[128];
+	//4 bases per byte
+	private static final char[][] BYTE2BASES = new char[256][4];
+
+	static {
+		Arrays.fill(BASE2CODE, (byte)-1);
+		BASE2CODE['A'] = 0; BASE2CODE['a'] = 0;
+		BASE2CODE['C'] = 1; BASE2CODE['c'] = 1;
+		BASE2CODE['G'] = 2; BASE2CODE['g'] = 2;
+		BASE2CODE['T'] = 3; BASE2CODE['t'] = 3;
+
+		for(int i = 0; i < 256; i++) {
+			for(int j = 0; j < 4; j++)
+				BYTE2BASES[i][j] = BASES[(i >>> (j << 1)) & 3];
+		}
+	}
+
+
+	public ReadSequenceCodec() {
+
+	}
+
+
+	public long[] compress(String s) {
+		int length = s.length();
+		int nCount = 0;
+		char c;
+		for(int i = 0; i < length; i++) {
+			c = s.charAt(i);
+			if(c >= 128 || BASE2CODE[c] == -1)
+				nCount++;
+		}
+
+		int baseWords = (length + 31) >>> 5;
+		long[] packed = new long[1 + baseWords + ((nCount + 1) >>> 1)];
+		packed[0] = ((long)nCount << 32) | length;
+
+		int nIndex = 0;
+		int nOffset = 1 + baseWords;
+		int code;
+		for(int i = 0; i < length; i++) {
+			c = s.charAt(i);
+			code = (c >= 128) ? -1 : BASE2CODE[c];
+			if(code == -1) {
+				packed[nOffset + (nIndex >>> 1)] |= ((long)i << ((nIndex & 1) << 5));
+				nIndex++;
+				continue;
+			}
+			packed[1 + (i >>> 5)] |= ((long)code << ((i & 31) << 1));
+		}
+		return packed;
+	}
+
+
+	public String decompress(long[] packed) {
+		int length = length(packed);
+		char[] sequence = new char[length];
+		long word;
+		int i = 0;
+		for(int w = 1; i < length; w++) {
+			word = packed[w];
+			for(int b = 0; b < 8 && i < length; b++, word >>>= 8) {
+				char[] bases = BYTE2BASES[(int)(word & 0xff)];
+				for(int j = 0; j < 4 && i < length; j++)
+					sequence[i++] = bases[j];
+			}
+		}
+
+		int nCount = getNCount(packed);
+		int nOffset = 1 + ((length + 31) >>> 5);
+		for(int n = 0; n < nCount; n++)
+			sequence[getNPosition(packed, nOffset, n)] = 'N';
+
+		return new String(sequence);
+	}
+
+
+	public static int length(long[] packed) {
+		return (int)packed[0];
+	}
+
+
+	/**
+	 * returns the base at the given position without decompressing the sequence
+	 */
+	public static char charAt(long[] packed, int index) {
+		int nCount = getNCount(packed);
+		if(nCount > 0 && isN(packed, nCount, index))
+			return 'N';
+
+		return BASES[(int)(packed[1 + (index >>> 5)] >>> ((index & 31) << 1)) & 3];
+	}
+
+
+	/**
+	 * returns the base at the given position of the reverse complement without decompressing the sequence
+	 */
+	public static char reverseComplementCharAt(long[] packed, int index) {
+		int position = length(packed) - 1 - index;
+		int nCount = getNCount(packed);
+		if(nCount > 0 && isN(packed, nCount, position))
+			return 'N';
+
+		//A <-> T, C <-> G
+		return BASES[3 - ((int)(packed[1 + (position >>> 5)] >>> ((position & 31) << 1)) & 3)];
+	}
+
+
+	/**
+	 * read only view of the packed sequence (or its reverse complement), the bases are read from the packed form
+	 */
+	public static CharSequence view(long[] packed, boolean reverseComplement) {
+		return new PackedSequence(packed, reverseComplement);
+	}
+
+
+	private static int getNCount(long[] packed) {
+		return (int)(packed[0] >>> 32);
+	}
+
+	private static int getNPosition(long[] packed, int nOffset, int n) {
+		return (int)(packed[nOffset + (n >>> 1)] >>> ((n & 1) << 5));
+	}
+
+	private static boolean isN(long[] packed, int nCount, int index) {
+		int nOffset = 1 + ((length(packed) + 31) >>> 5);
+		int low = 0;
+		int high = nCount - 1;
+		int mid;
+		int position;
+		while(low <= high) {
+			mid = (low + high) >>> 1;
+			position = getNPosition(packed, nOffset, mid);
+			if(position < index)
+				low = mid + 1;
+			else if(position > index)
+				high = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+
+	private static class PackedSequence implements CharSequence {
+
+		private long[] packed;
+		private boolean reverseComplement;
+
+		public PackedSequence(long[] packed, boolean reverseComplement) {
+			this.packed = packed;
+			this.reverseComplement = reverseComplement;
+		}
+
+		@Override
+		public int length() {
+			return ReadSequenceCodec.length(this.packed);
+		}
+
+		@Override
+		public char charAt(int index) {
+			return this.reverseComplement ? reverseComplementCharAt(this.packed, index) : ReadSequenceCodec.charAt(this.packed, index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			StringBuilder sb = new StringBuilder(end - start);
+			for(int i = start; i < end; i++)
+				sb.append(charAt(i));
+			return sb.toString();
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+}
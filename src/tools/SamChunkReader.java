@@ -0,0 +1,187 @@
+package tools;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * reads a sam file once with several threads. The file is split into one chunk per thread, chunk boundaries are moved
+ * to the next line start. Every thread feeds the records of its chunk to its own partial aggregates, which are merged
+ * into the given aggregates in chunk order afterwards. Header lines are skipped.
+ */
+public class SamChunkReader {
+
+	private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+	public interface Aggregator {
+
+		/**
+		 * returns a new empty aggregate with the same (read-only) configuration, used by a single thread
+		 */
+		Aggregator createPartial();
+
+		/**
+		 * processes the tab separated fields of a sam record
+		 */
+		void processRecord(String[] fields) throws Exception;
+
+		/**
+		 * adds the counts of the given partial aggregate (returned by createPartial())
+		 */
+		void merge(Aggregator partial);
+	}
+
+
+	public static void read(String samFilePath, int threads, List<? extends Aggregator> aggregators) throws Exception {
+		long[] chunkStarts = getChunkStarts(samFilePath, Math.max(1,threads));
+		ExecutorService chunkExecutor = Executors.newFixedThreadPool(chunkStarts.length - 1);
+		ArrayList<Future<ArrayList<Aggregator>>> futures = new ArrayList<Future<ArrayList<Aggregator>>>();
+		try {
+			for(int i = 0; i < chunkStarts.length - 1; i++)
+				futures.add(chunkExecutor.submit(new ChunkProcessor(samFilePath, chunkStarts[i], chunkStarts[i + 1], aggregators)));
+
+			ArrayList<Aggregator> partials;
+			for(Future<ArrayList<Aggregator>> future : futures) {
+				partials = future.get();
+				for(int i = 0; i < aggregators.size(); i++)
+					aggregators.get(i).merge(partials.get(i));
+			}
+		}
+		finally {
+			chunkExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * returns the start offsets of the chunks and the file length as last element, every chunk starts at a line start
+	 */
+	private static long[] getChunkStarts(String samFilePath, int chunks) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(new File(samFilePath),"r");
+		long length = raf.length();
+		long[] chunkStarts = new long[chunks + 1];
+		int size = 1;
+		long start;
+		int b;
+		for(int i = 1; i < chunks; i++) {
+			start = Math.max(length / chunks * i, chunkStarts[size - 1]);
+			if(start == 0)
+				continue;
+
+			//the chunk starts after the next line break
+			raf.seek(start - 1);
+			while((b = raf.read()) != -1 && b != '\n')
+				start++;
+			if(start >= length)
+				break;
+			if(start > chunkStarts[size - 1])
+				chunkStarts[size++] = start;
+		}
+		raf.close();
+		chunkStarts[size++] = length;
+		return Arrays.copyOf(chunkStarts, size);
+	}
+
+
+	private static class ChunkProcessor implements Callable<ArrayList<Aggregator>> {
+
+		private String samFilePath;
+		private long start;
+		private long end;
+		private ArrayList<Aggregator> partials;
+
+		public ChunkProcessor(String samFilePath, long start, long end, List<? extends Aggregator> aggregators) {
+			this.samFilePath = samFilePath;
+			this.start = start;
+			this.end = end;
+			this.partials = new ArrayList<Aggregator>();
+			for(Aggregator aggregator : aggregators)
+				this.partials.add(aggregator.createPartial());
+		}
+
+		@Override
+		public ArrayList<Aggregator> call() throws Exception {
+			Charset charset = Charset.defaultCharset();
+			RandomAccessFile raf = new RandomAccessFile(new File(this.samFilePath),"r");
+			try {
+				raf.seek(this.start);
+				byte[] buffer = new byte[(int)Math.min(BUFFER_SIZE, Math.max(1, this.end - this.start))];
+				long remaining = this.end - this.start;
+				//number of bytes of an incomplete line at the beginning of the buffer
+				int carry = 0;
+				int length;
+				int lineStart;
+				while(remaining > 0 || carry > 0) {
+					length = carry;
+					if(remaining > 0) {
+						if(carry == buffer.length)
+							buffer = Arrays.copyOf(buffer, buffer.length * 2);
+						int bytesRead = raf.read(buffer, carry, (int)Math.min(buffer.length - carry, remaining));
+						if(bytesRead == -1)
+							break;
+						length += bytesRead;
+						remaining -= bytesRead;
+					}
+
+					lineStart = 0;
+					for(int i = 0; i < length; i++) {
+						if(buffer[i] == '\n') {
+							processLine(buffer, lineStart, i, charset);
+							lineStart = i + 1;
+						}
+					}
+
+					//last line of the chunk without a line break
+					if(remaining == 0) {
+						if(lineStart < length)
+							processLine(buffer, lineStart, length, charset);
+						break;
+					}
+
+					carry = length - lineStart;
+					System.arraycopy(buffer, lineStart, buffer, 0, carry);
+				}
+			}
+			finally {
+				raf.close();
+			}
+			return this.partials;
+		}
+
+		private void processLine(byte[] buffer, int lineStart, int lineEnd, Charset charset) throws Exception {
+			if(lineEnd > lineStart && buffer[lineEnd - 1] == '\r')
+				lineEnd--;
+			if(lineEnd == lineStart || buffer[lineStart] == '@')
+				return;
+
+			String[] fields = splitTabs(new String(buffer, lineStart, lineEnd - lineStart, charset));
+			for(Aggregator partial : this.partials)
+				partial.processRecord(fields);
+		}
+	}
+
+	private static String[] splitTabs(String line) {
+		int fieldCount = 1;
+		for(int i = 0; i < line.length(); i++) {
+			if(line.charAt(i) == '\t')
+				fieldCount++;
+		}
+		String[] fields = new String[fieldCount];
+		int fieldStart = 0;
+		int field = 0;
+		for(int i = 0; i < line.length(); i++) {
+			if(line.charAt(i) == '\t') {
+				fields[field++] = line.substring(fieldStart, i);
+				fieldStart = i + 1;
+			}
+		}
+		fields[field] = line.substring(fieldStart);
+		return fields;
+	}
+}
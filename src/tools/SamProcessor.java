@@ -12,6 +12,7 @@ import java.nio.channels.FileChannel;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -26,6 +27,7 @@ import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import augmentedTree.Interval;
 import main.Pair;
 import main.Statistic;
 
@@ -839,8 +841,7 @@ public class SamProcessor {
 			ExecutorService executor = Executors.newFixedThreadPool(threads);
 			String refName;
 			File refFile;
-			StringBuilder sb = new StringBuilder();
-			BufferedReader br;
+			PackedReferenceSequence reference = new PackedReferenceSequence();
 			ArrayList<Future> futures = new ArrayList<Future>();
 			
 			BufferedRandomAccessFile rf;
@@ -865,13 +866,8 @@ public class SamProcessor {
 					continue;
 				}
 				
-				//buffer current reference
-				sb.setLength(0);
-				br = new BufferedReader(new FileReader(refFile));
-				br.readLine();
-				while(br.ready()) {
-					sb.append(br.readLine());
-				}
+				//map current reference
+				reference.load(refFile);
 				
 				rf = new BufferedRandomAccessFile(samFile,"r",1024);
 				fileSize = rf.getChannel().size();
@@ -886,7 +882,7 @@ public class SamProcessor {
 					currentPosition = rf.getFilePointer();
 					
 					tmpOutputFilePath = inputDirPath + "/" + samFile.getName() + ".mod" + chunkIndex;
-					futures.add(executor.submit(new MDFlagGenerator(samFile,sb, tmpOutputFilePath,prevPosition,currentPosition,considerClippedRegions)));
+					futures.add(executor.submit(new MDFlagGenerator(samFile,reference, tmpOutputFilePath,prevPosition,currentPosition,considerClippedRegions)));
 					tmpPaths.add(tmpOutputFilePath);
 					prevPosition = currentPosition;
 					chunkIndex++;
@@ -921,7 +917,7 @@ public class SamProcessor {
 	private class MDFlagGenerator extends Thread {
 		
 		private File samFile;
-		private StringBuilder reference;
+		private PackedReferenceSequence reference;
 		private String outputFilePath;
 		private long startPos;
 		private long stopPos;
@@ -929,7 +925,7 @@ public class SamProcessor {
 		private boolean considerClippedRegions;
 		
 		
-		public MDFlagGenerator(File samFile, StringBuilder reference, String outputFilePath, long startPos, long stopPos, boolean considerClippedRegions) {
+		public MDFlagGenerator(File samFile, PackedReferenceSequence reference, String outputFilePath, long startPos, long stopPos, boolean considerClippedRegions) {
 			this.samFile = samFile;
 			this.reference = reference;
 			this.outputFilePath = outputFilePath;
@@ -1058,14 +1054,14 @@ public class SamProcessor {
 					 * now determine the md flag
 					 */
 					if(gaps.isEmpty())
-						refSequence = this.reference.substring(start - 1,start + readSequence.length() - 1).toUpperCase();
+						refSequence = this.reference.substring(start - 1,start + readSequence.length() - 1);
 					else {
 						refSequence = "";
 						for(int i = 0; i < gaps.size(); i++) {
-							refSequence += this.reference.substring(start - 1, start + matches.get(i) - 1).toUpperCase();
+							refSequence += this.reference.substring(start - 1, start + matches.get(i) - 1);
 							start += matches.get(i) + gaps.get(i);
 						}
-						refSequence += this.reference.substring(start - 1, start + matches.get(matches.size() - 1) - 1).toUpperCase();
+						refSequence += this.reference.substring(start - 1, start + matches.get(matches.size() - 1) - 1);
 					}
 					
 					mdField = "";
@@ -1108,7 +1104,7 @@ public class SamProcessor {
 							if(softClippedAtTheStart) {
 								if(start - clippingLengthStart - 1 >= 0) {
 									readSequence = completeReadSequence.substring(0,clippingLengthStart);
-									refSequence = this.reference.substring(start - clippingLengthStart - 1,start - 1).toUpperCase();
+									refSequence = this.reference.substring(start - clippingLengthStart - 1,start - 1);
 									currentMatchCount = 0;
 									currentMismatchCount = 0;
 									tmpMdField = "";
@@ -1141,7 +1137,7 @@ public class SamProcessor {
 								if(start + completeReadSequence.length() - 1 <= this.reference.length()) {
 									
 									readSequence = completeReadSequence.substring(completeReadSequence.length() - clippingLengthEnd,completeReadSequence.length());
-									refSequence = this.reference.substring(start + completeReadSequence.length() - clippingLengthEnd - 1, start + completeReadSequence.length() - 1).toUpperCase();
+									refSequence = this.reference.substring(start + completeReadSequence.length() - clippingLengthEnd - 1, start + completeReadSequence.length() - 1);
 									
 									currentMatchCount = 0;
 									firstMatchCount = -1;
@@ -1522,7 +1518,7 @@ public class SamProcessor {
 	
 	
 	//sam file should NOT contain any multi mappings
-	public void getMicrobialContentFromConcatenatedGenomes(String samFilePath, String indexFolderPath, String refseqCatalogFilePath, String customSpeciesNamesFilePath, boolean mergeContigs, boolean useMDflag, HashSet<String> referenceChromosomes) {
+	public void getMicrobialContentFromConcatenatedGenomes(String samFilePath, String indexFolderPath, String refseqCatalogFilePath, String customSpeciesNamesFilePath, boolean mergeContigs, boolean useMDflag, HashSet<String> referenceChromosomes, int threads) {
 		try {
 			File[] indexFiles = new File(indexFolderPath).listFiles();
 			BufferedReader indexReader;
@@ -1535,10 +1531,10 @@ public class SamProcessor {
 			int microbeEnd;
 			Date date;
 			//hash index files
-			HashMap<String,TreeMap<Integer,Microbe>> idx2microbes = new HashMap<String,TreeMap<Integer,Microbe>>();
+			HashMap<String,SpeciesLocator<Microbe>> idx2microbes = new HashMap<String,SpeciesLocator<Microbe>>();
 			HashMap<String,Microbe> microbe2mergedContigs = new HashMap<String,Microbe>();
 			HashMap<String,String> accession2name = new HashMap<String,String>();
-			TreeMap<Integer,Microbe> microbe2start;
+			ArrayList<Microbe> microbes;
 			Pattern barPattern = Pattern.compile("\\|");
 			String[] splittedId;
 			date = new Date();
@@ -1548,8 +1544,7 @@ public class SamProcessor {
 				if(f.getName().substring(f.getName().lastIndexOf('.') + 1).equals("idx")) {
 					currentIndexName = f.getName().substring(0,f.getName().lastIndexOf('.'));
 					
-					microbe2start = new TreeMap<Integer,Microbe>();
-					idx2microbes.put(currentIndexName, microbe2start);
+					microbes = new ArrayList<Microbe>();
 					indexReader = new BufferedReader(new FileReader(f));
 					while(indexReader.ready()) {
 						currentLine = indexReader.readLine();
@@ -1575,17 +1570,18 @@ public class SamProcessor {
 						
 						//here we have genbank and refseq ids, we remove the genbank info
 						if(splittedId.length >= 4) {
-							microbe2start.put(microbeStart, new Microbe(splittedId[3],microbeStart,microbeEnd,false));
+							microbes.add(new Microbe(splittedId[3],microbeStart,microbeEnd,false));
 							accession2name.put(splittedId[3],trivialName);
 						}
 						
 						//here we only have chromosome names from the reference (human,mouse or yeast)
 						else {
-							microbe2start.put(microbeStart, new Microbe(microbeId,microbeStart,microbeEnd,false));
+							microbes.add(new Microbe(microbeId,microbeStart,microbeEnd,false));
 							accession2name.put(microbeId,"NA");
 						}
 					}
 					indexReader.close();
+					idx2microbes.put(currentIndexName, new SpeciesLocator<Microbe>(microbes));
 				}
 			}
 			
@@ -1626,52 +1622,26 @@ public class SamProcessor {
 					accession2name.put(speciesName, speciesName);
 			}
 			
-			//process sam file
-			int overallContainedReads = 0;
-			BufferedReader samReader = new BufferedReader(new FileReader(new File(samFilePath)));
-			Microbe currentMicrobe;
-			while(samReader.ready()) {
-				currentLine = samReader.readLine();
-				st = new StringTokenizer(currentLine,"\t");
-				//read id bitflag
-				st.nextToken();
-				st.nextToken();
-				currentIndexName = st.nextToken();
-				if(idx2microbes.containsKey(currentIndexName)) {
-					
-					microbe2start = idx2microbes.get(currentIndexName);
-					microbeStart = Integer.valueOf(st.nextToken());
-					currentMicrobe = microbe2start.get(microbe2start.floorKey(microbeStart));
-					microbeId = currentMicrobe.getId();
-					
-					if(mergeContigs && microbeId.contains("NZ_")) {
-						if(microbe2mergedContigs.containsKey(microbeId.substring(0,9))) {
-							microbe2mergedContigs.get(microbeId.substring(0,9)).incrementContainedReads();
-							microbe2mergedContigs.get(microbeId.substring(0,9)).addCoveredPosition(microbeStart);
-						}
-					}
-					else if(mergeContigs && microbeId.length() >= 6 && microbeId.charAt(2) != '_' && microbe2mergedContigs.containsKey(microbeId.substring(0,6))) {
-						microbe2mergedContigs.get(microbeId.substring(0,6)).incrementContainedReads();
-						microbe2mergedContigs.get(microbeId.substring(0,6)).addCoveredPosition(microbeStart);
-					}
-					
-					else {
-						microbe2start.get(microbe2start.floorKey(microbeStart)).incrementContainedReads();
-						microbe2start.get(microbe2start.floorKey(microbeStart)).addCoveredPosition(microbeStart);
-					}
-					
-					overallContainedReads++;
-				}
-			}
-			samReader.close();
+			//process sam file, read counts, best hits and mismatch counts are collected in a single pass
+			ReadCountAggregator readCounts = new ReadCountAggregator(idx2microbes,microbe2mergedContigs,mergeContigs);
+			Statistic.GenomeIndex genomeIndex = new Statistic.GenomeIndex(indexFolderPath);
+			Statistic.BestHitAggregator bestHits = new Statistic.BestHitAggregator(genomeIndex,true,false);
+			Statistic.ErrorRateAggregator errorRates = new Statistic.ErrorRateAggregator(genomeIndex,useMDflag);
+			ArrayList<SamChunkReader.Aggregator> aggregators = new ArrayList<SamChunkReader.Aggregator>();
+			aggregators.add(readCounts);
+			aggregators.add(bestHits);
+			aggregators.add(errorRates);
+			SamChunkReader.read(samFilePath, threads, aggregators);
+			readCounts.addToMicrobes();
 			
 			
 			//output organisms with at least 1 contained read
 			HashMap<String,Integer> microbe2genomeLength = new HashMap<String,Integer>();
 			HashMap<String,Integer> microbe2coveredPositions = new HashMap<String,Integer>();
 			TreeMap<Integer,ArrayList<String>> sortedMappings = new TreeMap<Integer,ArrayList<String>>();
-			for(TreeMap<Integer,Microbe> tmpMap : idx2microbes.values()) {
-				for(Microbe microbe : tmpMap.values()) {
+			for(SpeciesLocator<Microbe> microbeLocator : idx2microbes.values()) {
+				for(int i = 0; i < microbeLocator.size(); i++) {
+					Microbe microbe = microbeLocator.get(i);
 					if(microbe.containedReads > 0) {
 						if(sortedMappings.containsKey(microbe.getContainedReads()))
 							sortedMappings.get(microbe.getContainedReads()).add(microbe.getId());
@@ -1681,7 +1651,7 @@ public class SamProcessor {
 							sortedMappings.put(microbe.getContainedReads(),microbeIds);
 						}
 						microbe2genomeLength.put(microbe.getId(), microbe.getLength());
-						microbe2coveredPositions.put(microbe.getId(), microbe.getCoveredPositions().size());
+						microbe2coveredPositions.put(microbe.getId(), (int)microbe.getCoveredPositions().getCardinality());
 						
 					}
 					microbeId = microbe.getId();
@@ -1716,7 +1686,7 @@ public class SamProcessor {
 					}
 					
 					
-					microbe2coveredPositions.put(microbe.getId(), microbe.getCoveredPositions().size());
+					microbe2coveredPositions.put(microbe.getId(), (int)microbe.getCoveredPositions().getCardinality());
 				}
 			}
 			
@@ -1732,7 +1702,7 @@ public class SamProcessor {
 					id2trivialName.put(microbe,accession2name.get(microbe));
 				}
 			}
-			HashMap<String,Double> species2confidence = new Statistic().generateConfidenceScoresFromConcatenatedGenomes(samFilePath, null, indexFolderPath, false, id2trivialName);
+			HashMap<String,Double> species2confidence = new Statistic().getConfidenceScores(bestHits, null, false, id2trivialName);
 			
 			
 			date = new Date();
@@ -1741,7 +1711,7 @@ public class SamProcessor {
 			/**
 			 * Now get the mismatch rates and calculate the normalized JS values
 			 */
-			HashMap<String,HashMap<Integer,Double>> species2errorRate =  new Statistic().generateErrorRateTableFromConcatenatedGenomes(samFilePath, null,indexFolderPath, useMDflag, referenceChromosomes,id2trivialName);
+			HashMap<String,HashMap<Integer,Double>> species2errorRate = new Statistic().getErrorRateTable(errorRates, null, referenceChromosomes, id2trivialName);
 			HashMap<String,Double> species2divergence = new HashMap<String,Double>();
 			HashMap<String,Double> species2normalizedDivergence = new HashMap<String,Double>();
 			
@@ -1899,17 +1869,17 @@ public class SamProcessor {
 			int microbeStart;
 			int microbeEnd;
 			//hash index files
-			HashMap<String,TreeMap<Integer,Microbe>> idx2microbes = new HashMap<String,TreeMap<Integer,Microbe>>();
+			HashMap<String,SpeciesLocator<Microbe>> idx2microbes = new HashMap<String,SpeciesLocator<Microbe>>();
 			HashMap<String,Microbe> microbe2mergedContigs = new HashMap<String,Microbe>();
-			TreeMap<Integer,Microbe> microbe2start;
+			ArrayList<Microbe> microbes;
+			SpeciesLocator<Microbe> microbeLocator;
 			Pattern barPattern = Pattern.compile("\\|");
 			String[] splittedId;
 			for(File f : indexFiles) {
 				if(f.getName().substring(f.getName().lastIndexOf('.') + 1).equals("idx")) {
 					currentIndexName = f.getName().substring(0,f.getName().lastIndexOf('.'));
 					
-					microbe2start = new TreeMap<Integer,Microbe>();
-					idx2microbes.put(currentIndexName, microbe2start);
+					microbes = new ArrayList<Microbe>();
 					indexReader = new BufferedReader(new FileReader(f));
 					while(indexReader.ready()) {
 						currentLine = indexReader.readLine();
@@ -1923,12 +1893,12 @@ public class SamProcessor {
 							trivialName = st.nextToken();
 						//here we have genbank and refseq ids, we remove genbank info
 						if(splittedId.length >= 4) {
-							microbe2start.put(microbeStart, new Microbe(splittedId[3],trivialName,0,false));
+							microbes.add(new Microbe(splittedId[3],trivialName,microbeStart,microbeEnd));
 							
 						}
 						//here we only have chromosome names from the reference (human,mouse or yeast)
 						else {
-							microbe2start.put(microbeStart, new Microbe(microbeId,trivialName,0,false));
+							microbes.add(new Microbe(microbeId,trivialName,microbeStart,microbeEnd));
 							
 						}
 						
@@ -1943,6 +1913,7 @@ public class SamProcessor {
 						
 					}
 					indexReader.close();
+					idx2microbes.put(currentIndexName, new SpeciesLocator<Microbe>(microbes));
 				}
 			}
 			
@@ -1972,9 +1943,9 @@ public class SamProcessor {
 				currentIndexName = st.nextToken();
 				if(idx2microbes.containsKey(currentIndexName)) {
 					
-					microbe2start = idx2microbes.get(currentIndexName);
+					microbeLocator = idx2microbes.get(currentIndexName);
 					microbeStart = Integer.valueOf(st.nextToken());
-					microbe = microbe2start.get(microbe2start.floorKey(microbeStart));
+					microbe = microbeLocator.get(microbeLocator.getFloorIndex(microbeStart));
 					microbeId = microbe.getId();
 					trivialName = microbe.getTrivialName();
 					if(mergeContigs && microbeId.contains("NZ_")) {
@@ -2114,7 +2085,97 @@ public class SamProcessor {
 		return (cigString.substring(0,positionOfLastMatch) + String.valueOf((lastMatchCount + (referenceLength - readLength))) + "M");
 	}
 	
-	private class Microbe {
+	/**
+	 * counts the contained reads and covered positions of the index entries (or of their merged contigs) for the inspector.
+	 * The counts are added to the microbes with addToMicrobes() after processing the sam file.
+	 */
+	private class ReadCountAggregator implements SamChunkReader.Aggregator {
+		
+		private HashMap<String,SpeciesLocator<Microbe>> idx2microbes;
+		private HashMap<String,Microbe> microbe2mergedContigs;
+		private boolean mergeContigs;
+		
+		private HashMap<Microbe,int[]> microbe2containedReads;
+		private HashMap<Microbe,CompactBitmap> microbe2coveredPositions;
+		
+		public ReadCountAggregator(HashMap<String,SpeciesLocator<Microbe>> idx2microbes, HashMap<String,Microbe> microbe2mergedContigs, boolean mergeContigs) {
+			this.idx2microbes = idx2microbes;
+			this.microbe2mergedContigs = microbe2mergedContigs;
+			this.mergeContigs = mergeContigs;
+			this.microbe2containedReads = new HashMap<Microbe,int[]>();
+			this.microbe2coveredPositions = new HashMap<Microbe,CompactBitmap>();
+		}
+		
+		@Override
+		public SamChunkReader.Aggregator createPartial() {
+			return new ReadCountAggregator(this.idx2microbes,this.microbe2mergedContigs,this.mergeContigs);
+		}
+		
+		@Override
+		public void processRecord(String[] fields) {
+			if(fields.length < 4)
+				return;
+			
+			SpeciesLocator<Microbe> microbeLocator = this.idx2microbes.get(fields[2]);
+			if(microbeLocator == null)
+				return;
+			
+			//the read is assigned to the last genome starting at or before its start
+			int microbeStart = Integer.valueOf(fields[3]);
+			int microbeIndex = microbeLocator.getFloorIndex(microbeStart);
+			if(microbeIndex == -1)
+				return;
+			
+			Microbe currentMicrobe = microbeLocator.get(microbeIndex);
+			String microbeId = currentMicrobe.getId();
+			if(this.mergeContigs && microbeId.contains("NZ_")) {
+				if(this.microbe2mergedContigs.containsKey(microbeId.substring(0,9)))
+					addRead(this.microbe2mergedContigs.get(microbeId.substring(0,9)),microbeStart);
+			}
+			else if(this.mergeContigs && microbeId.length() >= 6 && microbeId.charAt(2) != '_' && this.microbe2mergedContigs.containsKey(microbeId.substring(0,6))) {
+				addRead(this.microbe2mergedContigs.get(microbeId.substring(0,6)),microbeStart);
+			}
+			else {
+				addRead(currentMicrobe,microbeStart);
+			}
+		}
+		
+		private void addRead(Microbe microbe, int position) {
+			int[] containedReads = this.microbe2containedReads.get(microbe);
+			if(containedReads == null) {
+				containedReads = new int[1];
+				this.microbe2containedReads.put(microbe, containedReads);
+				this.microbe2coveredPositions.put(microbe, new CompactBitmap());
+			}
+			containedReads[0]++;
+			this.microbe2coveredPositions.get(microbe).add(position);
+		}
+		
+		@Override
+		public void merge(SamChunkReader.Aggregator partial) {
+			ReadCountAggregator readCounts = (ReadCountAggregator)partial;
+			for(Microbe microbe : readCounts.microbe2containedReads.keySet()) {
+				if(this.microbe2containedReads.containsKey(microbe)) {
+					this.microbe2containedReads.get(microbe)[0] += readCounts.microbe2containedReads.get(microbe)[0];
+					this.microbe2coveredPositions.get(microbe).or(readCounts.microbe2coveredPositions.get(microbe));
+				}
+				else {
+					this.microbe2containedReads.put(microbe, readCounts.microbe2containedReads.get(microbe));
+					this.microbe2coveredPositions.put(microbe, readCounts.microbe2coveredPositions.get(microbe));
+				}
+			}
+		}
+		
+		public void addToMicrobes() {
+			for(Microbe microbe : this.microbe2containedReads.keySet()) {
+				microbe.setContainedReads(microbe.getContainedReads() + this.microbe2containedReads.get(microbe)[0]);
+				microbe.getCoveredPositions().or(this.microbe2coveredPositions.get(microbe));
+			}
+		}
+	}
+	
+	
+	private class Microbe implements Interval {
 		
 		private String id;
 		private String trivialName;
@@ -2124,7 +2185,7 @@ public class SamProcessor {
 		private int containedReads;
 		private boolean mergedContigs;
 		
-		private HashSet<Integer> coveredPositions;
+		private CompactBitmap coveredPositions;
 		
 		public Microbe(String id,String trivialName, int genomeLength, boolean mergedContigs) {
 			this.id = id;
@@ -2132,7 +2193,12 @@ public class SamProcessor {
 			this.genomeLength = genomeLength;
 			this.containedReads = 0;
 			this.mergedContigs = mergedContigs;
-			this.coveredPositions = new HashSet<Integer>();
+			this.coveredPositions = new CompactBitmap();
+		}
+		
+		public Microbe(String id,String trivialName, int start, int end) {
+			this(id,start,end,false);
+			this.trivialName = trivialName;
 		}
 		
 		public Microbe(String id,int start, int end, boolean mergedContigs) {
@@ -2142,14 +2208,14 @@ public class SamProcessor {
 			this.genomeLength = this.end - this.start;
 			this.containedReads = 0;
 			this.mergedContigs = mergedContigs;
-			this.coveredPositions = new HashSet<Integer>();
+			this.coveredPositions = new CompactBitmap();
 		}
 		
 		public void addCoveredPosition(int pos) {
 			this.coveredPositions.add(pos);
 		}
 		
-		public HashSet<Integer> getCoveredPositions() {
+		public CompactBitmap getCoveredPositions() {
 			return this.coveredPositions;
 		}
 		
@@ -2157,6 +2223,14 @@ public class SamProcessor {
 			return this.id;
 		}
 		
+		public int getStart() {
+			return this.start;
+		}
+		
+		public int getStop() {
+			return this.end;
+		}
+		
 		public String getTrivialName() {
 			return this.trivialName;
 		}
@@ -2189,8 +2263,7 @@ public class SamProcessor {
 	
 	public void getCoverage(String samFilePath, String outputFilePath, String indexFolderPath, int readLength) {
 		try {
-			TreeMap<Integer,Integer> coverage = new TreeMap<Integer,Integer>();
-			TreeMap<Integer,Integer> mismatchCounts = new TreeMap<Integer,Integer>();
+			PositionCounts coverage = new PositionCounts();
 			BufferedReader br = new BufferedReader(new FileReader(new File(samFilePath)));
 			
 			String currentLine;
@@ -2207,27 +2280,18 @@ public class SamProcessor {
 				currentStart = Integer.valueOf(splittedLine[3]) - relativeGenomeStart;
 				currentEnd = currentStart + readLength - 1;
 				mismatches = Integer.valueOf(splittedLine[11]);
-				for(int i =  currentStart; i <= currentEnd; i++) {
-					
-					//update coverages
-					if(coverage.containsKey(i))
-						coverage.put(i, coverage.get(i) + 1);
-					else
-						coverage.put(i, 1);
-					
-					//update mismatch counts
-					if(mismatchCounts.containsKey(i))
-						mismatchCounts.put(i, mismatchCounts.get(i) + mismatches);
-					else
-						mismatchCounts.put(i, mismatches);
-				}
+				
+				//update coverages and mismatch counts
+				coverage.add(currentStart,currentEnd,mismatches);
 			}
 			br.close();
 			PrintWriter pw = new PrintWriter(new FileWriter(new File(outputFilePath)));
 			pw.println("position\tcoverage\tmean_mismatches");
-			for(int i : coverage.keySet()) {
-				meanMismatches = trimDouble((double)mismatchCounts.get(i)/(double)coverage.get(i));
-				pw.println(String.format("%s\t%s\t%s",i,coverage.get(i),meanMismatches));
+			for(int i = coverage.getFirstPosition(); i <= coverage.getLastPosition(); i++) {
+				if(coverage.getCoverage(i) == 0)
+					continue;
+				meanMismatches = trimDouble((double)coverage.getMismatches(i)/(double)coverage.getCoverage(i));
+				pw.println(String.format("%s\t%s\t%s",i,coverage.getCoverage(i),meanMismatches));
 			}
 			pw.close();
 			
@@ -2237,6 +2301,75 @@ public class SamProcessor {
 		}
 	}
 	
+	/**
+	 * per position read and mismatch counts of a genome in primitive arrays, grows in both directions
+	 */
+	private static class PositionCounts {
+		
+		private int firstPosition;
+		private int[] coverage;
+		private long[] mismatches;
+		private int lastPosition;
+		
+		public PositionCounts() {
+			this.coverage = null;
+			this.mismatches = null;
+			this.firstPosition = 0;
+			this.lastPosition = -1;
+		}
+		
+		public void add(int from, int to, int mismatchCount) {
+			ensureRange(from,to);
+			for(int i = from - this.firstPosition; i <= to - this.firstPosition; i++) {
+				this.coverage[i]++;
+				this.mismatches[i] += mismatchCount;
+			}
+		}
+		
+		private void ensureRange(int from, int to) {
+			if(this.coverage == null) {
+				this.firstPosition = from;
+				this.lastPosition = to;
+				this.coverage = new int[Math.max(1024, to - from + 1)];
+				this.mismatches = new long[this.coverage.length];
+				return;
+			}
+			
+			if(from < this.firstPosition) {
+				int shift = Math.max(this.firstPosition - from, this.coverage.length / 2);
+				int[] tmpCoverage = new int[this.coverage.length + shift];
+				long[] tmpMismatches = new long[tmpCoverage.length];
+				System.arraycopy(this.coverage, 0, tmpCoverage, shift, this.coverage.length);
+				System.arraycopy(this.mismatches, 0, tmpMismatches, shift, this.mismatches.length);
+				this.coverage = tmpCoverage;
+				this.mismatches = tmpMismatches;
+				this.firstPosition -= shift;
+			}
+			if(to - this.firstPosition >= this.coverage.length) {
+				int length = Math.max(to - this.firstPosition + 1, this.coverage.length + this.coverage.length / 2);
+				this.coverage = Arrays.copyOf(this.coverage, length);
+				this.mismatches = Arrays.copyOf(this.mismatches, length);
+			}
+			this.lastPosition = Math.max(this.lastPosition, to);
+		}
+		
+		public int getFirstPosition() {
+			return this.firstPosition;
+		}
+		
+		public int getLastPosition() {
+			return this.lastPosition;
+		}
+		
+		public int getCoverage(int position) {
+			return this.coverage[position - this.firstPosition];
+		}
+		
+		public long getMismatches(int position) {
+			return this.mismatches[position - this.firstPosition];
+		}
+	}
+	
 	private int getRelativeGenomeStart(String samFilePath, String indexFolderPath) {
 		try {
 			
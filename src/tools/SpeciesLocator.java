@@ -0,0 +1,98 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+
+import augmentedTree.Interval;
+
+/**
+ * lookup of the genome (species) containing a position of a concatenated genome file. The start and end positions of the
+ * genomes are stored in int arrays sorted by start and searched binary, queries do not allocate objects.
+ * Genomes of concatenated index files do not overlap, for overlapping genomes the one with the largest start is returned.
+ *
+ * The locator is read-only after construction and can be shared by several threads.
+ */
+public class SpeciesLocator<T extends Interval> {
+
+	private int[] starts;
+	private int[] ends;
+	//maximum end of the genomes 0 to i, equal to ends for non overlapping genomes
+	private int[] maxEnds;
+	private ArrayList<T> genomes;
+
+	public SpeciesLocator(Collection<? extends T> genomes) {
+		this.genomes = new ArrayList<T>(genomes);
+		Collections.sort(this.genomes, new Comparator<T>() {
+			@Override
+			public int compare(T a, T b) {
+				return Integer.compare(a.getStart(), b.getStart());
+			}
+		});
+
+		this.starts = new int[this.genomes.size()];
+		this.ends = new int[this.genomes.size()];
+		this.maxEnds = new int[this.genomes.size()];
+		for(int i = 0; i < this.genomes.size(); i++) {
+			this.starts[i] = this.genomes.get(i).getStart();
+			this.ends[i] = this.genomes.get(i).getStop();
+			this.maxEnds[i] = (i == 0) ? this.ends[i] : Math.max(this.maxEnds[i - 1], this.ends[i]);
+		}
+	}
+
+
+	public int size() {
+		return this.genomes.size();
+	}
+
+	public T get(int index) {
+		return this.genomes.get(index);
+	}
+
+	public int getStart(int index) {
+		return this.starts[index];
+	}
+
+	public int getEnd(int index) {
+		return this.ends[index];
+	}
+
+	/**
+	 * returns the index of the genome containing the given position (start and end inclusive), -1 if there is none
+	 */
+	public int getIndex(int position) {
+		for(int i = getFloorIndex(position); i >= 0 && this.maxEnds[i] >= position; i--) {
+			if(this.ends[i] >= position)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * returns the genome containing the given position, null if there is none
+	 */
+	public T getGenome(int position) {
+		int index = getIndex(position);
+		if(index == -1)
+			return null;
+		return this.genomes.get(index);
+	}
+
+	/**
+	 * returns the index of the last genome starting at or before the given position, -1 if there is none
+	 */
+	public int getFloorIndex(int position) {
+		int low = 0;
+		int high = this.starts.length - 1;
+		int mid;
+		while(low <= high) {
+			mid = (low + high) >>> 1;
+			if(this.starts[mid] <= position)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return high;
+	}
+}